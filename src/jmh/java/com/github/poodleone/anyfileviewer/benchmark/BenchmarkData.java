@@ -0,0 +1,112 @@
+package com.github.poodleone.anyfileviewer.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Random;
+
+import com.github.poodleone.anyfileviewer.FileTypeConfiguration;
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.utils.ByteUtils;
+
+/**
+ * ベンチマーク用のレコード形式とデータファイルです.<br>
+ * レコード形式はbenchmark/benchmark.properties(レイアウト定義はtestdata/def)から読み込み、
+ * データファイルは指定したレコード数で一時ディレクトリに生成します.
+ */
+final class BenchmarkData {
+	/** 設定プロパティファイルのリソース名. */
+	private static final String CONFIGURATION = "benchmark/benchmark.properties";
+
+	/** 生成するデータの乱数のシード(実行ごとに同じデータにする). */
+	private static final long SEED = 20190630L;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * ベンチマーク用のレコード形式を読み込みます.
+	 *
+	 * @return レコード形式(key: Readerのクラス名)
+	 */
+	static Map<String, RecordFormat> loadRecordFormats() {
+		try {
+			Path path = Paths.get(BenchmarkData.class.getClassLoader().getResource(CONFIGURATION).toURI());
+			return new FileTypeConfiguration(path).getRecordFormatMap();
+		} catch (URISyntaxException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * レコード形式に合わせたデータファイルを生成します.
+	 *
+	 * @param readerName  Readerのクラス名
+	 * @param recordCount レコード数
+	 * @return 生成したファイルのパス(JVM終了時に削除します)
+	 */
+	static Path createFile(String readerName, int recordCount) {
+		try {
+			Path path = Files.createTempFile("anyfile-viewer-" + readerName, ".dat");
+			path.toFile().deleteOnExit();
+			switch (readerName) {
+			case "LinesReader":
+			case "HexDumpLinesReader":
+				writeHexDumpLines(path, recordCount);
+				break;
+			case "FixedBytesReader":
+			case "VariableBytesReader":
+				writeFixedBytes(path, recordCount);
+				break;
+			default:
+				throw new IllegalArgumentException("未対応のReaderです: " + readerName);
+			}
+			return path;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * レイアウト定義type1の1レコード分(10バイト)のデータを生成します.
+	 *
+	 * @param random 乱数
+	 * @return レコードのデータ
+	 */
+	static byte[] createRecordData(Random random) {
+		byte[] data = new byte[10];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) ('0' + random.nextInt(10));
+		}
+		return data;
+	}
+
+	private static void writeHexDumpLines(Path path, int recordCount) throws IOException {
+		Random random = new Random(SEED);
+		try (BufferedWriter bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < recordCount; i++) {
+				byte[] data = createRecordData(random);
+				bw.write(String.format("2019-06-30 %02d:%02d:%02d.%03d\t%s\t", i / 3600000 % 24, i / 60000 % 60,
+						i / 1000 % 60, i % 1000, random.nextBoolean() ? "SEND" : "RECV"));
+				bw.write(ByteUtils.printHexBinary(data, 0, data.length));
+				bw.newLine();
+			}
+		}
+	}
+
+	private static void writeFixedBytes(Path path, int recordCount) throws IOException {
+		Random random = new Random(SEED);
+		try (OutputStream os = Files.newOutputStream(path)) {
+			for (int i = 0; i < recordCount; i++) {
+				os.write(createRecordData(random));
+			}
+		}
+	}
+}
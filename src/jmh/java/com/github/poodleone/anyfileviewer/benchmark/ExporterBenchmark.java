@@ -0,0 +1,96 @@
+package com.github.poodleone.anyfileviewer.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.poodleone.anyfileviewer.Exporter;
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
+
+/**
+ * {@link Exporter}のファイル全体のエクスポート(読み込み・パース・整形・書き込み)のベンチマークです.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExporterBenchmark {
+	/** Readerのクラス名. */
+	@Param({ "HexDumpLinesReader", "FixedBytesReader" })
+	public String reader;
+
+	/** ファイルのレコード数. */
+	@Param({ "100000" })
+	public int recordCount;
+
+	/** エクスポートの並列数. */
+	@Param({ "1", "4" })
+	public int parallelism;
+
+	private RecordFormat format;
+	private Path inputPath;
+	private FileSet input;
+	private Path outputPath;
+	private List<String> columns;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		format = BenchmarkData.loadRecordFormats().get(reader);
+		inputPath = BenchmarkData.createFile(reader, recordCount);
+		input = FileSet.of(inputPath);
+		outputPath = Files.createTempFile("anyfile-viewer-export", ".csv");
+		columns = new ArrayList<>();
+		columns.add("[No.]");
+		columns.addAll(format.getListItems());
+		Exporter.setParallelism(parallelism);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(outputPath);
+	}
+
+	/**
+	 * 一覧のエクスポート.
+	 */
+	@Benchmark
+	public void exportList() {
+		Exporter.exportList(format, input, outputPath, columns, ",", "", false);
+	}
+
+	/**
+	 * 高度なフィルタを指定した一覧のエクスポート.
+	 */
+	@Benchmark
+	public void exportListWithFilter() {
+		Exporter.exportList(format, input, outputPath, columns, ",", "$(\"Part1.ITEM1\") < \"5\"", true);
+	}
+
+	/**
+	 * レコード詳細のエクスポート.
+	 */
+	@Benchmark
+	public void exportDetails() {
+		Exporter.exportDetails(format, input, outputPath, columns, ",", "", false, "'#' + $(\"[No.]\")");
+	}
+}
@@ -0,0 +1,129 @@
+package com.github.poodleone.anyfileviewer.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.poodleone.anyfileviewer.DataParser;
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.record.AbstractRecord;
+import com.github.poodleone.anyfileviewer.record.Record;
+
+/**
+ * {@link DataParser}のレコードのパースと式の評価のベンチマークです.<br>
+ * レイアウト定義はtestdata/defのtype1(条件分岐を含むグループtype1sub1)を使用します.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+	/** 単純な式(項目の参照のみ). */
+	private static final String SIMPLE_EXPRESSION = "$(\"Part1.Sub1.ITEM1\")";
+
+	/** 複雑な式(変数・条件・文字列操作・HEX表記・スクリプトの関数呼び出し). */
+	private static final String COMPLEX_EXPRESSION = "var v = $(\"Part1.Sub1.ITEM2\");"
+			+ " (v.substring(0, 1) == '1' ? 'A' : 'B') + $hex(\"Part1.ITEM1\").toLowerCase()"
+			+ " + ($(\"SR\") == \"RECV\" ? v.length : -1) + testFunc()";
+
+	/** レコード形式(Readerのクラス名). */
+	@Param({ "HexDumpLinesReader" })
+	public String reader;
+
+	private RecordFormat format;
+	private byte[] data;
+	private Record parsedRecord;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		format = BenchmarkData.loadRecordFormats().get(reader);
+		data = BenchmarkData.createRecordData(new Random(0));
+		parsedRecord = newRecord();
+		DataParser.parseRecord(parsedRecord, format);
+	}
+
+	/**
+	 * レコードのパース(レイアウトの選択・項目の追加).
+	 *
+	 * @return パースしたレコードの項目数
+	 */
+	@Benchmark
+	public int parseRecord() {
+		Record record = newRecord();
+		DataParser.parseRecord(record, format);
+		return record.getItems().size();
+	}
+
+	/**
+	 * レコードのパースと、全項目の値の取得.
+	 *
+	 * @return 項目の値の長さの合計
+	 */
+	@Benchmark
+	public int parseRecordAndGetValues() {
+		Record record = newRecord();
+		DataParser.parseRecord(record, format);
+		int length = 0;
+		for (String name : format.getListItems()) {
+			length += record.getValue(name).length();
+		}
+		return length;
+	}
+
+	/**
+	 * 単純な式の評価.
+	 *
+	 * @return 評価結果
+	 */
+	@Benchmark
+	public String evalSimple() {
+		return DataParser.eval(parsedRecord, SIMPLE_EXPRESSION);
+	}
+
+	/**
+	 * 複雑な式の評価.
+	 *
+	 * @return 評価結果
+	 */
+	@Benchmark
+	public String evalComplex() {
+		return DataParser.eval(parsedRecord, COMPLEX_EXPRESSION);
+	}
+
+	/**
+	 * フィルタ条件(真偽値)の評価.
+	 *
+	 * @return 評価結果
+	 */
+	@Benchmark
+	public boolean evalAsBoolean() {
+		return DataParser.evalAsBoolean(parsedRecord, "$(\"SR\") == \"RECV\" && $(\"Part1.ITEM1\") != \"9\"");
+	}
+
+	private Record newRecord() {
+		AbstractRecord record = new AbstractRecord(data) {
+			@Override
+			public int getLength() {
+				return ((byte[]) getRawData()).length;
+			}
+		};
+		record.getInnerItems().put("[format]", format.getName());
+		record.getMetaItems().put("DATETIME", "2019-06-30 17:01:27.424");
+		record.getMetaItems().put("SR", "RECV");
+		return record;
+	}
+}
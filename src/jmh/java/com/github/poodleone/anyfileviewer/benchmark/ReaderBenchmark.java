@@ -0,0 +1,82 @@
+package com.github.poodleone.anyfileviewer.benchmark;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.reader.RecordReader;
+
+/**
+ * Readerのファイル全体の読み込み性能のベンチマークです.<br>
+ * 1回の計測でrecordCount件のファイルを全件読み込みます(1件あたりの時間はrecordCountで割ってください).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderBenchmark {
+	/** Readerのクラス名. */
+	@Param({ "LinesReader", "HexDumpLinesReader", "FixedBytesReader", "VariableBytesReader" })
+	public String reader;
+
+	/** ファイルのレコード数. */
+	@Param({ "100000" })
+	public int recordCount;
+
+	private RecordFormat format;
+	private RecordReader recordReader;
+	private Path path;
+
+	@Setup(Level.Trial)
+	public void setUp() throws ReflectiveOperationException {
+		format = BenchmarkData.loadRecordFormats().get(reader);
+		recordReader = format.getReaderClass().newInstance();
+		path = BenchmarkData.createFile(reader, recordCount);
+	}
+
+	/**
+	 * レコードの生成のみ(項目のパースは参照時まで行われない).
+	 *
+	 * @param bh Blackhole
+	 */
+	@Benchmark
+	public void load(Blackhole bh) {
+		recordReader.load(path, format, bh::consume);
+	}
+
+	/**
+	 * レコードの生成と、全項目のパース.
+	 *
+	 * @param bh Blackhole
+	 */
+	@Benchmark
+	public void loadAndParse(Blackhole bh) {
+		recordReader.load(path, format, record -> bh.consume(record.getItems().size()));
+	}
+
+	/**
+	 * 画面の1ページ分(表示件数のデフォルト100件)の読み込み. ファイル末尾のページを読み込みます.
+	 *
+	 * @param bh Blackhole
+	 */
+	@Benchmark
+	public void loadPage(Blackhole bh) {
+		bh.consume(recordReader.load(path, format, -1, 100));
+	}
+}
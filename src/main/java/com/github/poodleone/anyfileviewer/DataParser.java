@@ -1,62 +1,173 @@
 package com.github.poodleone.anyfileviewer;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
+import com.github.poodleone.anyfileviewer.Profiler.Category;
 import com.github.poodleone.anyfileviewer.itemdefinition.HexItemDefinition;
 import com.github.poodleone.anyfileviewer.itemdefinition.InnerItemDefinition;
 import com.github.poodleone.anyfileviewer.itemdefinition.ItemDefinition;
 import com.github.poodleone.anyfileviewer.itemdefinition.ItemGroupDefinition;
 import com.github.poodleone.anyfileviewer.itemdefinition.ItemGroupDefinition.ConditionType;
 import com.github.poodleone.anyfileviewer.itemdefinition.MetaItemDefinition;
+import com.github.poodleone.anyfileviewer.record.CompactItemMap;
 import com.github.poodleone.anyfileviewer.record.RecordItemImpl;
 import com.github.poodleone.anyfileviewer.record.RecordSet;
 import com.github.poodleone.anyfileviewer.record.Record;
 import com.github.poodleone.anyfileviewer.record.RecordExpressionItem;
 
 /**
- * レコードデータのパーサ.
+ * レコードデータのパーサ.<br>
+ * 読み込んだスクリプトは全スレッドで共有するスコープ(スクリプトの読み込み後に封印してから公開)に保持し、
+ * 式の評価ごとにrec等のパラメータを保持する子スコープを作成するため、複数スレッドから同時にパースできます.<br>
+ * よく使われる構文のみからなる式は、Rhinoを使用せずに{@link NativeExpression}で評価します.
  */
 public class DataParser {
+	/** Rhinoの最適化レベルの既定値(スクリプトをJavaのバイトコードにコンパイルする). -1はインタプリタで実行する. */
+	public static final int DEFAULT_OPTIMIZATION_LEVEL = 0;
+
 	private static ItemDefinition paddingDefinition = new HexItemDefinition("[パディング]", "-1", null);
-	private static Scriptable scope;
+
+	/** 全スレッドで共有するスコープ(標準オブジェクト、ヘルパー関数、読み込んだスクリプト. 封印済み). */
+	private static volatile ScriptableObject sharedScope;
+
+	/** スクリプト・式のコンパイルに使用するRhinoの最適化レベル. */
+	private static volatile int optimizationLevel = DEFAULT_OPTIMIZATION_LEVEL;
 
 	/**
-	 * パーサを初期化します.
+	 * 動的スコープを有効にしたコンテキストファクトリ.<br>
+	 * 共有スコープに定義された関数からも、呼び出し元の子スコープのrec等を参照できるようにします.
+	 * 作成するコンテキストには設定された最適化レベルを設定します.
 	 */
-	public static void initialize() {
-		Context cx = Context.enter();
-		scope = cx.initStandardObjects();
-		Context.exit();
-	}
+	private static final ContextFactory contextFactory = new ContextFactory() {
+		@Override
+		protected boolean hasFeature(Context cx, int featureIndex) {
+			if (featureIndex == Context.FEATURE_DYNAMIC_SCOPE) {
+				return true;
+			}
+			return super.hasFeature(cx, featureIndex);
+		}
+
+		@Override
+		protected void onContextCreated(Context cx) {
+			super.onContextCreated(cx);
+			cx.setOptimizationLevel(optimizationLevel);
+		}
+	};
+
+	/** コンパイル済みスクリプトのキャッシュの最大件数. */
+	private static final int SCRIPT_CACHE_SIZE = 1024;
+
+	/**
+	 * コンパイル済みスクリプトのキャッシュ(key: 式, value: コンパイル済みスクリプト).<br>
+	 * 最適化レベルを変更しない限り、ファイル種類の設定を読み込み直しても破棄しません(生成したクラスを再利用します).
+	 */
+	@SuppressWarnings("serial")
+	private static final Map<String, Script> scriptCache = Collections.synchronizedMap(new LinkedHashMap<String, Script>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Script> eldest) {
+			return size() > SCRIPT_CACHE_SIZE;
+		}
+	});
+
+	/** 読み込んだスクリプトファイルのコンパイル済みスクリプトのキャッシュ(key: パス, value: スクリプトの内容とコンパイル済みスクリプト). */
+	private static final Map<Path, Entry<String, Script>> scriptFileCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Rhinoを使用せずに評価する式のキャッシュ(key: 式, value: コンパイルした式. 対象外の構文を含む式はempty).<br>
+	 * 複数スレッドからの評価でロックを競合しないよう、最大件数を超えた場合はすべて破棄します.
+	 */
+	private static final Map<String, Optional<NativeExpression>> nativeExpressionCache = new ConcurrentHashMap<>();
+
+	/** 初期化時に定義した関数のうち、スクリプトで再定義されていない関数の名前. これらの関数のみRhinoを使用せずに評価します. */
+	private static volatile Set<String> builtinFunctions = Collections.emptySet();
 
 	/**
-	 * スクリプトを読み込みます.
+	 * パーサを初期化します.<br>
+	 * 共有スコープを作成してスクリプトを読み込み、封印してから公開します. 初期化中も、式の評価には前回の初期化で公開した共有スコープを使用します.
+	 * 前回の読み込み時から内容が変わっていないスクリプトは、コンパイル済みのスクリプトを再利用します.
+	 * 最適化レベルが前回の初期化時と異なる場合は、コンパイル済みスクリプトのキャッシュを破棄します.
 	 * 
-	 * @param path スクリプトのパス
-	 * @throws IOException スクリプトの読み込みで異常が発生した場合
+	 * @param optimizationLevel スクリプト・式のコンパイルに使用するRhinoの最適化レベル(-1: インタプリタ, 0～9: バイトコードにコンパイル)
+	 * @param scriptPaths       読み込むスクリプトのパスのリスト(読み込み順)
+	 * @throws ScriptLoadException スクリプトの読み込み・実行で異常が発生した場合(共有スコープは公開しない)
 	 */
-	public static void loadScript(Path path) throws IOException {
-		Context cx = Context.enter();
-		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-			cx.evaluateReader(scope, reader, path.toString(), 1, null);
+	public static synchronized void initialize(int optimizationLevel, List<Path> scriptPaths)
+			throws ScriptLoadException {
+		if (DataParser.optimizationLevel != optimizationLevel) {
+			scriptCache.clear();
+			scriptFileCache.clear();
+			DataParser.optimizationLevel = optimizationLevel;
+		}
+		Context cx = contextFactory.enterContext();
+		try {
+			ScriptableObject scope = cx.initStandardObjects();
+			cx.evaluateString(scope, "var $ = function(name) { return rec.getValue(name); }", "", 1, null);
+			cx.evaluateString(scope, "var $hex = function(name) { return rec.getHexValue(name) }", "", 1, null);
+			cx.evaluateString(scope, "var $str = function(name) { return rec.getRawStringValue(name) }", "", 1, null);
+			Map<String, Object> builtins = new HashMap<>();
+			NativeExpression.BUILTIN_FUNCTIONS.forEach(e -> builtins.put(e, ScriptableObject.getProperty(scope, e)));
+			for (Path path : scriptPaths) {
+				loadScript(cx, scope, path);
+			}
+			scope.sealObject();
+
+			builtinFunctions = builtins.keySet().stream()
+					.filter(e -> builtins.get(e) == ScriptableObject.getProperty(scope, e)).collect(Collectors.toSet());
+			sharedScope = scope;
+			nativeExpressionCache.clear();
 		} finally {
 			Context.exit();
 		}
 	}
 
+	/**
+	 * スクリプトを読み込み、スコープで実行します.
+	 * 
+	 * @param cx    コンテキスト
+	 * @param scope スコープ
+	 * @param path  スクリプトのパス
+	 * @throws ScriptLoadException スクリプトの読み込み・実行で異常が発生した場合
+	 */
+	private static void loadScript(Context cx, ScriptableObject scope, Path path) throws ScriptLoadException {
+		try {
+			String source = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+			Entry<String, Script> cached = scriptFileCache.get(path);
+			Script script;
+			if (cached != null && cached.getKey().equals(source)) {
+				script = cached.getValue();
+			} else {
+				script = cx.compileString(source, path.toString(), 1, null);
+				scriptFileCache.put(path, new SimpleImmutableEntry<>(source, script));
+			}
+			script.exec(cx, scope);
+		} catch (IOException | RhinoException e) {
+			throw new ScriptLoadException(path, e);
+		}
+	}
+
 	/**
 	 * レコードをパースします.
 	 * 
@@ -69,11 +180,22 @@ public class DataParser {
 				Optional<ItemGroupDefinition> definitions = format.getDumpLayoutDefinitions().stream() //
 						.filter(e -> evalAsBoolean(record, e.getCondition())).findFirst();
 				if (definitions.isPresent()) {
-					ParserStatus parserStatus = new ParserStatus();
-					parseItems("", definitions.get(), record, parserStatus);
-					if (parserStatus.offset < record.getLength()) {
-						record.getItems().put(paddingDefinition.getName(),
-								new RecordItemImpl(record, paddingDefinition, parserStatus.offset));
+					long start = Profiler.start();
+					int offset;
+					LayoutPlan plan = format.getLayoutPlan(definitions.get());
+					if (plan != null) {
+						// コンパイル済みのレイアウトは項目名とオフセットが固定のため、順に項目を追加する
+						offset = evalAsBoolean(record, definitions.get().getCondition(), new Param("offset", 0))
+								? plan.apply(record) : 0;
+					} else {
+						ParserStatus parserStatus = new ParserStatus();
+						parseItems("", definitions.get(), record, parserStatus);
+						offset = parserStatus.offset;
+					}
+					Profiler.record(Category.LAYOUT,
+							definitions.get().getName().isEmpty() ? "(名前なし)" : definitions.get().getName(), start);
+					if (offset < record.getLength()) {
+						addItem(record, paddingDefinition.getName(), paddingDefinition, offset);
 					}
 				} else {
 					record.getMetaItems().put("[エラー]", "不明なレコード形式(適用可能なdumpLayoutsが見つからない)");
@@ -98,22 +220,8 @@ public class DataParser {
 				return false;
 			}
 			
-			String groupName = itemDefinition.getName();
-			String name;
-			if (!parentGroupName.isEmpty() && !groupName.isEmpty()) {
-				name = parentGroupName + "." + groupName;
-			} else if (groupName.isEmpty()) {
-				name = parentGroupName;
-			} else {
-				name = groupName;
-			}
-			AtomicInteger sameGroupCount = parserStatus.groupNameMap.computeIfAbsent(name, (k) -> new AtomicInteger());
-			if (!groupName.isEmpty()) {
-				if (sameGroupCount.incrementAndGet() != 1) {
-					name = name + "(" + sameGroupCount.get() + ")";
-				}
-			}
-			
+			String name = parserStatus.getGroupName(parentGroupName, itemDefinition.getName());
+
 			boolean isAdded = false;
 			for (ItemDefinition child : itemDefinition.getChildren()) {
 				if (child instanceof ItemGroupDefinition) {
@@ -141,19 +249,31 @@ public class DataParser {
 
 		} else {
 			// 項目の場合、レコードに項目を追加
-			String name = parentGroupName.isEmpty() ? itemDefinition.getName() : parentGroupName + "." + itemDefinition.getName();
-			int sameItemCount = parserStatus.itemNameMap.computeIfAbsent(name, (k) -> new AtomicInteger())
-					.incrementAndGet();
-			if (!name.isEmpty() && sameItemCount != 1) {
-				name = name + "(" + sameItemCount+ ")";
-			}
-			
-			record.getItems().put(name, new RecordItemImpl(record, itemDefinition, parserStatus.offset));
+			String name = parserStatus.getItemName(parentGroupName, itemDefinition.getName());
+			addItem(record, name, itemDefinition, parserStatus.offset);
 			parserStatus.offset += itemDefinition.getLength(record, parserStatus.offset);
 		}
 		return true;
 	}
 
+	/**
+	 * レコードに項目を追加します.
+	 * 
+	 * @param record         レコード
+	 * @param name           項目名
+	 * @param itemDefinition 項目定義
+	 * @param offset         項目のオフセット
+	 */
+	static void addItem(Record record, String name, ItemDefinition itemDefinition, int offset) {
+		Map<String, Object> items = record.getItems();
+		if (items instanceof CompactItemMap) {
+			// 項目(RecordItemImpl)は参照時に生成する
+			((CompactItemMap) items).add(name, itemDefinition, offset);
+		} else {
+			items.put(name, new RecordItemImpl(record, itemDefinition, offset));
+		}
+	}
+
 	/**
 	 * メタデータ項目の追加・削除を行います.
 	 * 
@@ -197,17 +317,38 @@ public class DataParser {
 	 * @return 評価結果
 	 */
 	public static String eval(Record record, String expression, Param... params) {
-		Context cx = Context.enter();
-		try {
-			ScriptableObject.putProperty(scope, "rec", Context.javaToJS(record, scope));
-			for (Param param : params) {
-				ScriptableObject.putProperty(scope, param.key, Context.javaToJS(param.value, scope));
+		long start = Profiler.start();
+		NativeExpression nativeExpression = getNativeExpression(expression);
+		if (nativeExpression != null) {
+			try {
+				String result = nativeExpression.eval(record, params);
+				Profiler.record(Category.EXPRESSION, expression, start);
+				return result;
+			} catch (RuntimeException e) {
+				// Rhinoで評価し直す(Rhinoで評価した場合と同じ結果・例外にする)
 			}
-			cx.evaluateString(scope, "var $ = function(name) { return rec.getValue(name); }", "", 1, null);
-			cx.evaluateString(scope, "var $hex = function(name) { return rec.getHexValue(name) }", "", 1, null);
-			cx.evaluateString(scope, "var $str = function(name) { return rec.getRawStringValue(name) }", "", 1, null);
+		}
+		try {
+			return evalByRhino(record, expression, params);
+		} finally {
+			Profiler.record(Category.EXPRESSION, expression, start);
+			Profiler.record(Category.RHINO, expression, start);
+		}
+	}
 
-			Object result = cx.evaluateString(scope, expression, "", 1, null);
+	/**
+	 * {@link NativeExpression}を使用せずに、Rhinoで式を評価します.
+	 * 
+	 * @param record     評価対象のレコード
+	 * @param expression 式
+	 * @param params     パラメータ
+	 * @return 評価結果
+	 */
+	static String evalByRhino(Record record, String expression, Param... params) {
+		Context cx = contextFactory.enterContext();
+		try {
+			Scriptable scope = newCallScope(record, params);
+			Object result = getScript(cx, expression).exec(cx, scope);
 			return Context.toString(result);
 		} finally {
 			Context.exit();
@@ -225,28 +366,129 @@ public class DataParser {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T eval(Record record, String expression, Class<T> returnType, Param... params) {
-		Context cx = Context.enter();
+		long start = Profiler.start();
+		Context cx = contextFactory.enterContext();
 		try {
-			ScriptableObject.putProperty(scope, "rec", Context.javaToJS(record, scope));
-			for (Param param : params) {
-				ScriptableObject.putProperty(scope, param.key, Context.javaToJS(param.value, scope));
-			}
-			cx.evaluateString(scope, "var $ = function(name) { return rec.getValue(name); }", "", 1, null);
-			cx.evaluateString(scope, "var $hex = function(name) { return rec.getHexValue(name) }", "", 1, null);
-			cx.evaluateString(scope, "var $str = function(name) { return rec.getRawStringValue(name) }", "", 1, null);
-
-			Object result = cx.evaluateString(scope, expression, "", 1, null);
+			Scriptable scope = newCallScope(record, params);
+			Object result = getScript(cx, expression).exec(cx, scope);
 			return (T) Context.jsToJava(result, returnType);
 		} finally {
 			Context.exit();
+			Profiler.record(Category.EXPRESSION, expression, start);
+			Profiler.record(Category.RHINO, expression, start);
 		}
 
 	}
 
-	private static class ParserStatus {
+
+	/**
+	 * 式の評価用のスコープを作成します.<br>
+	 * 共有スコープをプロトタイプとする子スコープにrecとパラメータを設定するため、
+	 * 式の中で定義した変数も含めて評価ごとに独立しており、他のスレッドの評価に影響しません.
+	 * 
+	 * @param record 評価対象のレコード
+	 * @param params パラメータ
+	 * @return 評価用のスコープ
+	 */
+	private static Scriptable newCallScope(Record record, Param... params) {
+		Scriptable scope = new NativeObject();
+		scope.setPrototype(sharedScope);
+		scope.setParentScope(null);
+		ScriptableObject.putProperty(scope, "rec", Context.javaToJS(record, scope));
+		for (Param param : params) {
+			ScriptableObject.putProperty(scope, param.key, Context.javaToJS(param.value, scope));
+		}
+		return scope;
+	}
+
+	/**
+	 * Rhinoを使用せずに評価する式を取得します.<br>
+	 * 組み込みの関数は、スクリプトで再定義されていない場合のみRhinoを使用せずに評価します.
+	 * 一度コンパイルした式(対象外の構文を含むかどうかを含む)はキャッシュします.
+	 * 
+	 * @param expression 式
+	 * @return コンパイルした式(対象外の構文を含む場合はnull)
+	 */
+	static NativeExpression getNativeExpression(String expression) {
+		if (expression == null) {
+			return null;
+		}
+		Optional<NativeExpression> compiled = nativeExpressionCache.get(expression);
+		if (compiled == null) {
+			compiled = Optional.ofNullable(NativeExpression.compile(expression, builtinFunctions::contains));
+			if (SCRIPT_CACHE_SIZE <= nativeExpressionCache.size()) {
+				nativeExpressionCache.clear();
+			}
+			nativeExpressionCache.put(expression, compiled);
+		}
+		return compiled.orElse(null);
+	}
+
+	/**
+	 * 式をコンパイルしたスクリプトを取得します.<br>
+	 * 一度コンパイルした式はキャッシュし、同じ式の評価ではコンパイル済みのスクリプトを再利用します.
+	 * 
+	 * @param cx         コンテキスト
+	 * @param expression 式
+	 * @return コンパイル済みスクリプト
+	 */
+	private static Script getScript(Context cx, String expression) {
+		Script script = scriptCache.get(expression);
+		if (script == null) {
+			script = cx.compileString(expression, "", 1, null);
+			scriptCache.put(expression, script);
+		}
+		return script;
+	}
+
+	/**
+	 * パースの状態(現在のオフセットと、重複する項目名の連番)です.
+	 */
+	static class ParserStatus {
 		public int offset = 0;
 		public Map<String, AtomicInteger> groupNameMap = new HashMap<>();
 		public Map<String, AtomicInteger> itemNameMap = new HashMap<>();
+
+		/**
+		 * グループの項目名を返します. 同じ名前のグループが複数ある場合は2つめ以降に連番を付与します.
+		 * 
+		 * @param parentGroupName 親グループの項目名
+		 * @param groupName       グループ名
+		 * @return グループの項目名
+		 */
+		String getGroupName(String parentGroupName, String groupName) {
+			String name;
+			if (!parentGroupName.isEmpty() && !groupName.isEmpty()) {
+				name = parentGroupName + "." + groupName;
+			} else if (groupName.isEmpty()) {
+				name = parentGroupName;
+			} else {
+				name = groupName;
+			}
+			AtomicInteger sameGroupCount = groupNameMap.computeIfAbsent(name, (k) -> new AtomicInteger());
+			if (!groupName.isEmpty()) {
+				if (sameGroupCount.incrementAndGet() != 1) {
+					name = name + "(" + sameGroupCount.get() + ")";
+				}
+			}
+			return name;
+		}
+
+		/**
+		 * 項目名を返します. 同じ名前の項目が複数ある場合は2つめ以降に連番を付与します.
+		 * 
+		 * @param parentGroupName 親グループの項目名
+		 * @param itemName        項目名
+		 * @return グループ名を含む項目名
+		 */
+		String getItemName(String parentGroupName, String itemName) {
+			String name = parentGroupName.isEmpty() ? itemName : parentGroupName + "." + itemName;
+			int sameItemCount = itemNameMap.computeIfAbsent(name, (k) -> new AtomicInteger()).incrementAndGet();
+			if (!name.isEmpty() && sameItemCount != 1) {
+				name = name + "(" + sameItemCount + ")";
+			}
+			return name;
+		}
 	}
 
 	/**
@@ -266,5 +508,46 @@ public class DataParser {
 			this.key = key;
 			this.value = value;
 		}
+
+		/**
+		 * @return パラメータ名
+		 */
+		String getKey() {
+			return key;
+		}
+
+		/**
+		 * @return パラメータの値
+		 */
+		Object getValue() {
+			return value;
+		}
+	}
+
+	/**
+	 * スクリプトの読み込み・実行で異常が発生したことを表す例外.
+	 */
+	public static class ScriptLoadException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		private final Path path;
+
+		/**
+		 * 例外を生成します.
+		 * 
+		 * @param path  スクリプトのパス
+		 * @param cause 原因
+		 */
+		public ScriptLoadException(Path path, Throwable cause) {
+			super("スクリプト" + path + "の読み込みで異常が発生しました。", cause);
+			this.path = path;
+		}
+
+		/**
+		 * @return スクリプトのパス
+		 */
+		public Path getPath() {
+			return path;
+		}
 	}
 }
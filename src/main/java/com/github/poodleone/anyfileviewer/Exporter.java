@@ -5,46 +5,91 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import com.github.poodleone.anyfileviewer.Profiler.Category;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
+import com.github.poodleone.anyfileviewer.reader.FileSetReader;
 import com.github.poodleone.anyfileviewer.record.Record;
 import com.github.poodleone.anyfileviewer.record.RecordItemImpl;
 
 /**
- * ファイルの解析結果をエクスポートするクラスです.
+ * ファイルの解析結果をエクスポートするクラスです.<br>
+ * 並列数が2以上の場合、レコードの読み込み・パースと整形・出力を別スレッドで並列に行います.
+ * 出力順はレコードの順([No.]の順)のままで、出力内容は並列数によらず同じです.<br>
+ * エクスポートの各段階(レコードの生成・フィルタ・レコードの処理・出力と全体)の時間は{@link Profiler}で計測します.
  */
 public class Exporter {
+	/** 並列エクスポートでスレッドにまとめて渡すレコード数. */
+	private static final int CHUNK_SIZE = 256;
+
+	/** 並列エクスポートで読み込みスレッドが出力側の終了を確認する間隔(ミリ秒). */
+	private static final long QUEUE_POLL_INTERVAL = 100;
+
+	/** エクスポートの並列数. */
+	private static volatile int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * @return エクスポートの並列数
+	 */
+	public static int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * エクスポートの並列数(パース・フィルタ・整形を行うスレッド数)を設定します.<br>
+	 * 1以下を指定した場合は、全ての処理を呼び出し元のスレッドで順に行います.
+	 * 
+	 * @param parallelism エクスポートの並列数
+	 */
+	public static void setParallelism(int parallelism) {
+		Exporter.parallelism = parallelism;
+	}
+
 	/**
 	 * 一覧をエクスポートします.
 	 *
 	 * @param recordFormat      ファイルのレコード形式
-	 * @param inputPath         入力ファイルパス
+	 * @param input             入力元
 	 * @param outputPath        出力ファイルパス
 	 * @param columns           一覧に出力するカラム名のリスト
 	 * @param delimiter         レコードの項目のセパレータ
 	 * @param filter            フィルタ
 	 * @param useExtendedFilter 高度なフィルタを使用するかどうか. trueの場合高度なフィルタを使用します.
 	 */
-	public static void exportList(RecordFormat recordFormat, Path inputPath, Path outputPath, List<String> columns,
+	public static void exportList(RecordFormat recordFormat, FileSet input, Path outputPath, List<String> columns,
 			String delimiter, String filter, boolean useExtendedFilter) {
 		try (BufferedWriter br = Files.newBufferedWriter(outputPath)) {
 			br.write(String.join(delimiter, columns));
 			br.write(System.lineSeparator());
 
-			AtomicInteger i = new AtomicInteger();
-			recordFormat.getReaderClass().newInstance().load(inputPath, recordFormat, record -> {
-				record.getInnerItems().put("[No.]", Integer.valueOf(i.incrementAndGet()));
+			export(recordFormat, input, record -> {
 				if (!filter.isEmpty() && !testFilter(record, columns, filter, useExtendedFilter)) {
-					return;
+					return null;
 				}
 
 				List<String> r = new ArrayList<>(columns.size());
 				columns.forEach(column -> r.add(quote(record.getValue(column))));
+				return String.join(delimiter, r);
+			}, line -> {
 				try {
-					br.write(String.join(delimiter, r));
+					br.write(line);
 					br.write(System.lineSeparator());
 				} catch (IOException e) {
 					throw new UncheckedIOException(e);
@@ -52,8 +97,6 @@ public class Exporter {
 			});
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
-		} catch (InstantiationException | IllegalAccessException e) {
-			throw new RuntimeException(e);
 		}
 	}
 
@@ -61,7 +104,7 @@ public class Exporter {
 	 * レコード詳細を1ファイルにまとめてエクスポートします.
 	 *
 	 * @param recordFormat      ファイルのレコード形式
-	 * @param inputPath         入力ファイルパス
+	 * @param input             入力元
 	 * @param outputPath        出力ファイルパス
 	 * @param columns           一覧に出力するカラム名のリスト
 	 * @param delimiter         レコードの項目のセパレータ
@@ -69,18 +112,18 @@ public class Exporter {
 	 * @param useExtendedFilter 高度なフィルタを使用するかどうか. trueの場合高度なフィルタを使用します.
 	 * @param headerExpression  レコードのヘッダをこの式から生成します
 	 */
-	public static void exportDetails(RecordFormat recordFormat, Path inputPath, Path outputPath, List<String> columns,
+	public static void exportDetails(RecordFormat recordFormat, FileSet input, Path outputPath, List<String> columns,
 			String delimiter, String filter, boolean useExtendedFilter, String headerExpression) {
 		try (BufferedWriter br = Files.newBufferedWriter(outputPath)) {
 
-			AtomicInteger i = new AtomicInteger();
-			recordFormat.getReaderClass().newInstance().load(inputPath, recordFormat, record -> {
-				record.getInnerItems().put("[No.]", Integer.valueOf(i.incrementAndGet()));
+			export(recordFormat, input, record -> {
 				if (!filter.isEmpty() && !testFilter(record, columns, filter, useExtendedFilter)) {
-					return;
+					return null;
 				}
+				return formatDetail(record, headerExpression, delimiter);
+			}, detail -> {
 				try {
-					br.write(formatDetail(record, headerExpression, delimiter));
+					br.write(detail);
 					br.write(System.lineSeparator());
 				} catch (IOException e) {
 					throw new UncheckedIOException(e);
@@ -88,8 +131,6 @@ public class Exporter {
 			});
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
-		} catch (InstantiationException | IllegalAccessException e) {
-			throw new RuntimeException(e);
 		}
 	}
 
@@ -97,7 +138,7 @@ public class Exporter {
 	 * レコード詳細を1レコード1ファイルでエクスポートします.
 	 *
 	 * @param recordFormat       ファイルのレコード形式
-	 * @param inputPath          入力ファイルパス
+	 * @param input              入力元
 	 * @param outputDirPath      出力ディレクトリパス
 	 * @param columns            一覧に出力するカラム名のリスト
 	 * @param delimiter          レコードの項目のセパレータ
@@ -106,31 +147,100 @@ public class Exporter {
 	 * @param headerExpression   レコードのヘッダをこの式から生成します
 	 * @param fileNameExpression 出力ファイル名をこの式から生成します
 	 */
-	public static void exportDetailsFiles(RecordFormat recordFormat, Path inputPath, Path outputDirPath,
+	public static void exportDetailsFiles(RecordFormat recordFormat, FileSet input, Path outputDirPath,
 			List<String> columns, String delimiter, String filter, boolean useExtendedFilter, String headerExpression,
 			String fileNameExpression) {
 
+		// 同名のファイルは後のレコードで上書きされるよう、ファイルの書き込みはレコードの順に行う
+		export(recordFormat, input, record -> {
+			if (!filter.isEmpty() && !testFilter(record, columns, filter, useExtendedFilter)) {
+				return null;
+			}
+			String fileName = removeInvalidFileNameChars(DataParser.eval(record, fileNameExpression));
+			return new SimpleEntry<>(outputDirPath.resolve(fileName), formatDetail(record, headerExpression, delimiter));
+		}, file -> {
+			try {
+				Files.write(file.getKey(), Arrays.asList(file.getValue()));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/** 計測する段階の名前: エクスポート全体. */
+	private static final String STAGE_TOTAL = "全体";
+
+	/** 計測する段階の名前: レコードの生成(並列エクスポートの場合のみ. 逐次の場合はReaderの読み込みに含む). */
+	private static final String STAGE_CREATE = "レコードの生成";
+
+	/** 計測する段階の名前: フィルタの評価. */
+	private static final String STAGE_FILTER = "フィルタ";
+
+	/** 計測する段階の名前: レコードの処理(フィルタの評価と整形). */
+	private static final String STAGE_PROCESS = "レコードの処理";
+
+	/** 計測する段階の名前: 処理結果の出力. */
+	private static final String STAGE_WRITE = "出力";
+
+	/**
+	 * ファイルのレコードを順に処理し、結果を出力します.<br>
+	 * 並列数が2以上の場合は{@link Pipeline}で処理します.
+	 * 
+	 * @param recordFormat ファイルのレコード形式
+	 * @param input        入力元
+	 * @param processor    レコードの処理(フィルタ・整形). 結果がnullのレコードは出力しません
+	 * @param writer       処理結果の出力処理
+	 */
+	private static <T> void export(RecordFormat recordFormat, FileSet input, Function<Record, T> processor,
+			Consumer<T> writer) {
+		FileSetReader reader;
 		try {
+			reader = new FileSetReader(recordFormat.getReaderClass().newInstance());
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+
+		long start = Profiler.start();
+		int threads = parallelism;
+		if (threads <= 1) {
 			AtomicInteger i = new AtomicInteger();
-			recordFormat.getReaderClass().newInstance().load(inputPath, recordFormat, record -> {
+			reader.load(input, recordFormat, record -> {
 				record.getInnerItems().put("[No.]", Integer.valueOf(i.incrementAndGet()));
-				if (!filter.isEmpty() && !testFilter(record, columns, filter, useExtendedFilter)) {
-					return;
-				}
-				try {
-					String fileName = removeInvalidFileNameChars(DataParser.eval(record, fileNameExpression));
-					Path outputPath = outputDirPath.resolve(fileName);
-					Files.write(outputPath, Arrays.asList(formatDetail(record, headerExpression, delimiter)));
-				} catch (IOException e) {
-					throw new UncheckedIOException(e);
+				T result = process(processor, record);
+				if (result != null) {
+					write(writer, result);
 				}
 			});
-		} catch (InstantiationException | IllegalAccessException e) {
-			throw new RuntimeException(e);
+		} else {
+			new Pipeline<>(reader, recordFormat, input, processor, writer, threads).run();
 		}
+		Profiler.record(Category.EXPORT, STAGE_TOTAL, start);
+	}
+
+	private static <T> T process(Function<Record, T> processor, Record record) {
+		long start = Profiler.start();
+		T result = processor.apply(record);
+		Profiler.record(Category.EXPORT, STAGE_PROCESS, start);
+		return result;
+	}
+
+	private static <T> void write(Consumer<T> writer, T result) {
+		long start = Profiler.start();
+		writer.accept(result);
+		Profiler.record(Category.EXPORT, STAGE_WRITE, start);
 	}
 
 	private static boolean testFilter(Record record, List<String> columns, String filter, boolean useExtendedFilter) {
+		long start = Profiler.start();
+		try {
+			return testFilterImpl(record, columns, filter, useExtendedFilter);
+		} finally {
+			Profiler.record(Category.EXPORT, STAGE_FILTER, start);
+		}
+	}
+
+	private static boolean testFilterImpl(Record record, List<String> columns, String filter,
+			boolean useExtendedFilter) {
 		if (useExtendedFilter) {
 			return DataParser.evalAsBoolean(record, filter);
 		} else {
@@ -188,4 +298,169 @@ public class Exporter {
 	private static String removeInvalidFileNameChars(String fileName) {
 		return fileName.replaceAll("[\u0001-\u001f<>:\"/\\\\|?*\u007f]+", "");
 	}
+
+	/**
+	 * 並列エクスポートの処理です.<br>
+	 * 読み込みスレッドがレコードのデータをCHUNK_SIZE件ずつワーカースレッドに渡し、ワーカースレッドがパース・フィルタ・整形を行います.
+	 * 呼び出し元のスレッドは処理結果を読み込み順に受け取って出力します.<br>
+	 * 処理中の結果を保持するキューの大きさを制限し、出力が追いつかない場合は読み込みを待たせます.
+	 * 出力側が異常終了した場合、読み込みスレッドは待機をやめて終了します(割り込みに応答しない処理中でも、一定間隔で終了を確認します).
+	 *
+	 * @param <T> レコードの処理結果の型
+	 */
+	private static class Pipeline<T> {
+		/** 読み込みの終了を表すキューの要素. */
+		private final Future<List<T>> endOfRecords = CompletableFuture.completedFuture(null);
+
+		private final FileSetReader reader;
+		private final RecordFormat recordFormat;
+		private final FileSet input;
+		private final Function<Record, T> processor;
+		private final Consumer<T> writer;
+		private final int threads;
+
+		/** 処理中・出力待ちの結果(読み込み順). */
+		private final BlockingQueue<Future<List<T>>> results;
+
+		/** 読み込みスレッドで発生した例外. */
+		private volatile Throwable readError;
+
+		/** 出力側の処理が終了したかどうか(trueの場合、読み込みスレッドはキューへの追加をやめる). */
+		private volatile boolean closed;
+
+		private Pipeline(FileSetReader reader, RecordFormat recordFormat, FileSet input, Function<Record, T> processor,
+				Consumer<T> writer, int threads) {
+			this.reader = reader;
+			this.recordFormat = recordFormat;
+			this.input = input;
+			this.processor = processor;
+			this.writer = writer;
+			this.threads = threads;
+			this.results = new ArrayBlockingQueue<>(threads * 2);
+		}
+
+		private void run() {
+			ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+				Thread thread = new Thread(r, "export-worker");
+				thread.setDaemon(true);
+				return thread;
+			});
+			Thread readerThread = new Thread(() -> read(workers), "export-reader");
+			readerThread.setDaemon(true);
+			readerThread.start();
+			try {
+				while (true) {
+					Future<List<T>> chunk = results.take();
+					if (chunk == endOfRecords) {
+						break;
+					}
+					for (T result : get(chunk)) {
+						write(writer, result);
+					}
+				}
+				readerThread.join();
+				if (readError != null) {
+					throw rethrow(readError);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} finally {
+				// 異常終了した場合は読み込みとワーカースレッドの処理を中断する
+				closed = true;
+				readerThread.interrupt();
+				workers.shutdownNow();
+				results.clear();
+				try {
+					readerThread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void read(ExecutorService workers) {
+			try {
+				AtomicInteger no = new AtomicInteger();
+				List<Supplier<Record>> chunk = new ArrayList<>(CHUNK_SIZE);
+				reader.loadDeferred(input, recordFormat, supplier -> {
+					chunk.add(supplier);
+					if (chunk.size() == CHUNK_SIZE) {
+						submit(workers, new ArrayList<>(chunk), no.getAndAdd(chunk.size()) + 1);
+						chunk.clear();
+					}
+				});
+				if (!chunk.isEmpty()) {
+					submit(workers, chunk, no.get() + 1);
+				}
+			} catch (Throwable e) {
+				readError = e;
+			} finally {
+				try {
+					put(endOfRecords);
+				} catch (InterruptedException e) {
+					// 出力側が異常終了しているため終了を通知する必要はない
+				}
+			}
+		}
+
+		private void submit(ExecutorService workers, List<Supplier<Record>> chunk, int firstNo) {
+			try {
+				if (!put(workers.submit(() -> process(chunk, firstNo)))) {
+					throw new CancellationException();
+				}
+			} catch (InterruptedException e) {
+				throw new CancellationException();
+			}
+		}
+
+		/**
+		 * 結果をキューに追加します. キューに空きがない場合は、空きができるか出力側の処理が終了するまで待機します.
+		 * 
+		 * @param chunk 結果
+		 * @return 追加した場合はtrue、出力側の処理が終了したため追加しなかった場合はfalse
+		 * @throws InterruptedException 待機中に割り込まれた場合
+		 */
+		private boolean put(Future<List<T>> chunk) throws InterruptedException {
+			while (!closed) {
+				if (results.offer(chunk, QUEUE_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private List<T> process(List<Supplier<Record>> chunk, int firstNo) {
+			List<T> processed = new ArrayList<>(chunk.size());
+			int no = firstNo;
+			for (Supplier<Record> supplier : chunk) {
+				long start = Profiler.start();
+				Record record = supplier.get();
+				Profiler.record(Category.EXPORT, STAGE_CREATE, start);
+				record.getInnerItems().put("[No.]", Integer.valueOf(no++));
+				T result = Exporter.process(processor, record);
+				if (result != null) {
+					processed.add(result);
+				}
+			}
+			return processed;
+		}
+
+		private List<T> get(Future<List<T>> chunk) throws InterruptedException {
+			try {
+				return chunk.get();
+			} catch (ExecutionException e) {
+				throw rethrow(e.getCause());
+			}
+		}
+
+		private static RuntimeException rethrow(Throwable e) {
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			} else if (e instanceof Error) {
+				throw (Error) e;
+			}
+			throw new RuntimeException(e);
+		}
+	}
 }
@@ -26,6 +26,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.github.poodleone.anyfileviewer.DataParser.ScriptLoadException;
 import com.github.poodleone.anyfileviewer.itemdefinition.HexItemDefinition;
 import com.github.poodleone.anyfileviewer.itemdefinition.InnerItemDefinition;
 import com.github.poodleone.anyfileviewer.itemdefinition.ItemDefinition;
@@ -65,16 +66,20 @@ public class FileTypeConfiguration {
 		this.path = path;
 		Properties properties = loadProperties(path);
 
-		// スクリプトの読み込み
-		DataParser.initialize();
+		// スクリプトの読み込み(key: スクリプトのパス, value: プロパティのキー)
+		Map<Path, String> scriptPaths = new LinkedHashMap<>();
 		getValues(properties, "(?<group>scriptPath\\d+)(?<name>)").forEach(keyValue -> {
 			try {
-				Path scriptPath = Paths.get(getClass().getClassLoader().getResource(keyValue.value).toURI());
-				DataParser.loadScript(scriptPath);
-			} catch (URISyntaxException | IOException e) {
+				scriptPaths.put(Paths.get(getClass().getClassLoader().getResource(keyValue.value).toURI()), keyValue.key);
+			} catch (URISyntaxException e) {
 				throw new InvalidFileTypeConfigurationException(path, keyValue.key, "スクリプト" + path + "の読み込みで異常が発生しました。", e);
 			}
 		});
+		try {
+			DataParser.initialize(getOptimizationLevel(path, properties), new ArrayList<>(scriptPaths.keySet()));
+		} catch (ScriptLoadException e) {
+			throw new InvalidFileTypeConfigurationException(path, scriptPaths.get(e.getPath()), e.getMessage(), e.getCause());
+		}
 
 		// レコード形式/データグループ形式定義の読み込み
 		dataGroupFormatsDirs = properties.entrySet().stream()
@@ -98,8 +103,15 @@ public class FileTypeConfiguration {
 			// Readerのオプション設定を取得
 			Map<String, String> readerOptions = new HashMap<>();
 			try {
-				readerClass.newInstance().getOptionNames().forEach(option -> readerOptions.put(option,
+				RecordReader reader = readerClass.newInstance();
+				reader.getOptionNames().forEach(option -> readerOptions.put(option,
 						getStringValue(path, properties, keyValue.keyGroup + "." + option)));
+				reader.getOptionalOptionNames().forEach(option -> {
+					String value = getStringValue(path, properties, keyValue.keyGroup + "." + option, null);
+					if (value != null) {
+						readerOptions.put(option, value);
+					}
+				});
 			} catch (InstantiationException | IllegalAccessException e) {
 				throw new AssertionError(e);
 			}
@@ -131,6 +143,30 @@ public class FileTypeConfiguration {
 		});
 	}
 
+	/**
+	 * スクリプトの最適化レベル(scriptOptimizationLevel)を取得します.
+	 *
+	 * @param path       設定プロパティファイルのパス
+	 * @param properties 設定プロパティ
+	 * @return 最適化レベル(未設定の場合は既定値)
+	 */
+	private int getOptimizationLevel(Path path, Properties properties) {
+		String key = "scriptOptimizationLevel";
+		String value = getStringValue(path, properties, key, null);
+		if (value == null || value.trim().isEmpty()) {
+			return DataParser.DEFAULT_OPTIMIZATION_LEVEL;
+		}
+		int level;
+		try {
+			level = Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			level = Integer.MIN_VALUE;
+		}
+		Validate.isTrue(-1 <= level && level <= 9, () -> new InvalidFileTypeConfigurationException(path, key,
+				"-1(インタプリタで実行)～9の整数を指定してください。"));
+		return level;
+	}
+
 	/**
 	 * ファイル種類の設定プロパティファイルをfileDefinitionsディレクトリから検索します.
 	 *
@@ -0,0 +1,214 @@
+package com.github.poodleone.anyfileviewer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.github.poodleone.anyfileviewer.DataParser.ParserStatus;
+import com.github.poodleone.anyfileviewer.itemdefinition.AbstractItemDefinition;
+import com.github.poodleone.anyfileviewer.itemdefinition.InnerItemDefinition;
+import com.github.poodleone.anyfileviewer.itemdefinition.ItemDefinition;
+import com.github.poodleone.anyfileviewer.itemdefinition.ItemGroupDefinition;
+import com.github.poodleone.anyfileviewer.itemdefinition.MetaItemDefinition;
+import com.github.poodleone.anyfileviewer.record.CompactItemMap;
+import com.github.poodleone.anyfileviewer.record.Record;
+import com.github.poodleone.anyfileviewer.record.RecordExpressionItem;
+import com.github.poodleone.anyfileviewer.record.RecordSchema;
+
+/**
+ * ダンプのレイアウト定義をコンパイルしたパース手順です.<br>
+ * 入れ子のグループに条件式がなく、全ての項目長が固定(最後の項目のみ-1も可)のレイアウトは、
+ * 項目名とオフセットがどのレコードでも同じになるため、項目名・オフセット・項目定義の配列に展開しておき、
+ * レコードごとのパースでは配列の順に項目を追加するだけにします.<br>
+ * 項目(メタデータ・内部処理用以外)のスロット・オフセット・項目定義の配列は、{@link CompactItemMap}でレコード間で共有します.
+ */
+class LayoutPlan {
+	/** 項目の種類: 項目. */
+	private static final byte ITEM = 0;
+
+	/** 項目の種類: メタデータ項目. */
+	private static final byte META = 1;
+
+	/** 項目の種類: 内部処理用項目. */
+	private static final byte INNER = 2;
+
+	/** 項目名(グループ名と重複時の連番を付与済み). */
+	private final String[] names;
+
+	/** 項目の種類. */
+	private final byte[] kinds;
+
+	/** 項目のオフセット(-1はレコード末尾). */
+	private final int[] offsets;
+
+	/** 項目定義. */
+	private final ItemDefinition[] definitions;
+
+	/** 最後の項目の末尾のオフセット(-1はレコード末尾). */
+	private final int endOffset;
+
+	/** 項目名の表. */
+	private final RecordSchema schema;
+
+	/** 項目(メタデータ・内部処理用以外)の項目名のスロット. */
+	private final int[] itemSlots;
+
+	/** 項目(メタデータ・内部処理用以外)のスロットごとの位置. */
+	private final int[] itemPositions;
+
+	/** 項目(メタデータ・内部処理用以外)のオフセット. */
+	private final int[] itemOffsets;
+
+	/** 項目(メタデータ・内部処理用以外)の項目定義. */
+	private final ItemDefinition[] itemDefinitions;
+
+	private LayoutPlan(List<Step> steps, int endOffset, RecordSchema schema) {
+		int size = steps.size();
+		this.names = new String[size];
+		this.kinds = new byte[size];
+		this.offsets = new int[size];
+		this.definitions = new ItemDefinition[size];
+		for (int i = 0; i < size; i++) {
+			Step step = steps.get(i);
+			names[i] = step.name;
+			kinds[i] = step.kind;
+			offsets[i] = step.offset;
+			definitions[i] = step.definition;
+		}
+		this.endOffset = endOffset;
+
+		this.schema = schema;
+		int itemCount = (int) steps.stream().filter(e -> e.kind == ITEM).count();
+		this.itemSlots = new int[itemCount];
+		this.itemOffsets = new int[itemCount];
+		this.itemDefinitions = new ItemDefinition[itemCount];
+		int j = 0;
+		for (Step step : steps) {
+			if (step.kind == ITEM) {
+				itemSlots[j] = schema.getSlot(step.name);
+				itemOffsets[j] = step.offset;
+				itemDefinitions[j] = step.definition;
+				j++;
+			}
+		}
+		this.itemPositions = CompactItemMap.indexSlots(itemSlots);
+	}
+
+	/**
+	 * レイアウト定義をコンパイルします.
+	 *
+	 * @param layout ダンプのレイアウト定義
+	 * @param schema レコードの項目名の表
+	 * @return コンパイルしたパース手順(条件式や可変長項目を含み、コンパイルできない場合はnull)
+	 */
+	static LayoutPlan compile(ItemGroupDefinition layout, RecordSchema schema) {
+		// レイアウト自体の条件式はレコード形式の選択時にDataParserで評価する
+		Compiler compiler = new Compiler();
+		String name = compiler.status.getGroupName("", layout.getName());
+		for (ItemDefinition child : layout.getChildren()) {
+			if (!compiler.compile(name, child)) {
+				return null;
+			}
+		}
+		return new LayoutPlan(compiler.steps, compiler.toEnd ? -1 : compiler.status.offset, schema);
+	}
+
+	/**
+	 * レコードに項目を追加します.
+	 *
+	 * @param record レコード
+	 * @return 最後の項目の末尾のオフセット
+	 */
+	int apply(Record record) {
+		Map<String, Object> items = record.getItems();
+		boolean sharedLayout = items instanceof CompactItemMap && items.isEmpty()
+				&& ((CompactItemMap) items).getSchema() == schema;
+		if (sharedLayout) {
+			((CompactItemMap) items).setLayout(itemSlots, itemPositions, itemOffsets, itemDefinitions);
+		}
+		for (int i = 0; i < names.length; i++) {
+			// レコード末尾までの項目の後は、DataParserのパースと同じくレコード長をオフセットとする
+			int offset = offsets[i] != -1 ? offsets[i] : record.getLength();
+			switch (kinds[i]) {
+			case META:
+				record.getMetaItems().put(names[i], new RecordExpressionItem(record,
+						((MetaItemDefinition) definitions[i]).getValueExpression(), offset, false));
+				break;
+			case INNER:
+				record.getInnerItems().put(names[i], new RecordExpressionItem(record,
+						((InnerItemDefinition) definitions[i]).getValueExpression(), offset, false));
+				break;
+			default:
+				if (!sharedLayout) {
+					DataParser.addItem(record, names[i], definitions[i], offset);
+				}
+				break;
+			}
+		}
+		return endOffset != -1 ? endOffset : record.getLength();
+	}
+
+	/**
+	 * レイアウト定義をたどってパース手順を作成する処理です.<br>
+	 * 項目名の付け方は{@link DataParser}のパースと同じ{@link ParserStatus}を使用します.
+	 */
+	private static class Compiler {
+		private final ParserStatus status = new ParserStatus();
+		private final List<Step> steps = new ArrayList<>();
+
+		/** レコード末尾までの項目を追加済みかどうか. */
+		private boolean toEnd;
+
+		private boolean compile(String parentGroupName, ItemDefinition itemDefinition) {
+			if (itemDefinition instanceof ItemGroupDefinition) {
+				ItemGroupDefinition group = (ItemGroupDefinition) itemDefinition;
+				if (group.getConditionType() != null
+						|| (group.getCondition() != null && !group.getCondition().isEmpty())) {
+					// 条件によって項目が変わる
+					return false;
+				}
+				String name = status.getGroupName(parentGroupName, group.getName());
+				for (ItemDefinition child : group.getChildren()) {
+					if (!compile(name, child)) {
+						return false;
+					}
+				}
+			} else if (itemDefinition instanceof MetaItemDefinition) {
+				steps.add(new Step(itemDefinition.getName(), META, toEnd ? -1 : status.offset, itemDefinition));
+
+			} else if (itemDefinition instanceof InnerItemDefinition) {
+				steps.add(new Step(itemDefinition.getName(), INNER, toEnd ? -1 : status.offset, itemDefinition));
+
+			} else {
+				if (toEnd || !(itemDefinition instanceof AbstractItemDefinition)
+						|| !((AbstractItemDefinition) itemDefinition).isFixedLength()) {
+					// 項目長がレコードによって変わる
+					return false;
+				}
+				int length = ((AbstractItemDefinition) itemDefinition).getFixedLength();
+				String name = status.getItemName(parentGroupName, itemDefinition.getName());
+				steps.add(new Step(name, ITEM, status.offset, itemDefinition));
+				if (length == -1) {
+					toEnd = true;
+				} else {
+					status.offset += length;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class Step {
+		private final String name;
+		private final byte kind;
+		private final int offset;
+		private final ItemDefinition definition;
+
+		private Step(String name, byte kind, int offset, ItemDefinition definition) {
+			this.name = name;
+			this.kind = kind;
+			this.offset = offset;
+			this.definition = definition;
+		}
+	}
+}
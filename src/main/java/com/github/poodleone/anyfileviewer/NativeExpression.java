@@ -0,0 +1,1054 @@
+package com.github.poodleone.anyfileviewer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.github.poodleone.anyfileviewer.DataParser.Param;
+import com.github.poodleone.anyfileviewer.record.Record;
+
+/**
+ * Rhinoを使用せずに評価する式です.<br>
+ * フィルタや項目値の式でよく使われる構文のみからなる式を構文木にパースし、ノードごとの評価処理(ラムダ式)を組み合わせた評価処理にコンパイルします.
+ * 対象の構文は、文字列・数値・真偽値・nullのリテラル、パラメータ(value, offset等)の参照、$() $hex() $str() parseInt()の呼び出し、
+ * 文字列のlengthと一部のメソッド(substring等)、比較・算術・論理演算子、条件演算子です.
+ * 評価はレコードのメソッドを直接呼び出して行い、Rhinoのスコープの作成やJavaとJavaScriptの値の変換を行いません.<br>
+ * 評価結果がRhinoで評価した場合と同じになるよう、値の型変換はRhinoの規則に従います($()等が返すJavaの文字列は、JavaScriptの文字列と区別して保持します).
+ * 同じ結果になるか確実でない評価(整数以外の数値の文字列化等)や、評価中に例外が発生した場合は例外をスローし、
+ * 呼び出し元の{@link DataParser}がRhinoで評価し直します.
+ */
+final class NativeExpression {
+	/** Rhinoでの評価が必要な場合にスローする例外です. */
+	static final class Unsupported extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private Unsupported() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Unsupported UNSUPPORTED = new Unsupported();
+
+	/** Rhinoと同じ結果になる関数(共有スコープで再定義されていない場合のみ使用する). */
+	static final List<String> BUILTIN_FUNCTIONS = Arrays.asList("$", "$hex", "$str", "parseInt");
+
+	/** 識別子として使用しない予約語等. */
+	private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList("break", "case", "catch", "class",
+			"const", "continue", "debugger", "default", "delete", "do", "else", "enum", "export", "extends", "finally",
+			"for", "function", "if", "import", "in", "instanceof", "new", "return", "super", "switch", "this", "throw",
+			"try", "typeof", "var", "void", "while", "with", "let", "yield", "undefined", "NaN", "Infinity",
+			"arguments", "eval", "rec"));
+
+	/** JavaScriptの文字列のメソッド. */
+	private static final Set<String> STRING_METHODS = new HashSet<>(
+			Arrays.asList("substring", "substr", "slice", "charAt", "indexOf", "toUpperCase", "toLowerCase"));
+
+	/** Javaの文字列のメソッド. */
+	private static final Set<String> JAVA_STRING_METHODS = new HashSet<>(Arrays.asList("length", "substring", "trim",
+			"toUpperCase", "toLowerCase", "indexOf", "equals", "startsWith", "endsWith", "contains", "isEmpty"));
+
+	/**
+	 * 式の評価処理です.
+	 */
+	@FunctionalInterface
+	private interface Node {
+		/**
+		 * @return 評価結果(String, Double, Boolean, JavaString, null)
+		 */
+		Object eval(Record record, Param[] params);
+	}
+
+	/**
+	 * Javaのメソッドが返した文字列です.<br>
+	 * RhinoはJavaの文字列をJavaScriptの文字列に変換せずに保持するため、真偽値への変換(空文字列もtrue)やメソッドの呼び出しの規則が異なります.
+	 */
+	private static final class JavaString {
+		private final String value;
+
+		private JavaString(String value) {
+			this.value = value;
+		}
+	}
+
+	private final Node root;
+
+	private NativeExpression(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * 式をコンパイルします.
+	 *
+	 * @param expression 式
+	 * @param builtins   関数名が{@link #BUILTIN_FUNCTIONS}の関数がRhinoと同じ結果になるかどうか
+	 * @return コンパイルした式(対象外の構文を含む場合はnull)
+	 */
+	static NativeExpression compile(String expression, Predicate<String> builtins) {
+		try {
+			Parser parser = new Parser(tokenize(expression), builtins);
+			return new NativeExpression(parser.parse().node);
+		} catch (Unsupported e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 式を評価します.
+	 *
+	 * @param record 評価対象のレコード
+	 * @param params パラメータ
+	 * @return 評価結果を文字列に変換した値
+	 * @throws RuntimeException Rhinoでの評価が必要な場合、評価中に例外が発生した場合
+	 */
+	String eval(Record record, Param... params) {
+		return toStr(root.eval(record, params));
+	}
+
+	// ---------------------------------------------------------------- 字句解析
+
+	private static final int NUMBER = 0;
+	private static final int STRING = 1;
+	private static final int IDENTIFIER = 2;
+	private static final int PUNCTUATOR = 3;
+	private static final int END = 4;
+
+	/** 演算子等(長いものから順に照合する). */
+	private static final String[] PUNCTUATORS = { "===", "!==", "==", "!=", "<=", ">=", "&&", "||", "<", ">", "+",
+			"-", "*", "/", "%", "!", "?", ":", "(", ")", ",", ".", ";" };
+
+	private static final class Token {
+		private final int type;
+		private final String text;
+		private final Object value;
+
+		private Token(int type, String text, Object value) {
+			this.type = type;
+			this.text = text;
+			this.value = value;
+		}
+	}
+
+	private static List<Token> tokenize(String s) {
+		List<Token> tokens = new ArrayList<>();
+		int i = 0;
+		int len = s.length();
+		while (i < len) {
+			char c = s.charAt(i);
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+				i++;
+			} else if (isDigit(c) || (c == '.' && i + 1 < len && isDigit(s.charAt(i + 1)))) {
+				int start = i;
+				if (c == '0' && i + 1 < len && (s.charAt(i + 1) == 'x' || s.charAt(i + 1) == 'X')) {
+					i += 2;
+					while (i < len && Character.digit(s.charAt(i), 16) != -1) {
+						i++;
+					}
+					if (i - start <= 2 || 15 < i - start) {
+						throw UNSUPPORTED;
+					}
+					tokens.add(new Token(NUMBER, null, (double) Long.parseLong(s.substring(start + 2, i), 16)));
+				} else {
+					if (c == '0' && i + 1 < len && isDigit(s.charAt(i + 1))) {
+						// 8進数のリテラル
+						throw UNSUPPORTED;
+					}
+					while (i < len && isDigit(s.charAt(i))) {
+						i++;
+					}
+					if (i < len && s.charAt(i) == '.') {
+						i++;
+						while (i < len && isDigit(s.charAt(i))) {
+							i++;
+						}
+					}
+					if (i < len && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+						i++;
+						if (i < len && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+							i++;
+						}
+						int digits = i;
+						while (i < len && isDigit(s.charAt(i))) {
+							i++;
+						}
+						if (digits == i) {
+							throw UNSUPPORTED;
+						}
+					}
+					tokens.add(new Token(NUMBER, null, Double.parseDouble(s.substring(start, i))));
+				}
+				if (i < len && isIdentifierPart(s.charAt(i))) {
+					throw UNSUPPORTED;
+				}
+			} else if (c == '"' || c == '\'') {
+				StringBuilder sb = new StringBuilder();
+				i++;
+				while (true) {
+					if (len <= i) {
+						throw UNSUPPORTED;
+					}
+					char d = s.charAt(i++);
+					if (d == c) {
+						break;
+					} else if (d == '\r' || d == '\n') {
+						throw UNSUPPORTED;
+					} else if (d != '\\') {
+						sb.append(d);
+						continue;
+					}
+					if (len <= i) {
+						throw UNSUPPORTED;
+					}
+					char e = s.charAt(i++);
+					switch (e) {
+					case 'n':
+						sb.append('\n');
+						break;
+					case 't':
+						sb.append('\t');
+						break;
+					case 'r':
+						sb.append('\r');
+						break;
+					case 'b':
+						sb.append('\b');
+						break;
+					case 'f':
+						sb.append('\f');
+						break;
+					case 'v':
+						sb.append('\u000B');
+						break;
+					case '\\':
+					case '\'':
+					case '"':
+						sb.append(e);
+						break;
+					default:
+						// 8進数・16進数・Unicodeのエスケープ、行の継続等
+						throw UNSUPPORTED;
+					}
+				}
+				tokens.add(new Token(STRING, null, sb.toString()));
+			} else if (isIdentifierStart(c)) {
+				int start = i;
+				while (i < len && isIdentifierPart(s.charAt(i))) {
+					i++;
+				}
+				tokens.add(new Token(IDENTIFIER, s.substring(start, i), null));
+			} else {
+				String punctuator = null;
+				for (String p : PUNCTUATORS) {
+					if (s.startsWith(p, i)) {
+						punctuator = p;
+						break;
+					}
+				}
+				if (punctuator == null || s.startsWith("++", i) || s.startsWith("--", i) || s.startsWith("//", i)
+						|| s.startsWith("/*", i)) {
+					throw UNSUPPORTED;
+				}
+				tokens.add(new Token(PUNCTUATOR, punctuator, null));
+				i += punctuator.length();
+			}
+		}
+		tokens.add(new Token(END, "", null));
+		return tokens;
+	}
+
+	private static boolean isDigit(char c) {
+		return '0' <= c && c <= '9';
+	}
+
+	private static boolean isIdentifierStart(char c) {
+		return c == '$' || c == '_' || Character.isLetter(c);
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return c == '$' || c == '_' || Character.isLetterOrDigit(c);
+	}
+
+	// ---------------------------------------------------------------- 構文解析・コンパイル
+
+	/**
+	 * 構文木のノードです. 定数と$()の呼び出しは比較の最適化のために保持します.
+	 */
+	private static final class Expr {
+		private final Node node;
+
+		/** 文字列リテラルの値(文字列リテラル以外はnull). */
+		private final String literal;
+
+		/** 項目名が文字列リテラルの$()の項目名($()の呼び出し以外はnull). */
+		private final String itemName;
+
+		private Expr(Node node) {
+			this(node, null, null);
+		}
+
+		private Expr(Node node, String literal, String itemName) {
+			this.node = node;
+			this.literal = literal;
+			this.itemName = itemName;
+		}
+	}
+
+	/**
+	 * 再帰下降パーサです. 演算子の優先順位はJavaScriptと同じです.
+	 */
+	private static final class Parser {
+		private final List<Token> tokens;
+		private final Predicate<String> builtins;
+		private int position;
+
+		private Parser(List<Token> tokens, Predicate<String> builtins) {
+			this.tokens = tokens;
+			this.builtins = builtins;
+		}
+
+		private Expr parse() {
+			Expr expr = conditional();
+			while (accept(";")) {
+				// 末尾のセミコロンは無視する
+			}
+			if (peek().type != END) {
+				throw UNSUPPORTED;
+			}
+			return expr;
+		}
+
+		private Token peek() {
+			return tokens.get(position);
+		}
+
+		private boolean accept(String punctuator) {
+			Token token = peek();
+			if (token.type == PUNCTUATOR && token.text.equals(punctuator)) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(String punctuator) {
+			if (!accept(punctuator)) {
+				throw UNSUPPORTED;
+			}
+		}
+
+		private Expr conditional() {
+			Expr condition = logicalOr();
+			if (!accept("?")) {
+				return condition;
+			}
+			Node test = condition.node;
+			Node whenTrue = conditional().node;
+			expect(":");
+			Node whenFalse = conditional().node;
+			return new Expr((r, p) -> toBoolean(test.eval(r, p)) ? whenTrue.eval(r, p) : whenFalse.eval(r, p));
+		}
+
+		private Expr logicalOr() {
+			Expr expr = logicalAnd();
+			while (accept("||")) {
+				Node left = expr.node;
+				Node right = logicalAnd().node;
+				expr = new Expr((r, p) -> {
+					Object value = left.eval(r, p);
+					return toBoolean(value) ? value : right.eval(r, p);
+				});
+			}
+			return expr;
+		}
+
+		private Expr logicalAnd() {
+			Expr expr = equality();
+			while (accept("&&")) {
+				Node left = expr.node;
+				Node right = equality().node;
+				expr = new Expr((r, p) -> {
+					Object value = left.eval(r, p);
+					return toBoolean(value) ? right.eval(r, p) : value;
+				});
+			}
+			return expr;
+		}
+
+		private Expr equality() {
+			Expr expr = relational();
+			while (true) {
+				boolean not;
+				boolean strict;
+				if (accept("==")) {
+					not = false;
+					strict = false;
+				} else if (accept("!=")) {
+					not = true;
+					strict = false;
+				} else if (accept("===")) {
+					not = false;
+					strict = true;
+				} else if (accept("!==")) {
+					not = true;
+					strict = true;
+				} else {
+					return expr;
+				}
+				Expr right = relational();
+				if (!strict && (expr.itemName != null && right.literal != null
+						|| expr.literal != null && right.itemName != null)) {
+					// $("項目名") == "文字列" は項目の値を直接比較する
+					String name = expr.itemName != null ? expr.itemName : right.itemName;
+					String literal = expr.literal != null ? expr.literal : right.literal;
+					expr = new Expr((r, p) -> literal.equals(r.getValue(name)) != not);
+				} else {
+					Node left = expr.node;
+					Node rightNode = right.node;
+					expr = strict ? new Expr((r, p) -> strictEquals(left.eval(r, p), rightNode.eval(r, p)) != not)
+							: new Expr((r, p) -> looseEquals(left.eval(r, p), rightNode.eval(r, p)) != not);
+				}
+			}
+		}
+
+		private Expr relational() {
+			Expr expr = additive();
+			while (true) {
+				Node left = expr.node;
+				if (accept("<")) {
+					Node right = additive().node;
+					expr = new Expr((r, p) -> lessThan(left.eval(r, p), right.eval(r, p), false));
+				} else if (accept(">")) {
+					Node right = additive().node;
+					expr = new Expr((r, p) -> {
+						Object value = left.eval(r, p);
+						return lessThan(right.eval(r, p), value, false);
+					});
+				} else if (accept("<=")) {
+					Node right = additive().node;
+					expr = new Expr((r, p) -> lessThan(left.eval(r, p), right.eval(r, p), true));
+				} else if (accept(">=")) {
+					Node right = additive().node;
+					expr = new Expr((r, p) -> {
+						Object value = left.eval(r, p);
+						return lessThan(right.eval(r, p), value, true);
+					});
+				} else {
+					return expr;
+				}
+			}
+		}
+
+		private Expr additive() {
+			Expr expr = multiplicative();
+			while (true) {
+				Node left = expr.node;
+				if (accept("+")) {
+					Node right = multiplicative().node;
+					expr = new Expr((r, p) -> add(left.eval(r, p), right.eval(r, p)));
+				} else if (accept("-")) {
+					Node right = multiplicative().node;
+					expr = new Expr((r, p) -> toNumber(left.eval(r, p)) - toNumber(right.eval(r, p)));
+				} else {
+					return expr;
+				}
+			}
+		}
+
+		private Expr multiplicative() {
+			Expr expr = unary();
+			while (true) {
+				Node left = expr.node;
+				if (accept("*")) {
+					Node right = unary().node;
+					expr = new Expr((r, p) -> toNumber(left.eval(r, p)) * toNumber(right.eval(r, p)));
+				} else if (accept("/")) {
+					Node right = unary().node;
+					expr = new Expr((r, p) -> toNumber(left.eval(r, p)) / toNumber(right.eval(r, p)));
+				} else if (accept("%")) {
+					Node right = unary().node;
+					expr = new Expr((r, p) -> toNumber(left.eval(r, p)) % toNumber(right.eval(r, p)));
+				} else {
+					return expr;
+				}
+			}
+		}
+
+		private Expr unary() {
+			if (accept("!")) {
+				Node operand = unary().node;
+				return new Expr((r, p) -> !toBoolean(operand.eval(r, p)));
+			} else if (accept("-")) {
+				Node operand = unary().node;
+				return new Expr((r, p) -> -toNumber(operand.eval(r, p)));
+			} else if (accept("+")) {
+				Node operand = unary().node;
+				return new Expr((r, p) -> toNumber(operand.eval(r, p)));
+			}
+			return postfix();
+		}
+
+		private Expr postfix() {
+			Expr expr = primary();
+			while (accept(".")) {
+				Token name = peek();
+				if (name.type != IDENTIFIER) {
+					throw UNSUPPORTED;
+				}
+				position++;
+				Node target = expr.node;
+				if (accept("(")) {
+					if (!STRING_METHODS.contains(name.text) && !JAVA_STRING_METHODS.contains(name.text)) {
+						throw UNSUPPORTED;
+					}
+					Node[] args = arguments();
+					String method = name.text;
+					expr = new Expr((r, p) -> invoke(target.eval(r, p), method, evalAll(args, r, p)));
+				} else if ("length".equals(name.text)) {
+					expr = new Expr((r, p) -> {
+						Object value = target.eval(r, p);
+						if (!(value instanceof String)) {
+							// Javaの文字列のlengthはメソッドを参照する
+							throw UNSUPPORTED;
+						}
+						return (double) ((String) value).length();
+					});
+				} else {
+					throw UNSUPPORTED;
+				}
+			}
+			return expr;
+		}
+
+		private Node[] arguments() {
+			List<Node> args = new ArrayList<>();
+			if (!accept(")")) {
+				do {
+					args.add(conditional().node);
+				} while (accept(","));
+				expect(")");
+			}
+			return args.toArray(new Node[0]);
+		}
+
+		private Expr primary() {
+			Token token = peek();
+			position++;
+			switch (token.type) {
+			case NUMBER:
+				Object number = token.value;
+				return new Expr((r, p) -> number);
+			case STRING:
+				String string = (String) token.value;
+				return new Expr((r, p) -> string, string, null);
+			case IDENTIFIER:
+				return identifier(token.text);
+			case PUNCTUATOR:
+				if ("(".equals(token.text)) {
+					Expr expr = conditional();
+					expect(")");
+					return new Expr(expr.node);
+				}
+				throw UNSUPPORTED;
+			default:
+				throw UNSUPPORTED;
+			}
+		}
+
+		private Expr identifier(String name) {
+			switch (name) {
+			case "true":
+				return new Expr((r, p) -> Boolean.TRUE);
+			case "false":
+				return new Expr((r, p) -> Boolean.FALSE);
+			case "null":
+				return new Expr((r, p) -> null);
+			default:
+				break;
+			}
+			if (RESERVED_WORDS.contains(name)) {
+				throw UNSUPPORTED;
+			}
+			if (!accept("(")) {
+				// パラメータの参照
+				return new Expr((r, p) -> getParam(p, name));
+			}
+			if (!BUILTIN_FUNCTIONS.contains(name) || !builtins.test(name)) {
+				throw UNSUPPORTED;
+			}
+			int argsStart = position;
+			Node[] args = arguments();
+			if ("parseInt".equals(name)) {
+				if (args.length == 0) {
+					throw UNSUPPORTED;
+				}
+				Node string = args[0];
+				Node radix = 1 < args.length ? args[1] : null;
+				return new Expr((r, p) -> parseInt(string.eval(r, p), radix == null ? null : radix.eval(r, p)));
+			}
+			if (args.length != 1) {
+				throw UNSUPPORTED;
+			}
+			Node arg = args[0];
+			switch (name) {
+			case "$":
+				Token argToken = tokens.get(argsStart);
+				String itemName = argToken.type == STRING && position == argsStart + 2 ? (String) argToken.value
+						: null;
+				if (itemName != null) {
+					return new Expr((r, p) -> toJavaString(r.getValue(itemName)), null, itemName);
+				}
+				return new Expr((r, p) -> toJavaString(r.getValue(toItemName(arg.eval(r, p)))));
+			case "$hex":
+				return new Expr((r, p) -> toJavaString(r.getHexValue(toItemName(arg.eval(r, p)))));
+			default:
+				return new Expr((r, p) -> toJavaString(r.getRawStringValue(toItemName(arg.eval(r, p)))));
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- 評価
+
+	private static Object[] evalAll(Node[] nodes, Record record, Param[] params) {
+		Object[] values = new Object[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			values[i] = nodes[i].eval(record, params);
+		}
+		return values;
+	}
+
+	private static Object getParam(Param[] params, String name) {
+		for (Param param : params) {
+			if (param.getKey().equals(name)) {
+				Object value = param.getValue();
+				if (value == null || value instanceof String || value instanceof Boolean) {
+					return value;
+				} else if (value instanceof Number) {
+					return ((Number) value).doubleValue();
+				}
+				break;
+			}
+		}
+		// 共有スコープの変数、Javaのオブジェクトのパラメータ
+		throw UNSUPPORTED;
+	}
+
+	private static Object toJavaString(String value) {
+		return value == null ? null : new JavaString(value);
+	}
+
+	private static String toItemName(Object value) {
+		if (value instanceof String) {
+			return (String) value;
+		} else if (value instanceof JavaString) {
+			return ((JavaString) value).value;
+		}
+		throw UNSUPPORTED;
+	}
+
+	/**
+	 * JavaScriptのプリミティブ値に変換します(Javaの文字列は文字列に変換します).
+	 */
+	private static Object toPrimitive(Object value) {
+		return value instanceof JavaString ? ((JavaString) value).value : value;
+	}
+
+	private static boolean toBoolean(Object value) {
+		if (value == null) {
+			return false;
+		} else if (value instanceof Boolean) {
+			return (Boolean) value;
+		} else if (value instanceof Double) {
+			double d = (Double) value;
+			return d != 0 && !Double.isNaN(d);
+		} else if (value instanceof String) {
+			return !((String) value).isEmpty();
+		}
+		// Javaのオブジェクトは常にtrue
+		return true;
+	}
+
+	private static double toNumber(Object value) {
+		value = toPrimitive(value);
+		if (value == null) {
+			return 0;
+		} else if (value instanceof Double) {
+			return (Double) value;
+		} else if (value instanceof Boolean) {
+			return (Boolean) value ? 1 : 0;
+		}
+		return toNumber((String) value);
+	}
+
+	private static double toNumber(String s) {
+		int start = 0;
+		int end = s.length();
+		while (start < end && isSpace(s.charAt(start))) {
+			start++;
+		}
+		while (start < end && isSpace(s.charAt(end - 1))) {
+			end--;
+		}
+		if (start == end) {
+			return 0;
+		}
+		if (isOtherSpace(s.charAt(start)) || isOtherSpace(s.charAt(end - 1))) {
+			throw UNSUPPORTED;
+		}
+		String t = s.substring(start, end);
+		for (int i = 0; i < t.length(); i++) {
+			char c = t.charAt(i);
+			if (!isDigit(c) && c != '.' && c != 'e' && c != 'E' && c != '+' && c != '-') {
+				if (t.contains("Infinity") || t.contains("0x") || t.contains("0X")) {
+					throw UNSUPPORTED;
+				}
+				return Double.NaN;
+			}
+		}
+		try {
+			return Double.parseDouble(t);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+	}
+
+	/**
+	 * @return 空白とみなすかどうかがRhinoの処理によって異なる文字の場合はtrue
+	 */
+	private static boolean isOtherSpace(char c) {
+		return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\uFEFF';
+	}
+
+	private static double toInteger(Object value) {
+		double d = toNumber(value);
+		if (Double.isNaN(d)) {
+			return 0;
+		} else if (Double.isInfinite(d) || d == 0) {
+			return d;
+		}
+		return d < 0 ? Math.ceil(d) : Math.floor(d);
+	}
+
+	private static int toInt32(double d) {
+		if (Double.isNaN(d) || Double.isInfinite(d)) {
+			return 0;
+		}
+		return (int) (long) ((d < 0 ? Math.ceil(d) : Math.floor(d)) % 4294967296.0);
+	}
+
+	/**
+	 * Javaのメソッドのint型の引数に変換します.
+	 */
+	private static int toJavaInt(Object value) {
+		if (!(value instanceof Double)) {
+			throw UNSUPPORTED;
+		}
+		double d = (Double) value;
+		if (Double.isNaN(d) || Double.isInfinite(d)) {
+			throw UNSUPPORTED;
+		}
+		d = d < 0 ? Math.ceil(d) : Math.floor(d);
+		if (d < Integer.MIN_VALUE || Integer.MAX_VALUE < d) {
+			throw UNSUPPORTED;
+		}
+		return (int) d;
+	}
+
+	/**
+	 * Javaのメソッドの文字列型の引数に変換します.
+	 */
+	private static String toJavaStringArg(Object value) {
+		if (value instanceof String) {
+			return (String) value;
+		} else if (value instanceof JavaString) {
+			return ((JavaString) value).value;
+		}
+		throw UNSUPPORTED;
+	}
+
+	/**
+	 * 評価結果を文字列に変換します.
+	 */
+	static String toStr(Object value) {
+		value = toPrimitive(value);
+		if (value == null) {
+			return "null";
+		} else if (value instanceof String) {
+			return (String) value;
+		} else if (value instanceof Boolean) {
+			return value.toString();
+		}
+		double d = (Double) value;
+		if (Double.isNaN(d)) {
+			return "NaN";
+		} else if (Double.isInfinite(d)) {
+			return d < 0 ? "-Infinity" : "Infinity";
+		} else if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+			return Long.toString((long) d);
+		}
+		// 整数以外の数値の文字列表現はRhinoと異なる場合がある
+		throw UNSUPPORTED;
+	}
+
+	private static boolean looseEquals(Object x, Object y) {
+		x = toPrimitive(x);
+		y = toPrimitive(y);
+		if (x == null || y == null) {
+			return x == y;
+		} else if (x instanceof String && y instanceof String || x instanceof Boolean && y instanceof Boolean) {
+			return x.equals(y);
+		}
+		return toNumber(x) == toNumber(y);
+	}
+
+	private static boolean strictEquals(Object x, Object y) {
+		if (x instanceof JavaString || y instanceof JavaString) {
+			// Javaのオブジェクトは同一のインスタンスかどうかで比較する
+			throw UNSUPPORTED;
+		}
+		if (x == null || y == null) {
+			return x == y;
+		} else if (x instanceof Double && y instanceof Double) {
+			return ((Double) x).doubleValue() == ((Double) y).doubleValue();
+		}
+		return x.getClass() == y.getClass() && x.equals(y);
+	}
+
+	private static boolean lessThan(Object x, Object y, boolean orEqual) {
+		x = toPrimitive(x);
+		y = toPrimitive(y);
+		if (x instanceof String && y instanceof String) {
+			int c = ((String) x).compareTo((String) y);
+			return orEqual ? c <= 0 : c < 0;
+		}
+		double dx = toNumber(x);
+		double dy = toNumber(y);
+		return orEqual ? dx <= dy : dx < dy;
+	}
+
+	private static Object add(Object x, Object y) {
+		x = toPrimitive(x);
+		y = toPrimitive(y);
+		if (x instanceof String || y instanceof String) {
+			return toStr(x).concat(toStr(y));
+		}
+		return toNumber(x) + toNumber(y);
+	}
+
+	private static Object parseInt(Object string, Object radixValue) {
+		String s = toStr(string);
+		int radix = radixValue == null ? 0 : toInt32(toNumber(radixValue));
+		int len = s.length();
+		if (len == 0) {
+			return Double.NaN;
+		}
+		int start = 0;
+		char c;
+		do {
+			c = s.charAt(start);
+			if (!isSpace(c)) {
+				if (isOtherSpace(c)) {
+					throw UNSUPPORTED;
+				}
+				break;
+			}
+			start++;
+		} while (start < len);
+
+		boolean negative = false;
+		if (c == '+' || (negative = (c == '-'))) {
+			start++;
+		}
+		if (radix == 0) {
+			radix = -1;
+		} else if (radix < 2 || 36 < radix) {
+			return Double.NaN;
+		} else if (radix == 16 && 1 < len - start && s.charAt(start) == '0') {
+			c = s.charAt(start + 1);
+			if (c == 'x' || c == 'X') {
+				start += 2;
+			}
+		}
+		if (radix == -1) {
+			radix = 10;
+			if (1 < len - start && s.charAt(start) == '0') {
+				c = s.charAt(start + 1);
+				if (c == 'x' || c == 'X') {
+					radix = 16;
+					start += 2;
+				} else if (isDigit(c)) {
+					radix = 8;
+					start++;
+				}
+			}
+		}
+
+		double sum = 0;
+		int end = start;
+		for (; end < len; end++) {
+			int digit = Character.digit(s.charAt(end), radix);
+			if (digit == -1 || 0x7f < s.charAt(end)) {
+				break;
+			}
+			sum = sum * radix + digit;
+		}
+		if (end == start) {
+			return Double.NaN;
+		}
+		if (9007199254740992.0 <= sum) {
+			if (radix != 10) {
+				throw UNSUPPORTED;
+			}
+			sum = Double.parseDouble(s.substring(start, end));
+		}
+		return negative ? -sum : sum;
+	}
+
+	/**
+	 * 文字列のメソッドを呼び出します.
+	 */
+	private static Object invoke(Object target, String method, Object[] args) {
+		if (target instanceof String && STRING_METHODS.contains(method)) {
+			return invokeStringMethod((String) target, method, args);
+		} else if (target instanceof JavaString && JAVA_STRING_METHODS.contains(method)) {
+			return invokeJavaStringMethod(((JavaString) target).value, method, args);
+		}
+		throw UNSUPPORTED;
+	}
+
+	/**
+	 * JavaScriptの文字列のメソッドを呼び出します.
+	 */
+	private static Object invokeStringMethod(String s, String method, Object[] args) {
+		int length = s.length();
+		switch (method) {
+		case "substring": {
+			double start = Math.min(Math.max(toInteger(arg(args, 0)), 0), length);
+			double end = args.length <= 1 ? length : Math.min(Math.max(toInteger(args[1]), 0), length);
+			if (end < start) {
+				double temp = start;
+				start = end;
+				end = temp;
+			}
+			return s.substring((int) start, (int) end);
+		}
+		case "substr": {
+			if (args.length == 0) {
+				return s;
+			}
+			double begin = toInteger(args[0]);
+			if (begin < 0) {
+				begin = Math.max(begin + length, 0);
+			} else if (length < begin) {
+				begin = length;
+			}
+			double end;
+			if (args.length == 1) {
+				end = length;
+			} else {
+				end = Math.min(Math.max(toInteger(args[1]), 0) + begin, length);
+			}
+			return s.substring((int) begin, (int) end);
+		}
+		case "slice": {
+			if (args.length == 0) {
+				return s;
+			}
+			double begin = toInteger(args[0]);
+			if (begin < 0) {
+				begin = Math.max(length + begin, 0);
+			} else if (length < begin) {
+				begin = length;
+			}
+			double end;
+			if (args.length == 1) {
+				end = length;
+			} else {
+				end = toInteger(args[1]);
+				if (end < 0) {
+					end = Math.max(length + end, 0);
+				} else if (length < end) {
+					end = length;
+				}
+				if (end < begin) {
+					end = begin;
+				}
+			}
+			return s.substring((int) begin, (int) end);
+		}
+		case "charAt": {
+			double pos = toInteger(arg(args, 0));
+			return pos < 0 || length <= pos ? "" : String.valueOf(s.charAt((int) pos));
+		}
+		case "indexOf": {
+			if (args.length == 0) {
+				throw UNSUPPORTED;
+			}
+			String search = toStr(args[0]);
+			double begin = toInteger(arg(args, 1));
+			if (length < begin) {
+				return -1.0;
+			}
+			return (double) s.indexOf(search, (int) Math.max(begin, 0));
+		}
+		case "toUpperCase":
+			return s.toUpperCase();
+		case "toLowerCase":
+			return s.toLowerCase();
+		default:
+			throw UNSUPPORTED;
+		}
+	}
+
+	/**
+	 * 引数を取得します(省略された引数はundefinedの代わりにnullを返すため、数値への変換に使用する場合のみ使用します).
+	 */
+	private static Object arg(Object[] args, int index) {
+		if (index < args.length) {
+			return args[index];
+		}
+		// undefinedを数値に変換した値(NaN)
+		return Double.NaN;
+	}
+
+	/**
+	 * Javaの文字列のメソッドを呼び出します.
+	 */
+	private static Object invokeJavaStringMethod(String s, String method, Object[] args) {
+		switch (method + "/" + args.length) {
+		case "length/0":
+			return (double) s.length();
+		case "isEmpty/0":
+			return s.isEmpty();
+		case "trim/0":
+			return new JavaString(s.trim());
+		case "toUpperCase/0":
+			return new JavaString(s.toUpperCase());
+		case "toLowerCase/0":
+			return new JavaString(s.toLowerCase());
+		case "substring/1":
+			return new JavaString(s.substring(toJavaInt(args[0])));
+		case "substring/2":
+			return new JavaString(s.substring(toJavaInt(args[0]), toJavaInt(args[1])));
+		case "indexOf/1":
+			return (double) s.indexOf(toJavaStringArg(args[0]));
+		case "indexOf/2":
+			return (double) s.indexOf(toJavaStringArg(args[0]), toJavaInt(args[1]));
+		case "equals/1":
+			return s.equals(toJavaStringArg(args[0]));
+		case "startsWith/1":
+			return s.startsWith(toJavaStringArg(args[0]));
+		case "endsWith/1":
+			return s.endsWith(toJavaStringArg(args[0]));
+		case "contains/1":
+			return s.contains(toJavaStringArg(args[0]));
+		default:
+			throw UNSUPPORTED;
+		}
+	}
+}
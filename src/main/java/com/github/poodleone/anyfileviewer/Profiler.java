@@ -0,0 +1,357 @@
+package com.github.poodleone.anyfileviewer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 処理時間の計測(プロファイル).<br>
+ * 分類(Reader・レイアウト・式・エクスポートの段階)と名前ごとに、回数・合計時間・最大時間と時間の分布(ヒストグラム)を集計します.
+ * ヒストグラムは2のべき乗(ナノ秒)ごとの区間の件数で、パーセンタイルは該当する区間の上限値で近似します.<br>
+ * 計測は次のように行います. 計測が無効の場合は{@link #start()}が0を返し、{@link #record}は何もしないため、
+ * 計測箇所の負荷は変数の参照1回程度です(名前の生成が必要な場合は、開始時刻が0でないときのみ生成してください).
+ *
+ * <pre>
+ * long start = Profiler.start();
+ * ... 計測する処理 ...
+ * Profiler.record(Category.EXPRESSION, expression, start);
+ * </pre>
+ *
+ * システムプロパティ{@value #PROFILE_PROPERTY}にファイルのパスを指定して起動した場合は、起動時から計測を有効にし、
+ * 終了時に集計結果をファイルに出力します(拡張子が.jsonの場合はJSON、それ以外はCSV). 画面を表示しない実行でも計測結果を取得できます.
+ */
+public class Profiler {
+	/** 起動時から計測し、終了時に集計結果を出力するファイルのパスを指定するシステムプロパティ. */
+	public static final String PROFILE_PROPERTY = "anyfileviewer.profile";
+
+	/** ヒストグラムの区間数(区間iは2^i～2^(i+1)-1ナノ秒). */
+	private static final int BUCKETS = 64;
+
+	/**
+	 * 計測対象の分類.
+	 */
+	public enum Category {
+		/** Readerの呼び出し(ファイルごと. レコードごとの処理の時間を含む). 名前はReaderのクラス名と処理. */
+		READER("Reader"),
+		/** レコードのパース. 名前は適用したレイアウト(dumpLayouts)の名前. */
+		LAYOUT("レイアウト"),
+		/** 式の評価(式の中で参照した項目の値の算出を含む). 名前は式. */
+		EXPRESSION("式"),
+		/** 式の評価のうち、Rhinoで評価したもの. 名前は式. */
+		RHINO("式(Rhino)"),
+		/** エクスポートの段階. 名前は段階. */
+		EXPORT("エクスポート");
+
+		private final String label;
+
+		private Category(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	/** 計測が有効かどうか. */
+	private static volatile boolean enabled;
+
+	/** 集計結果(key: 分類, value: 名前ごとの集計結果). */
+	private static final Map<Category, Map<String, Metric>> metrics = new EnumMap<>(Category.class);
+
+	static {
+		for (Category category : Category.values()) {
+			metrics.put(category, new ConcurrentHashMap<>());
+		}
+		String path = System.getProperty(PROFILE_PROPERTY);
+		if (path != null && !path.isEmpty()) {
+			enabled = true;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					write(Paths.get(path));
+				} catch (UncheckedIOException e) {
+					e.printStackTrace();
+				}
+			}, "profiler-writer"));
+		}
+	}
+
+	private Profiler() {
+	}
+
+	/**
+	 * @return 計測が有効かどうか
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 計測の有効・無効を設定します.
+	 *
+	 * @param enabled 計測する場合はtrue
+	 */
+	public static void setEnabled(boolean enabled) {
+		Profiler.enabled = enabled;
+	}
+
+	/**
+	 * 計測を開始します.
+	 *
+	 * @return 開始時刻({@link System#nanoTime()}. 計測が無効の場合は0)
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * 開始時刻から現在までの時間を集計します.
+	 *
+	 * @param category 分類
+	 * @param name     名前
+	 * @param start    {@link #start()}が返した開始時刻(0の場合は集計しない)
+	 */
+	public static void record(Category category, String name, long start) {
+		if (start == 0 || name == null) {
+			return;
+		}
+		long nanos = System.nanoTime() - start;
+		Map<String, Metric> map = metrics.get(category);
+		Metric metric = map.get(name);
+		if (metric == null) {
+			metric = map.computeIfAbsent(name, e -> new Metric(category, e));
+		}
+		metric.add(nanos);
+	}
+
+	/**
+	 * @return 全分類の集計結果
+	 */
+	public static List<Metric> getMetrics() {
+		List<Metric> list = new ArrayList<>();
+		metrics.values().forEach(e -> list.addAll(e.values()));
+		return list;
+	}
+
+	/**
+	 * 集計結果を破棄します.
+	 */
+	public static void clear() {
+		metrics.values().forEach(Map::clear);
+	}
+
+	/**
+	 * 集計結果をファイルに出力します. 拡張子が.jsonの場合はJSON、それ以外の場合はCSVで出力します.
+	 *
+	 * @param path 出力ファイルのパス
+	 */
+	public static void write(Path path) {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+				writeJson(writer);
+			} else {
+				writeCsv(writer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 集計結果をCSVで出力します(1行が1つの名前. 時間の単位はマイクロ秒).
+	 *
+	 * @param writer 出力先
+	 * @throws IOException 出力で異常が発生した場合
+	 */
+	public static void writeCsv(Writer writer) throws IOException {
+		writer.write("category,name,count,total_us,mean_us,max_us,p50_us,p90_us,p99_us\r\n");
+		for (Metric m : getMetrics()) {
+			writer.write(String.join(",", quote(m.getCategory().name()), quote(m.getName()),
+					Long.toString(m.getCount()), micros(m.getTotalNanos()), micros(m.getMeanNanos()),
+					micros(m.getMaxNanos()), micros(m.getPercentileNanos(50)), micros(m.getPercentileNanos(90)),
+					micros(m.getPercentileNanos(99))));
+			writer.write("\r\n");
+		}
+	}
+
+	/**
+	 * 集計結果をJSONで出力します. ヒストグラムは件数が0でない区間の上限値(ナノ秒)と件数の配列です.
+	 *
+	 * @param writer 出力先
+	 * @throws IOException 出力で異常が発生した場合
+	 */
+	public static void writeJson(Writer writer) throws IOException {
+		writer.write("[");
+		String separator = "\n";
+		for (Metric m : getMetrics()) {
+			StringBuilder sb = new StringBuilder(separator).append("  {");
+			sb.append("\"category\": ").append(jsonString(m.getCategory().name()));
+			sb.append(", \"name\": ").append(jsonString(m.getName()));
+			sb.append(", \"count\": ").append(m.getCount());
+			sb.append(", \"totalNanos\": ").append(m.getTotalNanos());
+			sb.append(", \"maxNanos\": ").append(m.getMaxNanos());
+			sb.append(", \"histogram\": [");
+			long[] histogram = m.getHistogram();
+			String bucketSeparator = "";
+			for (int i = 0; i < histogram.length; i++) {
+				if (histogram[i] != 0) {
+					sb.append(bucketSeparator).append('[').append(upperBound(i)).append(", ").append(histogram[i])
+							.append(']');
+					bucketSeparator = ", ";
+				}
+			}
+			sb.append("]}");
+			writer.write(sb.toString());
+			separator = ",\n";
+		}
+		writer.write("\n]\n");
+	}
+
+	private static String micros(double nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e3);
+	}
+
+	private static String quote(String text) {
+		return '"' + text.replace("\"", "\"\"") + '"';
+	}
+
+	private static String jsonString(String text) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c : text.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * @return ヒストグラムの区間の上限値(ナノ秒)
+	 */
+	private static long upperBound(int bucket) {
+		return bucket < BUCKETS - 1 ? (1L << (bucket + 1)) - 1 : Long.MAX_VALUE;
+	}
+
+	/**
+	 * 分類・名前ごとの集計結果です. 複数スレッドから同時に更新できます.
+	 */
+	public static class Metric {
+		private final Category category;
+		private final String name;
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		private Metric(Category category, String name) {
+			this.category = category;
+			this.name = name;
+		}
+
+		private void add(long nanos) {
+			count.increment();
+			totalNanos.add(nanos);
+			maxNanos.accumulate(nanos);
+			histogram.incrementAndGet(nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+		}
+
+		/**
+		 * @return 分類
+		 */
+		public Category getCategory() {
+			return category;
+		}
+
+		/**
+		 * @return 名前
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return 回数
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+
+		/**
+		 * @return 合計時間(ナノ秒)
+		 */
+		public long getTotalNanos() {
+			return totalNanos.sum();
+		}
+
+		/**
+		 * @return 平均時間(ナノ秒)
+		 */
+		public double getMeanNanos() {
+			long n = getCount();
+			return n == 0 ? 0 : (double) getTotalNanos() / n;
+		}
+
+		/**
+		 * @return 最大時間(ナノ秒)
+		 */
+		public long getMaxNanos() {
+			return maxNanos.get();
+		}
+
+		/**
+		 * @return ヒストグラム(要素iは2^i～2^(i+1)-1ナノ秒の回数)
+		 */
+		public long[] getHistogram() {
+			long[] result = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				result[i] = histogram.get(i);
+			}
+			return result;
+		}
+
+		/**
+		 * パーセンタイルをヒストグラムから近似します.
+		 *
+		 * @param percent パーセント(0～100)
+		 * @return パーセンタイルを含む区間の上限値(ナノ秒. 最大時間を超える場合は最大時間)
+		 */
+		public long getPercentileNanos(double percent) {
+			long[] h = getHistogram();
+			long total = 0;
+			for (long n : h) {
+				total += n;
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long threshold = (long) Math.ceil(total * percent / 100);
+			long cumulative = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				cumulative += h[i];
+				if (threshold <= cumulative) {
+					return Long.min(upperBound(i), getMaxNanos());
+				}
+			}
+			return getMaxNanos();
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.github.poodleone.anyfileviewer;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -9,6 +10,7 @@ import java.util.regex.Pattern;
 
 import com.github.poodleone.anyfileviewer.itemdefinition.ItemGroupDefinition;
 import com.github.poodleone.anyfileviewer.reader.RecordReader;
+import com.github.poodleone.anyfileviewer.record.RecordSchema;
 
 /**
  * ビューワが読み込むファイルのレコード形式を定義するクラスです.<br>
@@ -33,6 +35,21 @@ public class RecordFormat {
 	/** 式で評価するメタデータの定義. */
 	private Map<String, String> metaItemExpressions;
 
+	/** レコードの項目名の表. */
+	private RecordSchema schema = new RecordSchema();
+
+	/** コンパイル済みのダンプのレイアウト(key: レイアウト定義). */
+	private Map<ItemGroupDefinition, LayoutPlan> layoutPlans = new IdentityHashMap<>();
+
+	/** コンパイル済みのレコードのパターン(readerOptionsのrecordPattern). */
+	private volatile Pattern recordPattern;
+
+	/** レコードのメタデータの項目名のリスト. */
+	private volatile List<String> metaDataNames;
+
+	/** スレッドごとに再利用するレコードのパターンのMatcher. */
+	private final ThreadLocal<Matcher> recordMatcher = ThreadLocal.withInitial(() -> getRecordPattern().matcher(""));
+
 	/**
 	 * レコード形式の定義を生成します.
 	 * 
@@ -51,6 +68,14 @@ public class RecordFormat {
 		this.readerClass = readerClass;
 		this.readerOptions = readerOptions;
 		this.metaItemExpressions = metaItemExpressions;
+
+		// 項目名とオフセットが固定のレイアウトはパース手順をコンパイルしておく
+		for (ItemGroupDefinition layout : dumpLayoutDefinitions) {
+			LayoutPlan plan = layout != null ? LayoutPlan.compile(layout, schema) : null;
+			if (plan != null) {
+				layoutPlans.put(layout, plan);
+			}
+		}
 	}
 
 	/**
@@ -88,6 +113,23 @@ public class RecordFormat {
 		return readerOptions;
 	}
 
+	/**
+	 * @return レコードの項目名の表
+	 */
+	public RecordSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * コンパイル済みのダンプのレイアウトを返します.
+	 * 
+	 * @param layout ダンプのレイアウト定義
+	 * @return コンパイル済みのレイアウト(条件式や可変長項目を含み、コンパイルできないレイアウトの場合はnull)
+	 */
+	LayoutPlan getLayoutPlan(ItemGroupDefinition layout) {
+		return layoutPlans.get(layout);
+	}
+
 	/**
 	 * @return 式で評価するメタデータの定義
 	 */
@@ -95,16 +137,46 @@ public class RecordFormat {
 		return metaItemExpressions;
 	}
 	
+	/**
+	 * コンパイル済みのレコードのパターンを返します. パターンは最初の呼び出し時に一度だけコンパイルします.
+	 * 
+	 * @return レコードのパターン
+	 */
+	public Pattern getRecordPattern() {
+		Pattern pattern = recordPattern;
+		if (pattern == null) {
+			pattern = Pattern.compile(readerOptions.get("recordPattern"));
+			recordPattern = pattern;
+		}
+		return pattern;
+	}
+
+	/**
+	 * 行にマッチするレコードのパターンのMatcherを返します.<br>
+	 * Matcherは呼び出し元のスレッドで再利用するため、同じスレッドで次に呼び出すまでに結果を取得してください.
+	 * 
+	 * @param line 行
+	 * @return lineでリセットしたMatcher
+	 */
+	public Matcher matchRecord(CharSequence line) {
+		return recordMatcher.get().reset(line);
+	}
+
 	/**
 	 * @return レコードのメタデータの項目名のリスト
 	 */
 	public List<String> getMetaDataNames() {
-		List<String> items = new ArrayList<>();
-		Matcher m = Pattern.compile("\\(\\?\\<([A-Za-z][A-Za-z0-9]*)\\>").matcher(readerOptions.get("recordPattern"));
-		while (m.find()) {
-			items.add(m.group(1));
+		List<String> names = metaDataNames;
+		if (names == null) {
+			List<String> items = new ArrayList<>();
+			Matcher m = Pattern.compile("\\(\\?\\<([A-Za-z][A-Za-z0-9]*)\\>").matcher(readerOptions.get("recordPattern"));
+			while (m.find()) {
+				items.add(m.group(1));
+			}
+			names = Collections.unmodifiableList(items);
+			metaDataNames = names;
 		}
-		return items;
+		return names;
 	}
 
 	@Override
@@ -2,12 +2,14 @@ package com.github.poodleone.anyfileviewer.gui;
 
 import java.awt.Component;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.function.Consumer;
 
 import javax.swing.ComboBoxModel;
 import javax.swing.JComboBox;
 
 import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
 import com.github.poodleone.anyfileviewer.utils.GUIUtils;
 
 /**
@@ -16,7 +18,8 @@ import com.github.poodleone.anyfileviewer.utils.GUIUtils;
  */
 public class Common {
 	/**
-	 * ファイルを開くダイアログを表示します.
+	 * ファイルを開くダイアログを表示します.<br>
+	 * 複数のファイル・ディレクトリを選択した場合は、それらを連結した読み込み元を選択したものとします.
 	 * 
 	 * @param parent        親コンポーネント
 	 * @param comboBoxModel ファイルの種類のモデル 
@@ -26,9 +29,9 @@ public class Common {
 	public static void showFileOpenDialog(Component parent, ComboBoxModel<RecordFormat> comboBoxModel, Path selectedItem, Consumer<FormatAndPath> consumer) {
 		JComboBox<RecordFormat> fileTypeCombo = new JComboBox<>(comboBoxModel);
 		fileTypeCombo.setName("ファイルの種類");
-		Path path = GUIUtils.showFileOpenDialog(parent, "ファイルを開く", selectedItem, fileTypeCombo);
-		if (path != null) {
-			consumer.accept(new FormatAndPath((RecordFormat) fileTypeCombo.getSelectedItem(), path));
+		List<Path> paths = GUIUtils.showFilesOpenDialog(parent, "ファイルを開く", selectedItem, fileTypeCombo);
+		if (!paths.isEmpty()) {
+			consumer.accept(new FormatAndPath((RecordFormat) fileTypeCombo.getSelectedItem(), FileSet.of(paths)));
 		}
 	}
 
@@ -38,17 +41,17 @@ public class Common {
 	 */
 	public static class FormatAndPath {
 		private RecordFormat recordFormat;
-		private Path path;
+		private FileSet source;
 		
 		/**
 		 * ファイル選択ダイアログの選択情報を生成します.
 		 * 
 		 * @param recordFormat ファイルの種類
-		 * @param path         ファイルパス
+		 * @param source       読み込み元
 		 */
-		public FormatAndPath(RecordFormat recordFormat, Path path) {
+		public FormatAndPath(RecordFormat recordFormat, FileSet source) {
 			this.recordFormat = recordFormat;
-			this.path = path;
+			this.source = source;
 		}
 		
 		/**
@@ -59,10 +62,10 @@ public class Common {
 		}
 		
 		/**
-		 * @return ファイルパス
+		 * @return 読み込み元
 		 */
-		public Path getPath() {
-			return path;
+		public FileSet getSource() {
+			return source;
 		}
 	}
 }
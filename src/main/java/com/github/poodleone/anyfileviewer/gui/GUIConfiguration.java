@@ -19,6 +19,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import com.github.poodleone.anyfileviewer.itemdefinition.MetaItemDefinition;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
 
 /**
  * GUIの設定を管理するクラス.
@@ -26,7 +27,7 @@ import com.github.poodleone.anyfileviewer.itemdefinition.MetaItemDefinition;
  */
 public class GUIConfiguration {
 	private static GUIConfiguration instance = new GUIConfiguration();
-	private List<Path> recentlyUsedFiles = new ArrayList<>(17);
+	private List<FileSet> recentlyUsedFiles = new ArrayList<>(17);
 	private List<String> filters = new ArrayList<>();
 	private List<MetaItemDefinition> additionalItems = new ArrayList<>();
 	private Map<Booleans, Boolean> booleansMap = new EnumMap<>(Booleans.class);
@@ -35,7 +36,9 @@ public class GUIConfiguration {
 	/** boolean型のプロパティ名 */
 	public enum Booleans {
 		/** 高度なフィルタを使用するかどうか */
-		extendedFilterEnabled
+		extendedFilterEnabled,
+		/** ファイル全体のレコードをスクロールして表示するかどうか */
+		scrollAllEnabled
 	};
 
 	/**
@@ -59,18 +62,18 @@ public class GUIConfiguration {
 	 * 
 	 * @return 最近使ったファイルのリスト
 	 */
-	public List<Path> getRecentlyUsedFiles() {
+	public List<FileSet> getRecentlyUsedFiles() {
 		return recentlyUsedFiles;
 	}
 
 	/**
 	 * 最近使ったファイルを追加します.
 	 * 
-	 * @param path 追加するファイルパス
+	 * @param source 追加するファイルの読み込み元
 	 */
-	public void addRecentlyUsedFile(Path path) {
-		recentlyUsedFiles.remove(path);
-		recentlyUsedFiles.add(0, path);
+	public void addRecentlyUsedFile(FileSet source) {
+		recentlyUsedFiles.remove(source);
+		recentlyUsedFiles.add(0, source);
 		for (int i = 15; i < recentlyUsedFiles.size(); i++) {
 			recentlyUsedFiles.remove(i);
 		}
@@ -133,7 +136,7 @@ public class GUIConfiguration {
 
 		// 最近使用したファイル
 		getValues(properties, "(?<group>recentlyUsedFiles)\\d+(?<name>)").forEach(keyValue -> {
-			recentlyUsedFiles.add(Paths.get(keyValue.value));
+			recentlyUsedFiles.add(FileSet.parse(keyValue.value));
 		});
 		// フィルタ
 		getValues(properties, "(?<group>filters)\\d+(?<name>)").forEach(keyValue -> {
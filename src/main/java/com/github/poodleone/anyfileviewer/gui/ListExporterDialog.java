@@ -23,6 +23,7 @@ import javax.swing.border.EmptyBorder;
 import com.github.poodleone.anyfileviewer.FileTypeConfiguration;
 import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.Exporter;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
 import com.github.poodleone.anyfileviewer.utils.GUIUtils;
 
 /**
@@ -50,12 +51,12 @@ public class ListExporterDialog extends JDialog {
 	 * 
 	 * @param config            ビューワの設定
 	 * @param recordFormat      ファイルのレコード形式の初期選択値
-	 * @param path              入力元ファイル名の初期選択値
+	 * @param source            入力元の初期選択値
 	 * @param columns           簡易フィルタに使用するカラム
 	 * @param filter            フィルタの初期選択値
 	 * @param useExtendedFilter 高度なフィルタを使用するかどうかの初期選択値
 	 */
-	public ListExporterDialog(FileTypeConfiguration config, RecordFormat recordFormat, Path path, List<String> columns,
+	public ListExporterDialog(FileTypeConfiguration config, RecordFormat recordFormat, FileSet source, List<String> columns,
 			String filter, boolean useExtendedFilter) {
 		setTitle("一覧をエクスポート");
 
@@ -110,14 +111,15 @@ public class ListExporterDialog extends JDialog {
 		getContentPane().add(lines, BorderLayout.NORTH);
 
 		// コントロールの挙動を設定
-		inputPathText.setText(Objects.toString(path, ""));
+		inputPathText.setText(Objects.toString(source, ""));
 		// - 入力元ファイルパスの開くボタン
 		openButton1.addActionListener(e -> {
 			// ファイル選択ダイアログを表示(現在の入力値を初期ディレクトリに指定)
-			Path oldPath = toPath(inputPathText.getText());
+			FileSet oldSource = toFileSet(inputPathText.getText());
+			Path oldPath = oldSource != null ? oldSource.getPath() : null;
 			Common.showFileOpenDialog(this, fileTypeCombo.getModel(), oldPath, e2 -> {
 				fileTypeCombo.setSelectedItem(e2.getRecordFormat());
-				inputPathText.setText(e2.getPath().toString());
+				inputPathText.setText(e2.getSource().toString());
 			});
 		});
 		// - 出力先ファイルパスの開くボタン
@@ -125,7 +127,9 @@ public class ListExporterDialog extends JDialog {
 			// ファイル選択ダイアログを表示(現在の入力値を初期ディレクトリに指定)
 			Path oldPath = toPath(outputPathText.getText());
 			if (oldPath == null) {
-				oldPath = toPath(inputPathText.getText()); // 出力先が未指定なら入力元パスを初期ディレクトリにする
+				// 出力先が未指定なら入力元パスを初期ディレクトリにする
+				FileSet input = toFileSet(inputPathText.getText());
+				oldPath = input != null ? input.getPath() : null;
 			}
 			Path newPath = GUIUtils.showFileSaveDialog(this, "エクスポート先を指定する", oldPath);
 			if (newPath != null) {
@@ -134,13 +138,13 @@ public class ListExporterDialog extends JDialog {
 		});
 		// - エクスポートボタン
 		exportButton.addActionListener(e -> {
-			Path inputPath = toPath(inputPathText.getText());
+			FileSet input = toFileSet(inputPathText.getText());
 			Path outputPath = toPath(outputPathText.getText());
-			if (inputPath != null || outputPath != null) {
-				JOptionPane.showMessageDialog(this, "出力先または出力先の指定が不正です。", getTitle(), JOptionPane.OK_OPTION);
+			if (input == null || outputPath == null) {
+				JOptionPane.showMessageDialog(this, "入力元または出力先の指定が不正です。", getTitle(), JOptionPane.OK_OPTION);
 				return;
 			}
-			Exporter.exportList((RecordFormat) fileTypeCombo.getSelectedItem(), inputPath, outputPath,
+			Exporter.exportList((RecordFormat) fileTypeCombo.getSelectedItem(), input, outputPath,
 					Arrays.asList(columnsText.getText().split(",")), delimiterText.getText(), filterText.getText(),
 					useExtendedFilterCheckBox.isSelected());
 			JOptionPane.showMessageDialog(this, "一覧のエクスポートが完了しました。", getTitle(), JOptionPane.DEFAULT_OPTION, null);
@@ -149,6 +153,14 @@ public class ListExporterDialog extends JDialog {
 		this.setModal(true);
 	}
 
+	private static FileSet toFileSet(String location) {
+		try {
+			return FileSet.parse(location);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
 	private static Path toPath(String path) {
 		try {
 			return Paths.get(path);
@@ -1,21 +1,31 @@
 package com.github.poodleone.anyfileviewer.gui;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowFocusListener;
+import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.BoxLayout;
@@ -30,6 +40,7 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
@@ -37,7 +48,10 @@ import javax.swing.KeyStroke;
 import javax.swing.RowFilter;
 import javax.swing.RowSorter;
 import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableRowSorter;
 
@@ -46,6 +60,10 @@ import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.DataParser;
 import com.github.poodleone.anyfileviewer.gui.GUIConfiguration.Booleans;
 import com.github.poodleone.anyfileviewer.itemdefinition.MetaItemDefinition;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
+import com.github.poodleone.anyfileviewer.reader.FileSetReader;
+import com.github.poodleone.anyfileviewer.reader.RecordFollower;
+import com.github.poodleone.anyfileviewer.reader.RecordReader;
 import com.github.poodleone.anyfileviewer.record.Record;
 import com.github.poodleone.anyfileviewer.record.RecordSet;
 import com.github.poodleone.anyfileviewer.utils.AutoFitTableHeader;
@@ -78,6 +96,7 @@ public class MainWindow extends JFrame {
 	private JButton prevButton = new JButton("<<");
 	private JButton nextButton = new JButton(">>");
 	private JButton tailButton = new JButton(">|");
+	private JLabel recordCountLabel = new JLabel();
 
 	private JComboBox<RecordFormat> fileTypeCombo = new JComboBox<>();
 
@@ -85,6 +104,37 @@ public class MainWindow extends JFrame {
 	private JPopupMenu filterMenu = new JPopupMenu();
 	private DropDownButton filterMenuButton = new DropDownButton("フィルタ設定", filterMenu);
 	private JCheckBoxMenuItem filterModeCheckBoxMenuItem = new JCheckBoxMenuItem("高度なフィルタを有効にする", false);
+	private JLabel filterStatusLabel = new JLabel();
+
+	/** 表示中のページのフィルタの評価結果(key: フィルタの種類とフィルタ). */
+	private Map<String, FilterResult> filterResults = new HashMap<>();
+
+	/** 一覧に適用中のフィルタの評価結果. */
+	private FilterResult appliedFilter;
+
+	/** 適用を指定されたフィルタの評価結果(評価中の場合はappliedFilterと異なる). */
+	private FilterResult requestedFilter;
+
+	private FilterTask filterTask;
+
+	/** フィルタの評価を予約済みかどうか. */
+	private boolean filterUpdateScheduled;
+
+	private SwingWorker<?, ?> recordLoader;
+	private RecordFollowTask recordFollowTask;
+	private JCheckBoxMenuItem followMenuItem = GUIUtils.setup(new JCheckBoxMenuItem("末尾を追従表示(_T)"));
+	private JCheckBoxMenuItem scrollAllMenuItem = GUIUtils.setup(new JCheckBoxMenuItem("全件をスクロール表示(_V)"));
+
+	/** 全件をスクロール表示中の場合の、読込済みのレコードの範囲(ページ単位で表示中の場合はnull). */
+	private RecordWindow recordWindow;
+	private JScrollPane tableScrollPane;
+
+	/** 読み込み完了後に選択するレコードのオフセット(-1の場合は選択しない). */
+	private int selectingRecordOffset = -1;
+	private JPanel loadingPanel = new JPanel();
+	private JProgressBar loadingProgressBar = new JProgressBar();
+	private JLabel loadingLabel = new JLabel();
+	private JButton cancelLoadingButton = new JButton("中止");
 
 	/**
 	 * メインウィンドウを生成します.
@@ -109,68 +159,298 @@ public class MainWindow extends JFrame {
 	}
 
 	private void reloadFile() {
-		if (records.getPath() != null) {
-			openFile(null, records.getPath());
+		if (records.getSource() != null) {
+			openFile(null, records.getSource());
 		}
 	}
 
 	private void openFile() {
 		Common.showFileOpenDialog(this, fileTypeCombo.getModel(), records.getPath(), e -> {
-			openFile(e.getRecordFormat(), e.getPath());
+			openFile(e.getRecordFormat(), e.getSource());
 		});
 	}
 
-	private void openFile(RecordFormat recordFormat, Path path) {
+	private void openLocation() {
+		String message = String.format(
+				"ファイル・ディレクトリのパス、またはワイルドカードを含むパス(%sで区切って複数指定、\"\"で囲んだパスはワイルドカードとして扱わない)",
+				File.pathSeparator);
+		String location = (String) JOptionPane.showInputDialog(this, message, "場所を指定して開く",
+				JOptionPane.PLAIN_MESSAGE, null, null, Objects.toString(records.getSource(), ""));
+		if (location == null) {
+			return;
+		}
+		FileSet source;
 		try {
-			Path oldPath = records.getPath();
-			RecordFormat oldFormat = records.getFormat();
-			
-			if (recordFormat == null) {
-				recordFormat = (RecordFormat) fileTypeCombo.getSelectedItem();
-			}
-			int recordOffset = offsetFromText.getText().isEmpty() ? 0 : Integer.parseInt(offsetFromText.getText()) - 1;
-			int maxRows = Integer.parseInt(maxRowsText.getText());
-			records = recordFormat.getReaderClass().newInstance().load(path, recordFormat, recordOffset, maxRows);
-
-			GUIConfiguration.getInstance().addRecentlyUsedFile(records.getPath());
-			if (oldFormat == records.getFormat()) {
-				tableModel.fireTableDataChanged();
+			source = FileSet.parse(location);
+		} catch (IllegalArgumentException e) {
+			GUIUtils.showMessageDialog(this, "場所を指定して開く", "パスの指定が不正です。", e);
+			return;
+		}
+		openFile(null, source);
+	}
 
+	private void openFile(RecordFormat recordFormat, FileSet source) {
+		if (recordLoader != null) {
+			// 読み込み中のファイルがあれば読み込みを中止する
+			recordLoader.cancel(true);
+		}
+		stopFollowing();
+		setRecordWindow(null);
+
+		if (recordFormat == null) {
+			recordFormat = (RecordFormat) fileTypeCombo.getSelectedItem();
+		}
+		int recordOffset;
+		if (followMenuItem.isSelected()) {
+			// 追従表示中は末尾のページを読み込み、読み込み完了後に追従を開始する
+			recordOffset = -1;
+		} else {
+			recordOffset = offsetFromText.getText().isEmpty() ? 0 : Integer.parseInt(offsetFromText.getText()) - 1;
+		}
+		int maxRows = Integer.parseInt(maxRowsText.getText());
+		try {
+			FileSetReader reader = new FileSetReader(recordFormat.getReaderClass().newInstance());
+			if (scrollAllMenuItem.isSelected()) {
+				recordLoader = new RecordCounter(reader, recordFormat, source);
 			} else {
-				tableModel.columnNames.clear();
-				tableModel.columnNames.add("[No.]");
-				tableModel.columnNames.addAll(records.getFormat().getListItems());
-				tableModel.fireTableStructureChanged();
-				sorter.setSortKeys(Arrays.asList(new RowSorter.SortKey(0, SortOrder.ASCENDING)));
-			}
-			if (oldPath != path || oldFormat != records.getFormat()) {
-				tableHeader.sizeWidthToFitData();
+				recordLoader = new RecordLoader(reader, recordFormat, source, recordOffset, maxRows);
 			}
 		} catch (InstantiationException | IllegalAccessException e) {
 			throw new RuntimeException(e);
-		} finally {
-			updateControls();
 		}
+		recordLoader.execute();
+	}
+
+	private void toggleFollowing() {
+		if (followMenuItem.isSelected()) {
+			scrollAllMenuItem.setSelected(false);
+			reloadFile();
+		} else {
+			stopFollowing();
+		}
+		updateControls();
+	}
+
+	private void toggleScrollAll() {
+		if (scrollAllMenuItem.isSelected()) {
+			followMenuItem.setSelected(false);
+		}
+		reloadFile();
+		updateControls();
+	}
+
+	private void startFollowing() {
+		RecordFormat recordFormat = records.getFormat();
+		try {
+			// 読み込んだ末尾のページの直後のレコードから追従する
+			recordFollowTask = new RecordFollowTask(recordFormat.getReaderClass().newInstance(), recordFormat,
+					records.getSource(), records.getOffeset() + records.size(), Integer.parseInt(maxRowsText.getText()));
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+		recordFollowTask.start();
+	}
+
+	private void stopFollowing() {
+		if (recordFollowTask != null) {
+			recordFollowTask.stop();
+			recordFollowTask = null;
+		}
+	}
+
+	private void scrollToLastRow() {
+		if (0 < table.getRowCount()) {
+			table.scrollRectToVisible(table.getCellRect(table.getRowCount() - 1, 0, true));
+		}
+	}
+
+	private void showSearchDialog() {
+		if (records.getSource() == null) {
+			return;
+		}
+		String keyword = filterModeCheckBoxMenuItem.isSelected() ? ""
+				: Objects.toString(filterText.getEditor().getItem(), "");
+		RecordFormat recordFormat = records.getFormat();
+		FileSet source = records.getSource();
+		new SearchDialog(this, recordFormat, source, keyword, offset -> showRecord(recordFormat, source, offset))
+				.setVisible(true);
+	}
+
+	/**
+	 * レコードを含むページを表示し、レコードを選択します.
+	 * 
+	 * @param recordFormat ファイルのレコード形式
+	 * @param source       読み込み元
+	 * @param recordOffset レコードのオフセット(全ファイルを通したレコード数)
+	 */
+	private void showRecord(RecordFormat recordFormat, FileSet source, int recordOffset) {
+		if (recordLoader == null && source.equals(records.getSource()) && recordFormat == records.getFormat()
+				&& selectRecord(recordOffset)) {
+			return;
+		}
+		if (followMenuItem.isSelected()) {
+			followMenuItem.setSelected(false);
+			stopFollowing();
+		}
+		int maxRows = Integer.parseInt(maxRowsText.getText());
+		offsetFromText.setText(Integer.toString(recordOffset / maxRows * maxRows + 1));
+		selectingRecordOffset = recordOffset;
+		openFile(recordFormat, source);
+	}
+
+	/**
+	 * 一覧に表示中のレコードを選択します.
+	 * 
+	 * @param recordOffset レコードのオフセット(全ファイルを通したレコード数)
+	 * @return 一覧にレコードを表示中の場合はtrue
+	 */
+	private boolean selectRecord(int recordOffset) {
+		int modelIndex = recordOffset - records.getOffeset();
+		if (modelIndex < 0 || tableModel.getRowCount() <= modelIndex) {
+			return false;
+		}
+		int index = table.convertRowIndexToView(modelIndex);
+		if (index == -1) {
+			// フィルタで非表示のレコードは選択しない
+			table.clearSelection();
+		} else {
+			table.setRowSelectionInterval(index, index);
+			table.scrollRectToVisible(table.getCellRect(index, 0, true));
+		}
+		return true;
+	}
+
+	private void cancelLoading() {
+		if (recordLoader != null) {
+			recordLoader.cancel(true);
+		}
+	}
+
+	private void setRecords(RecordSet newRecords) {
+		RecordSet oldRecords = records;
+		RecordFormat oldFormat = records.getFormat();
+		if (isSameRecords(oldRecords, newRecords)) {
+			// 読み込み完了時など、表示中と同じレコードの場合はフィルタの評価結果を引き継ぐ
+			filterResults.values().forEach(e -> e.records = newRecords);
+			if (appliedFilter != null && appliedFilter.records == oldRecords) {
+				appliedFilter.records = newRecords;
+			}
+		} else {
+			// フィルタの評価結果はページのレコードごとに保持する
+			filterResults.clear();
+		}
+		records = newRecords;
+		if (oldFormat == records.getFormat()) {
+			tableModel.fireTableDataChanged();
+
+		} else {
+			tableModel.columnNames.clear();
+			tableModel.columnNames.add("[No.]");
+			if (records.getFormat() != null) {
+				tableModel.columnNames.addAll(records.getFormat().getListItems());
+			}
+			tableModel.fireTableStructureChanged();
+			sorter.setSortKeys(Arrays.asList(new RowSorter.SortKey(0, SortOrder.ASCENDING)));
+		}
+	}
+
+	/**
+	 * 全件のスクロール表示を開始・終了します.<br>
+	 * 全件をスクロール表示中は全レコードのソート・フィルタができないため、一覧のソートとフィルタを解除します.
+	 * 
+	 * @param window 読込済みのレコードの範囲(nullの場合はページ単位の表示に戻す)
+	 */
+	private void setRecordWindow(RecordWindow window) {
+		if (recordWindow == null && window == null) {
+			return;
+		}
+		if (recordWindow != null) {
+			recordWindow.close();
+		} else {
+			// 全レコードをソート・フィルタしないよう、一覧のレコード数が変わる前にソートを解除する
+			if (filterTask != null) {
+				filterTask.cancel(true);
+				filterTask = null;
+			}
+			requestedFilter = null;
+			appliedFilter = null;
+			sorter.setRowFilter(null);
+			table.setRowSorter(null);
+		}
+		recordWindow = window;
+		if (window == null) {
+			sorter.allRowsChanged();
+			table.setRowSorter(sorter);
+			applyTableFilter();
+		}
+		filterText.setEnabled(window == null);
+		filterMenuButton.setEnabled(window == null);
+		tableModel.fireTableDataChanged();
+		updateFilterStatus();
+	}
+
+	/**
+	 * 全件をスクロール表示中の場合に、一覧に表示中の範囲のレコードを読み込み、表示範囲を更新します.
+	 */
+	private void updateVisibleRows() {
+		if (recordWindow == null || table.getRowCount() == 0) {
+			return;
+		}
+		Rectangle visible = table.getVisibleRect();
+		int first = Integer.max(table.rowAtPoint(visible.getLocation()), 0);
+		int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+		if (last == -1) {
+			last = table.getRowCount() - 1;
+		}
+		recordWindow.setVisibleRows(first, last);
+		offsetFromText.setText(Integer.toString(first + 1));
+		offsetToText.setText(Integer.toString(last + 1));
+	}
+
+	private static boolean isSameRecords(RecordSet a, RecordSet b) {
+		if (a.getOffeset() != b.getOffeset() || a.size() != b.size() || a.getFormat() != b.getFormat()) {
+			return false;
+		}
+		for (int i = 0; i < a.size(); i++) {
+			if (a.get(i) != b.get(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	private void exportList() {
 		RecordFormat recordFormat = (RecordFormat) fileTypeCombo.getSelectedItem();
-		new ListExporterDialog(config, recordFormat, records.getPath(), tableModel.columnNames,
+		new ListExporterDialog(config, recordFormat, records.getSource(), tableModel.columnNames,
 				filterText.getEditor().getItem().toString(), filterModeCheckBoxMenuItem.isSelected()).setVisible(true);
 	}
 
 	private void exportDetails() {
 		RecordFormat recordFormat = (RecordFormat) fileTypeCombo.getSelectedItem();
-		new DetailExporterDialog(config, recordFormat, records.getPath(), tableModel.columnNames,
+		new DetailExporterDialog(config, recordFormat, records.getSource(), tableModel.columnNames,
 				filterText.getEditor().getItem().toString(), filterModeCheckBoxMenuItem.isSelected()).setVisible(true);
 	}
 
 	private void showDetailWindow(int index) {
 		int modelIndex = table.convertRowIndexToModel(index);
-		Record record = records.get(modelIndex);
+		Record record = getRecord(modelIndex);
+		if (record == null) {
+			// 読み込み中のレコードは表示しない
+			return;
+		}
 		new DetailWindow(records.getPath(), modelIndex, record).setVisible(true);
 	}
 
+	/**
+	 * 一覧のレコードを取得します.
+	 * 
+	 * @param modelIndex レコードの一覧でのインデックス
+	 * @return レコード(全件をスクロール表示中で、未読込の場合はnull)
+	 */
+	private Record getRecord(int modelIndex) {
+		return recordWindow != null ? recordWindow.get(modelIndex) : records.get(modelIndex);
+	}
+
 	private void showDetailWindows() {
 		Arrays.stream(table.getSelectedRows()).forEach(index -> showDetailWindow(index));
 	}
@@ -180,14 +460,18 @@ public class MainWindow extends JFrame {
 		Record record = null;
 		int selectedRow = table.getSelectedRow();
 		if (selectedRow != -1) {
-			record = records.get(table.convertRowIndexToModel(selectedRow));
-		} else if (!records.isEmpty()) {
-			record = records.get(0);
+			record = getRecord(table.convertRowIndexToModel(selectedRow));
+		} else if (0 < tableModel.getRowCount()) {
+			record = getRecord(0);
 		}
 		
 		if (new ColumnCustomDialog(config, tableModel.columnNames, record, additionalItems).showDialog() == JOptionPane.OK_OPTION) {
-			DataParser.updateMetaItems(records, additionalItems.stream()
-					.filter(e -> tableModel.columnNames.contains(e.getName())).collect(Collectors.toList()));
+			List<MetaItemDefinition> metaItems = additionalItems.stream()
+					.filter(e -> tableModel.columnNames.contains(e.getName())).collect(Collectors.toList());
+			DataParser.updateMetaItems(records, metaItems);
+			if (recordWindow != null) {
+				recordWindow.updateMetaItems(metaItems);
+			}
 			tableModel.fireTableStructureChanged();
 			tableHeader.sizeWidthToFitData();
 		}
@@ -197,9 +481,9 @@ public class MainWindow extends JFrame {
 		Record record = null;
 		int selectedRow = table.getSelectedRow();
 		if (selectedRow != -1) {
-			record = records.get(table.convertRowIndexToModel(selectedRow));
-		} else if (!records.isEmpty()) {
-			record = records.get(0);
+			record = getRecord(table.convertRowIndexToModel(selectedRow));
+		} else if (0 < tableModel.getRowCount()) {
+			record = getRecord(0);
 		}
 		String result = DataParser.eval(record, Objects.toString(filterText.getEditor().getItem(), ""));
 		GUIUtils.showMessageDialog(this, "フィルタの式をテスト", result, null);
@@ -210,16 +494,21 @@ public class MainWindow extends JFrame {
 		JMenuBar menubar = new JMenuBar();
 		menubar.add(GUIUtils.newJMenu("ファイル(_F)" //
 				, GUIUtils.newJMenuItem("開く(_O)", e -> openFile(), KeyStroke.getKeyStroke("ctrl O")) //
+				, GUIUtils.newJMenuItem("場所を指定して開く(_L)", e -> openLocation(), KeyStroke.getKeyStroke("ctrl L")) //
 				, GUIUtils.newJMenuItem("一覧をエクスポート", e -> exportList()) //
 				, GUIUtils.newJMenuItem("詳細をエクスポート", e -> exportDetails()) //
 				, recentlyUsedFilesMenu));
 		menubar.add(GUIUtils.newJMenu("一覧(_L)" //
 				, GUIUtils.newJMenuItem("再読込(_R)", e -> reloadFile(), KeyStroke.getKeyStroke("F5")),
+				followMenuItem,
+				scrollAllMenuItem,
+				GUIUtils.newJMenuItem("ファイル全体を検索(_S)", e -> showSearchDialog(), KeyStroke.getKeyStroke("ctrl F")),
 				GUIUtils.newJMenuItem("詳細を開く", e -> showDetailWindows()),
 				GUIUtils.newJMenuItem("列のカスタマイズ", e -> showColumnCustomDialog()),
 				GUIUtils.newJMenuItem("列幅を調整", e -> tableHeader.sizeWidthToFitData())));
 		menubar.add(GUIUtils.newJMenu("その他(_O)" //
 				, GUIUtils.newJMenuItem("フィルタの式をテスト(_T)", e -> showExpressionTestDialog(), KeyStroke.getKeyStroke("ctrl T"))
+				, GUIUtils.newJMenuItem("プロファイル(_P)", e -> new ProfilerDialog(this).setVisible(true))
 				, propertiesSelectorMenu));
 		setJMenuBar(menubar);
 
@@ -244,6 +533,7 @@ public class MainWindow extends JFrame {
 		header2.add(prevButton);
 		header2.add(nextButton);
 		header2.add(tailButton);
+		header2.add(recordCountLabel);
 
 		// - ヘッダ3
 		JPanel header3 = new JPanel();
@@ -251,6 +541,7 @@ public class MainWindow extends JFrame {
 		header3.add(new JLabel("フィルタ:"));
 		header3.add(filterText);
 		header3.add(filterMenuButton);
+		header3.add(filterStatusLabel);
 
 		// - 
 		JPanel headers = new JPanel();
@@ -263,6 +554,24 @@ public class MainWindow extends JFrame {
 		// -
 		getContentPane().add(headers, BorderLayout.NORTH);
 
+		// 読み込み状況の表示
+		loadingPanel.setLayout(new FlowLayout(FlowLayout.LEFT, 5, 0));
+		loadingPanel.add(loadingProgressBar);
+		loadingPanel.add(loadingLabel);
+		loadingPanel.add(cancelLoadingButton);
+		loadingPanel.setBorder(new EmptyBorder(2, 0, 2, 0));
+		loadingPanel.setVisible(false);
+		cancelLoadingButton.addActionListener(e -> cancelLoading());
+		getContentPane().add(loadingPanel, BorderLayout.SOUTH);
+
+		followMenuItem.setAccelerator(KeyStroke.getKeyStroke("ctrl F5"));
+		followMenuItem.addActionListener(e -> toggleFollowing());
+		scrollAllMenuItem.setSelected(GUIConfiguration.getInstance().getBoolean(Booleans.scrollAllEnabled));
+		scrollAllMenuItem.addActionListener(e -> toggleScrollAll());
+		scrollAllMenuItem.addChangeListener(e -> {
+			GUIConfiguration.getInstance().setBoolean(Booleans.scrollAllEnabled, scrollAllMenuItem.isSelected());
+		});
+
 		filterModeCheckBoxMenuItem.setToolTipText("高度なフィルタ(式を使用できるフィルタ)を有効にする。");
 		filterMenu.add(GUIUtils.newJMenuItem("このフィルタを保存する", e -> saveFilter()));
 		filterMenu.add(GUIUtils.newJMenuItem("このフィルタを削除する", e -> removeFilter()));
@@ -274,7 +583,11 @@ public class MainWindow extends JFrame {
 		// テーブル初期化
 		table = new JTable(tableModel);
 		table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
-		getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+		tableScrollPane = new JScrollPane(table);
+		getContentPane().add(tableScrollPane, BorderLayout.CENTER);
+
+		// - 全件をスクロール表示中は、表示範囲が変わるごとに表示範囲のレコードを読み込む
+		tableScrollPane.getViewport().addChangeListener(e -> updateVisibleRows());
 
 		// - テーブルのフィルタ/ソート設定
 		sorter = new TableRowSorter<>(tableModel);
@@ -304,6 +617,25 @@ public class MainWindow extends JFrame {
 					filterModeCheckBoxMenuItem.isSelected());
 		});
 
+		// 一覧のレコードが変わった場合は、追加されたレコードについてフィルタを評価する
+		tableModel.addTableModelListener(e -> {
+			if (e.getFirstRow() == TableModelEvent.HEADER_ROW) {
+				// 列が変わった場合は、簡易フィルタの評価対象の列が変わるため評価し直す
+				filterResults.clear();
+				if (requestedFilter != null) {
+					requestedFilter = newFilterResult(requestedFilter.filter, requestedFilter.extended);
+				}
+			}
+			if (requestedFilter != null && !filterUpdateScheduled) {
+				// 一覧の更新の通知中はフィルタを変更できないため、通知後に評価する
+				filterUpdateScheduled = true;
+				SwingUtilities.invokeLater(() -> {
+					filterUpdateScheduled = false;
+					updateTableFilter();
+				});
+			}
+		});
+
 		// - テーブルのヘッダ設定
 		tableHeader = new AutoFitTableHeader(table.getColumnModel());
 		table.setTableHeader(tableHeader);
@@ -346,24 +678,68 @@ public class MainWindow extends JFrame {
 	}
 
 	private void applyTableFilter() {
+		if (recordWindow != null) {
+			// 全件をスクロール表示中はフィルタを適用しない(全レコードの読み込みが必要なため)
+			return;
+		}
 		String filter = Objects.toString(filterText.getEditor().getItem(), "");
 		if (filter.isEmpty()) {
+			requestedFilter = null;
+			appliedFilter = null;
 			sorter.setRowFilter(null);
 		} else {
-			sorter.setRowFilter(new RowFilter<TableModel, Integer>() {
-				@Override
-				public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
-					if (filterModeCheckBoxMenuItem.isSelected()) {
-						return DataParser.evalAsBoolean(records.get(entry.getIdentifier()), filter);
-					} else {
-						for (int i = 1; i < entry.getValueCount(); i++) {
-							if (entry.getStringValue(i).contains(filter))
-								return true;
-						}
-						return false;
-					}
-				}
-			});
+			boolean extended = filterModeCheckBoxMenuItem.isSelected();
+			requestedFilter = filterResults.get(getFilterKey(filter, extended));
+			if (requestedFilter == null) {
+				requestedFilter = newFilterResult(filter, extended);
+			}
+		}
+		updateTableFilter();
+	}
+
+	private static String getFilterKey(String filter, boolean extended) {
+		return (extended ? "extended:" : "simple:") + filter;
+	}
+
+	private FilterResult newFilterResult(String filter, boolean extended) {
+		FilterResult result = new FilterResult(filter, extended, records);
+		filterResults.put(getFilterKey(filter, extended), result);
+		return result;
+	}
+
+	/**
+	 * 適用を指定されたフィルタを、一覧のレコードのうち未評価のレコードについてバックグラウンドで評価します.<br>
+	 * 全レコードの評価が完了したフィルタを一覧に適用します. 評価中は適用済みのフィルタのまま表示します.
+	 */
+	private void updateTableFilter() {
+		if (filterTask != null && filterTask.result != requestedFilter) {
+			filterTask.cancel(true);
+			filterTask = null;
+		}
+		if (requestedFilter != null && requestedFilter.records != records) {
+			// ページを読み込み直した場合は、読み込んだレコードでフィルタを評価し直す
+			requestedFilter = newFilterResult(requestedFilter.filter, requestedFilter.extended);
+		}
+		if (requestedFilter != null && filterTask == null) {
+			int from = requestedFilter.prepare(records.getOffeset());
+			if (from < records.size()) {
+				filterTask = new FilterTask(requestedFilter, from);
+				filterTask.execute();
+			} else if (appliedFilter != requestedFilter) {
+				appliedFilter = requestedFilter;
+				sorter.setRowFilter(appliedFilter);
+			}
+		}
+		updateFilterStatus();
+	}
+
+	private void updateFilterStatus() {
+		if (requestedFilter == null) {
+			filterStatusLabel.setText("");
+		} else if (filterTask != null) {
+			filterStatusLabel.setText(" 評価中...");
+		} else {
+			filterStatusLabel.setText(String.format(" %,d/%,d件", table.getRowCount(), records.size()));
 		}
 	}
 
@@ -383,6 +759,27 @@ public class MainWindow extends JFrame {
 	}
 
 	private void updatePage(int add) {
+		if (recordWindow != null) {
+			// 全件をスクロール表示中は、指定されたレコードが先頭になるようスクロールする
+			int row;
+			if (add == Integer.MAX_VALUE) {
+				row = table.getRowCount() - 1;
+			} else if (add == Integer.MIN_VALUE) {
+				row = 0;
+			} else {
+				try {
+					row = Integer.parseInt(offsetFromText.getText()) - 1 + add;
+				} catch (NumberFormatException e) {
+					return;
+				}
+			}
+			row = Integer.max(0, Integer.min(row, table.getRowCount() - 1));
+			Rectangle rect = table.getCellRect(row, 0, true);
+			rect.height = table.getVisibleRect().height;
+			table.scrollRectToVisible(rect);
+			updateVisibleRows();
+			return;
+		}
 		int recordOffset;
 		if (add == Integer.MAX_VALUE) {
 			recordOffset = 0;
@@ -425,19 +822,25 @@ public class MainWindow extends JFrame {
 		updateWindowTitle();
 
 		int recordOffset = records.getOffeset();
-		if (records.isEmpty()) {
+		if (recordWindow != null) {
+			updateVisibleRows();
+		} else if (records.isEmpty()) {
 			offsetFromText.setText("");
 			offsetToText.setText("");
 		} else {
 			offsetFromText.setText(Integer.toString(recordOffset + 1));
 			offsetToText.setText(Integer.toString(recordOffset + records.size()));
 		}
-		offsetFromText.setEditable(!records.isEmpty());
+		offsetFromText.setEditable(0 < tableModel.getRowCount());
+		recordCountLabel.setText(recordWindow != null ? String.format(" 全%,d件", recordWindow.size()) : "");
 
-		prevButton.setEnabled(recordOffset != 0);
-		nextButton.setEnabled(!records.eof());
-		topButton.setEnabled(recordOffset != 0);
-		tailButton.setEnabled(!records.eof());
+		// 追従表示中はページを移動しない. 全件をスクロール表示中は表示行数ずつスクロールする
+		boolean following = recordFollowTask != null;
+		boolean scrolling = recordWindow != null;
+		prevButton.setEnabled(!following && (scrolling || recordOffset != 0));
+		nextButton.setEnabled(!following && (scrolling || !records.eof()));
+		topButton.setEnabled(!following && (scrolling || recordOffset != 0));
+		tailButton.setEnabled(!following && (scrolling || !records.eof()));
 
 		recentlyUsedFilesMenu.removeAll();
 		AtomicInteger i = new AtomicInteger();
@@ -448,8 +851,8 @@ public class MainWindow extends JFrame {
 	}
 
 	private void updateWindowTitle() {
-		if (records.getPath() != null) {
-			setTitle((isFocused() ? records.getPath() : records.getPath().getFileName()) + " - AnyfileViewer");
+		if (records.getSource() != null) {
+			setTitle((isFocused() ? records.getSource() : records.getPath().getFileName()) + " - AnyfileViewer");
 		} else {
 			setTitle("AnyfileViewer");
 		}
@@ -460,7 +863,485 @@ public class MainWindow extends JFrame {
 		GUIConfiguration.getInstance().getFilters().forEach(e -> filterText.addItem(e));
 	}
 
-	private class TableModel extends AbstractTableModel {
+	/**
+	 * ファイルのレコードをバックグラウンドで読み込む処理です.<br>
+	 * 読み込んだレコードは一定件数ごとにまとめて一覧に追加し、読み込み件数と読み込み速度を表示します.
+	 * 読み込みを中止した場合は、それまでに読み込んだレコードを表示したままにします.
+	 */
+	private class RecordLoader extends SwingWorker<RecordSet, Record> {
+		private final FileSetReader reader;
+		private final RecordFormat recordFormat;
+		private final FileSet source;
+		private final int recordOffset;
+		private final int maxRows;
+
+		/** 読み込み開始前のレコード. */
+		private final RecordSet oldRecords = records;
+
+		/** 読み込み中のレコード(一覧に表示中のレコード). */
+		private final RecordSet loadingRecords = new RecordSet();
+
+		/** 読み込み開始時刻. */
+		private final long startTime = System.nanoTime();
+
+		/** 読み込んだ先頭レコードのファイル内でのオフセット. */
+		private volatile int firstRecordOffset = -1;
+
+		private RecordLoader(FileSetReader reader, RecordFormat recordFormat, FileSet source, int recordOffset,
+				int maxRows) {
+			this.reader = reader;
+			this.recordFormat = recordFormat;
+			this.source = source;
+			this.recordOffset = recordOffset;
+			this.maxRows = maxRows;
+
+			loadingRecords.setPath(source.getPath());
+			loadingRecords.setSource(source);
+			loadingRecords.setFormat(recordFormat);
+			setRecords(loadingRecords);
+			updateWindowTitle();
+
+			loadingProgressBar.setIndeterminate(true);
+			loadingLabel.setText("読込中...");
+			loadingPanel.setVisible(true);
+		}
+
+		@Override
+		protected RecordSet doInBackground() {
+			return reader.load(source, recordFormat, recordOffset, maxRows, (record, offset) -> {
+				if (isCancelled()) {
+					throw new CancellationException();
+				}
+				if (firstRecordOffset == -1) {
+					firstRecordOffset = offset;
+				}
+				publish(record);
+			});
+		}
+
+		@Override
+		protected void process(List<Record> chunks) {
+			if (recordLoader != this) {
+				return;
+			}
+			int first = loadingRecords.size();
+			if (first == 0) {
+				loadingRecords.setOffset(firstRecordOffset);
+			}
+			loadingRecords.addAll(chunks);
+			tableModel.fireTableRowsInserted(first, loadingRecords.size() - 1);
+
+			int count = loadingRecords.size();
+			double seconds = (System.nanoTime() - startTime) / 1e9;
+			// 全件読込(最大件数0)の場合は総件数が分からないため、進捗は不定のままとする
+			if (0 < maxRows) {
+				loadingProgressBar.setIndeterminate(false);
+				loadingProgressBar.setMaximum(maxRows);
+				loadingProgressBar.setValue(count);
+			}
+			loadingLabel.setText(String.format("読込中... %,d件 (%,.0f件/秒)", count, count / seconds));
+			updateControls();
+		}
+
+		@Override
+		protected void done() {
+			if (recordLoader != this) {
+				// 後から開始した読み込みに置き換えられた場合は何もしない
+				return;
+			}
+			recordLoader = null;
+			try {
+				setRecords(get());
+				GUIConfiguration.getInstance().addRecentlyUsedFile(records.getSource());
+				if (!source.equals(oldRecords.getSource()) || oldRecords.getFormat() != recordFormat) {
+					tableHeader.sizeWidthToFitData();
+				}
+				if (followMenuItem.isSelected()) {
+					startFollowing();
+					scrollToLastRow();
+				}
+				if (selectingRecordOffset != -1) {
+					selectRecord(selectingRecordOffset);
+				}
+			} catch (CancellationException e) {
+				// 読み込み済みのレコードを表示したままにする
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				setRecords(oldRecords);
+				GUIUtils.showMessageDialog(MainWindow.this, "AnyfileViewer", "例外が発生しました。", e.getCause());
+			} finally {
+				selectingRecordOffset = -1;
+				loadingPanel.setVisible(false);
+				updateControls();
+			}
+		}
+	}
+
+	/**
+	 * 全件をスクロール表示する場合に、ファイルのレコード数をバックグラウンドで求める処理です.<br>
+	 * レコード数を求めた後は、一覧に表示中の範囲のレコードのみを{@link RecordWindow}で読み込みます.
+	 */
+	private class RecordCounter extends SwingWorker<Integer, Void> {
+		private final FileSetReader reader;
+		private final RecordFormat recordFormat;
+		private final FileSet source;
+
+		/** 読み込み開始前のレコード. */
+		private final RecordSet oldRecords = records;
+
+		private RecordCounter(FileSetReader reader, RecordFormat recordFormat, FileSet source) {
+			this.reader = reader;
+			this.recordFormat = recordFormat;
+			this.source = source;
+
+			// 一覧のレコードは保持しない(表示中の範囲のレコードはRecordWindowから取得する)
+			RecordSet emptyRecords = new RecordSet();
+			emptyRecords.setPath(source.getPath());
+			emptyRecords.setSource(source);
+			emptyRecords.setFormat(recordFormat);
+			emptyRecords.setEof(true);
+			setRecords(emptyRecords);
+			updateWindowTitle();
+
+			loadingProgressBar.setIndeterminate(true);
+			loadingLabel.setText("レコード数を取得中...");
+			loadingPanel.setVisible(true);
+		}
+
+		@Override
+		protected Integer doInBackground() {
+			return reader.getRecordCount(source, recordFormat);
+		}
+
+		@Override
+		protected void done() {
+			if (recordLoader != this) {
+				// 後から開始した読み込みに置き換えられた場合は何もしない
+				return;
+			}
+			recordLoader = null;
+			try {
+				// 一覧の高さがintの範囲を超えないよう、表示するレコード数を制限する
+				int recordCount = Integer.min(get(), Integer.MAX_VALUE / table.getRowHeight() - 1);
+				setRecordWindow(new RecordWindow(reader, recordFormat, source, recordCount, new RecordWindow.Listener() {
+					/** 最初のブロックの読み込み後に列幅を調整するかどうか. */
+					private boolean fitColumns = !source.equals(oldRecords.getSource())
+							|| oldRecords.getFormat() != recordFormat;
+
+					@Override
+					public void loaded(int firstRow, int lastRow) {
+						tableModel.fireTableRowsUpdated(firstRow, lastRow);
+						if (fitColumns) {
+							fitColumns = false;
+							tableHeader.sizeWidthToFitData();
+						}
+					}
+
+					@Override
+					public void failed(Exception e) {
+						GUIUtils.showMessageDialog(MainWindow.this, "AnyfileViewer", "例外が発生しました。", e);
+					}
+				}));
+				GUIConfiguration.getInstance().addRecentlyUsedFile(records.getSource());
+				if (selectingRecordOffset != -1) {
+					selectRecord(selectingRecordOffset);
+				}
+			} catch (CancellationException e) {
+				// 中止した場合は何もしない
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				setRecords(oldRecords);
+				GUIUtils.showMessageDialog(MainWindow.this, "AnyfileViewer", "例外が発生しました。", e.getCause());
+			} finally {
+				selectingRecordOffset = -1;
+				loadingPanel.setVisible(false);
+				updateControls();
+			}
+		}
+	}
+
+	/**
+	 * 追従表示の処理です.<br>
+	 * 追記されたレコードを一覧の末尾に追加し、表示行数を超えた古いレコードを一覧から削除します(一覧には最新の表示行数分のレコードのみを保持します).
+	 * 一覧の更新はイベントディスパッチスレッドでまとめて行い、更新が追いつかない場合は表示前に表示行数を超えた古いレコードを破棄します.
+	 */
+	private class RecordFollowTask implements RecordFollower.Listener {
+		private final RecordFollower follower;
+		private final int maxRows;
+
+		/** 一覧に未追加のレコード(最大maxRows件). */
+		private final ArrayDeque<Record> pending = new ArrayDeque<>();
+
+		/** 一覧に追加せずに破棄したレコード数. */
+		private int dropped;
+
+		/** ファイルの先頭から読み直したかどうか. */
+		private boolean rotated;
+
+		/** 一覧の更新を予約済みかどうか. */
+		private boolean updateScheduled;
+
+		private RecordFollowTask(RecordReader reader, RecordFormat recordFormat, FileSet source, int loadedRecords,
+				int maxRows) {
+			this.follower = new RecordFollower(reader, recordFormat, source, loadedRecords, this);
+			this.maxRows = maxRows;
+		}
+
+		private void start() {
+			follower.start();
+		}
+
+		private void stop() {
+			follower.close();
+		}
+
+		@Override
+		public void appended(List<Record> appendedRecords) {
+			synchronized (pending) {
+				for (Record record : appendedRecords) {
+					if (pending.size() == maxRows) {
+						pending.removeFirst();
+						dropped++;
+					}
+					pending.addLast(record);
+				}
+				scheduleUpdate();
+			}
+		}
+
+		@Override
+		public void rotated(Path path) {
+			synchronized (pending) {
+				pending.clear();
+				dropped = 0;
+				rotated = true;
+				scheduleUpdate();
+			}
+		}
+
+		@Override
+		public void failed(Exception e) {
+			SwingUtilities.invokeLater(() -> {
+				if (recordFollowTask != this) {
+					return;
+				}
+				stopFollowing();
+				followMenuItem.setSelected(false);
+				updateControls();
+				GUIUtils.showMessageDialog(MainWindow.this, "AnyfileViewer", "追従表示を終了しました。", e);
+			});
+		}
+
+		private void scheduleUpdate() {
+			if (!updateScheduled) {
+				updateScheduled = true;
+				SwingUtilities.invokeLater(this::update);
+			}
+		}
+
+		private void update() {
+			List<Record> appendedRecords;
+			boolean reset;
+			synchronized (pending) {
+				appendedRecords = new ArrayList<>(pending);
+				reset = rotated || 0 < dropped;
+				int offset = (rotated ? 0 : records.getOffeset() + records.size()) + dropped;
+				pending.clear();
+				dropped = 0;
+				rotated = false;
+				updateScheduled = false;
+				if (recordFollowTask != this) {
+					return;
+				}
+				if (reset) {
+					// 一覧のレコードを全て置き換える
+					records.clear();
+					records.setOffset(offset);
+				}
+			}
+			Rectangle visible = table.getVisibleRect();
+			boolean atLastRow = table.getHeight() <= visible.y + visible.height + table.getRowHeight();
+
+			int first = records.size();
+			records.addAll(appendedRecords);
+			if (reset) {
+				tableModel.fireTableDataChanged();
+			} else if (first < records.size()) {
+				tableModel.fireTableRowsInserted(first, records.size() - 1);
+			}
+			int excess = records.size() - maxRows;
+			if (0 < excess) {
+				records.subList(0, excess).clear();
+				records.setOffset(records.getOffeset() + excess);
+				tableModel.fireTableRowsDeleted(0, excess - 1);
+			}
+			if (atLastRow) {
+				// 最終行を表示中の場合のみ、追加したレコードまでスクロールする
+				scrollToLastRow();
+			}
+			updateControls();
+		}
+	}
+
+	/**
+	 * フィルタの評価結果です. レコードのファイル内でのオフセットごとに、フィルタに一致するかどうかを保持します.<br>
+	 * 一覧にはこの評価結果を参照するRowFilterとして適用し、ソート等による再フィルタではフィルタを評価しません.
+	 * 追従表示や読み込み中に一覧にレコードが追加された場合は、追加されたレコードのみを評価します.
+	 */
+	private class FilterResult extends RowFilter<TableModel, Integer> {
+		/** 評価済みの範囲の先頭から破棄できる範囲がこの件数を超えた場合に、評価結果を詰める. */
+		private static final int COMPACTION_THRESHOLD = 64 * 1024;
+
+		private final String filter;
+		private final boolean extended;
+
+		/** 評価したページのレコード. */
+		private RecordSet records;
+
+		/** 評価済みの先頭レコードのオフセット. */
+		private int start;
+
+		/** 評価済みの最後のレコードの次のオフセット. */
+		private int end;
+
+		/** フィルタに一致したレコード(startからのインデックス). */
+		private BitSet matches = new BitSet();
+
+		private FilterResult(String filter, boolean extended, RecordSet records) {
+			this.filter = filter;
+			this.extended = extended;
+			this.records = records;
+			this.start = records.getOffeset();
+			this.end = start;
+		}
+
+		/**
+		 * 評価済みの範囲を一覧のレコードに合わせます.
+		 * 
+		 * @param offset 一覧の先頭レコードのオフセット
+		 * @return 未評価の先頭レコードの一覧でのインデックス
+		 */
+		private int prepare(int offset) {
+			if (offset < start || end < offset) {
+				// 追従表示でファイルの先頭から読み直した場合など、評価済みの範囲と連続しない場合は評価し直す
+				start = offset;
+				end = offset;
+				matches = new BitSet();
+			} else if (COMPACTION_THRESHOLD < offset - start) {
+				// 追従表示で一覧から削除されたレコードの評価結果を破棄する
+				matches = matches.get(offset - start, end - start);
+				start = offset;
+			}
+			return end - offset;
+		}
+
+		/**
+		 * 評価結果を追加します.
+		 * 
+		 * @param first 評価したレコードの先頭のオフセット
+		 * @param count 評価したレコード数
+		 * @param found フィルタに一致したレコード(firstからのインデックス)
+		 */
+		private void add(int first, int count, BitSet found) {
+			for (int i = found.nextSetBit(0); 0 <= i; i = found.nextSetBit(i + 1)) {
+				matches.set(first - start + i);
+			}
+			end = first + count;
+		}
+
+		@Override
+		public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+			if (records != MainWindow.this.records) {
+				return false;
+			}
+			int offset = records.getOffeset() + entry.getIdentifier();
+			return start <= offset && offset < end && matches.get(offset - start);
+		}
+	}
+
+	/**
+	 * フィルタをバックグラウンドで評価する処理です.<br>
+	 * 一覧の未評価のレコードを複数のスレッドで並列に評価します.
+	 */
+	private class FilterTask extends SwingWorker<BitSet, Void> {
+		private final FilterResult result;
+
+		/** 評価するレコードの先頭のオフセット. */
+		private final int first;
+
+		/** 評価するレコード. */
+		private final Record[] rows;
+
+		/** 簡易フィルタで評価する列. */
+		private final List<String> columnNames;
+
+		private FilterTask(FilterResult result, int from) {
+			this.result = result;
+			this.first = records.getOffeset() + from;
+			this.rows = records.subList(from, records.size()).toArray(new Record[0]);
+			this.columnNames = new ArrayList<>(tableModel.columnNames);
+		}
+
+		@Override
+		protected BitSet doInBackground() {
+			int[] matched = IntStream.range(0, rows.length).parallel().filter(i -> {
+				if (isCancelled()) {
+					throw new CancellationException();
+				}
+				return test(rows[i]);
+			}).toArray();
+			BitSet found = new BitSet(rows.length);
+			for (int i : matched) {
+				found.set(i);
+			}
+			return found;
+		}
+
+		private boolean test(Record record) {
+			if (result.extended) {
+				return DataParser.evalAsBoolean(record, result.filter);
+			}
+			for (int i = 1; i < columnNames.size(); i++) {
+				if (tableModel.getValue(record, columnNames.get(i), i).toString().contains(result.filter)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		protected void done() {
+			if (filterTask != this) {
+				// 中止したか、別のフィルタの評価に置き換えられた場合は何もしない
+				return;
+			}
+			filterTask = null;
+			try {
+				BitSet found = get();
+				if (result.end == first) {
+					result.add(first, rows.length, found);
+					if (result == appliedFilter) {
+						sorter.allRowsChanged();
+					}
+				}
+			} catch (CancellationException e) {
+				// 中止した場合は何もしない
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				// 評価できないフィルタは適用しない
+				requestedFilter = appliedFilter;
+				updateFilterStatus();
+				GUIUtils.showMessageDialog(MainWindow.this, "AnyfileViewer", "フィルタの評価で例外が発生しました。", e.getCause());
+				return;
+			}
+			updateTableFilter();
+		}
+	}
+
+	private class TableModel extends AbstractTableModel implements AutoFitTableHeader.RowSnapshotModel {
 		private static final long serialVersionUID = 6751453527834701108L;
 
 		private List<String> columnNames = new ArrayList<>();
@@ -482,7 +1363,7 @@ public class MainWindow extends JFrame {
 
 		@Override
 		public int getRowCount() {
-			return records.size();
+			return recordWindow != null ? recordWindow.size() : records.size();
 		}
 
 		@Override
@@ -492,17 +1373,44 @@ public class MainWindow extends JFrame {
 
 		@Override
 		public Object getValueAt(int rowIndex, int columnIndex) {
-			if ("[No.]".equals(columnNames.get(columnIndex))) {
-				return Integer.valueOf(records.getOffeset() + rowIndex + 1);
+			return getValueAt(columnNames, records.getOffeset() + rowIndex, getRecord(rowIndex), columnIndex);
+		}
+
+		@Override
+		public IntFunction<Object> getRowSnapshot(int rowIndex) {
+			List<String> names = new ArrayList<>(columnNames);
+			int offset = records.getOffeset() + rowIndex;
+			Record record = getRecord(rowIndex);
+			return columnIndex -> getValueAt(names, offset, record, columnIndex);
+		}
+
+		private Object getValueAt(List<String> names, int offset, Record record, int columnIndex) {
+			if ("[No.]".equals(names.get(columnIndex))) {
+				return Integer.valueOf(offset + 1);
+			}
+			if (record == null) {
+				// 未読込のレコードは読み込み完了後に表示する
+				return columnIndex == 1 ? "読込中..." : "";
 			} else {
-				Record record = records.get(rowIndex);
-				if (!record.getMetaItems().containsKey("[エラー]")) {
-					return record.getValue(columnNames.get(columnIndex));
-				} else if (columnIndex == 1) {
-					return record.getValue("[エラー]");
-				} else {
-					return "";
-				}
+				return getValue(record, names.get(columnIndex), columnIndex);
+			}
+		}
+
+		/**
+		 * レコードの列の表示値を取得します.
+		 * 
+		 * @param record      レコード
+		 * @param columnName  列名([No.]以外)
+		 * @param columnIndex 列のインデックス
+		 * @return 表示値
+		 */
+		private String getValue(Record record, String columnName, int columnIndex) {
+			if (!record.getMetaItems().containsKey("[エラー]")) {
+				return record.getValue(columnName);
+			} else if (columnIndex == 1) {
+				return record.getValue("[エラー]");
+			} else {
+				return "";
 			}
 		}
 	}
@@ -0,0 +1,198 @@
+package com.github.poodleone.anyfileviewer.gui;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.Timer;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableRowSorter;
+
+import com.github.poodleone.anyfileviewer.Profiler;
+import com.github.poodleone.anyfileviewer.Profiler.Category;
+import com.github.poodleone.anyfileviewer.Profiler.Metric;
+import com.github.poodleone.anyfileviewer.utils.GUIUtils;
+
+/**
+ * 処理時間の計測結果({@link Profiler})を表示するダイアログ.<br>
+ * 表示中は一定間隔で表示を更新します. 計測結果はJSON・CSVファイルに保存できます.
+ */
+public class ProfilerDialog extends JDialog {
+	private static final long serialVersionUID = 1L;
+
+	/** 表示を更新する間隔(ミリ秒). */
+	private static final int REFRESH_INTERVAL = 1000;
+
+	/** 分類の選択肢で全分類を表す値. */
+	private static final String ALL_CATEGORIES = "すべて";
+
+	private static final String[] COLUMN_NAMES = { "分類", "名前", "回数", "合計(ms)", "平均(μs)", "最大(μs)", "50%(μs)",
+			"90%(μs)", "99%(μs)" };
+	private static final Class<?>[] COLUMN_CLASSES = { String.class, String.class, Long.class, Double.class,
+			Double.class, Double.class, Double.class, Double.class, Double.class };
+
+	private JCheckBox enabledCheckBox = new JCheckBox("計測する", Profiler.isEnabled());
+	private JComboBox<Object> categoryCombo = new JComboBox<>();
+	private JButton clearButton = new JButton("クリア");
+	private JButton saveButton = new JButton("保存...");
+	private JLabel statusLabel = new JLabel(" ");
+	private MetricsTableModel tableModel = new MetricsTableModel();
+	private JTable table = new JTable(tableModel);
+	private Timer timer = new Timer(REFRESH_INTERVAL, e -> refresh());
+
+	/**
+	 * ダイアログを生成します.
+	 *
+	 * @param owner メインウィンドウ
+	 */
+	public ProfilerDialog(Frame owner) {
+		super(owner, "プロファイル");
+
+		// コントロールを配置
+		JPanel line1 = new JPanel();
+		line1.setLayout(new BoxLayout(line1, BoxLayout.X_AXIS));
+		line1.add(enabledCheckBox);
+		line1.add(new JLabel("分類:"));
+		line1.add(categoryCombo);
+		line1.add(clearButton);
+		line1.add(saveButton);
+
+		JPanel line2 = new JPanel();
+		line2.setLayout(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		line2.add(statusLabel);
+
+		JPanel lines = new JPanel();
+		lines.setLayout(new BoxLayout(lines, BoxLayout.Y_AXIS));
+		lines.add(line1);
+		lines.add(line2);
+		lines.setBorder(new EmptyBorder(5, 5, 5, 5));
+		getContentPane().add(lines, BorderLayout.NORTH);
+		getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+
+		// コントロールの挙動を設定
+		enabledCheckBox.addActionListener(e -> Profiler.setEnabled(enabledCheckBox.isSelected()));
+		categoryCombo.addItem(ALL_CATEGORIES);
+		for (Category category : Category.values()) {
+			categoryCombo.addItem(category);
+		}
+		categoryCombo.addActionListener(e -> refresh());
+		clearButton.addActionListener(e -> {
+			Profiler.clear();
+			refresh();
+		});
+		saveButton.setToolTipText("計測結果を保存する(拡張子が.jsonの場合はJSON、それ以外はCSV)。");
+		saveButton.addActionListener(e -> save());
+		TableRowSorter<MetricsTableModel> sorter = new TableRowSorter<>(tableModel);
+		sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(3, SortOrder.DESCENDING)));
+		table.setRowSorter(sorter);
+		table.getColumnModel().getColumn(1).setPreferredWidth(400);
+		setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+		setSize(1000, 400);
+		setLocationRelativeTo(owner);
+
+		refresh();
+		timer.start();
+	}
+
+	@Override
+	public void dispose() {
+		timer.stop();
+		super.dispose();
+	}
+
+	private void refresh() {
+		Object category = categoryCombo.getSelectedItem();
+		List<Metric> metrics = Profiler.getMetrics().stream()
+				.filter(e -> category == ALL_CATEGORIES || e.getCategory() == category).collect(Collectors.toList());
+		tableModel.setMetrics(metrics);
+		statusLabel.setText(String.format("%,d件%s", metrics.size(), Profiler.isEnabled() ? "" : " (計測停止中)"));
+	}
+
+	private void save() {
+		Path path = GUIUtils.showFileSaveDialog(this, "計測結果の保存先を指定する", null);
+		if (path != null) {
+			try {
+				Profiler.write(path);
+			} catch (UncheckedIOException e) {
+				GUIUtils.showMessageDialog(this, getTitle(), "計測結果の保存に失敗しました。", e);
+			}
+		}
+	}
+
+	/**
+	 * 計測結果の一覧のテーブルモデルです.
+	 */
+	private static class MetricsTableModel extends AbstractTableModel {
+		private static final long serialVersionUID = 1L;
+
+		private List<Metric> metrics = new ArrayList<>();
+
+		private void setMetrics(List<Metric> metrics) {
+			this.metrics = metrics;
+			fireTableDataChanged();
+		}
+
+		@Override
+		public int getRowCount() {
+			return metrics.size();
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMN_NAMES.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return COLUMN_NAMES[column];
+		}
+
+		@Override
+		public Class<?> getColumnClass(int column) {
+			return COLUMN_CLASSES[column];
+		}
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			Metric e = metrics.get(row);
+			switch (column) {
+			case 0:
+				return e.getCategory().toString();
+			case 1:
+				return e.getName();
+			case 2:
+				return e.getCount();
+			case 3:
+				return e.getTotalNanos() / 1e6;
+			case 4:
+				return e.getMeanNanos() / 1e3;
+			case 5:
+				return e.getMaxNanos() / 1e3;
+			case 6:
+				return e.getPercentileNanos(50) / 1e3;
+			case 7:
+				return e.getPercentileNanos(90) / 1e3;
+			default:
+				return e.getPercentileNanos(99) / 1e3;
+			}
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package com.github.poodleone.anyfileviewer.gui;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import javax.swing.SwingUtilities;
+
+import com.github.poodleone.anyfileviewer.DataParser;
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.itemdefinition.MetaItemDefinition;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
+import com.github.poodleone.anyfileviewer.reader.FileSetReader;
+import com.github.poodleone.anyfileviewer.record.Record;
+import com.github.poodleone.anyfileviewer.record.RecordSet;
+
+/**
+ * ファイル全体のレコードを一覧に表示するための、読込済みのレコードの範囲(ウィンドウ)です.<br>
+ * レコードはBLOCK_SIZE件のブロック単位で、一覧に表示中の範囲とその前後PREFETCH_BLOCKS件のブロックのみをバックグラウンドで読み込みます.
+ * 読み込んだブロックはMAX_BLOCKS件まで保持し、超えた場合は最も長く参照されていないブロックを破棄します(保持するレコード数はファイルのサイズによらず一定です).
+ * ブロックの読み込みは{@link FileSetReader#load}で行うため、索引を持つReaderでは読み込み開始位置まで直接移動します.
+ */
+class RecordWindow {
+	/** 1ブロックのレコード数. */
+	private static final int BLOCK_SIZE = 512;
+
+	/** 表示中の範囲の前後に先読みするブロック数. */
+	private static final int PREFETCH_BLOCKS = 2;
+
+	/** 保持する最大ブロック数. */
+	private static final int MAX_BLOCKS = 64;
+
+	/**
+	 * ブロックの読み込み結果を受け取るリスナーです. 各メソッドはイベントディスパッチスレッドから呼び出されます.
+	 */
+	interface Listener {
+		/**
+		 * ブロックを読み込んだことを通知します.
+		 *
+		 * @param firstRow 読み込んだ先頭レコードのオフセット
+		 * @param lastRow  読み込んだ最後のレコードのオフセット
+		 */
+		void loaded(int firstRow, int lastRow);
+
+		/**
+		 * 異常が発生し、読み込みを終了したことを通知します.
+		 *
+		 * @param e 発生した例外
+		 */
+		void failed(Exception e);
+	}
+
+	private final FileSetReader reader;
+	private final RecordFormat format;
+	private final FileSet source;
+	private final int size;
+	private final Listener listener;
+	private final Thread thread;
+	private volatile boolean closed;
+
+	/** 読込済みのブロック(key: ブロック番号. 参照順). */
+	private final Map<Integer, RecordSet> blocks = new LinkedHashMap<Integer, RecordSet>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, RecordSet> eldest) {
+			return MAX_BLOCKS < size();
+		}
+	};
+
+	/** 読み込むブロックの範囲(表示中の範囲のブロック番号). */
+	private int firstVisibleBlock;
+	private int lastVisibleBlock = -1;
+
+	/** 読み込んだレコードに追加するメタデータ項目(nullの場合は追加しない). */
+	private List<MetaItemDefinition> metaItems;
+
+	/**
+	 * ウィンドウを生成します.
+	 *
+	 * @param reader   レコードの読み込みに使用するReader
+	 * @param format   ファイルのレコード形式
+	 * @param source   読み込み元
+	 * @param size     一覧に表示するレコード数
+	 * @param listener ブロックの読み込み結果を受け取るリスナー
+	 */
+	RecordWindow(FileSetReader reader, RecordFormat format, FileSet source, int size, Listener listener) {
+		this.reader = reader;
+		this.format = format;
+		this.source = source;
+		this.size = size;
+		this.listener = listener;
+		this.thread = new Thread(this::run, "record-window-loader");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * @return 一覧に表示するレコード数
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * 読込済みのレコードを取得します.
+	 *
+	 * @param row レコードのオフセット
+	 * @return レコード(未読込の場合はnull)
+	 */
+	synchronized Record get(int row) {
+		RecordSet block = blocks.get(row / BLOCK_SIZE);
+		int index = row % BLOCK_SIZE;
+		return block != null && index < block.size() ? block.get(index) : null;
+	}
+
+	/**
+	 * 一覧に表示中の範囲を設定します. 範囲内と前後の未読込のブロックを、表示中の範囲に近い順に読み込みます.<br>
+	 * 範囲外になったブロックの読み込み待ちは取り消します.
+	 *
+	 * @param firstRow 表示中の先頭レコードのオフセット
+	 * @param lastRow  表示中の最後のレコードのオフセット
+	 */
+	synchronized void setVisibleRows(int firstRow, int lastRow) {
+		firstVisibleBlock = firstRow / BLOCK_SIZE;
+		lastVisibleBlock = lastRow / BLOCK_SIZE;
+		notifyAll();
+	}
+
+	/**
+	 * 読込済みのレコードと、今後読み込むレコードのメタデータ項目を更新します.
+	 *
+	 * @param metaItems 新しいメタデータ項目のリスト
+	 * @see DataParser#updateMetaItems(RecordSet, List)
+	 */
+	synchronized void updateMetaItems(List<MetaItemDefinition> metaItems) {
+		this.metaItems = metaItems;
+		blocks.values().forEach(e -> DataParser.updateMetaItems(e, metaItems));
+	}
+
+	/**
+	 * 読み込みを終了します.
+	 */
+	void close() {
+		closed = true;
+		thread.interrupt();
+	}
+
+	private void run() {
+		try {
+			while (!closed) {
+				int block;
+				synchronized (this) {
+					while ((block = nextBlock()) == -1) {
+						wait();
+					}
+				}
+				RecordSet records = reader.load(source, format, block * BLOCK_SIZE, BLOCK_SIZE, (record, offset) -> {
+					if (closed) {
+						throw new CancellationException();
+					}
+				});
+				if (records.getOffeset() != block * BLOCK_SIZE) {
+					// 表示開始後に切り詰められたファイルの範囲外は読み込まない(未読込のまま表示する)
+					records.clear();
+				}
+				synchronized (this) {
+					if (metaItems != null) {
+						DataParser.updateMetaItems(records, metaItems);
+					}
+					blocks.put(block, records);
+				}
+				int firstRow = block * BLOCK_SIZE;
+				int lastRow = Integer.min(firstRow + Integer.max(records.size(), 1), size) - 1;
+				SwingUtilities.invokeLater(() -> {
+					if (!closed) {
+						listener.loaded(firstRow, lastRow);
+					}
+				});
+			}
+		} catch (CancellationException e) {
+			// 読み込み中に終了された
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			SwingUtilities.invokeLater(() -> {
+				if (!closed) {
+					listener.failed(e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return 次に読み込むブロック番号(読み込むブロックがない場合は-1)
+	 */
+	private int nextBlock() {
+		if (size == 0) {
+			return -1;
+		}
+		int lastBlock = (size - 1) / BLOCK_SIZE;
+		for (int i = firstVisibleBlock; i <= Integer.min(lastVisibleBlock, lastBlock); i++) {
+			if (!blocks.containsKey(i)) {
+				return i;
+			}
+		}
+		for (int i = 1; i <= PREFETCH_BLOCKS; i++) {
+			if (lastVisibleBlock + i <= lastBlock && !blocks.containsKey(lastVisibleBlock + i)) {
+				return lastVisibleBlock + i;
+			}
+			if (0 <= firstVisibleBlock - i && !blocks.containsKey(firstVisibleBlock - i)) {
+				return firstVisibleBlock - i;
+			}
+		}
+		return -1;
+	}
+}
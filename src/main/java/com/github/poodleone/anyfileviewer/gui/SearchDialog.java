@@ -0,0 +1,219 @@
+package com.github.poodleone.anyfileviewer.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+import javax.swing.BoxLayout;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
+import javax.swing.border.EmptyBorder;
+
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
+import com.github.poodleone.anyfileviewer.reader.FileSetReader;
+import com.github.poodleone.anyfileviewer.utils.GUIUtils;
+
+/**
+ * ファイル全体からキーワードを含むレコードを検索するダイアログ.<br>
+ * 見つかったレコードは検索中も順に一覧に追加し、ダブルクリックしたレコードを含むページをメインウィンドウに表示します.
+ */
+public class SearchDialog extends JDialog {
+	private static final long serialVersionUID = 1L;
+
+	/** 一覧に表示する最大件数. */
+	private static final int MAX_RESULTS = 100_000;
+
+	private final RecordFormat recordFormat;
+	private final FileSet source;
+	private final IntConsumer recordSelector;
+
+	private JTextField keywordText = new JTextField(40);
+	private JButton searchButton = new JButton("検索");
+	private JButton cancelButton = new JButton("中止");
+	private JLabel statusLabel = new JLabel(" ");
+	private DefaultListModel<Integer> resultsModel = new DefaultListModel<>();
+	private JList<Integer> resultsList = new JList<>(resultsModel);
+
+	private Searcher searcher;
+
+	/**
+	 * 検索ダイアログを生成します.
+	 *
+	 * @param owner          メインウィンドウ
+	 * @param recordFormat   検索するファイルのレコード形式
+	 * @param source         検索するファイルの読み込み元
+	 * @param keyword        キーワードの初期値
+	 * @param recordSelector 一覧で選択したレコードを表示する処理(引数は全ファイルを通したレコードのオフセット)
+	 */
+	public SearchDialog(Frame owner, RecordFormat recordFormat, FileSet source, String keyword,
+			IntConsumer recordSelector) {
+		super(owner, "ファイル全体を検索 - " + source);
+		this.recordFormat = recordFormat;
+		this.source = source;
+		this.recordSelector = recordSelector;
+
+		// コントロールを配置
+		JPanel line1 = new JPanel();
+		line1.setLayout(new BoxLayout(line1, BoxLayout.X_AXIS));
+		line1.add(new JLabel("キーワード:"));
+		line1.add(keywordText);
+		line1.add(searchButton);
+		line1.add(cancelButton);
+
+		JPanel line2 = new JPanel();
+		line2.setLayout(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		line2.add(statusLabel);
+
+		JPanel lines = new JPanel();
+		lines.setLayout(new BoxLayout(lines, BoxLayout.Y_AXIS));
+		lines.add(line1);
+		lines.add(line2);
+		lines.setBorder(new EmptyBorder(5, 5, 5, 5));
+		getContentPane().add(lines, BorderLayout.NORTH);
+		getContentPane().add(new JScrollPane(resultsList), BorderLayout.CENTER);
+
+		// コントロールの挙動を設定
+		keywordText.setText(keyword);
+		keywordText.addActionListener(e -> search());
+		searchButton.addActionListener(e -> search());
+		cancelButton.addActionListener(e -> cancel());
+		cancelButton.setEnabled(false);
+		resultsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		resultsList.setCellRenderer(new DefaultListCellRenderer() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+					boolean isSelected, boolean cellHasFocus) {
+				return super.getListCellRendererComponent(list, String.format("No.%,d", (Integer) value + 1), index,
+						isSelected, cellHasFocus);
+			}
+		});
+		resultsList.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				int index = resultsList.locationToIndex(e.getPoint());
+				if (e.getClickCount() == 2 && index != -1) {
+					recordSelector.accept(resultsModel.get(index));
+				}
+			}
+		});
+		setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+		setSize(480, 400);
+		setLocationRelativeTo(owner);
+	}
+
+	@Override
+	public void dispose() {
+		cancel();
+		super.dispose();
+	}
+
+	private void search() {
+		cancel();
+		String keyword = keywordText.getText();
+		if (keyword.isEmpty()) {
+			return;
+		}
+		resultsModel.clear();
+		statusLabel.setText("検索中...");
+		searchButton.setEnabled(false);
+		cancelButton.setEnabled(true);
+		try {
+			searcher = new Searcher(new FileSetReader(recordFormat.getReaderClass().newInstance()), keyword);
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+		searcher.execute();
+	}
+
+	private void cancel() {
+		if (searcher != null) {
+			searcher.cancel(true);
+			searcher = null;
+			searchButton.setEnabled(true);
+			cancelButton.setEnabled(false);
+			statusLabel.setText(String.format("検索を中止しました。 %,d件", resultsModel.size()));
+		}
+	}
+
+	/**
+	 * ファイル全体をバックグラウンドで検索する処理です.<br>
+	 * 見つかったレコードのオフセットを一定件数ごとにまとめて一覧に追加します.
+	 */
+	private class Searcher extends SwingWorker<Integer, Integer> {
+		private final FileSetReader reader;
+		private final String keyword;
+
+		/** 検索開始時刻. */
+		private final long startTime = System.nanoTime();
+
+		/** 見つかったレコード数. */
+		private volatile int found;
+
+		private Searcher(FileSetReader reader, String keyword) {
+			this.reader = reader;
+			this.keyword = keyword;
+		}
+
+		@Override
+		protected Integer doInBackground() {
+			return reader.search(source, recordFormat, keyword, offset -> {
+				if (isCancelled()) {
+					throw new CancellationException();
+				}
+				if (found++ < MAX_RESULTS) {
+					publish(offset);
+				}
+			});
+		}
+
+		@Override
+		protected void process(List<Integer> chunks) {
+			if (searcher != this) {
+				return;
+			}
+			chunks.forEach(resultsModel::addElement);
+			statusLabel.setText(String.format("検索中... %,d件", found));
+		}
+
+		@Override
+		protected void done() {
+			if (searcher != this) {
+				// 中止したか、後から開始した検索に置き換えられた場合は何もしない
+				return;
+			}
+			searcher = null;
+			searchButton.setEnabled(true);
+			cancelButton.setEnabled(false);
+			try {
+				int recordCount = get();
+				double seconds = (System.nanoTime() - startTime) / 1e9;
+				statusLabel.setText(String.format("%,d件中%,d件が見つかりました%s (%,.1f秒)", recordCount, found,
+						MAX_RESULTS < found ? String.format("(先頭%,d件を表示)", MAX_RESULTS) : "", seconds));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				statusLabel.setText("検索に失敗しました。");
+				GUIUtils.showMessageDialog(SearchDialog.this, getTitle(), "例外が発生しました。", e.getCause());
+			}
+		}
+	}
+}
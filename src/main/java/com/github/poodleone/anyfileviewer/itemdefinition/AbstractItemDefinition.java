@@ -61,6 +61,20 @@ public abstract class AbstractItemDefinition implements ItemDefinition {
 		}
 	}
 
+	/**
+	 * @return 項目長が固定かどうか(項目長が計算式の場合はfalse)
+	 */
+	public boolean isFixedLength() {
+		return lengthExpression == null;
+	}
+
+	/**
+	 * @return 固定の項目長(-1の場合は項目のoffsetからレコード末尾まで)
+	 */
+	public int getFixedLength() {
+		return length;
+	}
+
 	@Override
 	public List<ItemDefinition> getChildren() {
 		return Collections.emptyList();
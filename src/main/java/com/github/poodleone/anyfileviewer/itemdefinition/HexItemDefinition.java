@@ -1,5 +1,7 @@
 package com.github.poodleone.anyfileviewer.itemdefinition;
 
+import java.nio.ByteBuffer;
+
 import com.github.poodleone.anyfileviewer.DataParser;
 import com.github.poodleone.anyfileviewer.record.Record;
 import com.github.poodleone.anyfileviewer.utils.ByteUtils;
@@ -54,6 +56,8 @@ public class HexItemDefinition extends AbstractItemDefinition {
 		Object rawData = record.getRawData();
 		if (rawData instanceof byte[]) {
 			return ByteUtils.printHexBinary((byte[]) rawData, offset, getLength(record, offset));
+		} else if (rawData instanceof ByteBuffer) {
+			return ByteUtils.printHexBinary((ByteBuffer) rawData, offset, getLength(record, offset));
 		} else {
 			return "";
 		}
@@ -1,5 +1,6 @@
 package com.github.poodleone.anyfileviewer.itemdefinition;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import com.github.poodleone.anyfileviewer.DataParser;
@@ -45,7 +46,7 @@ public class StringItemDefinition extends AbstractItemDefinition {
 		try {
 			// 項目長を取得
 			int length = getLength(record, offset);
-			int remain = ((byte[]) rawData).length - offset;
+			int remain = ByteUtils.length(rawData) - offset;
 			if (length > remain) {
 				// 長さが足りない場合は補正
 				length = Integer.max(remain, 0);
@@ -54,10 +55,15 @@ public class StringItemDefinition extends AbstractItemDefinition {
 			// 項目の値を取得
 			if (rawData instanceof byte[]) {
 				return new String((byte[]) rawData, offset, length, charset);
+			} else if (rawData instanceof ByteBuffer) {
+				// レコードのデータはコピーせず、項目の範囲だけをデコードする
+				ByteBuffer buffer = ((ByteBuffer) rawData).duplicate();
+				buffer.limit(offset + length).position(offset);
+				return charset.decode(buffer).toString();
 			} else {
 				return rawData.toString().substring(offset, offset + length);
 			}
-		} catch (IndexOutOfBoundsException | NullPointerException e) {
+		} catch (IndexOutOfBoundsException | IllegalArgumentException | NullPointerException e) {
 			return "";
 		}
 	}
@@ -88,6 +94,8 @@ public class StringItemDefinition extends AbstractItemDefinition {
 		try {
 			if (rawData instanceof byte[]) {
 				return ByteUtils.printHexBinary((byte[]) rawData, offset, getLength(record, offset));
+			} else if (rawData instanceof ByteBuffer) {
+				return ByteUtils.printHexBinary((ByteBuffer) rawData, offset, getLength(record, offset));
 			} else {
 				byte[] bytes = toRawStringValue(record, offset).getBytes(charset);
 				return ByteUtils.printHexBinary(bytes, 0, bytes.length);
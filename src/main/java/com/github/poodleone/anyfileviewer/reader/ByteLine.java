@@ -0,0 +1,174 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * ファイルから読み込んだ、文字列にデコードする前の1行です.<br>
+ * {@link LinesReader}は、文字セットがASCIIの範囲をASCIIと同じバイトで表す場合、ファイルをバイト単位で読み込んで行に分割します.
+ * 行が全てASCII文字の場合は、{@link #asAsciiSequence()}でデコードせずに文字列として参照できます.<br>
+ * 読み込み中の行のバイト配列は次の行の読み込みで上書きされるため、行を保持する場合は{@link #copy()}を使用してください.
+ */
+public final class ByteLine {
+	/** ファイルの文字セット. */
+	private final Charset charset;
+
+	/** 行を含むバイト配列. */
+	private byte[] bytes;
+
+	/** 行の開始位置. */
+	private int offset;
+
+	/** 行の長さ(改行を含まない). */
+	private int length;
+
+	/** 行が全てASCII文字かどうか. */
+	private boolean ascii;
+
+	ByteLine(Charset charset) {
+		this.charset = charset;
+	}
+
+	void set(byte[] bytes, int offset, int length, boolean ascii) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+		this.ascii = ascii;
+	}
+
+	/**
+	 * 文字セットがASCIIの範囲(0x00～0x7F)をASCIIと同じバイトで表すかどうかを返します.<br>
+	 * この場合、改行のバイトはマルチバイト文字の一部にならず、0x80以上のバイトを含まない行はASCII文字のみで構成されます.
+	 *
+	 * @param charset 文字セット
+	 * @return ASCIIと互換性がある場合はtrue
+	 */
+	public static boolean isAsciiCompatible(Charset charset) {
+		if (!charset.canEncode()) {
+			// 自動判別などデコード専用の文字セットはエスケープシーケンスを含む場合がある
+			return false;
+		}
+		byte[] bytes = new byte[0x80];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		String decoded = new String(bytes, charset);
+		if (decoded.length() != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (decoded.charAt(i) != i) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return 行を含むバイト配列
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return バイト配列内の行の開始位置
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return 行の長さ(改行を含まない)
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return 行が全てASCII文字の場合はtrue
+	 */
+	public boolean isAscii() {
+		return ascii;
+	}
+
+	/**
+	 * 行をデコードせずに参照する文字列を返します. 行が全てASCII文字の場合のみ使用できます.
+	 *
+	 * @return 行の文字列
+	 */
+	public CharSequence asAsciiSequence() {
+		return new AsciiSequence(bytes, offset, length);
+	}
+
+	/**
+	 * 行のバイト配列をコピーした、次の行の読み込み後も参照できる行を返します.
+	 *
+	 * @return コピーした行
+	 */
+	public ByteLine copy() {
+		ByteLine line = new ByteLine(charset);
+		line.set(Arrays.copyOfRange(bytes, offset, offset + length), 0, length, ascii);
+		return line;
+	}
+
+	/**
+	 * 行を文字セットでデコードした文字列を返します.
+	 *
+	 * @return 行の文字列
+	 */
+	@Override
+	public String toString() {
+		return ascii ? toAsciiString(bytes, offset, length) : new String(bytes, offset, length, charset);
+	}
+
+	private static String toAsciiString(byte[] bytes, int offset, int length) {
+		// 文字セットのデコーダを生成せずに変換する(ASCII文字はバイト値と文字コードが同じ)
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) bytes[offset + i];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * ASCII文字のバイト配列をそのまま参照する文字列です.
+	 */
+	private static class AsciiSequence implements CharSequence {
+		private final byte[] bytes;
+		private final int offset;
+		private final int length;
+
+		private AsciiSequence(byte[] bytes, int offset, int length) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || length <= index) {
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+			return (char) bytes[offset + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || end < start || length < end) {
+				throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+			}
+			return new AsciiSequence(bytes, offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return toAsciiString(bytes, offset, length);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * ファイルをバイト単位で読み込み、1行ずつ{@link ByteLine}に分割するReaderです.<br>
+ * 行の区切りは{@link java.io.BufferedReader#readLine()}と同様に、LF・CR・CRLFのいずれかとします.
+ * ASCII互換の文字セット({@link ByteLine#isAsciiCompatible(Charset)})のファイルにのみ使用できます.
+ */
+class ByteLineReader implements Closeable {
+	/** 読み込みバッファの初期サイズ(バッファに収まらない長さの行がある場合は拡張する). */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ReadableByteChannel channel;
+
+	/** 読み込み中の行(次の行の読み込みで再利用する). */
+	private final ByteLine line;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** バッファ内の未処理のデータの開始位置. */
+	private int position;
+
+	/** バッファ内のデータの終了位置. */
+	private int limit;
+
+	/** ファイル末尾まで読み込んだかどうか. */
+	private boolean eof;
+
+	/** 直前の行がCRで終わり、次のLFを読み飛ばす必要があるかどうか. */
+	private boolean skipLF;
+
+	/**
+	 * Readerを生成します. channelの現在位置から読み込みます.
+	 *
+	 * @param channel 読み込むファイルのチャネル(Readerのクローズ時にクローズします)
+	 * @param charset ファイルの文字セット
+	 */
+	ByteLineReader(ReadableByteChannel channel, Charset charset) {
+		this.channel = channel;
+		this.line = new ByteLine(charset);
+	}
+
+	/**
+	 * 次の行を読み込みます.
+	 *
+	 * @return 読み込んだ行(ファイル末尾の場合はnull)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	ByteLine readLine() throws IOException {
+		if (skipLF) {
+			if (position == limit && !eof) {
+				fill(position);
+			}
+			if (position < limit && buffer.array()[position] == '\n') {
+				position++;
+			}
+			skipLF = false;
+		}
+
+		int start = position;
+		int i = position;
+		int bits = 0;
+		byte[] bytes = buffer.array();
+		while (true) {
+			if (i == limit) {
+				if (eof) {
+					position = i;
+					if (start == i) {
+						return null;
+					}
+					line.set(bytes, start, i - start, bits >= 0);
+					return line;
+				}
+				int scanned = i - start;
+				fill(start);
+				bytes = buffer.array();
+				start = 0;
+				i = scanned;
+				continue;
+			}
+			byte b = bytes[i];
+			if (b == '\n' || b == '\r') {
+				line.set(bytes, start, i - start, bits >= 0);
+				position = i + 1;
+				skipLF = b == '\r';
+				return line;
+			}
+			bits |= b;
+			i++;
+		}
+	}
+
+	/**
+	 * バッファのstart以降の未処理のデータを先頭に移動し、ファイルの続きを読み込みます.
+	 *
+	 * @param start 未処理のデータの開始位置
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	private void fill(int start) throws IOException {
+		byte[] bytes = buffer.array();
+		int remaining = limit - start;
+		if (start == 0 && limit == bytes.length) {
+			// バッファに収まらない長さの行
+			buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length * 2));
+		} else {
+			System.arraycopy(bytes, start, bytes, 0, remaining);
+		}
+		position = 0;
+		limit = remaining;
+		buffer.clear().position(limit);
+		int length;
+		do {
+			length = channel.read(buffer);
+		} while (length == 0);
+		if (length == -1) {
+			eof = true;
+		} else {
+			limit += length;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,96 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * ファイルを区間に分割し、各区間のレコードを並列に検索する処理です.<br>
+ * 見つかったレコードのオフセットは、区間の順(ファイル内の順)に呼び出し元のスレッドで通知します.
+ */
+final class ChunkedSearch {
+	/** 検索のスレッド. */
+	private static final ExecutorService executor = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+				Thread thread = new Thread(r, "record-searcher");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/** 検索中の区間(ファイル内の順). */
+	private final List<Future<int[]>> chunks = new ArrayList<>();
+
+	/**
+	 * 1区間の検索処理です.
+	 */
+	@FunctionalInterface
+	interface Chunk {
+		/**
+		 * 区間のレコードを検索します.
+		 *
+		 * @param consumer 見つかったレコードごとに実施する処理(引数はファイル内でのレコードのオフセット)
+		 * @throws IOException ファイルの読み込みで異常が発生した場合
+		 */
+		void search(IntConsumer consumer) throws IOException;
+	}
+
+	/**
+	 * 区間の検索を開始します.
+	 *
+	 * @param chunk 区間の検索処理
+	 */
+	void add(Chunk chunk) {
+		chunks.add(executor.submit(() -> {
+			IntStream.Builder found = IntStream.builder();
+			chunk.search(found::add);
+			return found.build().toArray();
+		}));
+	}
+
+	/**
+	 * 全区間の検索の完了を待ち、見つかったレコードのオフセットを区間の順にconsumerに通知します.<br>
+	 * 異常が発生した場合・consumerが例外をスローした場合は、未完了の区間の検索を中断します.
+	 *
+	 * @param consumer 見つかったレコードごとに実施する処理
+	 */
+	void forEach(IntConsumer consumer) {
+		try {
+			for (Future<int[]> chunk : chunks) {
+				for (int offset : chunk.get()) {
+					consumer.accept(offset);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw new UncheckedIOException((IOException) e.getCause());
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			chunks.forEach(e -> e.cancel(true));
+		}
+	}
+
+	/**
+	 * 検索中のスレッドが中断されている場合は、検索を中止します.
+	 *
+	 * @throws CancellationException スレッドが中断されている場合
+	 */
+	static void checkCancelled() {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException();
+		}
+	}
+}
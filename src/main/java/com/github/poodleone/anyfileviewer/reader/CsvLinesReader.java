@@ -1,15 +1,31 @@
 package com.github.poodleone.anyfileviewer.reader;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
-import com.github.poodleone.anyfileviewer.DataParser;
 import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.record.AbstractRecord;
 import com.github.poodleone.anyfileviewer.record.Record;
 
 /**
- * CSV形式のファイルのReaderです.
+ * CSV形式のファイルのReaderです.<br>
+ * RFC 4180形式のCSVを読み込みます({@link CsvParser}). 囲み文字で囲まれた項目は区切り文字・改行を含むことができます.<br>
+ * 項目名は、オプションheaderにtrueを指定した場合は先頭のレコード(ヘッダ)の値、それ以外の場合はlistItemsの順とします.
+ * 項目名がない位置の項目は"[位置]"とします.<br>
+ * 以下のオプションを指定できます.
+ * <ul>
+ * <li>delimiter: 項目の区切り文字(デフォルトは",")</li>
+ * <li>quote: 項目の囲み文字(デフォルトは'"')</li>
+ * <li>header: 先頭のレコードをヘッダとして扱う場合はtrue(デフォルトはfalse)</li>
+ * </ul>
  */
 public class CsvLinesReader extends LinesReader {
 	@Override
@@ -17,26 +33,175 @@ public class CsvLinesReader extends LinesReader {
 		return Arrays.asList("charset");
 	}
 
+	@Override
+	public List<String> getOptionalOptionNames() {
+		return Arrays.asList("delimiter", "quote", "header");
+	}
+
 	@Override
 	protected Record readRecord(String line, RecordFormat format) {
-		Record record = new AbstractRecord(null) {
-			private int length = line.length();
+		try (CsvParser parser = new CsvParser(new StringReader(line), getDelimiter(format), getQuote(format))) {
+			if (!parser.next()) {
+				// 空行
+				return createRecord(new String[] { "" }, 1, 0, format.getListItems(), format);
+			}
+			return createRecord(parser.getFields(), parser.getFieldCount(), parser.getLength(), format.getListItems(),
+					format);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	LineSource openLines(Path path, Charset charset, long position, long end, RecordFormat format)
+			throws IOException {
+		List<String> names = format.getListItems();
+		CsvParser parser = openParser(path, charset, 0, position == 0 ? end : -1, format);
+		try {
+			if (isHeader(format)) {
+				names = parser.next() ? Arrays.asList(Arrays.copyOf(parser.getFields(), parser.getFieldCount()))
+						: names;
+				if (position != 0) {
+					parser.close();
+					parser = openParser(path, charset, position, end, format);
+				}
+			} else if (position != 0) {
+				parser.close();
+				parser = openParser(path, charset, position, end, format);
+			}
+		} catch (IOException | RuntimeException e) {
+			parser.close();
+			throw e;
+		}
+		return new CsvRecordSource(parser, names);
+	}
+
+	@Override
+	RecordIndex getIndex(Path path, Charset charset, RecordFormat format, boolean appended) {
+		char delimiter = getDelimiter(format);
+		char quote = getQuote(format);
+		if (!ByteLine.isAsciiCompatible(charset) || 0x80 <= delimiter || 0x80 <= quote) {
+			return null;
+		}
+		try {
+			// 区切り文字・囲み文字・ヘッダの有無によってレコードの区切りが変わるため、索引の種類に含める
+			return RecordIndex.get(path, "csv" + (int) delimiter + "," + (int) quote + "," + isHeader(format),
+					(p, builder) -> CsvParser.scan(p, delimiter, quote, isHeader(format), builder), appended);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	long findRecordsEnd(Path path, long position, RecordFormat format) throws IOException {
+		char delimiter = getDelimiter(format);
+		char quote = getQuote(format);
+		if (0x80 <= delimiter || 0x80 <= quote) {
+			throw new UnsupportedOperationException("区切り文字・囲み文字がASCII文字以外のCSVは追記されたレコードの読み込みに対応していません。");
+		}
+		return CsvParser.findRecordsEnd(path, position, delimiter, quote);
+	}
+
+	private CsvParser openParser(Path path, Charset charset, long position, long end, RecordFormat format)
+			throws IOException {
+		SeekableByteChannel channel = end < 0 ? InputFiles.open(path, position) : InputFiles.open(path, position, end);
+		try {
+			return new CsvParser(Channels.newReader(channel, charset.newDecoder(), -1), getDelimiter(format),
+					getQuote(format));
+		} catch (RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
 
+	private Record createRecord(String[] fields, int fieldCount, int length, List<String> names,
+			RecordFormat format) {
+		// 項目名(ヘッダの値を含む)はレコード形式の項目名の表に登録する
+		AbstractRecord record = new AbstractRecord(null, format.getSchema()) {
 			@Override
 			public int getLength() {
 				return length;
 			}
 		};
-		String[] values = line.split(",");
-		for (int i = 0; i < values.length; i++) {
-			if (i < format.getListItems().size()) {
-				record.getItems().put(format.getListItems().get(i), values[i]);
+		for (int i = 0; i < fieldCount; i++) {
+			if (i < names.size()) {
+				record.getItems().put(names.get(i), fields[i]);
 			} else {
-				record.getItems().put("[" + i + "]", values[i]);
+				record.getItems().put("[" + i + "]", fields[i]);
 			}
 		}
-		DataParser.parseRecord(record, format);
+		record.parseLazily(format);
 		return record;
 	}
 
+	private char getDelimiter(RecordFormat format) {
+		return getChar(format, "delimiter", ',');
+	}
+
+	private char getQuote(RecordFormat format) {
+		return getChar(format, "quote", '"');
+	}
+
+	private char getChar(RecordFormat format, String option, char defaultValue) {
+		String value = format.getReaderOptions().get(option);
+		if (value == null) {
+			return defaultValue;
+		}
+		if (value.length() != 1) {
+			throw new RuntimeException("CsvLinesReaderの" + option + "の指定が不正です(1文字で指定してください)。");
+		}
+		return value.charAt(0);
+	}
+
+	private boolean isHeader(RecordFormat format) {
+		return Boolean.parseBoolean(format.getReaderOptions().get("header"));
+	}
+
+	/**
+	 * CSVのレコードを順に読み込み、レコードを生成する処理です.
+	 */
+	private class CsvRecordSource implements LineSource {
+		private final CsvParser parser;
+
+		/** 項目名(ヘッダまたはlistItems). */
+		private final List<String> names;
+
+		private CsvRecordSource(CsvParser parser, List<String> names) {
+			this.parser = parser;
+			this.names = names;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			return parser.next();
+		}
+
+		@Override
+		public Record readRecord(RecordFormat format) {
+			return createRecord(parser.getFields(), parser.getFieldCount(), parser.getLength(), names, format);
+		}
+
+		@Override
+		public Supplier<Record> deferRecord(RecordFormat format) {
+			String[] fields = Arrays.copyOf(parser.getFields(), parser.getFieldCount());
+			int length = parser.getLength();
+			return () -> createRecord(fields, fields.length, length, names, format);
+		}
+
+		@Override
+		public boolean matches(SearchKeyword keyword) {
+			String[] fields = parser.getFields();
+			for (int i = 0; i < parser.getFieldCount(); i++) {
+				if (keyword.matches(fields[i])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			parser.close();
+		}
+	}
 }
@@ -0,0 +1,354 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * RFC 4180形式のCSVを1レコードずつ読み込むパーサです.<br>
+ * 囲み文字で囲まれた項目は、区切り文字・改行を含むことができ、囲み文字を2つ続けて囲み文字自体を表します.
+ * レコードの区切りは{@link java.io.BufferedReader#readLine()}と同様に、LF・CR・CRLFのいずれかとします.<br>
+ * RFC 4180に従わない入力は次のように扱います.
+ * <ul>
+ * <li>囲まれていない項目の途中の囲み文字は通常の文字として扱う</li>
+ * <li>閉じた囲み文字の後に区切り文字・改行以外の文字が続く場合は、その文字も項目の値に含める</li>
+ * <li>囲み文字が閉じないままファイル末尾に達した場合は、ファイル末尾までを項目の値とする</li>
+ * </ul>
+ */
+class CsvParser implements Closeable {
+	/** 読み込みバッファのサイズ. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** 状態: 項目の先頭. */
+	private static final int FIELD_START = 0;
+
+	/** 状態: 囲まれていない項目の途中. */
+	private static final int UNQUOTED = 1;
+
+	/** 状態: 囲まれた項目の途中. */
+	private static final int QUOTED = 2;
+
+	/** 状態: 囲まれた項目の途中で囲み文字を読み込んだ直後. */
+	private static final int QUOTE_IN_QUOTED = 3;
+
+	private final Reader reader;
+	private final char delimiter;
+	private final char quote;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+
+	/** 直前のレコードがCRで終わり、次のLFを読み飛ばす必要があるかどうか. */
+	private boolean skipLF;
+
+	/** 読み込み中の項目の値. */
+	private char[] field = new char[256];
+	private int fieldLength;
+
+	/** 読み込んだレコードの項目(次のレコードの読み込みで上書きされる). */
+	private String[] fields = new String[16];
+	private int fieldCount;
+
+	/** 読み込んだレコードの長さ(文字数、レコード末尾の改行を含まない). */
+	private int length;
+
+	/**
+	 * パーサを生成します.
+	 *
+	 * @param reader    CSVのReader(パーサのクローズ時にクローズします)
+	 * @param delimiter 項目の区切り文字
+	 * @param quote     項目の囲み文字
+	 */
+	CsvParser(Reader reader, char delimiter, char quote) {
+		this.reader = reader;
+		this.delimiter = delimiter;
+		this.quote = quote;
+	}
+
+	/**
+	 * 次のレコードを読み込みます.
+	 *
+	 * @return レコードを読み込んだ場合はtrue(ファイル末尾の場合はfalse)
+	 * @throws IOException 読み込みで異常が発生した場合
+	 */
+	boolean next() throws IOException {
+		fieldCount = 0;
+		fieldLength = 0;
+		length = 0;
+
+		if (position == limit && !fill()) {
+			return false;
+		}
+		if (skipLF) {
+			skipLF = false;
+			if (buffer[position] == '\n') {
+				position++;
+				if (position == limit && !fill()) {
+					return false;
+				}
+			}
+		}
+
+		int state = FIELD_START;
+		while (true) {
+			if (position == limit && !fill()) {
+				// ファイル末尾
+				endField();
+				return true;
+			}
+			if (state == FIELD_START && buffer[position] == quote) {
+				position++;
+				length++;
+				state = QUOTED;
+
+			} else if (state == FIELD_START || state == UNQUOTED) {
+				// 囲まれていない項目は区切り文字・改行までをバッファから直接切り出す
+				int start = position;
+				int i = start;
+				char c = 0;
+				while (i < limit) {
+					c = buffer[i];
+					if (c == delimiter || c == '\n' || c == '\r') {
+						break;
+					}
+					i++;
+				}
+				length += i - start;
+				if (i == limit) {
+					// 項目がバッファの末尾をまたぐ
+					append(buffer, start, i - start);
+					position = i;
+					state = UNQUOTED;
+					continue;
+				}
+				if (fieldLength == 0) {
+					addField(new String(buffer, start, i - start));
+				} else {
+					append(buffer, start, i - start);
+					endField();
+				}
+				position = i + 1;
+				if (c == delimiter) {
+					length++;
+					state = FIELD_START;
+				} else {
+					skipLF = c == '\r';
+					return true;
+				}
+
+			} else {
+				char c = buffer[position++];
+				length++;
+				if (state == QUOTED) {
+					if (c == quote) {
+						state = QUOTE_IN_QUOTED;
+					} else {
+						append(c);
+					}
+				} else if (c == quote) {
+					// 囲み文字2つで囲み文字自体を表す
+					append(c);
+					state = QUOTED;
+				} else if (c == delimiter) {
+					endField();
+					state = FIELD_START;
+				} else if (c == '\n' || c == '\r') {
+					length--;
+					skipLF = c == '\r';
+					endField();
+					return true;
+				} else {
+					append(c);
+					state = UNQUOTED;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return 読み込んだレコードの項目数
+	 */
+	int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * @return 読み込んだレコードの項目の配列(項目数より後の要素は使用しない. 次のレコードの読み込みで上書きされます)
+	 */
+	String[] getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return 読み込んだレコードの長さ(文字数、レコード末尾の改行を含まない)
+	 */
+	int getLength() {
+		return length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private boolean fill() throws IOException {
+		int n;
+		do {
+			n = reader.read(buffer);
+		} while (n == 0);
+		if (n == -1) {
+			return false;
+		}
+		position = 0;
+		limit = n;
+		return true;
+	}
+
+	private void append(char c) {
+		if (fieldLength == field.length) {
+			field = Arrays.copyOf(field, field.length * 2);
+		}
+		field[fieldLength++] = c;
+	}
+
+	private void append(char[] chars, int offset, int length) {
+		if (field.length < fieldLength + length) {
+			field = Arrays.copyOf(field, Integer.max(field.length * 2, fieldLength + length));
+		}
+		System.arraycopy(chars, offset, field, fieldLength, length);
+		fieldLength += length;
+	}
+
+	private void endField() {
+		addField(new String(field, 0, fieldLength));
+		fieldLength = 0;
+	}
+
+	private void addField(String value) {
+		if (fieldCount == fields.length) {
+			fields = Arrays.copyOf(fields, fields.length * 2);
+		}
+		fields[fieldCount++] = value;
+	}
+
+	/**
+	 * ファイルをバイト単位で走査し、レコードの開始位置を索引に追加します.<br>
+	 * {@link #next()}と同じ規則でレコードを区切ります. 文字セットがASCII互換で、区切り文字・囲み文字がASCII文字の場合のみ使用できます.
+	 *
+	 * @param path       ファイルのパス
+	 * @param delimiter  項目の区切り文字
+	 * @param quote      項目の囲み文字
+	 * @param skipHeader 先頭のレコード(ヘッダ)を索引に含めない場合はtrue
+	 * @param builder    索引のビルダー
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	static void scan(Path path, char delimiter, char quote, boolean skipHeader, RecordIndex.Builder builder)
+			throws IOException {
+		try (SeekableByteChannel channel = InputFiles.open(path)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			long position = 0;
+			boolean recordStart = true;
+			boolean skipLF = false;
+			boolean header = skipHeader;
+			int state = FIELD_START;
+			int length;
+			while ((length = channel.read(buffer)) != -1) {
+				for (int i = 0; i < length; i++) {
+					byte c = bytes[i];
+					if (skipLF) {
+						skipLF = false;
+						if (c == '\n') {
+							continue;
+						}
+					}
+					if (recordStart) {
+						if (!header) {
+							builder.add(position + i);
+						}
+						header = false;
+						recordStart = false;
+						state = FIELD_START;
+					}
+					if (state == QUOTED) {
+						if (c == quote) {
+							state = QUOTE_IN_QUOTED;
+						}
+					} else if (state == QUOTE_IN_QUOTED && c == quote) {
+						state = QUOTED;
+					} else if (c == delimiter) {
+						state = FIELD_START;
+					} else if (c == '\n' || c == '\r') {
+						skipLF = c == '\r';
+						recordStart = true;
+					} else if (state == FIELD_START && c == quote) {
+						state = QUOTED;
+					} else {
+						state = UNQUOTED;
+					}
+				}
+				position += length;
+				buffer.clear();
+			}
+		}
+	}
+
+	/**
+	 * ファイルを指定位置からバイト単位で走査し、最後の完全なレコードの直後の位置を求めます.<br>
+	 * {@link #next()}と同じ規則でレコードを区切ります. ファイル末尾のCRは直後にLFが追記される可能性があるため、レコードの終わりとしません.
+	 *
+	 * @param path      ファイルのパス
+	 * @param position  走査開始位置(レコードの開始位置)
+	 * @param delimiter 項目の区切り文字
+	 * @param quote     項目の囲み文字
+	 * @return 最後の完全なレコードの直後の位置(完全なレコードがない場合はposition)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	static long findRecordsEnd(Path path, long position, char delimiter, char quote) throws IOException {
+		try (SeekableByteChannel channel = InputFiles.open(path, position)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			long end = position;
+			boolean cr = false;
+			int state = FIELD_START;
+			int length;
+			while ((length = channel.read(buffer)) != -1) {
+				for (int i = 0; i < length; i++) {
+					byte c = bytes[i];
+					if (cr && c != '\n') {
+						// CRのみで終わるレコード
+						end = position + i;
+					}
+					cr = false;
+					if (state == QUOTED) {
+						if (c == quote) {
+							state = QUOTE_IN_QUOTED;
+						}
+					} else if (state == QUOTE_IN_QUOTED && c == quote) {
+						state = QUOTED;
+					} else if (c == delimiter) {
+						state = FIELD_START;
+					} else if (c == '\n' || c == '\r') {
+						if (c == '\n') {
+							end = position + i + 1;
+						}
+						cr = c == '\r';
+						state = FIELD_START;
+					} else if (state == FIELD_START && c == quote) {
+						state = QUOTED;
+					} else {
+						state = UNQUOTED;
+					}
+				}
+				position += length;
+				buffer.clear();
+			}
+			return end;
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * レコードの読み込み元のファイルの集合です. 集合内のファイルを順に連結したものを1つのファイルとして扱います.<br>
+ * 読み込み元は次の形式の文字列で指定します. 複数の指定はパス区切り文字({@link File#pathSeparator})で区切り、指定順に連結します.
+ * <ul>
+ * <li>ファイルのパス</li>
+ * <li>ディレクトリのパス: ディレクトリ直下の全ファイル</li>
+ * <li>ファイル名にワイルドカード(*, ?, [], {})を含むパス: ディレクトリ直下のファイル名が一致するファイル</li>
+ * </ul>
+ * 二重引用符で囲んだパスはワイルドカードとして扱わず、パス区切り文字を含むこともできます(引用符自体は""と記述します).
+ * ディレクトリ・ワイルドカードのファイルは、ファイル名の数字部分を数値として比較した順(app.log.2, app.log.10の順)に並べます.
+ * ファイルの一覧は{@link #getFiles()}の呼び出しごとに取得するため、再読込時には追加されたファイルも読み込みます.
+ */
+public final class FileSet {
+	/** 読み込み元の指定. */
+	private final String location;
+
+	/** 読み込み元の指定を区切ったもの. */
+	private final List<Part> parts;
+
+	private FileSet(List<Part> parts) {
+		this.location = parts.stream().map(Part::toString).collect(Collectors.joining(File.pathSeparator));
+		this.parts = parts;
+	}
+
+	/**
+	 * ファイルまたはディレクトリの読み込み元を生成します.
+	 *
+	 * @param path ファイルまたはディレクトリのパス(ワイルドカードとして扱いません)
+	 * @return 読み込み元
+	 */
+	public static FileSet of(Path path) {
+		return of(Collections.singletonList(path));
+	}
+
+	/**
+	 * 複数のファイルを指定順に連結した読み込み元を生成します.
+	 *
+	 * @param paths ファイルまたはディレクトリのパスのリスト(ワイルドカードとして扱いません)
+	 * @return 読み込み元
+	 */
+	public static FileSet of(List<Path> paths) {
+		if (paths.isEmpty()) {
+			throw new IllegalArgumentException("ファイルが指定されていません。");
+		}
+		return new FileSet(paths.stream().map(e -> new Part(e.toString(), true)).collect(Collectors.toList()));
+	}
+
+	/**
+	 * 文字列で指定した読み込み元を生成します.
+	 *
+	 * @param location 読み込み元の指定
+	 * @return 読み込み元
+	 * @throws IllegalArgumentException 指定が空の場合、引用符が閉じていない場合、またはパスとして不正な場合
+	 */
+	public static FileSet parse(String location) {
+		List<Part> parts = split(location);
+		if (parts.isEmpty()) {
+			throw new IllegalArgumentException("ファイルが指定されていません。");
+		}
+		for (Part part : parts) {
+			// パスとして不正な指定はここで検出する(InvalidPathExceptionはIllegalArgumentException)
+			Paths.get(part.literal ? part.path : getDirectory(part.path));
+		}
+		return new FileSet(parts);
+	}
+
+	/**
+	 * 読み込み元のファイルの一覧を取得します.
+	 *
+	 * @return ファイルのパスのリスト(連結順)
+	 * @throws UncheckedIOException ディレクトリの一覧の取得で異常が発生した場合
+	 */
+	public List<Path> getFiles() {
+		List<Path> files = new ArrayList<>();
+		try {
+			for (Part part : parts) {
+				if (part.isPattern()) {
+					PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + getFileName(part.path));
+					files.addAll(list(Paths.get(getDirectory(part.path)), matcher));
+				} else if (Files.isDirectory(Paths.get(part.path))) {
+					files.addAll(list(Paths.get(part.path), null));
+				} else {
+					files.add(Paths.get(part.path));
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return files;
+	}
+
+	/**
+	 * @return 先頭に指定したファイルまたはディレクトリのパス(ワイルドカードの場合はディレクトリ)
+	 */
+	public Path getPath() {
+		Part first = parts.get(0);
+		return first.isPattern() ? Paths.get(getDirectory(first.path)) : Paths.get(first.path);
+	}
+
+	/**
+	 * @return 1つのファイルのみを指定した読み込み元の場合はtrue
+	 */
+	public boolean isSingleFile() {
+		return parts.size() == 1 && !parts.get(0).isPattern() && !Files.isDirectory(Paths.get(parts.get(0).path));
+	}
+
+	/**
+	 * @return 読み込み元の指定({@link #parse(String)}で同じ読み込み元を生成できる文字列)
+	 */
+	@Override
+	public String toString() {
+		return location;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof FileSet && location.equals(((FileSet) obj).location);
+	}
+
+	@Override
+	public int hashCode() {
+		return location.hashCode();
+	}
+
+	private static List<Part> split(String location) {
+		List<Part> parts = new ArrayList<>();
+		int start = 0;
+		while (start <= location.length()) {
+			int end;
+			Part part;
+			int quote = location.indexOf('"', start);
+			int separator = location.indexOf(File.pathSeparatorChar, start);
+			if (quote >= 0 && (separator < 0 || quote < separator)
+					&& location.substring(start, quote).trim().isEmpty()) {
+				// 二重引用符で囲んだパス(""は引用符自体)
+				StringBuilder path = new StringBuilder();
+				int i = quote + 1;
+				while (true) {
+					int close = location.indexOf('"', i);
+					if (close < 0) {
+						throw new IllegalArgumentException("引用符が閉じていません: " + location);
+					}
+					path.append(location, i, close);
+					i = close + 1;
+					if (i < location.length() && location.charAt(i) == '"') {
+						path.append('"');
+						i++;
+					} else {
+						break;
+					}
+				}
+				end = location.indexOf(File.pathSeparatorChar, i);
+				end = end >= 0 ? end : location.length();
+				if (!location.substring(i, end).trim().isEmpty()) {
+					throw new IllegalArgumentException("引用符の後にパス区切り文字がありません: " + location);
+				}
+				part = new Part(path.toString(), true);
+			} else {
+				end = separator >= 0 ? separator : location.length();
+				part = new Part(location.substring(start, end).trim(), false);
+			}
+			if (!part.path.isEmpty()) {
+				parts.add(part);
+			}
+			start = end + 1;
+		}
+		return parts;
+	}
+
+	private static int getNameStart(String part) {
+		return Integer.max(part.lastIndexOf('/'), part.lastIndexOf(File.separatorChar)) + 1;
+	}
+
+	private static String getFileName(String part) {
+		return part.substring(getNameStart(part));
+	}
+
+	private static String getDirectory(String part) {
+		int start = getNameStart(part);
+		return start == 0 ? "." : part.substring(0, start);
+	}
+
+	private static boolean isPattern(String name) {
+		return name.chars().anyMatch(c -> c == '*' || c == '?' || c == '[' || c == '{');
+	}
+
+	/**
+	 * 読み込み元の指定の1つ分です.
+	 */
+	private static final class Part {
+		/** パス. */
+		private final String path;
+
+		/** ワイルドカードとして扱わないパスの場合はtrue. */
+		private final boolean literal;
+
+		private Part(String path, boolean literal) {
+			this.path = path;
+			this.literal = literal;
+		}
+
+		private boolean isPattern() {
+			return !literal && FileSet.isPattern(getFileName(path));
+		}
+
+		/**
+		 * @return 読み込み元の指定(文字どおりに扱う必要がある場合は二重引用符で囲む)
+		 */
+		@Override
+		public String toString() {
+			boolean quote = literal && (FileSet.isPattern(getFileName(path)) || path.indexOf(File.pathSeparatorChar) >= 0
+					|| path.indexOf('"') >= 0 || !path.equals(path.trim()));
+			return quote ? '"' + path.replace("\"", "\"\"") + '"' : path;
+		}
+	}
+
+	private static List<Path> list(Path directory, PathMatcher matcher) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			throw new NoSuchFileException(directory.toString());
+		}
+		try (Stream<Path> stream = Files.list(directory)) {
+			List<Path> files = stream.filter(Files::isRegularFile)
+					.filter(e -> matcher == null || matcher.matches(e.getFileName()))
+					.collect(Collectors.toList());
+			Collections.sort(files, (a, b) -> compareNaturally(a.getFileName().toString(), b.getFileName().toString()));
+			return files;
+		}
+	}
+
+	/**
+	 * 文字列内の数字部分を数値として比較します.
+	 */
+	private static int compareNaturally(String a, String b) {
+		int i = 0;
+		int j = 0;
+		while (i < a.length() && j < b.length()) {
+			char c1 = a.charAt(i);
+			char c2 = b.charAt(j);
+			if (Character.isDigit(c1) && Character.isDigit(c2)) {
+				int end1 = i;
+				while (end1 < a.length() && Character.isDigit(a.charAt(end1))) {
+					end1++;
+				}
+				int end2 = j;
+				while (end2 < b.length() && Character.isDigit(b.charAt(end2))) {
+					end2++;
+				}
+				// 先頭の0を除いた桁数、数字の順に比較する
+				String n1 = a.substring(i, end1).replaceFirst("^0+(?=.)", "");
+				String n2 = b.substring(j, end2).replaceFirst("^0+(?=.)", "");
+				int result = n1.length() != n2.length() ? Integer.compare(n1.length(), n2.length()) : n1.compareTo(n2);
+				if (result != 0) {
+					return result;
+				}
+				i = end1;
+				j = end2;
+			} else {
+				if (c1 != c2) {
+					return Character.compare(c1, c2);
+				}
+				i++;
+				j++;
+			}
+		}
+		return Integer.compare(a.length() - i, b.length() - j);
+	}
+}
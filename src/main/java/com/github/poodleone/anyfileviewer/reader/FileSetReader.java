@@ -0,0 +1,281 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+import com.github.poodleone.anyfileviewer.Profiler;
+import com.github.poodleone.anyfileviewer.Profiler.Category;
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.record.Record;
+import com.github.poodleone.anyfileviewer.record.RecordSet;
+
+/**
+ * {@link FileSet}の全ファイルを連結した1つのファイルとしてレコードを読み込むReaderです.<br>
+ * 各ファイルの読み込みは{@link RecordReader}に委譲し、レコードのオフセットは全ファイルを通した連番とします.
+ * 先頭以外のページを読み込む場合は、各ファイルのレコード数(Readerの索引の作成を含む)を並列に求めて読み込み開始ファイルを決定します.
+ * レコード数はファイルのサイズと更新日時が変わらない間キャッシュします.<br>
+ * 各ファイルのReaderの呼び出しは、{@link Profiler}でReaderのクラス名と処理ごとに計測します.
+ */
+public class FileSetReader {
+	/** レコード数を求めるスレッド. */
+	private static final ExecutorService executor = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+				Thread thread = new Thread(r, "record-counter");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/** ファイルのレコード数のキャッシュ(key: ファイルの絶対パスとレコード形式の読込処理). */
+	private static final Map<String, RecordCount> recordCounts = new ConcurrentHashMap<>();
+
+	private final RecordReader reader;
+
+	/**
+	 * Readerを生成します.
+	 *
+	 * @param reader 各ファイルの読み込みに使用するReader
+	 */
+	public FileSetReader(RecordReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * 全ファイルを連結したレコードを読み込みます.<br>
+	 * レコードを1件読み込むごとにlistenerを実行します.
+	 *
+	 * @param source     読み込み元
+	 * @param format     ファイルのレコード形式
+	 * @param offset     読み込み開始位置へのオフセット(全ファイルを通したレコード数. -1で末尾のページ)
+	 * @param maxRecords 読み込む最大レコード数(0で全件読込)
+	 * @param listener   レコードを読み込むごとに実施する処理(引数はレコードと、全ファイルを通したレコードのオフセット)
+	 * @return 読み込んだレコード
+	 */
+	public RecordSet load(FileSet source, RecordFormat format, int offset, int maxRecords,
+			ObjIntConsumer<Record> listener) {
+		List<Path> files = getFiles(source);
+		if (files.size() == 1) {
+			long start = Profiler.start();
+			RecordSet records = reader.load(files.get(0), format, offset, maxRecords, listener);
+			record("load", start);
+			records.setPath(source.getPath());
+			records.setSource(source);
+			return records;
+		}
+
+		// 読み込み開始ファイルと、そのファイルの先頭レコードのオフセットを求める
+		int fileIndex = 0;
+		int base = 0;
+		if (offset != 0) {
+			int[] counts = getRecordCounts(files, format);
+			int total = 0;
+			for (int count : counts) {
+				total += count;
+			}
+			if (offset == -1 || total <= offset) {
+				// offsetが-1かファイルの範囲外の場合は末尾のページを読み込み
+				offset = 0 < maxRecords && 0 < total ? ((total - 1) / maxRecords) * maxRecords : 0;
+			}
+			while (fileIndex < files.size() - 1 && base + counts[fileIndex] <= offset) {
+				base += counts[fileIndex++];
+			}
+		}
+
+		RecordSet records = new RecordSet();
+		records.setEof(true);
+		for (int i = fileIndex; i < files.size(); i++) {
+			int fileBase = base;
+			int remaining = 0 < maxRecords ? maxRecords - records.size() : 0;
+			long start = Profiler.start();
+			RecordSet fileRecords = reader.load(files.get(i), format, Integer.max(offset - base, 0), remaining,
+					(record, index) -> listener.accept(record, fileBase + index));
+			record("load", start);
+			records.addAll(fileRecords);
+			base += fileRecords.getOffeset() + fileRecords.size();
+			if (!fileRecords.eof() || (0 < maxRecords && maxRecords <= records.size())) {
+				records.setEof(fileRecords.eof() && i == files.size() - 1);
+				break;
+			}
+		}
+		records.setPath(source.getPath());
+		records.setSource(source);
+		records.setFormat(format);
+		records.setOffset(offset);
+		return records;
+	}
+
+	/**
+	 * 全ファイルを連結したレコードを読み込み、レコードごとにconsumerを実行します.
+	 *
+	 * @param source   読み込み元
+	 * @param format   ファイルのレコード形式
+	 * @param consumer レコードごとに実施する処理
+	 */
+	public void load(FileSet source, RecordFormat format, Consumer<Record> consumer) {
+		for (Path file : getFiles(source)) {
+			long start = Profiler.start();
+			reader.load(file, format, consumer);
+			record("load", start);
+		}
+	}
+
+	/**
+	 * 全ファイルを連結したレコードのデータを読み込み、レコードごとにconsumerを実行します.
+	 *
+	 * @param source   読み込み元
+	 * @param format   ファイルのレコード形式
+	 * @param consumer レコードごとに実施する処理(引数はレコードの生成処理)
+	 * @see RecordReader#loadDeferred(Path, RecordFormat, Consumer)
+	 */
+	public void loadDeferred(FileSet source, RecordFormat format, Consumer<Supplier<Record>> consumer) {
+		for (Path file : getFiles(source)) {
+			long start = Profiler.start();
+			reader.loadDeferred(file, format, consumer);
+			record("loadDeferred", start);
+		}
+	}
+
+	/**
+	 * 全ファイルのレコード数の合計を取得します.
+	 *
+	 * @param source 読み込み元
+	 * @param format ファイルのレコード形式
+	 * @return レコード数
+	 */
+	public int getRecordCount(FileSet source, RecordFormat format) {
+		int total = 0;
+		for (int count : getRecordCounts(getFiles(source), format)) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * 全ファイルから、keywordを含むレコードを検索します. 見つかったレコードのオフセット(全ファイルを通したレコード数)を昇順にconsumerに通知します.<br>
+	 * 各ファイルの検索は{@link RecordReader#search}で行います. 行を検索するReader({@link LinesReader})の検索結果は、ファイルが変更されない間キャッシュします
+	 * (項目の値を検索するReaderの検索結果はレイアウトの定義にも依存するため、キャッシュしません).
+	 *
+	 * @param source   読み込み元
+	 * @param format   ファイルのレコード形式
+	 * @param keyword  検索するキーワード
+	 * @param consumer 見つかったレコードごとに実施する処理(引数は全ファイルを通したレコードのオフセット)
+	 * @return 全ファイルのレコード数
+	 * @throws IllegalArgumentException キーワードが空の場合
+	 */
+	public int search(FileSet source, RecordFormat format, String keyword, IntConsumer consumer) {
+		if (keyword.isEmpty()) {
+			throw new IllegalArgumentException("検索するキーワードが指定されていません。");
+		}
+		String kind = format.getReaderClass().getName() + "|" + format.getReaderOptions();
+		int base = 0;
+		try {
+			for (Path file : getFiles(source)) {
+				int fileBase = base;
+				IntConsumer fileConsumer = offset -> consumer.accept(fileBase + offset);
+				long start = Profiler.start();
+				if (reader instanceof LinesReader) {
+					base += SearchResults.search(file, kind, keyword, fileConsumer,
+							found -> reader.search(file, format, keyword, found));
+				} else {
+					base += reader.search(file, format, keyword, fileConsumer);
+				}
+				record("search", start);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return base;
+	}
+
+	private static List<Path> getFiles(FileSet source) {
+		List<Path> files = source.getFiles();
+		if (files.isEmpty()) {
+			throw new UncheckedIOException(new NoSuchFileException(source.toString()));
+		}
+		return files;
+	}
+
+	/**
+	 * 各ファイルのレコード数を並列に求めます.
+	 */
+	private int[] getRecordCounts(List<Path> files, RecordFormat format) {
+		List<Future<Integer>> futures = new ArrayList<>(files.size());
+		for (Path file : files) {
+			futures.add(executor.submit(() -> getRecordCount(file, format)));
+		}
+		int[] counts = new int[files.size()];
+		try {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = futures.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			futures.forEach(e -> e.cancel(true));
+		}
+		return counts;
+	}
+
+	private int getRecordCount(Path file, RecordFormat format) throws IOException {
+		String key = file.toAbsolutePath().normalize() + "|" + format.getReaderClass().getName() + "|"
+				+ format.getReaderOptions();
+		long fileSize = Files.size(file);
+		long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+		RecordCount recordCount = recordCounts.get(key);
+		if (recordCount == null || recordCount.fileSize != fileSize || recordCount.lastModified != lastModified) {
+			long start = Profiler.start();
+			recordCount = new RecordCount(fileSize, lastModified, reader.getRecordCount(file, format));
+			record("getRecordCount", start);
+			recordCounts.put(key, recordCount);
+		}
+		return recordCount.count;
+	}
+
+	/**
+	 * Readerの呼び出し時間を計測結果に加算します.
+	 *
+	 * @param operation 処理名
+	 * @param start     {@link Profiler#start()}が返した開始時刻
+	 */
+	private void record(String operation, long start) {
+		if (start != 0) {
+			Profiler.record(Category.READER, reader.getClass().getSimpleName() + "." + operation, start);
+		}
+	}
+
+	/**
+	 * ファイルのレコード数と、その時点のファイルのサイズ・更新日時です.
+	 */
+	private static class RecordCount {
+		private final long fileSize;
+		private final long lastModified;
+		private final int count;
+
+		private RecordCount(long fileSize, long lastModified, int count) {
+			this.fileSize = fileSize;
+			this.lastModified = lastModified;
+			this.count = count;
+		}
+	}
+}
@@ -3,38 +3,67 @@ package com.github.poodleone.anyfileviewer.reader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
-import com.github.poodleone.anyfileviewer.DataParser;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.record.AbstractRecord;
 import com.github.poodleone.anyfileviewer.record.Record;
 import com.github.poodleone.anyfileviewer.record.RecordSet;
 
 /**
- * 固定長バイナリ形式のファイルのReaderです.
- *
+ * 固定長バイナリ形式のファイルのReaderです.<br>
+ * オプションmemoryMappedにtrueを指定した場合、ファイルをメモリマップして読み込みます.
+ * この場合、レコードはマップした領域をコピーせずに参照します(レコードが参照されている間はファイルのマップが解除されません).
+ * 圧縮されたファイル({@link InputFiles})はメモリマップできないため、memoryMappedの指定に関わらず展開しながら読み込みます.
  */
 public class FixedBytesReader implements RecordReader {
+	/** 一度にメモリマップする最大サイズ. */
+	private static final long MAX_MAP_SIZE = 1L << 30;
+
+	/** 検索を並列に行う1区間のレコード数. */
+	private static final int SEARCH_CHUNK_SIZE = 16 * 1024;
 
 	@Override
 	public List<String> getOptionNames() {
 		return Arrays.asList("recordSize", "dumpLayouts");
 	}
 
+	@Override
+	public List<String> getOptionalOptionNames() {
+		return Arrays.asList("memoryMapped");
+	}
+
 	@Override
 	public void load(Path path, RecordFormat format, Consumer<Record> consumer) {
 		int recordSize = getRecordSize(format);
-		byte[] buffer = new byte[recordSize];
-		try (InputStream is = Files.newInputStream(path)) {
-			while (true) {
-				if (recordSize != is.read(buffer)) {
-					break;
+		try {
+			if (isMemoryMapped(path, format)) {
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+					loadMapped(channel, format, 0, channel.size() / recordSize, consumer);
+				}
+				return;
+			}
+
+			byte[] buffer = new byte[recordSize];
+			try (InputStream is = Channels.newInputStream(InputFiles.open(path))) {
+				while (true) {
+					if (recordSize != is.read(buffer)) {
+						break;
+					}
+					consumer.accept(readRecord(buffer, format));
 				}
-				consumer.accept(readRecord(buffer, format));
 			}
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
@@ -42,56 +71,243 @@ public class FixedBytesReader implements RecordReader {
 	}
 
 	@Override
-	public RecordSet load(Path path, RecordFormat format, int offset, int maxRecords) {
+	public void loadDeferred(Path path, RecordFormat format, Consumer<Supplier<Record>> consumer) {
 		int recordSize = getRecordSize(format);
 		try {
-			byte[] buffer = new byte[recordSize];
-			long size = Files.size(path);
-			if (offset == -1 || size < offset * recordSize) {
-				// offsetが-1かファイルの範囲外の場合はファイル末尾まで読むように調整
-				offset = Integer.max((int) (size / recordSize) - maxRecords, 0);
+			if (isMemoryMapped(path, format)) {
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+					scanMapped(channel, format, 0, channel.size() / recordSize,
+							data -> consumer.accept(() -> readRecord(data, format)));
+				}
+				return;
 			}
-		
-			try (InputStream is = Files.newInputStream(path)) {
-				RecordSet records = new RecordSet();
-				is.skip(recordSize * offset);
-				
-				int index = offset;
+
+			try (InputStream is = Channels.newInputStream(InputFiles.open(path))) {
 				while (true) {
+					// レコードごとに新しい配列に読み込むため、複製せずにレコードのデータとする
+					byte[] buffer = new byte[recordSize];
 					if (recordSize != is.read(buffer)) {
-						records.setEof(true);
 						break;
 					}
-					try {
-						if (0 < maxRecords && offset + maxRecords <= index) {
-							break;
-						}
-						records.add(readRecord(buffer, format));
-					} finally {
-						index++;
+					consumer.accept(() -> createRecord(buffer, format));
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public RecordSet load(Path path, RecordFormat format, int offset, int maxRecords) {
+		return load(path, format, offset, maxRecords, (record, index) -> {
+		});
+	}
+
+	@Override
+	public RecordSet load(Path path, RecordFormat format, int offset, int maxRecords,
+			ObjIntConsumer<Record> listener) {
+		int recordSize = getRecordSize(format);
+		try {
+			if (isMemoryMapped(path, format)) {
+				long recordCount = Files.size(path) / recordSize;
+				if (offset == -1 || recordCount < offset) {
+					offset = (int) Long.max(recordCount - maxRecords, 0);
+				}
+				return loadMapped(path, format, offset, maxRecords, recordCount, listener);
+			}
+
+			// ファイルのサイズ(圧縮されたファイルでは展開が必要)は、末尾のページの読み込みと範囲外のoffsetの調整時のみ求める
+			if (offset == -1) {
+				offset = (int) Long.max(InputFiles.size(path) / recordSize - maxRecords, 0);
+			}
+			RecordSet records = loadStream(path, format, offset, maxRecords, listener);
+			if (records.isEmpty() && 0 < offset) {
+				long size = InputFiles.size(path);
+				if (size < (long) offset * recordSize) {
+					// offsetがファイルの範囲外の場合はファイル末尾まで読むように調整
+					records = loadStream(path, format, (int) Long.max(size / recordSize - maxRecords, 0), maxRecords,
+							listener);
+				}
+			}
+			return records;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private RecordSet loadStream(Path path, RecordFormat format, int offset, int maxRecords,
+			ObjIntConsumer<Record> listener) throws IOException {
+		int recordSize = getRecordSize(format);
+		byte[] buffer = new byte[recordSize];
+		try (InputStream is = Channels.newInputStream(InputFiles.open(path, (long) recordSize * offset))) {
+			RecordSet records = new RecordSet();
+
+			int index = offset;
+			while (true) {
+				if (recordSize != is.read(buffer)) {
+					records.setEof(true);
+					break;
+				}
+				try {
+					if (0 < maxRecords && offset + maxRecords <= index) {
+						break;
+					}
+					Record record = readRecord(buffer, format);
+					records.add(record);
+					listener.accept(record, index);
+				} finally {
+					index++;
+				}
+			}
+
+			records.setPath(path);
+			records.setFormat(format);
+			records.setOffset(offset);
+			return records;
+		}
+	}
+
+	@Override
+	public long loadAppended(Path path, RecordFormat format, long position, Consumer<Record> consumer) {
+		int recordSize = getRecordSize(format);
+		try {
+			if (position == -1) {
+				long size = InputFiles.size(path);
+				return size - size % recordSize;
+			}
+			// 書き込み途中の可能性がある、レコード長に満たない末尾のデータは読み込まない
+			try (InputStream is = Channels.newInputStream(InputFiles.open(path, position))) {
+				for (long p = position;; p += recordSize) {
+					byte[] buffer = new byte[recordSize];
+					if (recordSize != is.read(buffer)) {
+						return p;
 					}
+					consumer.accept(readRecord(buffer, format));
 				}
-				
-				records.setPath(path);
-				records.setFormat(format);
-				records.setOffset(offset);
-				return records;
 			}
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
 	}
 
+	/**
+	 * {@inheritDoc}<br>
+	 * レコードの開始位置はレコード長から求められるため、指定したレコードの位置を返します.
+	 */
+	@Override
+	public RecordPosition getAppendPosition(Path path, RecordFormat format, int offset) {
+		return new RecordPosition(offset, (long) offset * getRecordSize(format));
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * レコードの位置はレコード長から求められるため、ファイルを一定レコード数の区間に分割し、各区間を並列に検索します.
+	 */
+	@Override
+	public int search(Path path, RecordFormat format, String keyword, IntConsumer consumer) {
+		SearchKeyword searchKeyword = new SearchKeyword(keyword);
+		int recordCount = getRecordCount(path, format);
+		ChunkedSearch chunks = new ChunkedSearch();
+		for (int offset = 0; offset < recordCount; offset += SEARCH_CHUNK_SIZE) {
+			int first = offset;
+			chunks.add(found -> load(path, format, first, SEARCH_CHUNK_SIZE, (record, index) -> {
+				if (searchKeyword.matches(record)) {
+					found.accept(index);
+				}
+				if (index % 4096 == 0) {
+					ChunkedSearch.checkCancelled();
+				}
+			}));
+		}
+		chunks.forEach(consumer);
+		return recordCount;
+	}
+
+	@Override
+	public int getRecordCount(Path path, RecordFormat format) {
+		try {
+			return (int) (InputFiles.size(path) / getRecordSize(format));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private RecordSet loadMapped(Path path, RecordFormat format, int offset, int maxRecords, long recordCount,
+			ObjIntConsumer<Record> listener) throws IOException {
+		// 読み込み範囲はレコード長とレコード数から計算できるため、ページの範囲だけをマップする
+		long count = Long.max(recordCount - offset, 0);
+		if (0 < maxRecords && maxRecords < count) {
+			count = maxRecords;
+		}
+
+		RecordSet records = new RecordSet();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			loadMapped(channel, format, offset, count, record -> {
+				listener.accept(record, offset + records.size());
+				records.add(record);
+			});
+		}
+		records.setEof(recordCount <= offset + count);
+		records.setPath(path);
+		records.setFormat(format);
+		records.setOffset(offset);
+		return records;
+	}
+
+	private void loadMapped(FileChannel channel, RecordFormat format, long offset, long count,
+			Consumer<Record> consumer) throws IOException {
+		scanMapped(channel, format, offset, count, data -> consumer.accept(readRecord(data, format)));
+	}
+
+	private void scanMapped(FileChannel channel, RecordFormat format, long offset, long count,
+			Consumer<ByteBuffer> consumer) throws IOException {
+		int recordSize = getRecordSize(format);
+		long recordsPerMap = Long.max(MAX_MAP_SIZE / recordSize, 1);
+		for (long i = 0; i < count; i += recordsPerMap) {
+			int n = (int) Long.min(recordsPerMap, count - i);
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, (offset + i) * recordSize, (long) n * recordSize);
+			for (int j = 0; j < n; j++) {
+				buffer.limit((j + 1) * recordSize).position(j * recordSize);
+				consumer.accept(buffer.slice());
+			}
+		}
+	}
+
 	protected Record readRecord(byte[] data, RecordFormat format) {
+		// dataは読み込み用のバッファを再利用するため複製する
+		return createRecord(data.clone(), format);
+	}
+
+	/**
+	 * 配列を複製せずにレコードのデータとしてレコードを生成します.
+	 *
+	 * @param data   レコードのデータ(呼び出し後に変更しないこと)
+	 * @param format ファイルのレコード形式
+	 * @return レコード
+	 */
+	private Record createRecord(byte[] data, RecordFormat format) {
 		// レコード生成
-		Record record = new AbstractRecord(data.clone()) {
+		AbstractRecord record = new AbstractRecord(data) {
 			@Override
 			public int getLength() {
 				return ((byte[]) getRawData()).length;
 			}
 		};
-		// データをパース
-		DataParser.parseRecord(record, format);
+		// データのパースは項目の参照時に行う
+		record.parseLazily(format);
+		return record;
+	}
+
+	protected Record readRecord(ByteBuffer data, RecordFormat format) {
+		// レコード生成(dataはマップした領域のスライス)
+		AbstractRecord record = new AbstractRecord(data) {
+			@Override
+			public int getLength() {
+				return ((ByteBuffer) getRawData()).limit();
+			}
+		};
+		// データのパースは項目の参照時に行う
+		record.parseLazily(format);
 		return record;
 	}
 
@@ -102,4 +318,9 @@ public class FixedBytesReader implements RecordReader {
 			throw new RuntimeException("BytesReaderのrecordSizeの指定が不正です。", e);
 		}
 	}
+
+	private boolean isMemoryMapped(Path path, RecordFormat format) throws IOException {
+		return Boolean.parseBoolean(format.getReaderOptions().get("memoryMapped"))
+				&& InputFiles.getCompression(path) == InputFiles.Compression.NONE;
+	}
 }
@@ -0,0 +1,154 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * gzip形式のファイルを展開したデータを読み込むチャネルです.<br>
+ * 位置を移動した場合は、{@link GzipIndex}の直近のチェックポイントから展開を再開します.
+ * 索引がない場合はファイルの先頭から展開し、ファイル末尾まで順に読み込んだ時点で索引を作成します.
+ */
+class GzipChannel implements SeekableByteChannel {
+	private final Path path;
+	private GzipIndex index;
+	private GzipDecoder decoder;
+
+	/** 次に読み込む展開データ内の位置. */
+	private long position;
+
+	private boolean open = true;
+
+	/**
+	 * チャネルを生成します.
+	 *
+	 * @param path gzip形式のファイルのパス
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	GzipChannel(Path path) throws IOException {
+		this.path = path;
+		this.index = GzipIndex.find(path);
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		ensureOpen();
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		seek();
+		byte[] bytes = dst.hasArray() ? dst.array() : new byte[dst.remaining()];
+		int offset = dst.hasArray() ? dst.arrayOffset() + dst.position() : 0;
+		int length = dst.remaining();
+
+		// ファイル末尾以外では要求されたバイト数を全て読み込む
+		int total = 0;
+		while (total < length) {
+			int n = decoder.read(bytes, offset + total, length - total);
+			if (n == -1) {
+				break;
+			}
+			total += n;
+		}
+		if (total == 0) {
+			return -1;
+		}
+		if (dst.hasArray()) {
+			dst.position(dst.position() + total);
+		} else {
+			dst.put(bytes, 0, total);
+		}
+		position += total;
+		return total;
+	}
+
+	@Override
+	public long position() throws IOException {
+		ensureOpen();
+		return position;
+	}
+
+	@Override
+	public SeekableByteChannel position(long newPosition) throws IOException {
+		ensureOpen();
+		if (newPosition < 0) {
+			throw new IllegalArgumentException();
+		}
+		// 展開は次の読み込み時に行う
+		position = newPosition;
+		return this;
+	}
+
+	/**
+	 * 展開後のサイズを返します. 索引がない場合はファイル全体を展開して索引を作成します.
+	 */
+	@Override
+	public long size() throws IOException {
+		ensureOpen();
+		if (index == null) {
+			index = GzipIndex.get(path);
+		}
+		return index.getSize();
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public SeekableByteChannel truncate(long size) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() throws IOException {
+		open = false;
+		if (decoder != null) {
+			decoder.close();
+			decoder = null;
+		}
+	}
+
+	/**
+	 * デコーダの位置をチャネルの位置に合わせます.
+	 */
+	private void seek() throws IOException {
+		if (decoder != null && decoder.getPosition() == position) {
+			return;
+		}
+		if (index == null && decoder != null && decoder.isEnd()) {
+			// ファイル末尾まで読み込んで作成した索引を使用する
+			index = GzipIndex.find(path);
+		}
+		if (decoder == null || position < decoder.getPosition()
+				|| (index != null && GzipIndex.SPAN <= position - decoder.getPosition())) {
+			if (decoder != null) {
+				decoder.close();
+				decoder = null;
+			}
+			if (index != null) {
+				decoder = index.open(path, position);
+			} else {
+				// 索引がない場合は先頭から展開し、ファイル末尾まで読み込んだ場合は索引を作成する
+				decoder = new GzipDecoder(path);
+				decoder.setBuilder(new GzipIndex.Builder(path));
+			}
+		}
+		decoder.skip(position - decoder.getPosition());
+	}
+
+	private void ensureOpen() throws IOException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+	}
+}
@@ -0,0 +1,706 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * gzip形式のファイルを展開するデコーダです.<br>
+ * 複数のメンバを連結したファイルは、各メンバを展開したデータを連結したものとして扱います.<br>
+ * 展開処理(Deflate)はjava.util.zip.Inflaterを使用せずに実装しています.
+ * Inflaterはブロックの境界を通知しないため、展開の途中から再開するためのチェックポイント(ブロックの開始位置と直前32KBの展開データ)を
+ * 作成できないためです. チェックポイントは{@link GzipIndex}に保存し、ページ移動時のシーク先として使用します.
+ */
+class GzipDecoder implements Closeable {
+	/** 後方参照できる展開データの最大長. */
+	static final int WINDOW_SIZE = 32 * 1024;
+
+	/** 読み込みバッファのサイズ. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** 展開データのリングバッファのサイズ(2のべき乗). */
+	private static final int RING_SIZE = 128 * 1024;
+
+	private static final int RING_MASK = RING_SIZE - 1;
+
+	/** 状態: メンバのヘッダの読み込み前. */
+	private static final int MEMBER_HEADER = 0;
+
+	/** 状態: ブロックのヘッダの読み込み前. */
+	private static final int BLOCK_HEADER = 1;
+
+	/** 状態: 無圧縮ブロックの途中. */
+	private static final int STORED = 2;
+
+	/** 状態: ハフマン符号化ブロックの途中. */
+	private static final int HUFFMAN = 3;
+
+	/** 状態: メンバのトレーラの読み込み前. */
+	private static final int TRAILER = 4;
+
+	/** 状態: ファイル末尾. */
+	private static final int END = 5;
+
+	/** 一致長の基準値(符号257～285). */
+	private static final int[] LENGTH_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51,
+			59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+
+	/** 一致長の拡張ビット数(符号257～285). */
+	private static final int[] LENGTH_EXTRA = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4,
+			4, 5, 5, 5, 5, 0 };
+
+	/** 距離の基準値(符号0～29). */
+	private static final int[] DISTANCE_BASE = { 1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385,
+			513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577 };
+
+	/** 距離の拡張ビット数(符号0～29). */
+	private static final int[] DISTANCE_EXTRA = { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9,
+			10, 10, 11, 11, 12, 12, 13, 13 };
+
+	/** 符号長の符号の並び順. */
+	private static final int[] CODE_LENGTH_ORDER = { 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1,
+			15 };
+
+	/** 固定ハフマン符号(リテラル・一致長). */
+	private static final Huffman FIXED_LITERALS;
+
+	/** 固定ハフマン符号(距離). */
+	private static final Huffman FIXED_DISTANCES;
+
+	static {
+		byte[] lengths = new byte[288];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = (byte) (i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8);
+		}
+		byte[] distances = new byte[30];
+		for (int i = 0; i < distances.length; i++) {
+			distances[i] = 5;
+		}
+		try {
+			FIXED_LITERALS = new Huffman(lengths, 0, lengths.length);
+			FIXED_DISTANCES = new Huffman(distances, 0, distances.length);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** バッファ内の未処理のデータの開始位置. */
+	private int inPosition;
+
+	/** バッファ内のデータの終了位置. */
+	private int inLimit;
+
+	/** バッファの先頭のファイル内の位置. */
+	private long bufferOffset;
+
+	/** 読み込み済みで未処理のビット(下位ビットから順に処理する). */
+	private long bits;
+
+	/** bitsのビット数. */
+	private int bitCount;
+
+	/** 展開データのリングバッファ. */
+	private final byte[] ring = new byte[RING_SIZE];
+
+	/** 展開済みのデータの長さ(展開データ内の位置). */
+	private long produced;
+
+	/** 読み込み済みのデータの長さ(展開データ内の位置). */
+	private long consumed;
+
+	private int state;
+	private boolean lastBlock;
+	private Huffman literals;
+	private Huffman distances;
+
+	/** 無圧縮ブロックの残りのバイト数. */
+	private int storedRemaining;
+
+	/** コピー途中の一致の残りの長さ. */
+	private int copyLength;
+
+	/** コピー途中の一致の距離. */
+	private int copyDistance;
+
+	/** 展開中のメンバの先頭の展開データ内の位置(途中から再開した場合は後方参照できる範囲の先頭). */
+	private long memberStart;
+
+	/** 先頭のメンバのヘッダを読み込んだかどうか. */
+	private boolean started;
+
+	private final CRC32 crc = new CRC32();
+
+	/** CRCを計算済みの展開データ内の位置. */
+	private long crcPosition;
+
+	/** メンバの先頭から展開しており、トレーラのCRCを検証できるかどうか. */
+	private boolean crcValid;
+
+	private GzipIndex.Builder builder;
+
+	/**
+	 * ファイルの先頭から展開するデコーダを生成します.
+	 *
+	 * @param path ファイルのパス
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	GzipDecoder(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.state = MEMBER_HEADER;
+	}
+
+	/**
+	 * チェックポイントから展開を再開するデコーダを生成します.
+	 *
+	 * @param path        ファイルのパス
+	 * @param bitPosition チェックポイントのブロックの開始位置(ファイル先頭からのビット数)
+	 * @param position    チェックポイントの展開データ内の位置
+	 * @param window      チェックポイントの直前の展開データ(最大32KB)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	GzipDecoder(Path path, long bitPosition, long position, byte[] window) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			channel.position(bitPosition >>> 3);
+			bufferOffset = bitPosition >>> 3;
+			getBits((int) (bitPosition & 7));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		for (int i = 0; i < window.length; i++) {
+			ring[(int) (position - window.length + i) & RING_MASK] = window[i];
+		}
+		produced = position;
+		consumed = position;
+		crcPosition = position;
+		memberStart = position - window.length;
+		started = true;
+		state = BLOCK_HEADER;
+	}
+
+	/**
+	 * 展開しながらチェックポイントを作成するビルダーを設定します. ファイルの先頭から展開する場合のみ使用できます.
+	 *
+	 * @param builder チェックポイントの索引のビルダー
+	 */
+	void setBuilder(GzipIndex.Builder builder) {
+		this.builder = builder;
+	}
+
+	/**
+	 * @return 次に読み込む展開データ内の位置
+	 */
+	long getPosition() {
+		return consumed;
+	}
+
+	/**
+	 * @return ファイル末尾まで展開した場合はtrue
+	 */
+	boolean isEnd() {
+		return state == END && consumed == produced;
+	}
+
+	/**
+	 * 展開したデータを読み込みます.
+	 *
+	 * @param b   読み込み先の配列
+	 * @param off 読み込み先の開始位置
+	 * @param len 最大バイト数
+	 * @return 読み込んだバイト数(ファイル末尾の場合は-1)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合、またはgzip形式として不正な場合
+	 */
+	int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!prepare()) {
+			return -1;
+		}
+		int n = (int) Long.min(len, produced - consumed);
+		int from = (int) consumed & RING_MASK;
+		int first = Integer.min(n, RING_SIZE - from);
+		System.arraycopy(ring, from, b, off, first);
+		System.arraycopy(ring, 0, b, off + first, n - first);
+		consumed += n;
+		return n;
+	}
+
+	/**
+	 * 展開したデータを読み飛ばします.
+	 *
+	 * @param n 読み飛ばすバイト数
+	 * @return 読み飛ばしたバイト数(ファイル末尾に達した場合はn未満)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合、またはgzip形式として不正な場合
+	 */
+	long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n && prepare()) {
+			long length = Long.min(n - skipped, produced - consumed);
+			consumed += length;
+			skipped += length;
+		}
+		return skipped;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * 未読の展開データがない場合は展開します.
+	 *
+	 * @return 未読の展開データがある場合はtrue(ファイル末尾の場合はfalse)
+	 */
+	private boolean prepare() throws IOException {
+		while (consumed == produced) {
+			if (state == END) {
+				return false;
+			}
+			inflate(RING_SIZE);
+		}
+		return true;
+	}
+
+	/**
+	 * 最大maxバイト(リングバッファの未読データを上書きしない範囲)を展開します.
+	 */
+	private void inflate(int max) throws IOException {
+		long limit = consumed + Long.min(max, RING_SIZE);
+		while (produced < limit && state != END) {
+			switch (state) {
+			case MEMBER_HEADER:
+				if (!readMemberHeader()) {
+					state = END;
+					if (builder != null) {
+						builder.end(produced);
+					}
+				}
+				break;
+			case BLOCK_HEADER:
+				if (builder != null) {
+					builder.checkpoint(getBitPosition(), produced, this::getWindow);
+				}
+				readBlockHeader();
+				break;
+			case STORED:
+				inflateStored(limit);
+				break;
+			case HUFFMAN:
+				inflateHuffman(limit);
+				break;
+			case TRAILER:
+				readTrailer();
+				break;
+			default:
+				throw new IllegalStateException();
+			}
+		}
+		updateCrc();
+	}
+
+	private boolean readMemberHeader() throws IOException {
+		if (!hasInput()) {
+			if (!started) {
+				throw new IOException("gzip形式のファイルが空です。");
+			}
+			return false;
+		}
+		int magic = getBits(16);
+		if (magic != 0x8b1f) {
+			if (!started) {
+				throw new IOException("gzip形式ではありません。");
+			}
+			// メンバの後に続くgzip形式以外のデータ(ゼロ埋めなど)は無視する
+			return false;
+		}
+		if (getBits(8) != 8) {
+			throw new IOException("gzip形式の圧縮方式が不正です(位置: " + (getBitPosition() / 8 - 1) + ")。");
+		}
+		int flags = getBits(8);
+		getBits(32); // MTIME
+		getBits(16); // XFL, OS
+		if ((flags & 0x04) != 0) {
+			// FEXTRA
+			int length = getBits(16);
+			for (int i = 0; i < length; i++) {
+				getBits(8);
+			}
+		}
+		if ((flags & 0x08) != 0) {
+			// FNAME
+			while (getBits(8) != 0) {
+			}
+		}
+		if ((flags & 0x10) != 0) {
+			// FCOMMENT
+			while (getBits(8) != 0) {
+			}
+		}
+		if ((flags & 0x02) != 0) {
+			// FHCRC
+			getBits(16);
+		}
+		started = true;
+		memberStart = produced;
+		crc.reset();
+		crcPosition = produced;
+		crcValid = true;
+		state = BLOCK_HEADER;
+		return true;
+	}
+
+	private void readBlockHeader() throws IOException {
+		lastBlock = getBits(1) == 1;
+		int type = getBits(2);
+		if (type == 0) {
+			// 無圧縮ブロック
+			getBits(bitCount & 7);
+			int length = getBits(16);
+			int complement = getBits(16);
+			if (length != (~complement & 0xFFFF)) {
+				throw corrupted("無圧縮ブロックの長さ");
+			}
+			storedRemaining = length;
+			state = STORED;
+		} else if (type == 1) {
+			literals = FIXED_LITERALS;
+			distances = FIXED_DISTANCES;
+			state = HUFFMAN;
+		} else if (type == 2) {
+			readDynamicTables();
+			state = HUFFMAN;
+		} else {
+			throw corrupted("ブロックの種類");
+		}
+	}
+
+	private void readDynamicTables() throws IOException {
+		int literalCount = getBits(5) + 257;
+		int distanceCount = getBits(5) + 1;
+		int codeLengthCount = getBits(4) + 4;
+		if (286 < literalCount || 30 < distanceCount) {
+			throw corrupted("ハフマン符号の数");
+		}
+		byte[] codeLengths = new byte[19];
+		for (int i = 0; i < codeLengthCount; i++) {
+			codeLengths[CODE_LENGTH_ORDER[i]] = (byte) getBits(3);
+		}
+		Huffman codeLengthCode = new Huffman(codeLengths, 0, codeLengths.length);
+
+		byte[] lengths = new byte[literalCount + distanceCount];
+		int i = 0;
+		while (i < lengths.length) {
+			int symbol = decode(codeLengthCode);
+			if (symbol < 16) {
+				lengths[i++] = (byte) symbol;
+				continue;
+			}
+			int value = 0;
+			int repeat;
+			if (symbol == 16) {
+				if (i == 0) {
+					throw corrupted("符号長");
+				}
+				value = lengths[i - 1];
+				repeat = 3 + getBits(2);
+			} else if (symbol == 17) {
+				repeat = 3 + getBits(3);
+			} else {
+				repeat = 11 + getBits(7);
+			}
+			if (lengths.length < i + repeat) {
+				throw corrupted("符号長");
+			}
+			while (0 < repeat--) {
+				lengths[i++] = (byte) value;
+			}
+		}
+		if (lengths[256] == 0) {
+			throw corrupted("ブロックの終端の符号");
+		}
+		literals = new Huffman(lengths, 0, literalCount);
+		distances = new Huffman(lengths, literalCount, distanceCount);
+	}
+
+	private void inflateStored(long limit) throws IOException {
+		while (0 < storedRemaining && produced < limit) {
+			if (8 <= bitCount) {
+				// ブロックのヘッダと同時に読み込んだバイト
+				ring[(int) produced++ & RING_MASK] = (byte) getBits(8);
+				storedRemaining--;
+				continue;
+			}
+			if (inPosition == inLimit && !readInput()) {
+				throw truncated();
+			}
+			int to = (int) produced & RING_MASK;
+			int n = (int) Long.min(Long.min(storedRemaining, inLimit - inPosition), Long.min(limit - produced,
+					RING_SIZE - to));
+			System.arraycopy(buffer.array(), inPosition, ring, to, n);
+			inPosition += n;
+			produced += n;
+			storedRemaining -= n;
+		}
+		if (storedRemaining == 0) {
+			endBlock();
+		}
+	}
+
+	private void inflateHuffman(long limit) throws IOException {
+		while (produced < limit) {
+			if (0 < copyLength) {
+				copyMatch(limit);
+				continue;
+			}
+			int symbol = decode(literals);
+			if (symbol < 256) {
+				ring[(int) produced++ & RING_MASK] = (byte) symbol;
+			} else if (symbol == 256) {
+				endBlock();
+				return;
+			} else {
+				symbol -= 257;
+				if (LENGTH_BASE.length <= symbol) {
+					throw corrupted("一致長の符号");
+				}
+				int length = LENGTH_BASE[symbol] + getBits(LENGTH_EXTRA[symbol]);
+				int distanceSymbol = decode(distances);
+				if (DISTANCE_BASE.length <= distanceSymbol) {
+					throw corrupted("距離の符号");
+				}
+				int distance = DISTANCE_BASE[distanceSymbol] + getBits(DISTANCE_EXTRA[distanceSymbol]);
+				if (produced - memberStart < distance) {
+					throw corrupted("距離");
+				}
+				copyLength = length;
+				copyDistance = distance;
+			}
+		}
+	}
+
+	private void copyMatch(long limit) {
+		int n = (int) Long.min(copyLength, limit - produced);
+		byte[] ring = this.ring;
+		int to = (int) produced & RING_MASK;
+		int from = (int) (produced - copyDistance) & RING_MASK;
+		for (int i = 0; i < n; i++) {
+			ring[to] = ring[from];
+			to = (to + 1) & RING_MASK;
+			from = (from + 1) & RING_MASK;
+		}
+		produced += n;
+		copyLength -= n;
+	}
+
+	private void endBlock() {
+		state = lastBlock ? TRAILER : BLOCK_HEADER;
+	}
+
+	private void readTrailer() throws IOException {
+		updateCrc();
+		getBits(bitCount & 7);
+		long expectedCrc = getBits(32) & 0xFFFFFFFFL;
+		long expectedSize = getBits(32) & 0xFFFFFFFFL;
+		if (crcValid && (crc.getValue() != expectedCrc || ((produced - memberStart) & 0xFFFFFFFFL) != expectedSize)) {
+			throw new IOException("gzip形式のデータのCRCが一致しません(位置: " + (getBitPosition() / 8 - 8) + ")。");
+		}
+		state = MEMBER_HEADER;
+	}
+
+	private void updateCrc() {
+		if (crcValid) {
+			while (crcPosition < produced) {
+				int from = (int) crcPosition & RING_MASK;
+				int n = (int) Long.min(produced - crcPosition, RING_SIZE - from);
+				crc.update(ring, from, n);
+				crcPosition += n;
+			}
+		}
+	}
+
+	/**
+	 * @return 展開済みのデータの末尾32KB(メンバの先頭までのデータ)
+	 */
+	private byte[] getWindow() {
+		int length = (int) Long.min(WINDOW_SIZE, produced - memberStart);
+		byte[] window = new byte[length];
+		for (int i = 0; i < length; i++) {
+			window[i] = ring[(int) (produced - length + i) & RING_MASK];
+		}
+		return window;
+	}
+
+	/**
+	 * @return 次に処理するビットのファイル先頭からの位置
+	 */
+	private long getBitPosition() {
+		return (bufferOffset + inPosition) * 8 - bitCount;
+	}
+
+	private int decode(Huffman huffman) throws IOException {
+		if (bitCount < Huffman.MAX_BITS) {
+			fillBits();
+		}
+		int entry = huffman.fast[(int) bits & Huffman.FAST_MASK];
+		if (entry != 0) {
+			int length = entry & 0xF;
+			if (bitCount < length) {
+				throw truncated();
+			}
+			bits >>>= length;
+			bitCount -= length;
+			return entry >>> 4;
+		}
+
+		// 短い符号の表にない場合は、符号長ごとに順に照合する
+		int code = 0;
+		int first = 0;
+		int index = 0;
+		for (int length = 1; length <= Huffman.MAX_BITS; length++) {
+			if (bitCount < length) {
+				throw truncated();
+			}
+			code |= (int) (bits >>> (length - 1)) & 1;
+			int count = huffman.count[length];
+			if (code - first < count) {
+				bits >>>= length;
+				bitCount -= length;
+				return huffman.symbols[index + code - first];
+			}
+			index += count;
+			first = (first + count) << 1;
+			code <<= 1;
+		}
+		throw corrupted("ハフマン符号");
+	}
+
+	/**
+	 * 可能な限りビットを読み込みます(ファイル末尾の場合はそのまま返します).
+	 */
+	private void fillBits() throws IOException {
+		while (bitCount <= 56) {
+			if (inPosition == inLimit && !readInput()) {
+				return;
+			}
+			bits |= (long) (buffer.array()[inPosition++] & 0xFF) << bitCount;
+			bitCount += 8;
+		}
+	}
+
+	private int getBits(int n) throws IOException {
+		while (bitCount < n) {
+			if (inPosition == inLimit && !readInput()) {
+				throw truncated();
+			}
+			bits |= (long) (buffer.array()[inPosition++] & 0xFF) << bitCount;
+			bitCount += 8;
+		}
+		int value = (int) (bits & ((1L << n) - 1));
+		bits >>>= n;
+		bitCount -= n;
+		return value;
+	}
+
+	/**
+	 * @return 未処理のビットまたはファイルのデータが残っている場合はtrue
+	 */
+	private boolean hasInput() throws IOException {
+		return 0 < bitCount || inPosition < inLimit || readInput();
+	}
+
+	private boolean readInput() throws IOException {
+		bufferOffset += inLimit;
+		inPosition = 0;
+		inLimit = 0;
+		buffer.clear();
+		int n;
+		do {
+			n = channel.read(buffer);
+		} while (n == 0);
+		if (n == -1) {
+			return false;
+		}
+		inLimit = n;
+		return true;
+	}
+
+	private IOException truncated() {
+		return new IOException("gzip形式のデータが途中で終わっています。");
+	}
+
+	private IOException corrupted(String target) {
+		return new IOException(
+				String.format("gzip形式のデータの%sが不正です(位置: %d)。", target, (getBitPosition() + 7) / 8));
+	}
+
+	/**
+	 * 符号長から作成したハフマン符号の復号表です.
+	 */
+	private static class Huffman {
+		/** 符号の最大ビット数. */
+		static final int MAX_BITS = 15;
+
+		/** 表から直接復号する短い符号のビット数. */
+		static final int FAST_BITS = 9;
+
+		static final int FAST_MASK = (1 << FAST_BITS) - 1;
+
+		/** 符号長ごとの符号の数. */
+		final int[] count = new int[MAX_BITS + 1];
+
+		/** 符号長・符号順に並べたシンボル. */
+		final int[] symbols;
+
+		/** FAST_BITSビット以下の符号の表(要素は(シンボル << 4) | 符号長. 表にない場合は0). */
+		final int[] fast = new int[1 << FAST_BITS];
+
+		Huffman(byte[] lengths, int offset, int n) throws IOException {
+			for (int i = 0; i < n; i++) {
+				count[lengths[offset + i]]++;
+			}
+			count[0] = 0;
+			int left = 1;
+			for (int length = 1; length <= MAX_BITS; length++) {
+				left = (left << 1) - count[length];
+				if (left < 0) {
+					throw new IOException("gzip形式のデータのハフマン符号が不正です。");
+				}
+			}
+
+			int[] offsets = new int[MAX_BITS + 2];
+			for (int length = 1; length <= MAX_BITS; length++) {
+				offsets[length + 1] = offsets[length] + count[length];
+			}
+			symbols = new int[offsets[MAX_BITS + 1]];
+			int[] next = offsets.clone();
+			for (int i = 0; i < n; i++) {
+				if (lengths[offset + i] != 0) {
+					symbols[next[lengths[offset + i]]++] = i;
+				}
+			}
+
+			// 符号はビットの並びを反転して(下位ビットから)格納されているため、反転した符号で表を引く
+			int code = 0;
+			for (int length = 1; length <= FAST_BITS; length++) {
+				for (int i = offsets[length]; i < offsets[length + 1]; i++) {
+					int reversed = Integer.reverse(code) >>> (32 - length);
+					for (int j = reversed; j < fast.length; j += 1 << length) {
+						fast[j] = (symbols[i] << 4) | length;
+					}
+					code++;
+				}
+				code <<= 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * gzip形式のファイルの展開を途中から再開するためのチェックポイントの索引です.<br>
+ * 展開データの一定サイズ(SPAN)ごとに、ブロックの開始位置と直前32KBの展開データを保持します.
+ * 索引は{@link RecordIndex}と同じキャッシュディレクトリに保存され、ファイルのサイズまたは更新日時が変わった場合は作り直されます.
+ */
+class GzipIndex {
+	/** チェックポイントを作成する展開データの間隔. */
+	static final long SPAN = 8L * 1024 * 1024;
+
+	/** 索引ファイルの識別子. */
+	private static final int MAGIC = 0x41465647;
+
+	/** 索引ファイルの形式のバージョン. */
+	private static final int VERSION = 1;
+
+	/** 読込済みの索引のキャッシュ(key: ファイルの絶対パス). */
+	private static final Map<String, GzipIndex> cache = new ConcurrentHashMap<>();
+
+	/** 索引のキー(ファイルの絶対パス). */
+	private final String key;
+
+	/** 索引作成時のファイルサイズ. */
+	private final long fileSize;
+
+	/** 索引作成時のファイルの更新日時. */
+	private final long lastModified;
+
+	/** 展開後のサイズ. */
+	private final long size;
+
+	/** チェックポイントのブロックの開始位置(ファイル先頭からのビット数). */
+	private final long[] bitPositions;
+
+	/** チェックポイントの展開データ内の位置. */
+	private final long[] positions;
+
+	/** チェックポイントの直前の展開データ(Deflateで圧縮して保持する). */
+	private final byte[][] windows;
+
+	private GzipIndex(String key, long fileSize, long lastModified, long size, long[] bitPositions, long[] positions,
+			byte[][] windows) {
+		this.key = key;
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		this.size = size;
+		this.bitPositions = bitPositions;
+		this.positions = positions;
+		this.windows = windows;
+	}
+
+	/**
+	 * ファイルの索引を取得します. 有効な索引がない場合はファイル全体を展開して作成・保存します.
+	 *
+	 * @param path gzip形式のファイルのパス
+	 * @return 索引
+	 * @throws IOException ファイルの読み込みで異常が発生した場合、またはgzip形式として不正な場合
+	 */
+	static GzipIndex get(Path path) throws IOException {
+		GzipIndex index = find(path);
+		if (index == null) {
+			Builder builder = new Builder(path);
+			try (GzipDecoder decoder = new GzipDecoder(path)) {
+				decoder.setBuilder(builder);
+				decoder.skip(Long.MAX_VALUE);
+			}
+			index = builder.index;
+			if (index == null) {
+				throw new IOException("gzip形式のファイルの索引を作成できませんでした。");
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * メモリ上またはキャッシュディレクトリにある、ファイルの有効な索引を取得します.
+	 *
+	 * @param path gzip形式のファイルのパス
+	 * @return 索引(有効な索引がない場合はnull)
+	 * @throws IOException ファイルの属性の取得で異常が発生した場合
+	 */
+	static GzipIndex find(Path path) throws IOException {
+		String key = getKey(path);
+		long fileSize = Files.size(path);
+		long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+		GzipIndex index = cache.get(key);
+		if (index == null || !index.isValid(fileSize, lastModified)) {
+			index = read(key);
+			if (index == null || !index.isValid(fileSize, lastModified)) {
+				return null;
+			}
+			cache.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return 展開後のサイズ
+	 */
+	long getSize() {
+		return size;
+	}
+
+	/**
+	 * 指定した位置以前の直近のチェックポイントから展開するデコーダを生成します.
+	 *
+	 * @param path     ファイルのパス
+	 * @param position 展開データ内の位置
+	 * @return デコーダ(チェックポイントの位置から展開します)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	GzipDecoder open(Path path, long position) throws IOException {
+		int i = Arrays.binarySearch(positions, position);
+		if (i < 0) {
+			i = -i - 2;
+		}
+		if (i < 0) {
+			return new GzipDecoder(path);
+		}
+		return new GzipDecoder(path, bitPositions[i], positions[i], inflateWindow(windows[i]));
+	}
+
+	private boolean isValid(long fileSize, long lastModified) {
+		return this.fileSize == fileSize && this.lastModified == lastModified;
+	}
+
+	private static String getKey(Path path) {
+		return path.toAbsolutePath().normalize().toString();
+	}
+
+	private static Path getIndexPath(String key) {
+		return RecordIndex.CACHE_DIR.resolve(String.format("%08x.gzi", key.hashCode()));
+	}
+
+	private static byte[] deflateWindow(byte[] window) {
+		Deflater deflater = new Deflater();
+		try {
+			deflater.setInput(window);
+			deflater.finish();
+			byte[] buffer = new byte[window.length + 64];
+			int length = 0;
+			while (!deflater.finished()) {
+				if (length == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+			return Arrays.copyOf(buffer, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflateWindow(byte[] compressed) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] window = new byte[GzipDecoder.WINDOW_SIZE];
+			int length = 0;
+			while (!inflater.finished() && length < window.length) {
+				int n = inflater.inflate(window, length, window.length - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			return Arrays.copyOf(window, length);
+		} catch (DataFormatException e) {
+			throw new IOException("gzip形式のファイルの索引が不正です。", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static GzipIndex read(String key) {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(getIndexPath(key))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+				// 別ファイルの索引(キーのハッシュ値の衝突)か、形式が異なる場合は使用しない
+				return null;
+			}
+			long fileSize = in.readLong();
+			long lastModified = in.readLong();
+			long size = in.readLong();
+			int count = in.readInt();
+			long[] bitPositions = new long[count];
+			long[] positions = new long[count];
+			byte[][] windows = new byte[count][];
+			for (int i = 0; i < count; i++) {
+				bitPositions[i] = in.readLong();
+				positions[i] = in.readLong();
+				windows[i] = new byte[in.readInt()];
+				in.readFully(windows[i]);
+			}
+			return new GzipIndex(key, fileSize, lastModified, size, bitPositions, positions, windows);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			// 壊れた索引は作り直す
+			return null;
+		}
+	}
+
+	private static void write(GzipIndex index) {
+		try {
+			Files.createDirectories(RecordIndex.CACHE_DIR);
+			Path tmp = Files.createTempFile(RecordIndex.CACHE_DIR, null, ".tmp");
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(index.key);
+				out.writeLong(index.fileSize);
+				out.writeLong(index.lastModified);
+				out.writeLong(index.size);
+				out.writeInt(index.positions.length);
+				for (int i = 0; i < index.positions.length; i++) {
+					out.writeLong(index.bitPositions[i]);
+					out.writeLong(index.positions[i]);
+					out.writeInt(index.windows[i].length);
+					out.write(index.windows[i]);
+				}
+			}
+			// 書き込み途中の索引を他の処理が読まないよう、書き込み完了後に置き換える
+			Files.move(tmp, getIndexPath(index.key), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ignore) {
+			// 索引が保存できなくても読み込みは継続できるため無視する(次回作り直す)
+		}
+	}
+
+	/**
+	 * ファイルの先頭から展開しながら索引を作成するビルダーです.
+	 */
+	static class Builder {
+		private final String key;
+		private final long fileSize;
+		private final long lastModified;
+		private long[] bitPositions = new long[16];
+		private long[] positions = new long[16];
+		private byte[][] windows = new byte[16][];
+		private int count;
+
+		/** 直前のチェックポイントの展開データ内の位置. */
+		private long lastPosition;
+
+		/** 作成した索引. */
+		private GzipIndex index;
+
+		/**
+		 * ビルダーを生成します.
+		 *
+		 * @param path gzip形式のファイルのパス
+		 * @throws IOException ファイルの属性の取得で異常が発生した場合
+		 */
+		Builder(Path path) throws IOException {
+			this.key = getKey(path);
+			this.fileSize = Files.size(path);
+			this.lastModified = Files.getLastModifiedTime(path).toMillis();
+		}
+
+		/**
+		 * ブロックの開始位置を通知します. 前のチェックポイントからSPAN以上展開した場合はチェックポイントを追加します.
+		 *
+		 * @param bitPosition ブロックの開始位置(ファイル先頭からのビット数)
+		 * @param position    展開データ内の位置
+		 * @param window      直前の展開データを取得する処理
+		 */
+		void checkpoint(long bitPosition, long position, Supplier<byte[]> window) {
+			if (position - lastPosition < SPAN) {
+				return;
+			}
+			if (count == positions.length) {
+				bitPositions = Arrays.copyOf(bitPositions, count * 2);
+				positions = Arrays.copyOf(positions, count * 2);
+				windows = Arrays.copyOf(windows, count * 2);
+			}
+			bitPositions[count] = bitPosition;
+			positions[count] = position;
+			windows[count] = deflateWindow(window.get());
+			count++;
+			lastPosition = position;
+		}
+
+		/**
+		 * ファイル末尾まで展開したことを通知し、索引を登録・保存します.
+		 *
+		 * @param size 展開後のサイズ
+		 */
+		void end(long size) {
+			index = new GzipIndex(key, fileSize, lastModified, size, Arrays.copyOf(bitPositions, count),
+					Arrays.copyOf(positions, count), Arrays.copyOf(windows, count));
+			cache.put(key, index);
+			write(index);
+		}
+	}
+}
@@ -3,9 +3,7 @@ package com.github.poodleone.anyfileviewer.reader;
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import com.github.poodleone.anyfileviewer.DataParser;
 import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.record.AbstractRecord;
 import com.github.poodleone.anyfileviewer.record.ErrorRecord;
@@ -23,27 +21,53 @@ public class HexDumpLinesReader extends LinesReader {
 
 	@Override
 	protected Record readRecord(String line, RecordFormat format) {
-		Matcher m = Pattern.compile(format.getReaderOptions().get("recordPattern")).matcher(line);
+		Matcher m = format.matchRecord(line);
 		if (m.find()) {
-			// レコード生成
-			Record record = new AbstractRecord(ByteUtils.parseHexBinary(m.group("DUMP"))) {
-				@Override
-				public int getLength() {
-					return ((byte[]) getRawData()).length;
-				}
-			};
-			record.getInnerItems().put("[format]", format.getName());
-
-			// メタデータの取得
-			format.getMetaDataNames().stream().filter(e -> !e.equals("DUMP"))
-					.forEach(e -> record.getMetaItems().put(e, m.group(e)));
-
-			// HEX表記のダンプデータをパース
-			DataParser.parseRecord(record, format);
-			return record;
+			return createRecord(ByteUtils.parseHexBinary(m.group("DUMP")), m, format);
 		} else {
 			return new ErrorRecord("不明なレコード形式(適用可能なrecordPatternが見つからない)");
 		}
 	}
 
+	@Override
+	protected Record readRecord(ByteLine line, RecordFormat format) {
+		if (!line.isAscii()) {
+			return super.readRecord(line, format);
+		}
+		// ASCII文字のみの行は文字列にデコードせずにマッチし、DUMPのHEX表記は行のバイト配列から直接パースする
+		Matcher m = format.matchRecord(line.asAsciiSequence());
+		if (m.find()) {
+			int start = m.start("DUMP");
+			if (start == -1) {
+				return super.readRecord(line, format);
+			}
+			return createRecord(ByteUtils.parseHexBinary(line.getBytes(), line.getOffset() + start, m.end("DUMP") - start),
+					m, format);
+		} else {
+			return new ErrorRecord("不明なレコード形式(適用可能なrecordPatternが見つからない)");
+		}
+	}
+
+	private Record createRecord(byte[] data, Matcher m, RecordFormat format) {
+		// レコード生成
+		AbstractRecord record = new AbstractRecord(data) {
+			@Override
+			public int getLength() {
+				return ((byte[]) getRawData()).length;
+			}
+		};
+		record.getInnerItems().put("[format]", format.getName());
+
+		// メタデータの取得
+		for (String name : format.getMetaDataNames()) {
+			if (!name.equals("DUMP")) {
+				record.getMetaItems().put(name, m.group(name));
+			}
+		}
+
+		// HEX表記のダンプデータのパースは項目の参照時に行う
+		record.parseLazily(format);
+		return record;
+	}
+
 }
@@ -0,0 +1,228 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipFile;
+
+/**
+ * Readerが読み込むファイルを開くためのユーティリティです.<br>
+ * gzip形式・zip形式のファイルはファイルの先頭のバイト列から判別し、展開したデータを読み込むチャネルを返します.
+ * 先頭のバイト列が一致しても展開できないファイル(先頭のレコードが偶然一致したバイナリファイル等)は、圧縮なしとして扱います.
+ * 展開後のデータ内の位置に移動できるため、Readerは圧縮の有無を意識せずに読み込めます.
+ * <ul>
+ * <li>gzip: 複数のメンバを連結したファイルは、各メンバを展開したデータを連結したものとして扱います. 位置の移動は{@link GzipIndex}のチェックポイントから展開を再開します.</li>
+ * <li>zip: ディレクトリ以外のエントリを格納順に連結したデータとして扱います. 位置の移動は移動先のエントリの先頭から展開を再開します.</li>
+ * </ul>
+ */
+public final class InputFiles {
+	/** gzip形式の判別時に展開を試みるバイト数. */
+	private static final int GZIP_PROBE_SIZE = 4096;
+
+	private InputFiles() {
+	}
+
+	/**
+	 * ファイルの圧縮形式です.
+	 */
+	public enum Compression {
+		/** 圧縮なし. */
+		NONE,
+
+		/** gzip形式. */
+		GZIP,
+
+		/** zip形式. */
+		ZIP
+	}
+
+	/**
+	 * ファイルを読み込み用に開きます. 圧縮されたファイルの場合は展開したデータを読み込むチャネルを返します.
+	 *
+	 * @param path ファイルのパス
+	 * @return チャネル(読み込み専用)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	public static SeekableByteChannel open(Path path) throws IOException {
+		switch (getCompression(path)) {
+		case GZIP:
+			return new GzipChannel(path);
+		case ZIP:
+			return new ZipChannel(path);
+		default:
+			return FileChannel.open(path, StandardOpenOption.READ);
+		}
+	}
+
+	/**
+	 * ファイルを読み込み用に開き、指定した位置に移動します.
+	 *
+	 * @param path     ファイルのパス
+	 * @param position 読み込み開始位置のバイトオフセット(圧縮されたファイルの場合は展開後のデータ内の位置)
+	 * @return チャネル(読み込み専用)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	public static SeekableByteChannel open(Path path, long position) throws IOException {
+		SeekableByteChannel channel = open(path);
+		try {
+			channel.position(position);
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * ファイルを読み込み用に開き、指定した範囲のみを読み込むチャネルを返します.<br>
+	 * 追記中のファイルから、書き込みが完了した範囲のみを読み込む場合に使用します.
+	 *
+	 * @param path     ファイルのパス
+	 * @param position 読み込み開始位置のバイトオフセット(圧縮されたファイルの場合は展開後のデータ内の位置)
+	 * @param end      読み込み終了位置のバイトオフセット(この位置をファイル末尾として扱います)
+	 * @return チャネル(読み込み専用)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	public static SeekableByteChannel open(Path path, long position, long end) throws IOException {
+		return new BoundedChannel(open(path, position), end);
+	}
+
+	/**
+	 * ファイルのサイズを返します. 圧縮されたファイルの場合は展開後のサイズを返します.<br>
+	 * gzip形式のファイルは、初回はファイル全体を展開してサイズを求めます.
+	 *
+	 * @param path ファイルのパス
+	 * @return サイズ
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	public static long size(Path path) throws IOException {
+		try (SeekableByteChannel channel = open(path)) {
+			return channel.size();
+		}
+	}
+
+	/**
+	 * ファイルの先頭のバイト列から圧縮形式を判別します.<br>
+	 * 先頭のバイト列が一致した場合も、gzip形式は先頭のデータ、zip形式はセントラルディレクトリを読み込めない場合は圧縮なしとします.
+	 *
+	 * @param path ファイルのパス
+	 * @return 圧縮形式
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	public static Compression getCompression(Path path) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(4);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (header.hasRemaining() && channel.read(header) != -1) {
+			}
+		}
+		byte[] bytes = header.array();
+		if (3 <= header.position() && bytes[0] == 0x1f && bytes[1] == (byte) 0x8b && bytes[2] == 8) {
+			// ID1, ID2, CM(deflate)
+			return isGzip(path) ? Compression.GZIP : Compression.NONE;
+		}
+		if (4 <= header.position() && bytes[0] == 'P' && bytes[1] == 'K'
+				&& ((bytes[2] == 3 && bytes[3] == 4) || (bytes[2] == 5 && bytes[3] == 6))) {
+			// ローカルファイルヘッダ、または空のzipファイルの終端レコード
+			return isZip(path) ? Compression.ZIP : Compression.NONE;
+		}
+		return Compression.NONE;
+	}
+
+	/**
+	 * gzip形式のヘッダと先頭のデータを展開できるかどうかを返します.
+	 * 不正なデータは、ヘッダ・ブロックの種類・ハフマン符号・一致長の距離等の検査で先頭のブロック内で検出されます.
+	 */
+	private static boolean isGzip(Path path) {
+		try (GzipDecoder decoder = new GzipDecoder(path)) {
+			byte[] buffer = new byte[GZIP_PROBE_SIZE];
+			int total = 0;
+			int n;
+			while (total < buffer.length && (n = decoder.read(buffer, total, buffer.length - total)) != -1) {
+				total += n;
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * zip形式のセントラルディレクトリを読み込めるかどうかを返します.
+	 */
+	private static boolean isZip(Path path) {
+		try (ZipFile zipFile = new ZipFile(path.toFile())) {
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 指定した位置をファイル末尾として扱うチャネルです.
+	 */
+	private static class BoundedChannel implements SeekableByteChannel {
+		private final SeekableByteChannel channel;
+		private final long end;
+
+		private BoundedChannel(SeekableByteChannel channel, long end) {
+			this.channel = channel;
+			this.end = end;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			long remaining = end - channel.position();
+			if (remaining <= 0) {
+				return -1;
+			}
+			if (remaining < dst.remaining()) {
+				ByteBuffer bounded = dst.duplicate();
+				bounded.limit(dst.position() + (int) remaining);
+				int n = channel.read(bounded);
+				dst.position(bounded.position());
+				return n;
+			}
+			return channel.read(dst);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return channel.position();
+		}
+
+		@Override
+		public SeekableByteChannel position(long newPosition) throws IOException {
+			channel.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return Long.min(channel.size(), end);
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public SeekableByteChannel truncate(long size) throws IOException {
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
@@ -1,18 +1,22 @@
 package com.github.poodleone.anyfileviewer.reader;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import com.github.poodleone.anyfileviewer.DataParser;
 import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.record.AbstractRecord;
 import com.github.poodleone.anyfileviewer.record.ErrorRecord;
@@ -24,6 +28,11 @@ import com.github.poodleone.anyfileviewer.record.RecordSet;
  *
  */
 public class LinesReader implements RecordReader {
+	/** 索引作成時にファイルを走査するバッファのサイズ. */
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+	/** 検索を並列に行う1区間の最大レコード数(索引の間隔の倍数). */
+	private static final int MAX_SEARCH_CHUNK_INTERVALS = 100;
 
 	@Override
 	public List<String> getOptionNames() {
@@ -33,31 +42,161 @@ public class LinesReader implements RecordReader {
 	@Override
 	public void load(Path path, RecordFormat format, Consumer<Record> consumer) {
 		Charset charset = Charset.forName(format.getReaderOptions().get("charset"));
-		try (BufferedReader br = Files.newBufferedReader(path, charset)) {
-			while (true) {
-				String line = br.readLine();
-				if (line == null) {
-					break;
+		try (LineSource lines = openLines(path, charset, 0, format)) {
+			while (lines.next()) {
+				consumer.accept(lines.readRecord(format));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void loadDeferred(Path path, RecordFormat format, Consumer<Supplier<Record>> consumer) {
+		Charset charset = Charset.forName(format.getReaderOptions().get("charset"));
+		try (LineSource lines = openLines(path, charset, 0, format)) {
+			while (lines.next()) {
+				consumer.accept(lines.deferRecord(format));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public long loadAppended(Path path, RecordFormat format, long position, Consumer<Record> consumer) {
+		Charset charset = Charset.forName(format.getReaderOptions().get("charset"));
+		if (!Arrays.equals("\r\n".getBytes(charset), new byte[] { '\r', '\n' })) {
+			throw new UnsupportedOperationException(
+					"文字セット" + charset.name() + "のファイルは追記されたレコードの読み込みに対応していません。");
+		}
+		try {
+			if (position == -1) {
+				return findLastLineEnd(path);
+			}
+			long end = findRecordsEnd(path, position, format);
+			if (position < end) {
+				try (LineSource lines = openLines(path, charset, position, end, format)) {
+					while (lines.next()) {
+						consumer.accept(lines.readRecord(format));
+					}
 				}
-				consumer.accept(readRecord(line, format));
 			}
+			return end;
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
 	}
 
+	/**
+	 * {@inheritDoc}<br>
+	 * ページの読み込み時に作成した索引(その後に追記された場合も作り直さない)のレコード開始位置を返します.
+	 */
+	@Override
+	public RecordPosition getAppendPosition(Path path, RecordFormat format, int offset) {
+		if (offset < RecordIndex.DEFAULT_INTERVAL) {
+			// 索引があっても先頭の位置になるため、索引を作成しない
+			return RecordPosition.START;
+		}
+		RecordIndex recordIndex = getIndex(path, Charset.forName(format.getReaderOptions().get("charset")), format,
+				true);
+		if (recordIndex == null) {
+			return RecordPosition.START;
+		}
+		return new RecordPosition(recordIndex.getIndexedOffset(offset), recordIndex.getPosition(offset));
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * 行(CSVの場合は項目の値)にkeywordを含むレコードを検索します. 行はデコードせずにバイト単位で検索します({@link SearchKeyword}).
+	 * 索引が使用できる場合は、索引のレコード開始位置でファイルを区間に分割し、各区間を並列に検索します.
+	 */
+	@Override
+	public int search(Path path, RecordFormat format, String keyword, IntConsumer consumer) {
+		Charset charset = Charset.forName(format.getReaderOptions().get("charset"));
+		SearchKeyword searchKeyword = new SearchKeyword(keyword, charset);
+		RecordIndex recordIndex = getIndex(path, charset, format);
+		try {
+			if (recordIndex == null) {
+				// 区間の開始位置が求められないため、先頭から順に検索する
+				return search(path, charset, 0, -1, format, searchKeyword, 0, consumer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		// 索引の間隔の倍数のレコード数ごとに区間に分割する
+		int recordCount = recordIndex.getRecordCount();
+		int interval = recordIndex.getInterval();
+		int intervals = (recordCount + interval - 1) / interval;
+		int chunkRecords = interval * Integer.max(1, Integer.min(MAX_SEARCH_CHUNK_INTERVALS,
+				intervals / (Runtime.getRuntime().availableProcessors() * 4)));
+		ChunkedSearch chunks = new ChunkedSearch();
+		for (int offset = 0; offset < recordCount; offset += chunkRecords) {
+			int first = offset;
+			long start = recordIndex.getPosition(offset);
+			long end = recordCount <= offset + chunkRecords ? -1 : recordIndex.getPosition(offset + chunkRecords);
+			chunks.add(found -> search(path, charset, start, end, format, searchKeyword, first, found));
+		}
+		chunks.forEach(consumer);
+		return recordCount;
+	}
+
+	/**
+	 * ファイルの指定範囲のレコードから、keywordを含むレコードを順に検索します.
+	 * 
+	 * @param path     ファイルのパス
+	 * @param charset  ファイルの文字セット
+	 * @param position 検索開始位置のバイトオフセット(レコードの開始位置)
+	 * @param end      検索終了位置のバイトオフセット(-1の場合はファイル末尾まで)
+	 * @param format   レコード形式
+	 * @param keyword  検索するキーワード
+	 * @param offset   検索開始位置のレコードのオフセット
+	 * @param consumer 見つかったレコードごとに実施する処理(引数はファイル内でのレコードのオフセット)
+	 * @return 検索したレコード数
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	private int search(Path path, Charset charset, long position, long end, RecordFormat format,
+			SearchKeyword keyword, int offset, IntConsumer consumer) throws IOException {
+		int count = 0;
+		try (LineSource lines = openLines(path, charset, position, end, format)) {
+			while (lines.next()) {
+				if (lines.matches(keyword)) {
+					consumer.accept(offset + count);
+				}
+				if (++count % 4096 == 0) {
+					ChunkedSearch.checkCancelled();
+				}
+			}
+		}
+		return count;
+	}
+
 	@Override
 	public RecordSet load(Path path, RecordFormat format, int offset, int maxRecords) {
+		return load(path, format, offset, maxRecords, (record, index) -> {
+		});
+	}
+
+	@Override
+	public RecordSet load(Path path, RecordFormat format, int offset, int maxRecords,
+			ObjIntConsumer<Record> listener) {
 		Charset charset = Charset.forName(format.getReaderOptions().get("charset"));
+		RecordIndex recordIndex = offset != 0 ? getIndex(path, charset, format) : null;
 		if (offset == -1) {
-			offset = getLastPageOffset(path, charset, maxRecords);
+			offset = getLastPageOffset(path, charset, format, recordIndex, maxRecords);
+		} else if (recordIndex != null && recordIndex.getRecordCount() <= offset) {
+			// offsetがファイルの範囲外の場合はファイル末尾までを読み込み
+			offset = getLastPageOffset(path, charset, format, recordIndex, maxRecords);
 		}
-		try (BufferedReader br = Files.newBufferedReader(path, charset)) {
+
+		// 索引があれば読み込み開始位置の直前の索引位置までシークする
+		int index = recordIndex != null ? recordIndex.getIndexedOffset(offset) : 0;
+		long position = recordIndex != null ? recordIndex.getPosition(offset) : 0;
+		try (LineSource lines = openLines(path, charset, position, format)) {
 			RecordSet records = new RecordSet();
-			int index = 0;
 			while (true) {
-				String line = br.readLine();
-				if (line == null) {
+				if (!lines.next()) {
 					records.setEof(true);
 					break;
 				}
@@ -68,16 +207,18 @@ public class LinesReader implements RecordReader {
 					if (0 < maxRecords && offset + maxRecords <= index) {
 						break;
 					}
-					records.add(readRecord(line, format));
+					Record record = lines.readRecord(format);
+					records.add(record);
+					listener.accept(record, index);
 				} finally {
 					index++;
 				}
 
 			}
 			records.setPath(path);
-			if (records.eof() && index != 0 && records.size() == 0) {
+			if (records.eof() && index != 0 && records.size() == 0 && offset != 0) {
 				// offsetがファイルの範囲外の場合はファイル末尾までを再読み込み
-				return load(path, format, -1, maxRecords);
+				return load(path, format, -1, maxRecords, listener);
 			}
 			records.setFormat(format);
 			records.setOffset(offset);
@@ -87,27 +228,211 @@ public class LinesReader implements RecordReader {
 		}
 	}
 
-	private int getLastPageOffset(Path path, Charset charset, int maxRecords) {
+	private int getLastPageOffset(Path path, Charset charset, RecordFormat format, RecordIndex recordIndex,
+			int maxRecords) {
 		int count = 0;
-		try (BufferedReader br = Files.newBufferedReader(path, charset)) {
-			while (true) {
-				String line = br.readLine();
-				if (line == null) {
-					break;
+		if (recordIndex != null) {
+			count = recordIndex.getRecordCount();
+		} else {
+			try (LineSource lines = openLines(path, charset, 0, format)) {
+				while (lines.next()) {
+					count++;
 				}
-				count++;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
+		}
+		return count == 0 ? 0 : ((count - 1) / maxRecords) * maxRecords;
+	}
+
+	/**
+	 * ファイルの行の索引を取得します.
+	 * 
+	 * @param path    ファイルのパス
+	 * @param charset ファイルの文字セット
+	 * @param format  レコード形式
+	 * @return 索引(文字セットが改行をASCIIと同じバイトで表さず、索引が使用できない場合はnull)
+	 */
+	RecordIndex getIndex(Path path, Charset charset, RecordFormat format) {
+		return getIndex(path, charset, format, false);
+	}
+
+	/**
+	 * ファイルの行の索引を取得します.
+	 * 
+	 * @param path     ファイルのパス
+	 * @param charset  ファイルの文字セット
+	 * @param format   レコード形式
+	 * @param appended 追記前に作成した索引も使用する場合はtrue({@link RecordIndex#get(Path, String, RecordIndex.Scanner, boolean)})
+	 * @return 索引(文字セットが改行をASCIIと同じバイトで表さず、索引が使用できない場合はnull)
+	 */
+	RecordIndex getIndex(Path path, Charset charset, RecordFormat format, boolean appended) {
+		if (!Arrays.equals("\r\n".getBytes(charset), new byte[] { '\r', '\n' })) {
+			return null;
+		}
+		try {
+			return RecordIndex.get(path, "lines", this::scanLines, appended);
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
-		return (count / maxRecords) * maxRecords;
+	}
+
+	/**
+	 * ファイルをバイト単位で走査し、行の開始位置を索引に追加します.<br>
+	 * 行の区切りは{@link BufferedReader#readLine()}と同様に、LF・CR・CRLFのいずれかとします.
+	 * 
+	 * @param path    ファイルのパス
+	 * @param builder 索引のビルダー
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	private void scanLines(Path path, RecordIndex.Builder builder) throws IOException {
+		try (SeekableByteChannel channel = InputFiles.open(path)) {
+			ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			long position = 0;
+			boolean lineStart = true;
+			boolean skipLF = false;
+			int length;
+			while ((length = channel.read(buffer)) != -1) {
+				for (int i = 0; i < length; i++) {
+					byte b = bytes[i];
+					if (skipLF) {
+						skipLF = false;
+						if (b == '\n') {
+							continue;
+						}
+					}
+					if (lineStart) {
+						builder.add(position + i);
+						lineStart = false;
+					}
+					if (b == '\n') {
+						lineStart = true;
+					} else if (b == '\r') {
+						lineStart = true;
+						skipLF = true;
+					}
+				}
+				position += length;
+				buffer.clear();
+			}
+		}
+	}
+
+	/**
+	 * 指定位置以降で、最後の完全なレコード(行)の直後の位置を求めます.<br>
+	 * LF・CR・CRLFのいずれかで終わる行を完全な行とします. ファイル末尾のCRは直後にLFが追記される可能性があるため、行の終わりとしません.
+	 * 
+	 * @param path     ファイルのパス
+	 * @param position 走査開始位置(レコードの開始位置)
+	 * @param format   レコード形式
+	 * @return 最後の完全なレコードの直後の位置(完全なレコードがない場合はposition)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	long findRecordsEnd(Path path, long position, RecordFormat format) throws IOException {
+		try (SeekableByteChannel channel = InputFiles.open(path, position)) {
+			ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			long end = position;
+			boolean cr = false;
+			int length;
+			while ((length = channel.read(buffer)) != -1) {
+				for (int i = 0; i < length; i++) {
+					byte b = bytes[i];
+					if (cr && b != '\n') {
+						// CRのみで終わる行
+						end = position + i;
+					}
+					cr = b == '\r';
+					if (b == '\n') {
+						end = position + i + 1;
+					}
+				}
+				position += length;
+				buffer.clear();
+			}
+			return end;
+		}
+	}
+
+	/**
+	 * ファイル末尾から逆順に走査し、最後の完全な行の直後の位置を求めます.
+	 * 
+	 * @param path ファイルのパス
+	 * @return 最後の完全な行の直後の位置(完全な行がない場合は0)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	private long findLastLineEnd(Path path) throws IOException {
+		try (SeekableByteChannel channel = InputFiles.open(path)) {
+			long size = channel.size();
+			ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			long start = size;
+			while (0 < start) {
+				int length = (int) Long.min(SCAN_BUFFER_SIZE, start);
+				start -= length;
+				buffer.clear();
+				buffer.limit(length);
+				channel.position(start);
+				while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+				}
+				for (int i = length - 1; 0 <= i; i--) {
+					if (bytes[i] == '\n' || (bytes[i] == '\r' && start + i + 1 < size)) {
+						return start + i + 1;
+					}
+				}
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * ファイルの行を読み込むLineSourceを開きます.
+	 * 
+	 * @param path     ファイルのパス
+	 * @param charset  ファイルの文字セット
+	 * @param position 読み込み開始位置のバイトオフセット(圧縮されたファイルの場合は展開後のデータ内の位置)
+	 * @param format   レコード形式
+	 * @return LineSource
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 * @see #openLines(Path, Charset, long, long, RecordFormat)
+	 */
+	LineSource openLines(Path path, Charset charset, long position, RecordFormat format) throws IOException {
+		return openLines(path, charset, position, -1, format);
+	}
+
+	/**
+	 * ファイルの行を読み込むLineSourceを開きます.<br>
+	 * 文字セットがASCII互換の場合はファイルをバイト単位で読み込み、行ごとに{@link #readRecord(ByteLine, RecordFormat)}を呼び出します.
+	 * それ以外の場合は{@link BufferedReader}で文字列にデコードして読み込み、{@link #readRecord(String, RecordFormat)}を呼び出します.
+	 * 
+	 * @param path     ファイルのパス
+	 * @param charset  ファイルの文字セット
+	 * @param position 読み込み開始位置のバイトオフセット(圧縮されたファイルの場合は展開後のデータ内の位置)
+	 * @param end      読み込み終了位置のバイトオフセット(-1の場合はファイル末尾まで)
+	 * @param format   レコード形式
+	 * @return LineSource
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	LineSource openLines(Path path, Charset charset, long position, long end, RecordFormat format)
+			throws IOException {
+		SeekableByteChannel channel = end < 0 ? InputFiles.open(path, position) : InputFiles.open(path, position, end);
+		try {
+			if (ByteLine.isAsciiCompatible(charset)) {
+				return new ByteLineSource(new ByteLineReader(channel, charset));
+			}
+			return new StringLineSource(new BufferedReader(Channels.newReader(channel, charset.newDecoder(), -1)));
+		} catch (RuntimeException e) {
+			channel.close();
+			throw e;
+		}
 	}
 
 	protected Record readRecord(String line, RecordFormat format) {
-		Matcher m = Pattern.compile(format.getReaderOptions().get("recordPattern")).matcher(line);
+		Matcher m = format.matchRecord(line);
 		if (m.find()) {
 			// レコード生成
-			Record record = new AbstractRecord(null) {
+			AbstractRecord record = new AbstractRecord(null) {
 				private int length = line.length();
 
 				@Override
@@ -117,12 +442,137 @@ public class LinesReader implements RecordReader {
 			};
 			// 項目をレコードにセット
 			record.getInnerItems().put("[format]", format.getName());
-			format.getMetaDataNames().stream().forEach(e -> record.getMetaItems().put(e, m.group(e)));
-			DataParser.parseRecord(record, format);
+			for (String name : format.getMetaDataNames()) {
+				record.getMetaItems().put(name, m.group(name));
+			}
+			record.parseLazily(format);
 			return record;
 		} else {
 			return new ErrorRecord("不明なレコード形式(適用可能なrecordPatternが見つからない)");
 		}
 	}
 
+	/**
+	 * バイト単位で読み込んだ1行からレコードを生成します.<br>
+	 * デフォルトでは行を文字列にデコードして{@link #readRecord(String, RecordFormat)}を呼び出します.
+	 * 文字列へのデコードを省略できる場合はサブクラスでオーバーライドしてください.
+	 * 
+	 * @param line   行(lineのバイト配列は次の行の読み込みで上書きされます)
+	 * @param format レコード形式
+	 * @return レコード
+	 */
+	protected Record readRecord(ByteLine line, RecordFormat format) {
+		return readRecord(line.toString(), format);
+	}
+
+	/**
+	 * ファイルの行を順に読み込み、レコードを生成する処理です.<br>
+	 * 1レコードが複数行にまたがる形式(CSV)のReaderは、レコード単位で読み込む実装を{@link LinesReader#openLines}で返します.
+	 */
+	interface LineSource extends Closeable {
+		/**
+		 * 次の行(レコード)を読み込みます.
+		 * 
+		 * @return 行を読み込んだ場合はtrue(ファイル末尾の場合はfalse)
+		 * @throws IOException ファイルの読み込みで異常が発生した場合
+		 */
+		boolean next() throws IOException;
+
+		/**
+		 * 読み込んだ行からレコードを生成します.
+		 * 
+		 * @param format レコード形式
+		 * @return レコード
+		 */
+		Record readRecord(RecordFormat format);
+
+		/**
+		 * 読み込んだ行からレコードを生成する処理を返します(次の行の読み込み後に呼び出せます).
+		 * 
+		 * @param format レコード形式
+		 * @return レコードの生成処理
+		 */
+		Supplier<Record> deferRecord(RecordFormat format);
+
+		/**
+		 * 読み込んだ行(レコード)がキーワードを含むかどうかを返します.
+		 * 
+		 * @param keyword キーワード
+		 * @return キーワードを含む場合はtrue
+		 */
+		boolean matches(SearchKeyword keyword);
+	}
+
+	private class StringLineSource implements LineSource {
+		private final BufferedReader reader;
+		private String line;
+
+		private StringLineSource(BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			line = reader.readLine();
+			return line != null;
+		}
+
+		@Override
+		public Record readRecord(RecordFormat format) {
+			return LinesReader.this.readRecord(line, format);
+		}
+
+		@Override
+		public Supplier<Record> deferRecord(RecordFormat format) {
+			String line = this.line;
+			return () -> LinesReader.this.readRecord(line, format);
+		}
+
+		@Override
+		public boolean matches(SearchKeyword keyword) {
+			return keyword.matches(line);
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	private class ByteLineSource implements LineSource {
+		private final ByteLineReader reader;
+		private ByteLine line;
+
+		private ByteLineSource(ByteLineReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			line = reader.readLine();
+			return line != null;
+		}
+
+		@Override
+		public Record readRecord(RecordFormat format) {
+			return LinesReader.this.readRecord(line, format);
+		}
+
+		@Override
+		public Supplier<Record> deferRecord(RecordFormat format) {
+			ByteLine line = this.line.copy();
+			return () -> LinesReader.this.readRecord(line, format);
+		}
+
+		@Override
+		public boolean matches(SearchKeyword keyword) {
+			return keyword.matches(line);
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
 }
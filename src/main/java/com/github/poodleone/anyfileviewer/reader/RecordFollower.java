@@ -0,0 +1,307 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.record.Record;
+
+/**
+ * 追記中のファイルを監視し、追記されたレコードを通知する処理です.<br>
+ * ファイルの変更は{@link WatchService}で検知します. 変更が通知されないファイルシステム(ネットワークドライブ等)に対応するため、
+ * 通知がない場合もPOLL_INTERVALごとにファイルのサイズ・更新日時を確認します.
+ * 読み込みは{@link RecordReader#loadAppended}で前回の読み込み位置以降に追記された部分のみを行います.
+ * 最初の読み込みは読み込み済みのレコード以前の直近の位置({@link RecordReader#getAppendPosition})から行い、
+ * 監視の開始前に読み込み済みのレコードは通知しません(読み込み済みのレコードの直後から通知します).<br>
+ * ファイルの置き換え(ローテーション)・切り詰めを検知した場合は、新しいファイルの先頭から読み込みます.
+ * 読み込み元が複数ファイルの場合は、最後のファイルを監視します(ディレクトリ・ワイルドカードの場合は新しく作成されたファイルに切り替えます).
+ */
+public class RecordFollower implements Closeable {
+	/** ファイルの変更を確認する間隔(ミリ秒). */
+	private static final long POLL_INTERVAL = 500;
+
+	/** リスナーにまとめて通知する最大レコード数. */
+	private static final int BATCH_SIZE = 4096;
+
+	/**
+	 * 追記されたレコードを受け取るリスナーです. 各メソッドは監視スレッドから呼び出されます.
+	 */
+	public interface Listener {
+		/**
+		 * 追記されたレコードを通知します.
+		 *
+		 * @param records 追記されたレコード(ファイル内の順)
+		 */
+		void appended(List<Record> records);
+
+		/**
+		 * ファイルの置き換え・切り詰めを検知し、ファイルの先頭から読み直すことを通知します.
+		 *
+		 * @param path 読み直すファイルのパス
+		 */
+		void rotated(Path path);
+
+		/**
+		 * 異常が発生し、監視を終了したことを通知します.
+		 *
+		 * @param e 発生した例外
+		 */
+		void failed(Exception e);
+	}
+
+	private final RecordReader reader;
+	private final RecordFormat format;
+	private final FileSet source;
+	private final Listener listener;
+	private final int loadedRecords;
+	private final Thread thread;
+	private volatile boolean closed;
+
+	/** 通知待ちのレコード. */
+	private List<Record> batch = new ArrayList<>();
+
+	/** 読み込み済みのため、通知せずに読み飛ばす残りのレコード数. */
+	private int skip;
+
+	/**
+	 * 監視処理を生成します.
+	 *
+	 * @param reader   レコードの読み込みに使用するReader
+	 * @param format   ファイルのレコード形式
+	 * @param source        監視するファイルの読み込み元
+	 * @param loadedRecords 読み込み済みのレコード数(全ファイルを通したレコード数). これより後のレコードを通知します
+	 * @param listener      追記されたレコードを受け取るリスナー
+	 */
+	public RecordFollower(RecordReader reader, RecordFormat format, FileSet source, int loadedRecords,
+			Listener listener) {
+		this.reader = reader;
+		this.format = format;
+		this.source = source;
+		this.loadedRecords = loadedRecords;
+		this.listener = listener;
+		this.thread = new Thread(this::run, "record-follower");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * 監視を開始します. 読み込み済みのレコードより後のレコード(読み込み後、監視の開始までに追記されたレコードを含む)を通知します.
+	 */
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * 監視を終了します.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		thread.interrupt();
+	}
+
+	private void run() {
+		WatchService watchService = null;
+		try {
+			List<Path> files = getFiles();
+			Path path = files.get(files.size() - 1);
+			skip = getLoadedRecordCount(files);
+			FileState state = null;
+			long position = 0;
+			watchService = watch(path, null);
+			while (!closed) {
+				files = getFiles();
+				Path current = files.get(files.size() - 1);
+				FileState currentState = FileState.of(current);
+				// ファイルが削除されている(置き換え中)か、変更されていない場合は読み込まない
+				if (currentState != null && !currentState.equals(state)) {
+					if (!current.equals(path) || (state != null && currentState.isReplacementOf(state))) {
+						if (!Objects.equals(current.toAbsolutePath().getParent(), path.toAbsolutePath().getParent())) {
+							watchService = watch(current, watchService);
+						}
+						path = current;
+						position = 0;
+						skip = 0;
+						listener.rotated(path);
+					}
+					boolean first = state == null;
+					state = currentState;
+					try {
+						if (first && 0 < skip) {
+							// 読み込み済みのレコードを読み直さないよう、読み込み済みのレコード以前の直近の位置から読み込む
+							RecordPosition start = reader.getAppendPosition(path, format, skip);
+							position = start.getPosition();
+							skip -= start.getOffset();
+						}
+						position = reader.loadAppended(path, format, position, this::add);
+					} catch (UncheckedIOException e) {
+						if (!(e.getCause() instanceof NoSuchFileException)) {
+							throw e;
+						}
+						// 読み込み中にファイルが置き換えられた場合は、次回の確認で新しいファイルを読み込む
+					}
+					flush();
+				}
+				waitForChange(watchService);
+			}
+		} catch (CancellationException e) {
+			// 読み込み中に監視が終了された
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			if (!closed) {
+				listener.failed(e);
+			}
+		} finally {
+			if (watchService != null) {
+				try {
+					watchService.close();
+				} catch (IOException ignore) {
+					// 監視の終了時のため無視する
+				}
+			}
+		}
+	}
+
+	private List<Path> getFiles() {
+		List<Path> files = source.getFiles();
+		if (files.isEmpty()) {
+			throw new UncheckedIOException(new NoSuchFileException(source.toString()));
+		}
+		return files;
+	}
+
+	/**
+	 * 監視するファイル(最後のファイル)の読み込み済みのレコード数を求めます.
+	 * 
+	 * @param files 読み込み元のファイル
+	 * @return 監視するファイルの読み込み済みのレコード数
+	 */
+	private int getLoadedRecordCount(List<Path> files) {
+		if (files.size() == 1) {
+			return loadedRecords;
+		}
+		// 最後のファイルより前のファイルのレコード数(読み込み時に求めたレコード数のキャッシュを使用する)を除く
+		int before = new FileSetReader(reader).getRecordCount(FileSet.of(files.subList(0, files.size() - 1)), format);
+		return Integer.max(loadedRecords - before, 0);
+	}
+
+	private void add(Record record) {
+		if (closed) {
+			throw new CancellationException();
+		}
+		if (0 < skip) {
+			skip--;
+			return;
+		}
+		batch.add(record);
+		if (batch.size() == BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	private void flush() {
+		if (!batch.isEmpty()) {
+			listener.appended(batch);
+			batch = new ArrayList<>();
+		}
+	}
+
+	/**
+	 * ファイルのあるディレクトリの監視を開始します.
+	 *
+	 * @return WatchService(監視できないファイルシステムの場合はnull)
+	 */
+	private static WatchService watch(Path path, WatchService oldWatchService) throws IOException {
+		if (oldWatchService != null) {
+			oldWatchService.close();
+		}
+		WatchService watchService = FileSystems.getDefault().newWatchService();
+		try {
+			path.toAbsolutePath().getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			return watchService;
+		} catch (IOException | UnsupportedOperationException e) {
+			// 変更の通知を受け取れない場合は一定間隔の確認のみで監視する
+			watchService.close();
+			return null;
+		}
+	}
+
+	private static void waitForChange(WatchService watchService) throws InterruptedException {
+		if (watchService == null) {
+			Thread.sleep(POLL_INTERVAL);
+			return;
+		}
+		// 同じディレクトリの他のファイルの変更でも確認するが、ファイルの属性の取得のみのため問題ない
+		WatchKey key = watchService.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+		if (key != null) {
+			key.pollEvents();
+			key.reset();
+		}
+	}
+
+	/**
+	 * ファイルの置き換え・変更の検知に使用するファイルの属性です.
+	 */
+	private static class FileState {
+		/** ファイルの識別子(ファイルシステムが識別子を持たない場合は作成日時). */
+		private final Object fileKey;
+		private final long size;
+		private final long lastModified;
+
+		private FileState(Object fileKey, long size, long lastModified) {
+			this.fileKey = fileKey;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * @return ファイルの属性(ファイルが存在しない場合はnull)
+		 */
+		private static FileState of(Path path) throws IOException {
+			BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			} catch (NoSuchFileException e) {
+				return null;
+			}
+			Object fileKey = attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+			return new FileState(fileKey, attributes.size(), attributes.lastModifiedTime().toMillis());
+		}
+
+		/**
+		 * @return 別のファイルに置き換えられたか、切り詰められた場合はtrue
+		 */
+		private boolean isReplacementOf(FileState old) {
+			return !fileKey.equals(old.fileKey) || size < old.size;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FileState)) {
+				return false;
+			}
+			FileState other = (FileState) obj;
+			return fileKey.equals(other.fileKey) && size == other.size && lastModified == other.lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(fileKey, size, lastModified);
+		}
+	}
+}
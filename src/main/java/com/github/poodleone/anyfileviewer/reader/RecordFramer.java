@@ -0,0 +1,568 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.github.poodleone.anyfileviewer.DataParser;
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.utils.ByteUtils;
+
+/**
+ * 可変長バイナリ形式のファイルからレコードを1件ずつ切り出す処理です.<br>
+ * {@link VariableBytesReader}のオプションframingで切り出し方を指定します.
+ * <ul>
+ * <li>length: レコード長の前置き. レコード長のバイト数(lengthSize: 1/2/4, デフォルトは2)・
+ * バイト順(lengthOrder: big/little, デフォルトはbig)・レコード長が前置き自体を含むかどうか(lengthInclusive: true/false, デフォルトはfalse)を指定します</li>
+ * <li>delimiter: 区切り文字で終わるレコード. 区切り文字はHEX表記で指定します(delimiter, 例: 0D0A). レコードに区切り文字は含みません</li>
+ * <li>rdw: IBMの可変長レコード(先頭4バイトのRDWに、RDWを含むレコード長をビッグエンディアン2バイトで保持)</li>
+ * <li>bdw: IBMの可変長ブロック化レコード(先頭4バイトのBDWにブロック長を保持し、ブロック内にRDW形式のレコードが並ぶ)</li>
+ * </ul>
+ * length・rdw・bdwのレコードは、レコード長の前置き(RDW)を含みます.<br>
+ * framingを指定しない場合は、オプションreadProcessのスクリプトでレコードを切り出します.
+ * スクリプトは変数inputStreamから1レコード分を読み込んでbyte配列を返し、ファイル末尾ではnullを返します.<br>
+ * bdw以外は、レコードの開始位置({@link #getPosition()})から切り出しを再開できます({@link #isSeekable(RecordFormat)}).
+ */
+abstract class RecordFramer implements Closeable {
+	/** 読み込みバッファの初期サイズ. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * レコード形式のオプションに従って、ファイルの先頭からレコードを切り出す処理を生成します.
+	 *
+	 * @param path   ファイルのパス
+	 * @param format レコード形式
+	 * @return レコードの切り出し処理
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	static RecordFramer open(Path path, RecordFormat format) throws IOException {
+		return open(path, format, 0);
+	}
+
+	/**
+	 * レコード形式のオプションに従って、ファイルの指定位置からレコードを切り出す処理を生成します.
+	 *
+	 * @param path     ファイルのパス
+	 * @param format   レコード形式
+	 * @param position 切り出しを開始するレコードの開始位置(bdwの場合は0のみ)
+	 * @return レコードの切り出し処理
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	static RecordFramer open(Path path, RecordFormat format, long position) throws IOException {
+		Map<String, String> options = format.getReaderOptions();
+		String framing = options.get("framing");
+		if (framing == null) {
+			String readProcess = options.get("readProcess");
+			if (readProcess == null) {
+				throw new RuntimeException("VariableBytesReaderのframingまたはreadProcessを指定してください。");
+			}
+			InputStream inputStream = Channels.newInputStream(InputFiles.open(path, position));
+			return new ScriptFramer(new CountingInputStream(inputStream, position), readProcess);
+		}
+
+		switch (framing) {
+		case "length":
+			int lengthSize = getInt(options, "lengthSize", 2);
+			if (lengthSize != 1 && lengthSize != 2 && lengthSize != 4) {
+				throw new RuntimeException("VariableBytesReaderのlengthSizeの指定が不正です(1/2/4のいずれかを指定してください)。");
+			}
+			String lengthOrder = options.getOrDefault("lengthOrder", "big");
+			if (!lengthOrder.equals("big") && !lengthOrder.equals("little")) {
+				throw new RuntimeException("VariableBytesReaderのlengthOrderの指定が不正です(big/littleのいずれかを指定してください)。");
+			}
+			return new LengthPrefixedFramer(new ChannelInput(path, position), lengthSize, lengthOrder.equals("big"),
+					Boolean.parseBoolean(options.get("lengthInclusive")));
+		case "delimiter":
+			byte[] delimiter;
+			try {
+				delimiter = ByteUtils.parseHexBinary(options.getOrDefault("delimiter", ""));
+			} catch (IllegalArgumentException e) {
+				delimiter = new byte[0];
+			}
+			if (delimiter.length == 0) {
+				throw new RuntimeException("VariableBytesReaderのdelimiterの指定が不正です(区切り文字をHEX表記で指定してください)。");
+			}
+			return new DelimitedFramer(new ChannelInput(path, position), delimiter);
+		case "rdw":
+			return new LengthPrefixedFramer(new ChannelInput(path, position), 2, true, true) {
+				@Override
+				protected int getHeaderSize() {
+					return 4;
+				}
+			};
+		case "bdw":
+			return new BlockedFramer(new ChannelInput(path, position));
+		default:
+			throw new RuntimeException("VariableBytesReaderのframingの指定が不正です(length/delimiter/rdw/bdwのいずれかを指定してください)。");
+		}
+	}
+
+	/**
+	 * レコードの切り出し方が、レコードの開始位置から切り出しを再開できるものかどうかを返します.
+	 *
+	 * @param format レコード形式
+	 * @return 再開できる場合はtrue(bdwはブロック内の位置が分からないため再開できない)
+	 */
+	static boolean isSeekable(RecordFormat format) {
+		return !"bdw".equals(format.getReaderOptions().get("framing"));
+	}
+
+	/**
+	 * レコードの切り出し方を表す文字列を返します. 切り出し方ごとに索引を区別するために使用します.
+	 *
+	 * @param format レコード形式
+	 * @return レコードの切り出し方を表す文字列
+	 */
+	static String getFramingKey(RecordFormat format) {
+		Map<String, String> options = format.getReaderOptions();
+		String framing = options.get("framing");
+		if (framing == null) {
+			return String.format("script:%08x", options.getOrDefault("readProcess", "").hashCode());
+		}
+		return String.join(":", framing, options.getOrDefault("lengthSize", ""),
+				options.getOrDefault("lengthOrder", ""), options.getOrDefault("lengthInclusive", ""),
+				options.getOrDefault("delimiter", ""));
+	}
+
+	/**
+	 * @return 次のレコードの開始位置(ファイル先頭からのバイトオフセット)
+	 */
+	abstract long getPosition();
+
+	/**
+	 * 次のレコードを切り出します.
+	 *
+	 * @return レコードのデータ(ファイル末尾の場合はnull)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	abstract byte[] next() throws IOException;
+
+	/**
+	 * 次のレコードを読み飛ばします. レコード数の計数に使用します.
+	 *
+	 * @return レコードを読み飛ばした場合はtrue(ファイル末尾の場合はfalse)
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	boolean skip() throws IOException {
+		return next() != null;
+	}
+
+	private static int getInt(Map<String, String> options, String key, int defaultValue) {
+		String value = options.get(key);
+		try {
+			return value != null ? Integer.parseInt(value) : defaultValue;
+		} catch (NumberFormatException e) {
+			throw new RuntimeException("VariableBytesReaderの" + key + "の指定が不正です。", e);
+		}
+	}
+
+	/**
+	 * readProcessのスクリプトでレコードを切り出す処理です.
+	 */
+	private static class ScriptFramer extends RecordFramer {
+		private final CountingInputStream inputStream;
+		private final String readProcess;
+
+		private ScriptFramer(CountingInputStream inputStream, String readProcess) {
+			this.inputStream = inputStream;
+			this.readProcess = readProcess;
+		}
+
+		@Override
+		long getPosition() {
+			// スクリプトが読み込んだバイト数から求める
+			return inputStream.position;
+		}
+
+		@Override
+		byte[] next() {
+			return DataParser.eval(null, readProcess, byte[].class, new DataParser.Param("inputStream", inputStream));
+		}
+
+		@Override
+		public void close() throws IOException {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * レコード長の前置きでレコードを切り出す処理です.
+	 */
+	private static class LengthPrefixedFramer extends RecordFramer {
+		private final ChannelInput input;
+		private final int lengthSize;
+		private final boolean bigEndian;
+		private final boolean inclusive;
+
+		private LengthPrefixedFramer(ChannelInput input, int lengthSize, boolean bigEndian, boolean inclusive) {
+			this.input = input;
+			this.lengthSize = lengthSize;
+			this.bigEndian = bigEndian;
+			this.inclusive = inclusive;
+		}
+
+		/**
+		 * @return レコード長の前置きのバイト数(レコード長の後に予約領域がある場合はそれも含む)
+		 */
+		protected int getHeaderSize() {
+			return lengthSize;
+		}
+
+		@Override
+		long getPosition() {
+			return input.getPosition();
+		}
+
+		@Override
+		byte[] next() throws IOException {
+			int length = nextLength();
+			return length == -1 ? null : input.take(length);
+		}
+
+		@Override
+		boolean skip() throws IOException {
+			int length = nextLength();
+			if (length == -1) {
+				return false;
+			}
+			input.skip(length);
+			return true;
+		}
+
+		/**
+		 * 次のレコードの前置きを含むレコード長を返します.
+		 *
+		 * @return レコード長(ファイル末尾の場合は-1)
+		 * @throws IOException ファイルの読み込みで異常が発生した場合
+		 */
+		private int nextLength() throws IOException {
+			int headerSize = getHeaderSize();
+			int available = input.fill(headerSize);
+			if (available == 0) {
+				return -1;
+			} else if (available < headerSize) {
+				// レコード長が途中で切れている場合は残りを1レコードとする
+				return available;
+			}
+			long length = input.getUnsigned(0, lengthSize, bigEndian);
+			if (!inclusive) {
+				length += headerSize;
+			}
+			if (length < headerSize || Integer.MAX_VALUE < length) {
+				throw new IOException(String.format("不正なレコード長(%d)です(位置: %d)。", length, input.getPosition()));
+			}
+			return (int) length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+
+	/**
+	 * 区切り文字でレコードを切り出す処理です.
+	 */
+	private static class DelimitedFramer extends RecordFramer {
+		private final ChannelInput input;
+		private final byte[] delimiter;
+
+		private DelimitedFramer(ChannelInput input, byte[] delimiter) {
+			this.input = input;
+			this.delimiter = delimiter;
+		}
+
+		@Override
+		long getPosition() {
+			return input.getPosition();
+		}
+
+		@Override
+		byte[] next() throws IOException {
+			int length = input.indexOf(delimiter);
+			if (length == -1) {
+				// 区切り文字のない最後のレコード
+				int available = input.fill(Integer.MAX_VALUE);
+				return available == 0 ? null : input.take(available);
+			}
+			byte[] data = input.take(length);
+			input.skip(delimiter.length);
+			return data;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+
+	/**
+	 * IBMの可変長ブロック化レコード(BDW+RDW)を切り出す処理です.
+	 */
+	private static class BlockedFramer extends RecordFramer {
+		private final ChannelInput input;
+
+		/** 現在のブロックの残りのバイト数. */
+		private long blockRemaining;
+
+		private BlockedFramer(ChannelInput input) {
+			this.input = input;
+		}
+
+		@Override
+		long getPosition() {
+			return input.getPosition();
+		}
+
+		@Override
+		byte[] next() throws IOException {
+			while (blockRemaining == 0) {
+				int available = input.fill(4);
+				if (available < 4) {
+					// ブロック長が途中で切れている場合はファイル末尾とする
+					return null;
+				}
+				long blockLength;
+				if ((input.getUnsigned(0, 1, true) & 0x80) != 0) {
+					// 拡張BDW(先頭ビットが1の場合は31ビットのブロック長)
+					blockLength = input.getUnsigned(0, 4, true) & 0x7FFFFFFFL;
+				} else {
+					blockLength = input.getUnsigned(0, 2, true);
+				}
+				if (blockLength < 4) {
+					throw new IOException(String.format("不正なブロック長(%d)です(位置: %d)。", blockLength, input.getPosition()));
+				}
+				input.skip(4);
+				blockRemaining = blockLength - 4;
+			}
+
+			int available = input.fill(4);
+			if (available == 0) {
+				return null;
+			} else if (available < 4) {
+				// RDWが途中で切れている場合は残りを1レコードとする
+				return input.take(available);
+			}
+			long length = input.getUnsigned(0, 2, true);
+			if (length < 4 || blockRemaining < length) {
+				throw new IOException(String.format("不正なレコード長(%d)です(位置: %d)。", length, input.getPosition()));
+			}
+			blockRemaining -= length;
+			return input.take((int) length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+
+	/**
+	 * ファイルのチャネルをバッファ経由で読み込む入力です.
+	 */
+	private static class ChannelInput implements Closeable {
+		private final SeekableByteChannel channel;
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		/** バッファ内の未処理のデータの開始位置. */
+		private int start;
+
+		/** バッファ内のデータの終了位置. */
+		private int limit;
+
+		/** バッファの先頭のファイル内の位置. */
+		private long bufferPosition;
+
+		private boolean eof;
+
+		private ChannelInput(Path path, long position) throws IOException {
+			this.channel = InputFiles.open(path, position);
+			this.bufferPosition = position;
+		}
+
+		/**
+		 * @return 未処理のデータのファイル内の位置
+		 */
+		long getPosition() {
+			return bufferPosition + start;
+		}
+
+		/**
+		 * 未処理のデータがlengthバイト以上になるまで読み込みます.
+		 *
+		 * @param length 必要なバイト数
+		 * @return 読み込み済みの未処理のデータのバイト数(ファイル末尾に達した場合はlength未満)
+		 * @throws IOException ファイルの読み込みで異常が発生した場合
+		 */
+		int fill(int length) throws IOException {
+			while (limit - start < length && !eof) {
+				byte[] bytes = buffer.array();
+				int remaining = limit - start;
+				if (start == 0 && limit == bytes.length) {
+					// バッファに収まらない長さのレコード
+					buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length * 2));
+				} else {
+					System.arraycopy(bytes, start, bytes, 0, remaining);
+				}
+				bufferPosition += start;
+				start = 0;
+				limit = remaining;
+				buffer.clear().position(limit);
+				int n = channel.read(buffer);
+				if (n == -1) {
+					eof = true;
+				} else {
+					limit += n;
+				}
+			}
+			return limit - start;
+		}
+
+		/**
+		 * 未処理のデータの先頭からの位置の符号なし整数を返します. 事前に{@link #fill(int)}で読み込んでください.
+		 *
+		 * @param offset    未処理のデータの先頭からの位置
+		 * @param size      バイト数
+		 * @param bigEndian ビッグエンディアンの場合はtrue
+		 * @return 値
+		 */
+		long getUnsigned(int offset, int size, boolean bigEndian) {
+			byte[] bytes = buffer.array();
+			long value = 0;
+			for (int i = 0; i < size; i++) {
+				int b = bytes[start + offset + (bigEndian ? i : size - 1 - i)] & 0xFF;
+				value = (value << 8) | b;
+			}
+			return value;
+		}
+
+		/**
+		 * 未処理のデータの先頭からlengthバイトを取り出します. ファイル末尾に達した場合は残りのデータを取り出します.
+		 *
+		 * @param length バイト数
+		 * @return データ
+		 * @throws IOException ファイルの読み込みで異常が発生した場合
+		 */
+		byte[] take(int length) throws IOException {
+			int available = fill(length);
+			int n = Integer.min(length, available);
+			byte[] data = Arrays.copyOfRange(buffer.array(), start, start + n);
+			start += n;
+			return data;
+		}
+
+		/**
+		 * 未処理のデータの先頭からlengthバイトを読み飛ばします.
+		 *
+		 * @param length バイト数
+		 * @throws IOException ファイルの読み込みで異常が発生した場合
+		 */
+		void skip(long length) throws IOException {
+			if (length <= limit - start) {
+				start += length;
+				return;
+			}
+			// バッファ外はチャネルの位置を移動する
+			long position = getPosition() + length;
+			channel.position(position);
+			bufferPosition = position;
+			start = 0;
+			limit = 0;
+			eof = false;
+			if (fill(1) == 0) {
+				// ファイル末尾を超えた場合のみサイズ(圧縮されたファイルでは展開後のサイズ)を求めて末尾の位置にする.
+				// 末尾まで展開済みのため、gzip形式のファイルでも索引から求められる
+				bufferPosition = Long.min(position, channel.size());
+			}
+		}
+
+		/**
+		 * 未処理のデータ内のバイト列の位置を返します. 見つかるまで読み込みます.
+		 *
+		 * @param pattern 検索するバイト列
+		 * @return 未処理のデータの先頭からの位置(ファイル末尾までに見つからない場合は-1)
+		 * @throws IOException ファイルの読み込みで異常が発生した場合
+		 */
+		int indexOf(byte[] pattern) throws IOException {
+			int from = 0;
+			while (true) {
+				byte[] bytes = buffer.array();
+				int last = limit - start - pattern.length;
+				for (int i = from; i <= last; i++) {
+					if (bytes[start + i] == pattern[0] && matches(bytes, start + i, pattern)) {
+						return i;
+					}
+				}
+				from = Integer.max(last + 1, 0);
+				int available = limit - start;
+				if (fill(available + 1) == available) {
+					return -1;
+				}
+			}
+		}
+
+		private static boolean matches(byte[] bytes, int offset, byte[] pattern) {
+			for (int i = 1; i < pattern.length; i++) {
+				if (bytes[offset + i] != pattern[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/**
+	 * 読み込んだバイト数からファイル内の位置を数えるInputStreamです.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		/** 次に読み込むファイル内の位置. */
+		private long position;
+
+		private CountingInputStream(InputStream in, long position) {
+			super(in);
+			this.position = position;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				position++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				position += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ファイル内のレコード開始位置の索引です.<br>
+ * 一定レコード数(interval)ごとにレコード開始位置のバイトオフセットを保持し、ページ移動時のシーク先として使用します.<br>
+ * 索引はキャッシュディレクトリに保存され、ファイルのサイズまたは更新日時が変わった場合は作り直されます.<br>
+ * 圧縮されたファイル({@link InputFiles})の場合、レコード開始位置は展開後のデータ内の位置とします.
+ */
+public class RecordIndex {
+	/** 索引を作成するレコード間隔のデフォルト値. */
+	public static final int DEFAULT_INTERVAL = 1000;
+
+	/** 索引ファイルの保存先ディレクトリ. */
+	static final Path CACHE_DIR = Paths.get(System.getProperty("java.io.tmpdir"), "anyfile-viewer", "index");
+
+	/** 索引ファイルの識別子. */
+	private static final int MAGIC = 0x41465649;
+
+	/** 索引ファイルの形式のバージョン. */
+	private static final int VERSION = 1;
+
+	/** 読込済みの索引のキャッシュ(key: 索引のキー). */
+	private static final Map<String, RecordIndex> cache = new ConcurrentHashMap<>();
+
+	/** 索引のキー(ファイルの絶対パスと索引の種類). */
+	private final String key;
+
+	/** 索引作成時のファイルサイズ. */
+	private final long fileSize;
+
+	/** 索引作成時のファイルの更新日時. */
+	private final long lastModified;
+
+	/** 索引を作成したレコード間隔. */
+	private final int interval;
+
+	/** interval件ごとのレコード開始位置. */
+	private final long[] positions;
+
+	/** ファイル内のレコード数. */
+	private final int recordCount;
+
+	private RecordIndex(String key, long fileSize, long lastModified, int interval, long[] positions,
+			int recordCount) {
+		this.key = key;
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		this.interval = interval;
+		this.positions = positions;
+		this.recordCount = recordCount;
+	}
+
+	/**
+	 * ファイルの索引を取得します.<br>
+	 * 有効な索引がメモリ上にもキャッシュディレクトリにもない場合は、scannerでファイルを走査して索引を作成・保存します.
+	 *
+	 * @param path    索引を作成するファイルのパス
+	 * @param kind    索引の種類(レコードの区切り方が異なる場合は別の値を指定します)
+	 * @param scanner レコード開始位置の走査処理
+	 * @return 索引
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	public static RecordIndex get(Path path, String kind, Scanner scanner) throws IOException {
+		return get(path, kind, scanner, false);
+	}
+
+	/**
+	 * ファイルの索引を取得します.<br>
+	 * appendedがtrueの場合は、ファイルへの追記前に作成した索引(作成時のファイルサイズ・更新日時が現在以下のもの)もそのまま使用します.
+	 * この場合、索引作成後に追記されたレコードは索引に含まれません.
+	 *
+	 * @param path     索引を作成するファイルのパス
+	 * @param kind     索引の種類(レコードの区切り方が異なる場合は別の値を指定します)
+	 * @param scanner  レコード開始位置の走査処理
+	 * @param appended 追記前に作成した索引も使用する場合はtrue
+	 * @return 索引
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	public static RecordIndex get(Path path, String kind, Scanner scanner, boolean appended) throws IOException {
+		String key = path.toAbsolutePath().normalize() + "|" + kind;
+		long fileSize = Files.size(path);
+		long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+		RecordIndex index = cache.get(key);
+		if (index == null || !index.isValid(fileSize, lastModified, appended)) {
+			index = read(key);
+			if (index == null || !index.isValid(fileSize, lastModified, appended)) {
+				Builder builder = new Builder(DEFAULT_INTERVAL);
+				scanner.scan(path, builder);
+				index = builder.build(key, fileSize, lastModified);
+				write(index);
+			}
+			cache.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return ファイル内のレコード数
+	 */
+	public int getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return 索引を作成したレコード間隔
+	 */
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * 指定したレコードより前で、索引が存在する直近のレコード位置を返します.
+	 *
+	 * @param offset レコード位置(レコード数)
+	 * @return 索引が存在するレコード位置
+	 */
+	public int getIndexedOffset(int offset) {
+		return getSlot(offset) * interval;
+	}
+
+	/**
+	 * {@link #getIndexedOffset(int)}のレコードの開始位置を返します.
+	 *
+	 * @param offset レコード位置(レコード数)
+	 * @return レコード開始位置のバイトオフセット
+	 */
+	public long getPosition(int offset) {
+		return positions.length == 0 ? 0 : positions[getSlot(offset)];
+	}
+
+	private int getSlot(int offset) {
+		return Integer.max(Integer.min(offset / interval, positions.length - 1), 0);
+	}
+
+	private boolean isValid(long fileSize, long lastModified, boolean appended) {
+		if (appended) {
+			return this.fileSize <= fileSize && this.lastModified <= lastModified;
+		}
+		return this.fileSize == fileSize && this.lastModified == lastModified;
+	}
+
+	private static Path getIndexPath(String key) {
+		return CACHE_DIR.resolve(String.format("%08x.idx", key.hashCode()));
+	}
+
+	private static RecordIndex read(String key) {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(getIndexPath(key))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+				// 別ファイルの索引(キーのハッシュ値の衝突)か、形式が異なる場合は使用しない
+				return null;
+			}
+			long fileSize = in.readLong();
+			long lastModified = in.readLong();
+			int interval = in.readInt();
+			int recordCount = in.readInt();
+			long[] positions = new long[in.readInt()];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = in.readLong();
+			}
+			return new RecordIndex(key, fileSize, lastModified, interval, positions, recordCount);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			// 壊れた索引は作り直す
+			return null;
+		}
+	}
+
+	private static void write(RecordIndex index) {
+		try {
+			Files.createDirectories(CACHE_DIR);
+			Path tmp = Files.createTempFile(CACHE_DIR, null, ".tmp");
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(index.key);
+				out.writeLong(index.fileSize);
+				out.writeLong(index.lastModified);
+				out.writeInt(index.interval);
+				out.writeInt(index.recordCount);
+				out.writeInt(index.positions.length);
+				for (long position : index.positions) {
+					out.writeLong(position);
+				}
+			}
+			// 書き込み途中の索引を他の処理が読まないよう、書き込み完了後に置き換える
+			Files.move(tmp, getIndexPath(index.key), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ignore) {
+			// 索引が保存できなくても読み込みは継続できるため無視する(次回作り直す)
+		}
+	}
+
+	/**
+	 * レコード開始位置の走査処理です.
+	 */
+	@FunctionalInterface
+	public interface Scanner {
+		/**
+		 * ファイルを先頭から走査し、レコード開始位置をbuilderに追加します.
+		 *
+		 * @param path    走査するファイルのパス
+		 * @param builder 索引のビルダー
+		 * @throws IOException ファイルの読み込みで異常が発生した場合
+		 */
+		void scan(Path path, Builder builder) throws IOException;
+	}
+
+	/**
+	 * 索引のビルダーです.
+	 */
+	public static class Builder {
+		private final int interval;
+		private long[] positions = new long[16];
+		private int recordCount;
+
+		private Builder(int interval) {
+			this.interval = interval;
+		}
+
+		/**
+		 * レコード開始位置を追加します. ファイルの先頭のレコードから順に呼び出してください.
+		 *
+		 * @param position レコード開始位置のバイトオフセット
+		 */
+		public void add(long position) {
+			if (recordCount % interval == 0) {
+				int slot = recordCount / interval;
+				if (positions.length <= slot) {
+					positions = Arrays.copyOf(positions, positions.length * 2);
+				}
+				positions[slot] = position;
+			}
+			recordCount++;
+		}
+
+		private RecordIndex build(String key, long fileSize, long lastModified) {
+			int slots = (recordCount + interval - 1) / interval;
+			return new RecordIndex(key, fileSize, lastModified, interval, Arrays.copyOf(positions, slots), recordCount);
+		}
+	}
+}
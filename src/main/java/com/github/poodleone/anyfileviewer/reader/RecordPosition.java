@@ -0,0 +1,37 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+/**
+ * ファイル内のレコードの位置です. レコードのオフセット(レコード数)と、そのレコードの開始位置のバイトオフセットの組です.
+ */
+public class RecordPosition {
+	/** ファイルの先頭. */
+	public static final RecordPosition START = new RecordPosition(0, 0);
+
+	private final int offset;
+	private final long position;
+
+	/**
+	 * レコードの位置を生成します.
+	 *
+	 * @param offset   レコードのオフセット(レコード数)
+	 * @param position レコードの開始位置のバイトオフセット
+	 */
+	public RecordPosition(int offset, long position) {
+		this.offset = offset;
+		this.position = position;
+	}
+
+	/**
+	 * @return レコードのオフセット(レコード数)
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return レコードの開始位置のバイトオフセット
+	 */
+	public long getPosition() {
+		return position;
+	}
+}
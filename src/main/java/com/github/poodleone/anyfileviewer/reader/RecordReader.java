@@ -1,8 +1,13 @@
 package com.github.poodleone.anyfileviewer.reader;
 
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 
 import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.record.Record;
@@ -17,6 +22,13 @@ public interface RecordReader {
 	 */
 	List<String> getOptionNames();
 
+	/**
+	 * @return 読込処理の省略可能なオプション名のリスト(未設定のオプションはオプションのMapに含まれません)
+	 */
+	default List<String> getOptionalOptionNames() {
+		return Collections.emptyList();
+	}
+
 	/**
 	 * ファイルからレコードを読み込みます.
 	 * 
@@ -28,6 +40,26 @@ public interface RecordReader {
 	 */
 	RecordSet load(Path path, RecordFormat format, int offset, int maxRecords);
 
+	/**
+	 * ファイルからレコードを読み込みます.<br>
+	 * レコードを1件読み込むごとにlistenerを実行します. 読み込み途中のレコードを表示する場合に使用します.
+	 * 
+	 * @param path       読み込むファイルのパス
+	 * @param format     ファイルのレコード形式
+	 * @param offset     読み込み開始位置へのオフセット(レコード数)
+	 * @param maxRecords 読み込む最大レコード数(0で全件読込)
+	 * @param listener   レコードを読み込むごとに実施する処理(引数はレコードと、ファイル内でのレコードのオフセット)
+	 * @return 読み込んだレコード
+	 */
+	default RecordSet load(Path path, RecordFormat format, int offset, int maxRecords,
+			ObjIntConsumer<Record> listener) {
+		RecordSet records = load(path, format, offset, maxRecords);
+		for (int i = 0; i < records.size(); i++) {
+			listener.accept(records.get(i), records.getOffeset() + i);
+		}
+		return records;
+	}
+
 	/**
 	 * ファイルからレコードを読み込み、レコードごとにconsumerを実行します.
 	 * 
@@ -36,4 +68,86 @@ public interface RecordReader {
 	 * @param consumer レコードごとに実施する処理
 	 */
 	void load(Path path, RecordFormat format, Consumer<Record> consumer);
+
+	/**
+	 * ファイルのレコード数を取得します.<br>
+	 * デフォルトでは末尾のレコードを読み込み、そのオフセットからレコード数を求めます.
+	 * 
+	 * @param path   読み込むファイルのパス
+	 * @param format ファイルのレコード形式
+	 * @return レコード数
+	 */
+	default int getRecordCount(Path path, RecordFormat format) {
+		RecordSet records = load(path, format, -1, 1);
+		return records.getOffeset() + records.size();
+	}
+
+	/**
+	 * ファイルから、keywordを含むレコードを検索します. 見つかったレコードのオフセットを昇順にconsumerに通知します.<br>
+	 * デフォルトでは全レコードを読み込み、メタデータ・項目の値にkeywordを含むレコードを検索します.
+	 * 一定のレコード数ごとにスレッドの中断を確認し、中断されている場合は検索を打ち切ります.
+	 * 
+	 * @param path     検索するファイルのパス
+	 * @param format   ファイルのレコード形式
+	 * @param keyword  検索するキーワード
+	 * @param consumer 見つかったレコードごとに実施する処理(引数はファイル内でのレコードのオフセット)
+	 * @return ファイルのレコード数
+	 */
+	default int search(Path path, RecordFormat format, String keyword, IntConsumer consumer) {
+		SearchKeyword searchKeyword = new SearchKeyword(keyword);
+		AtomicInteger index = new AtomicInteger();
+		load(path, format, record -> {
+			int offset = index.getAndIncrement();
+			if (searchKeyword.matches(record)) {
+				consumer.accept(offset);
+			}
+			if ((offset + 1) % 4096 == 0) {
+				ChunkedSearch.checkCancelled();
+			}
+		});
+		return index.get();
+	}
+
+	/**
+	 * 追記中のファイルの、指定位置以降に追記されたレコードを読み込み、レコードごとにconsumerを実行します.<br>
+	 * ファイル末尾の書き込み途中の可能性があるレコードは読み込まず、次回の呼び出しで読み込みます.
+	 * 
+	 * @param path     読み込むファイルのパス
+	 * @param format   ファイルのレコード形式
+	 * @param position 読み込み開始位置のバイトオフセット(前回の戻り値. -1の場合はレコードを読み込まずにファイル末尾の位置を返します)
+	 * @param consumer レコードごとに実施する処理
+	 * @return 読み込んだ最後のレコードの直後の位置(次回の読み込み開始位置)
+	 * @throws UnsupportedOperationException 追記されたレコードの読み込みに対応していないレコード形式の場合
+	 */
+	default long loadAppended(Path path, RecordFormat format, long position, Consumer<Record> consumer) {
+		throw new UnsupportedOperationException(
+				getClass().getSimpleName() + "は追記されたレコードの読み込みに対応していません。");
+	}
+
+	/**
+	 * 指定したレコード以降を{@link #loadAppended}で読み込む場合の、読み込み開始位置を求めます.<br>
+	 * 指定したレコード以前で、開始位置のバイトオフセットが分かる直近のレコードの位置を返します.
+	 * デフォルトではファイルの先頭を返します.
+	 * 
+	 * @param path   読み込むファイルのパス
+	 * @param format ファイルのレコード形式
+	 * @param offset 読み込みを開始したいレコードのオフセット(レコード数)
+	 * @return 読み込み開始位置(レコードのオフセットはoffset以下)
+	 */
+	default RecordPosition getAppendPosition(Path path, RecordFormat format, int offset) {
+		return RecordPosition.START;
+	}
+
+	/**
+	 * ファイルからレコードのデータを読み込み、レコードごとにconsumerを実行します.<br>
+	 * consumerにはレコードを生成(パース)する処理を渡します. 生成処理は読み込み順に関係なく任意のスレッドで実行できるため、
+	 * 読み込みとパースを別スレッドで行う場合に使用します.
+	 * 
+	 * @param path     読み込むファイルのパス
+	 * @param format   ファイルのレコード形式
+	 * @param consumer レコードごとに実施する処理(引数はレコードの生成処理)
+	 */
+	default void loadDeferred(Path path, RecordFormat format, Consumer<Supplier<Record>> consumer) {
+		load(path, format, record -> consumer.accept(() -> record));
+	}
 }
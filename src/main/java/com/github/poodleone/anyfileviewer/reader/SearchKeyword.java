@@ -0,0 +1,127 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.github.poodleone.anyfileviewer.record.Record;
+
+/**
+ * レコードの検索に使用するキーワードです.<br>
+ * {@link ByteLine}はキーワードをファイルの文字セットでエンコードしたバイト列で検索し、行を文字列にデコードせずに判定します(Boyer-Moore-Horspool法).
+ * 文字セットがマルチバイト文字の2バイト目以降にASCIIの範囲のバイトを使用する場合(Shift_JIS等)は文字の途中に一致する可能性があるため、
+ * ASCII文字以外を含む行で一致した場合のみデコードした文字列で確認します.
+ */
+final class SearchKeyword {
+	/** キーワード. */
+	private final String text;
+
+	/** キーワードをファイルの文字セットでエンコードしたバイト列(エンコードできない場合はnull). */
+	private final byte[] bytes;
+
+	/** 不一致時にずらすバイト数(添字はバイト値). */
+	private final int[] shifts = new int[256];
+
+	/** バイト列の一致をデコードした文字列で確認する必要があるかどうか. */
+	private final boolean verify;
+
+	/**
+	 * レコードの項目の値を検索するキーワードを生成します.
+	 *
+	 * @param text キーワード
+	 */
+	SearchKeyword(String text) {
+		this(text, null);
+	}
+
+	/**
+	 * テキスト形式のファイルの行を検索するキーワードを生成します.
+	 *
+	 * @param text    キーワード
+	 * @param charset ファイルの文字セット(nullの場合は行を文字列にデコードして検索します)
+	 */
+	SearchKeyword(String text, Charset charset) {
+		this.text = text;
+		this.bytes = charset != null && charset.canEncode() && charset.newEncoder().canEncode(text)
+				? text.getBytes(charset)
+				: null;
+		this.verify = !StandardCharsets.UTF_8.equals(charset);
+		if (bytes != null) {
+			Arrays.fill(shifts, bytes.length);
+			for (int i = 0; i < bytes.length - 1; i++) {
+				shifts[bytes[i] & 0xff] = bytes.length - 1 - i;
+			}
+		}
+	}
+
+	/**
+	 * @return キーワード
+	 */
+	String getText() {
+		return text;
+	}
+
+	/**
+	 * 文字列がキーワードを含むかどうかを返します.
+	 *
+	 * @param value 文字列
+	 * @return キーワードを含む場合はtrue
+	 */
+	boolean matches(String value) {
+		return value.contains(text);
+	}
+
+	/**
+	 * レコードのメタデータ・項目の値のいずれかがキーワードを含むかどうかを返します.
+	 *
+	 * @param record レコード
+	 * @return キーワードを含む場合はtrue
+	 */
+	boolean matches(Record record) {
+		return record.getMetaItems().values().stream().anyMatch(e -> e.toString().contains(text))
+				|| record.getItems().values().stream().anyMatch(e -> e.toString().contains(text));
+	}
+
+	/**
+	 * 行がキーワードを含むかどうかを返します.
+	 *
+	 * @param line 行
+	 * @return キーワードを含む場合はtrue
+	 */
+	boolean matches(ByteLine line) {
+		if (bytes == null) {
+			return line.toString().contains(text);
+		}
+		if (indexOf(line.getBytes(), line.getOffset(), line.getOffset() + line.getLength()) == -1) {
+			return false;
+		}
+		return line.isAscii() || !verify || line.toString().contains(text);
+	}
+
+	/**
+	 * バイト配列の指定範囲からキーワードのバイト列を検索します.
+	 *
+	 * @param data  バイト配列
+	 * @param start 検索範囲の開始位置
+	 * @param end   検索範囲の終了位置
+	 * @return 最初に一致した位置(一致しない場合は-1)
+	 */
+	int indexOf(byte[] data, int start, int end) {
+		int last = bytes.length - 1;
+		if (last < 0) {
+			return start;
+		}
+		int i = start;
+		while (i + last < end) {
+			int j = last;
+			while (data[i + j] == bytes[j]) {
+				if (j == 0) {
+					return i;
+				}
+				j--;
+			}
+			i += shifts[data[i + last] & 0xff];
+		}
+		return -1;
+	}
+}
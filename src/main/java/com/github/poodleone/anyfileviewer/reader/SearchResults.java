@@ -0,0 +1,184 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * ファイルのキーワードの検索結果のキャッシュです.<br>
+ * 検索結果(見つかったレコードのオフセット)はキャッシュディレクトリに保存され、同じファイル・キーワードの再検索ではファイルを読み込まずに結果を返します.
+ * ファイルのサイズまたは更新日時が変わった場合は検索し直します.<br>
+ * 見つかったレコードが多すぎる場合は保存しません.
+ */
+class SearchResults {
+	/** 保存する検索結果の最大件数. */
+	private static final int MAX_SAVED_OFFSETS = 1_000_000;
+
+	/** 読込済みの検索結果の最大数. */
+	private static final int MAX_CACHED_RESULTS = 32;
+
+	/** 検索結果ファイルの保存先ディレクトリ. */
+	private static final Path CACHE_DIR = RecordIndex.CACHE_DIR.resolveSibling("search");
+
+	/** 検索結果ファイルの識別子. */
+	private static final int MAGIC = 0x41465653;
+
+	/** 検索結果ファイルの形式のバージョン. */
+	private static final int VERSION = 1;
+
+	/** 読込済みの検索結果のキャッシュ(key: 検索結果のキー. 参照順). */
+	private static final Map<String, SearchResults> cache = Collections
+			.synchronizedMap(new LinkedHashMap<String, SearchResults>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, SearchResults> eldest) {
+					return MAX_CACHED_RESULTS < size();
+				}
+			});
+
+	/** 検索結果のキー(ファイルの絶対パス、検索の種類とキーワード). */
+	private final String key;
+
+	/** 検索時のファイルサイズ. */
+	private final long fileSize;
+
+	/** 検索時のファイルの更新日時. */
+	private final long lastModified;
+
+	/** ファイル内のレコード数. */
+	private final int recordCount;
+
+	/** 見つかったレコードのオフセット(昇順). */
+	private final int[] offsets;
+
+	private SearchResults(String key, long fileSize, long lastModified, int recordCount, int[] offsets) {
+		this.key = key;
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		this.recordCount = recordCount;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * ファイルからキーワードを検索し、見つかったレコードのオフセットを昇順にconsumerに通知します.<br>
+	 * 有効な検索結果がメモリ上にもキャッシュディレクトリにもない場合は、searcherで検索して結果を保存します.
+	 *
+	 * @param path     検索するファイルのパス
+	 * @param kind     検索の種類(レコードの区切り方・判定方法が異なる場合は別の値を指定します)
+	 * @param keyword  検索するキーワード
+	 * @param consumer 見つかったレコードごとに実施する処理(引数はファイル内でのレコードのオフセット)
+	 * @param searcher 検索処理(見つかったレコードごとに実施する処理を引数に、ファイルのレコード数を返します)
+	 * @return ファイルのレコード数
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	static int search(Path path, String kind, String keyword, IntConsumer consumer,
+			ToIntFunction<IntConsumer> searcher) throws IOException {
+		String key = path.toAbsolutePath().normalize() + "|" + kind + "|" + keyword;
+		long fileSize = Files.size(path);
+		long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+		SearchResults results = cache.get(key);
+		if (results == null || !results.isValid(fileSize, lastModified)) {
+			results = read(key);
+			if (results != null && results.isValid(fileSize, lastModified)) {
+				cache.put(key, results);
+			} else {
+				results = null;
+			}
+		}
+		if (results != null) {
+			for (int offset : results.offsets) {
+				consumer.accept(offset);
+			}
+			return results.recordCount;
+		}
+
+		// 見つかったレコードを通知しながら検索結果を作成する
+		IntStream.Builder found = IntStream.builder();
+		int[] count = new int[1];
+		int recordCount = searcher.applyAsInt(offset -> {
+			consumer.accept(offset);
+			if (count[0]++ < MAX_SAVED_OFFSETS) {
+				found.add(offset);
+			}
+		});
+		if (count[0] <= MAX_SAVED_OFFSETS) {
+			results = new SearchResults(key, fileSize, lastModified, recordCount, found.build().toArray());
+			cache.put(key, results);
+			write(results);
+		}
+		return recordCount;
+	}
+
+	private boolean isValid(long fileSize, long lastModified) {
+		return this.fileSize == fileSize && this.lastModified == lastModified;
+	}
+
+	private static Path getResultsPath(String key) {
+		return CACHE_DIR.resolve(String.format("%08x.hit", key.hashCode()));
+	}
+
+	private static SearchResults read(String key) {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(getResultsPath(key))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+				// 別の検索の結果(キーのハッシュ値の衝突)か、形式が異なる場合は使用しない
+				return null;
+			}
+			long fileSize = in.readLong();
+			long lastModified = in.readLong();
+			int recordCount = in.readInt();
+			int[] offsets = new int[in.readInt()];
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = in.readInt();
+			}
+			return new SearchResults(key, fileSize, lastModified, recordCount, offsets);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			// 壊れた検索結果は検索し直す
+			return null;
+		}
+	}
+
+	private static void write(SearchResults results) {
+		try {
+			Files.createDirectories(CACHE_DIR);
+			Path tmp = Files.createTempFile(CACHE_DIR, null, ".tmp");
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(results.key);
+				out.writeLong(results.fileSize);
+				out.writeLong(results.lastModified);
+				out.writeInt(results.recordCount);
+				out.writeInt(results.offsets.length);
+				for (int offset : results.offsets) {
+					out.writeInt(offset);
+				}
+			} catch (IOException e) {
+				Files.delete(tmp);
+				throw e;
+			}
+			// 書き込み途中の検索結果を他の処理が読まないよう、書き込み完了後に置き換える
+			Files.move(tmp, getResultsPath(results.key), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ignore) {
+			// 検索結果が保存できなくても検索は継続できるため無視する(次回検索し直す)
+		}
+	}
+}
@@ -4,9 +4,7 @@ import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import com.github.poodleone.anyfileviewer.DataParser;
 import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.record.AbstractRecord;
 import com.github.poodleone.anyfileviewer.record.ErrorRecord;
@@ -23,10 +21,10 @@ public class StringDumpLinesReader extends LinesReader {
 
 	@Override
 	protected Record readRecord(String line, RecordFormat format) {
-		Matcher m = Pattern.compile(format.getReaderOptions().get("recordPattern")).matcher(line);
+		Matcher m = format.matchRecord(line);
 		if (m.find()) {
 			// レコード生成
-			Record record = new AbstractRecord(m.group("DUMP").getBytes(Charset.forName(format.getReaderOptions().get("dumpCharset")))) {
+			AbstractRecord record = new AbstractRecord(m.group("DUMP").getBytes(Charset.forName(format.getReaderOptions().get("dumpCharset")))) {
 				@Override
 				public int getLength() {
 					return ((byte[]) getRawData()).length;
@@ -35,11 +33,14 @@ public class StringDumpLinesReader extends LinesReader {
 			record.getInnerItems().put("[format]", format.getName());
 
 			// メタデータの取得
-			format.getMetaDataNames().stream().filter(e -> !e.equals("DUMP"))
-					.forEach(e -> record.getMetaItems().put(e, m.group(e)));
+			for (String name : format.getMetaDataNames()) {
+				if (!name.equals("DUMP")) {
+					record.getMetaItems().put(name, m.group(name));
+				}
+			}
 
-			// ダンプデータをパース
-			DataParser.parseRecord(record, format);
+			// ダンプデータのパースは項目の参照時に行う
+			record.parseLazily(format);
 			return record;
 		} else {
 			return new ErrorRecord("不明なレコード形式(適用可能なrecordPatternが見つからない)");
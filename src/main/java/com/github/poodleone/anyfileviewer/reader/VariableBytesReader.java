@@ -1,36 +1,39 @@
 package com.github.poodleone.anyfileviewer.reader;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
-import com.github.poodleone.anyfileviewer.DataParser;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 import com.github.poodleone.anyfileviewer.RecordFormat;
 import com.github.poodleone.anyfileviewer.record.AbstractRecord;
 import com.github.poodleone.anyfileviewer.record.Record;
 import com.github.poodleone.anyfileviewer.record.RecordSet;
 
 /**
- * 可変長バイナリ形式のファイルのReaderです.
- *
+ * 可変長バイナリ形式のファイルのReaderです.<br>
+ * レコードの切り出し方はオプションframing(またはスクリプトreadProcess)で指定します. 詳細は{@link RecordFramer}を参照してください.
  */
 public class VariableBytesReader implements RecordReader {
 
 	@Override
 	public List<String> getOptionNames() {
-		return Arrays.asList("readProcess", "dumpLayouts");
+		return Arrays.asList("dumpLayouts");
+	}
+
+	@Override
+	public List<String> getOptionalOptionNames() {
+		return Arrays.asList("framing", "lengthSize", "lengthOrder", "lengthInclusive", "delimiter", "readProcess");
 	}
 
 	@Override
 	public void load(Path path, RecordFormat format, Consumer<Record> consumer) {
-		String readProcess = format.getReaderOptions().get("readProcess");
-		try (InputStream is = Files.newInputStream(path)) {
+		try (RecordFramer framer = RecordFramer.open(path, format)) {
 			while (true) {
-				byte[] data = DataParser.eval(null, readProcess, byte[].class, new DataParser.Param("inputStream", is));
+				byte[] data = framer.next();
 				if (data == null) {
 					break;
 				}
@@ -41,32 +44,68 @@ public class VariableBytesReader implements RecordReader {
 		}
 	}
 
+	@Override
+	public void loadDeferred(Path path, RecordFormat format, Consumer<Supplier<Record>> consumer) {
+		// レコードの切り出しはファイルを順に読むため、読み込み側で実施する
+		try (RecordFramer framer = RecordFramer.open(path, format)) {
+			while (true) {
+				byte[] data = framer.next();
+				if (data == null) {
+					break;
+				}
+				consumer.accept(() -> readRecord(data, format));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	@Override
 	public RecordSet load(Path path, RecordFormat format, int offset, int maxRecords) {
-		String readProcess = format.getReaderOptions().get("readProcess");
+		return load(path, format, offset, maxRecords, (record, index) -> {
+		});
+	}
+
+	@Override
+	public RecordSet load(Path path, RecordFormat format, int offset, int maxRecords,
+			ObjIntConsumer<Record> listener) {
+		RecordIndex recordIndex = offset != 0 ? getIndex(path, format) : null;
+		if (offset == -1) {
+			offset = getLastPageOffset(path, format, recordIndex, maxRecords);
+		} else if (recordIndex != null && recordIndex.getRecordCount() <= offset) {
+			// offsetがファイルの範囲外の場合はファイル末尾までを読み込み
+			offset = getLastPageOffset(path, format, recordIndex, maxRecords);
+		}
+
 		try {
-			if (offset == -1) {
-				offset = getLastPageOffset(path, readProcess, maxRecords);
-			}
-		
-			try (InputStream is = Files.newInputStream(path)) {
+			// 索引があれば読み込み開始位置の直前の索引位置から切り出しを開始する
+			int index = recordIndex != null ? recordIndex.getIndexedOffset(offset) : 0;
+			long position = recordIndex != null ? recordIndex.getPosition(offset) : 0;
+			try (RecordFramer framer = RecordFramer.open(path, format, position)) {
 				RecordSet records = new RecordSet();
 
-				int index = 0;
 				while (true) {
-					byte[] data = DataParser.eval(null, readProcess, byte[].class, new DataParser.Param("inputStream", is));
+					if (index < offset) {
+						// 読み込み開始位置まではレコードを読み飛ばす
+						if (!framer.skip()) {
+							records.setEof(true);
+							break;
+						}
+						index++;
+						continue;
+					}
+					byte[] data = framer.next();
 					if (data == null) {
 						records.setEof(true);
 						break;
 					}
 					try {
-						if (index < offset) {
-							continue;
-						}
 						if (0 < maxRecords && offset + maxRecords <= index) {
 							break;
 						}
-						records.add(readRecord(data, format));
+						Record record = readRecord(data, format);
+						records.add(record);
+						listener.accept(record, index);
 					} finally {
 						index++;
 					}
@@ -75,8 +114,9 @@ public class VariableBytesReader implements RecordReader {
 				records.setPath(path);
 				if (records.eof() && index != 0 && records.size() == 0) {
 					// offsetがファイルの範囲外の場合はファイル末尾までを再読み込み
-					return load(path, format, -1, maxRecords);
-				}				records.setFormat(format);
+					return load(path, format, -1, maxRecords, listener);
+				}
+				records.setFormat(format);
 				records.setOffset(offset);
 				return records;
 			}
@@ -85,32 +125,59 @@ public class VariableBytesReader implements RecordReader {
 		}
 	}
 
-	private int getLastPageOffset(Path path, String readProcess, int maxRecords) {
+	private int getLastPageOffset(Path path, RecordFormat format, RecordIndex recordIndex, int maxRecords) {
 		int count = 0;
-		try (InputStream is = Files.newInputStream(path)) {
-			while (true) {
-				byte[] data = DataParser.eval(null, readProcess, byte[].class, new DataParser.Param("inputStream", is));
-				if (data == null) {
-					break;
+		if (recordIndex != null) {
+			count = recordIndex.getRecordCount();
+		} else {
+			try (RecordFramer framer = RecordFramer.open(path, format)) {
+				while (framer.skip()) {
+					count++;
 				}
-				count++;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
+		}
+		return count == 0 ? 0 : ((count - 1) / maxRecords) * maxRecords;
+	}
+
+	/**
+	 * ファイルのレコードの索引を取得します.
+	 *
+	 * @param path   ファイルのパス
+	 * @param format レコード形式
+	 * @return 索引(bdwなど、レコードの開始位置から切り出しを再開できない場合はnull)
+	 */
+	RecordIndex getIndex(Path path, RecordFormat format) {
+		if (!RecordFramer.isSeekable(format)) {
+			return null;
+		}
+		try {
+			// 切り出し方によってレコードの区切りが変わるため、索引の種類に含める
+			return RecordIndex.get(path, "variable|" + RecordFramer.getFramingKey(format), (p, builder) -> {
+				try (RecordFramer framer = RecordFramer.open(p, format)) {
+					long position = framer.getPosition();
+					while (framer.skip()) {
+						builder.add(position);
+						position = framer.getPosition();
+					}
+				}
+			});
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
-		return (count / maxRecords) * maxRecords;
 	}
-	
+
 	protected Record readRecord(byte[] data, RecordFormat format) {
 		// レコード生成
-		Record record = new AbstractRecord(data) {
+		AbstractRecord record = new AbstractRecord(data) {
 			@Override
 			public int getLength() {
 				return ((byte[]) getRawData()).length;
 			}
 		};
-		// データをパース
-		DataParser.parseRecord(record, format);
+		// データのパースは項目の参照時に行う
+		record.parseLazily(format);
 		return record;
 	}
 }
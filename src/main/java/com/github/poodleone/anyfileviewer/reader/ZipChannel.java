@@ -0,0 +1,208 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * zip形式のファイルのエントリを展開したデータを読み込むチャネルです.<br>
+ * ディレクトリ以外のエントリを格納順に連結したデータとして扱います.
+ * 位置を移動した場合は、移動先のエントリの先頭から展開を再開します(エントリのサイズはセントラルディレクトリから取得します).
+ */
+class ZipChannel implements SeekableByteChannel {
+	private final ZipFile zipFile;
+	private final List<ZipEntry> entries = new ArrayList<>();
+
+	/** エントリの先頭の展開データ内の位置(要素数はエントリ数+1で、最後の要素は展開後のサイズ). */
+	private final long[] starts;
+
+	/** 読み込み中のエントリのインデックス. */
+	private int entryIndex = -1;
+
+	private InputStream entryStream;
+
+	/** entryStreamから次に読み込む展開データ内の位置. */
+	private long streamPosition;
+
+	/** 次に読み込む展開データ内の位置. */
+	private long position;
+
+	private boolean open = true;
+
+	/**
+	 * チャネルを生成します.
+	 *
+	 * @param path zip形式のファイルのパス
+	 * @throws IOException ファイルの読み込みで異常が発生した場合
+	 */
+	ZipChannel(Path path) throws IOException {
+		this.zipFile = new ZipFile(path.toFile());
+		try {
+			Enumeration<? extends ZipEntry> e = zipFile.entries();
+			while (e.hasMoreElements()) {
+				ZipEntry entry = e.nextElement();
+				if (!entry.isDirectory()) {
+					entries.add(entry);
+				}
+			}
+			starts = new long[entries.size() + 1];
+			for (int i = 0; i < entries.size(); i++) {
+				starts[i + 1] = starts[i] + getSize(entries.get(i));
+			}
+		} catch (IOException | RuntimeException e) {
+			zipFile.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		ensureOpen();
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		byte[] bytes = dst.hasArray() ? dst.array() : new byte[dst.remaining()];
+		int offset = dst.hasArray() ? dst.arrayOffset() + dst.position() : 0;
+		int length = dst.remaining();
+
+		// ファイル末尾以外では要求されたバイト数を全て読み込む
+		int total = 0;
+		while (total < length && seek()) {
+			int n = entryStream.read(bytes, offset + total,
+					(int) Long.min(length - total, starts[entryIndex + 1] - position));
+			if (n == -1) {
+				throw new IOException("zip形式のファイルのエントリ(" + entries.get(entryIndex).getName() + ")が途中で終わっています。");
+			}
+			total += n;
+			position += n;
+			streamPosition += n;
+		}
+		if (total == 0) {
+			return -1;
+		}
+		if (dst.hasArray()) {
+			dst.position(dst.position() + total);
+		} else {
+			dst.put(bytes, 0, total);
+		}
+		return total;
+	}
+
+	@Override
+	public long position() throws IOException {
+		ensureOpen();
+		return position;
+	}
+
+	@Override
+	public SeekableByteChannel position(long newPosition) throws IOException {
+		ensureOpen();
+		if (newPosition < 0) {
+			throw new IllegalArgumentException();
+		}
+		position = newPosition;
+		return this;
+	}
+
+	@Override
+	public long size() throws IOException {
+		ensureOpen();
+		return starts[entries.size()];
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public SeekableByteChannel truncate(long size) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() throws IOException {
+		open = false;
+		zipFile.close();
+	}
+
+	/**
+	 * 読み込み中のエントリの位置をチャネルの位置に合わせます.
+	 *
+	 * @return 読み込むデータがある場合はtrue(ファイル末尾の場合はfalse)
+	 */
+	private boolean seek() throws IOException {
+		if (size() <= position) {
+			return false;
+		}
+		if (entryStream != null && streamPosition <= position && position < starts[entryIndex + 1]) {
+			skip(position - streamPosition);
+			return true;
+		}
+		int i = Arrays.binarySearch(starts, position);
+		// 同じ位置から始まるエントリ(空のエントリ)がある場合は、データのある最後のエントリを選択する
+		i = i < 0 ? -i - 2 : i;
+		while (starts[i + 1] == starts[i]) {
+			i++;
+		}
+		if (entryStream != null) {
+			entryStream.close();
+		}
+		entryIndex = i;
+		entryStream = zipFile.getInputStream(entries.get(i));
+		streamPosition = starts[i];
+		skip(position - streamPosition);
+		return true;
+	}
+
+	private void skip(long n) throws IOException {
+		while (0 < n) {
+			long skipped = entryStream.skip(n);
+			if (skipped <= 0) {
+				if (entryStream.read() == -1) {
+					throw new IOException(
+							"zip形式のファイルのエントリ(" + entries.get(entryIndex).getName() + ")が途中で終わっています。");
+				}
+				skipped = 1;
+			}
+			n -= skipped;
+			streamPosition += skipped;
+		}
+	}
+
+	private long getSize(ZipEntry entry) throws IOException {
+		if (0 <= entry.getSize()) {
+			return entry.getSize();
+		}
+		// セントラルディレクトリにサイズがない場合は展開して求める
+		long size = 0;
+		try (InputStream in = zipFile.getInputStream(entry)) {
+			long n;
+			while ((n = in.skip(Long.MAX_VALUE)) > 0) {
+				size += n;
+			}
+		}
+		return size;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+	}
+}
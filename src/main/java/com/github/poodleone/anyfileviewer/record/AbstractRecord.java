@@ -4,8 +4,12 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import com.github.poodleone.anyfileviewer.DataParser;
+import com.github.poodleone.anyfileviewer.RecordFormat;
+
 /**
- * レコードを表すクラスです.
+ * レコードを表すクラスです.<br>
+ * {@link #parseLazily(RecordFormat)}を使用した場合、レコードのパースは項目を初めて参照するまで行いません.
  */
 public abstract class AbstractRecord implements Record {
 	/** 内部処理用の項目のMap. */
@@ -15,11 +19,17 @@ public abstract class AbstractRecord implements Record {
 	private Map<String, Object> metaItemMap = new LinkedHashMap<>();
 
 	/** 項目のMap. */
-	private Map<String, Object> itemMap = new LinkedHashMap<>();
+	private CompactItemMap itemMap = new CompactItemMap(this);
 
 	/** レコードの元となるデータ. */
 	private Object rawData;
 
+	/** パースを遅延している場合のレコード形式(パース済みの場合はnull). */
+	private volatile RecordFormat lazyFormat;
+
+	/** パース中かどうか(パース中の項目の参照でパースが再実行されないようにする). */
+	private boolean parsing;
+
 	/**
 	 * レコードを生成します.
 	 * 
@@ -29,13 +39,62 @@ public abstract class AbstractRecord implements Record {
 		this.rawData = rawData;
 	}
 
+	/**
+	 * 項目名の表を指定してレコードを生成します.<br>
+	 * {@link #parseLazily(RecordFormat)}の前に項目を追加する場合に使用します(項目の追加後は項目名の表を変更できないため).
+	 * 
+	 * @param rawData レコードの元データとなるデータ
+	 * @param schema  項目名の表
+	 */
+	public AbstractRecord(Object rawData, RecordSchema schema) {
+		this.rawData = rawData;
+		itemMap.setSchema(schema);
+	}
+
+	/**
+	 * レコードのパースを、項目(メタデータ・内部処理用の項目を含む)を初めて参照するまで遅延します.<br>
+	 * パースで例外が発生した場合は、例外の内容をメタデータ項目[エラー]に設定します.
+	 * 
+	 * @param format パースに使用するレコード形式
+	 */
+	public void parseLazily(RecordFormat format) {
+		itemMap.setSchema(format.getSchema());
+		this.lazyFormat = format;
+	}
+
+	/**
+	 * パースを遅延している場合は、レコードをパースします.
+	 */
+	private void ensureParsed() {
+		if (lazyFormat == null) {
+			return;
+		}
+		synchronized (this) {
+			if (lazyFormat == null || parsing) {
+				return;
+			}
+			parsing = true;
+			try {
+				DataParser.parseRecord(this, lazyFormat);
+			} catch (RuntimeException e) {
+				Throwable cause = e.getCause() != null ? e.getCause() : e;
+				metaItemMap.put("[エラー]", "パースに失敗しました(" + cause + ")");
+			} finally {
+				parsing = false;
+				lazyFormat = null;
+			}
+		}
+	}
+
 	@Override
 	public Map<String, Object> getInnerItems() {
+		ensureParsed();
 		return innerItemMap;
 	}
 
 	@Override
 	public Map<String, Object> getMetaItems() {
+		ensureParsed();
 		return metaItemMap;
 	}
 
@@ -47,23 +106,27 @@ public abstract class AbstractRecord implements Record {
 
 	@Override
 	public Map<String, Object> getItems() {
+		ensureParsed();
 		return itemMap;
 	}
 
 	@Override
 	public String getValue(String name) {
+		ensureParsed();
 		return itemMap.getOrDefault(name, metaItemMap.getOrDefault(name, innerItemMap.getOrDefault(name, "")))
 				.toString();
 	}
 
 	@Override
 	public String getRawStringValue(String name) {
+		ensureParsed();
 		Object item = itemMap.get(name);
 		return item instanceof RecordItem ? ((RecordItem) item).toRawString() : "";
 	}
 	
 	@Override
 	public String getHexValue(String name) {
+		ensureParsed();
 		Object item = itemMap.get(name);
 		return item instanceof RecordItem ? ((RecordItem) item).toHexString() : "";
 	}
@@ -0,0 +1,329 @@
+package com.github.poodleone.anyfileviewer.record;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.poodleone.anyfileviewer.itemdefinition.ItemDefinition;
+
+/**
+ * レコードの項目のMapです.<br>
+ * 項目ごとに項目名のスロット・オフセット・項目定義を配列で保持し、{@link RecordItemImpl}は項目を参照した時点で生成します.
+ * 項目名は{@link RecordSchema}で共有し、スロットから項目の位置を配列で直接引きます. 項目の順序は追加順({@link java.util.LinkedHashMap}と同じ)です.<br>
+ * 項目の並びがどのレコードでも同じレイアウトの場合は、配列自体をレコード間で共有します(変更時にコピーします).<br>
+ * 変更は単一スレッドで行う必要がありますが、変更後の参照(項目の生成を含む)は複数のスレッドから同時に行えます.
+ */
+public class CompactItemMap extends AbstractMap<String, Object> {
+	private static final int[] EMPTY_INTS = new int[0];
+	private static final ItemDefinition[] EMPTY_DEFINITIONS = new ItemDefinition[0];
+
+	/** 項目が含まれるレコード. */
+	private final Record record;
+
+	/** 項目名の表. */
+	private RecordSchema schema = RecordSchema.DEFAULT;
+
+	/** 項目数. */
+	private int size;
+
+	/** 項目名のスロット. */
+	private int[] slots = EMPTY_INTS;
+
+	/** スロットごとの項目の位置+1(項目がないスロットは0). */
+	private int[] positions = EMPTY_INTS;
+
+	/** 項目のオフセット. */
+	private int[] offsets = EMPTY_INTS;
+
+	/** 項目定義(項目定義によらない値を設定した項目はnull). */
+	private ItemDefinition[] definitions = EMPTY_DEFINITIONS;
+
+	/** 項目の値(未生成の項目はnull). 参照時に生成するため、他のスレッドにも見えるようvolatileとします. */
+	private volatile Object[] values;
+
+	/** slots・positions・offsets・definitionsを他のレコードと共有しているかどうか. */
+	private boolean shared;
+
+	/**
+	 * 項目のMapを生成します.
+	 *
+	 * @param record 項目が含まれるレコード
+	 */
+	public CompactItemMap(Record record) {
+		this.record = record;
+	}
+
+	/**
+	 * @return 項目名の表
+	 */
+	public RecordSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * 項目名の表を設定します. 項目が追加済みの場合は何もしません.
+	 *
+	 * @param schema 項目名の表
+	 */
+	public void setSchema(RecordSchema schema) {
+		if (size == 0) {
+			this.schema = schema;
+		}
+	}
+
+	/**
+	 * 項目定義による項目を追加します.
+	 *
+	 * @param name       項目名
+	 * @param definition 項目定義
+	 * @param offset     項目のオフセット
+	 */
+	public void add(String name, ItemDefinition definition, int offset) {
+		int slot = schema.getSlot(name);
+		int index = indexOfSlot(slot);
+		if (index < 0) {
+			index = append(slot);
+		} else {
+			unshare();
+		}
+		offsets[index] = offset;
+		definitions[index] = definition;
+		if (values != null) {
+			values[index] = null;
+		}
+	}
+
+	/**
+	 * 項目の並びを設定します. 配列はコピーせずに共有するため、呼び出し元で変更しないでください.
+	 *
+	 * @param slots       項目名のスロット
+	 * @param positions   スロットごとの項目の位置({@link #indexSlots(int[])}で生成したもの)
+	 * @param offsets     項目のオフセット
+	 * @param definitions 項目定義
+	 */
+	public void setLayout(int[] slots, int[] positions, int[] offsets, ItemDefinition[] definitions) {
+		this.size = slots.length;
+		this.slots = slots;
+		this.positions = positions;
+		this.offsets = offsets;
+		this.definitions = definitions;
+		this.values = null;
+		this.shared = true;
+	}
+
+	/**
+	 * {@link #setLayout(int[], int[], int[], ItemDefinition[])}に渡す、スロットごとの項目の位置を生成します.
+	 *
+	 * @param slots 項目名のスロット
+	 * @return スロットごとの項目の位置
+	 */
+	public static int[] indexSlots(int[] slots) {
+		int[] positions = new int[Arrays.stream(slots).max().orElse(-1) + 1];
+		for (int i = 0; i < slots.length; i++) {
+			positions[slots[i]] = i + 1;
+		}
+		return positions;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public Object get(Object key) {
+		int index = indexOf(key);
+		return index >= 0 ? valueAt(index) : null;
+	}
+
+	@Override
+	public Object getOrDefault(Object key, Object defaultValue) {
+		int index = indexOf(key);
+		return index >= 0 ? valueAt(index) : defaultValue;
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		int slot = schema.getSlot(key);
+		int index = indexOfSlot(slot);
+		Object oldValue = null;
+		if (index < 0) {
+			index = append(slot);
+		} else {
+			oldValue = valueAt(index);
+			unshare();
+		}
+		definitions[index] = null;
+		valueArray()[index] = value;
+		return oldValue;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		Object oldValue = valueAt(index);
+		removeAt(index);
+		return oldValue;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		slots = EMPTY_INTS;
+		positions = EMPTY_INTS;
+		offsets = EMPTY_INTS;
+		definitions = EMPTY_DEFINITIONS;
+		values = null;
+		shared = false;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private int indexOf(Object key) {
+		if (!(key instanceof String)) {
+			return -1;
+		}
+		int slot = schema.indexOf((String) key);
+		return slot >= 0 ? indexOfSlot(slot) : -1;
+	}
+
+	private int indexOfSlot(int slot) {
+		return slot < positions.length ? positions[slot] - 1 : -1;
+	}
+
+	private Object valueAt(int index) {
+		Object[] values = this.values;
+		Object value = values != null ? values[index] : null;
+		if (value == null && definitions[index] != null) {
+			// 項目を初めて参照した時点で生成する.
+			// 複数のスレッドで同時に生成した場合はどちらかを保持する(RecordItemImplは不変のため、どちらを返しても同じ値になる)
+			value = new RecordItemImpl(record, definitions[index], offsets[index]);
+			valueArray()[index] = value;
+		}
+		return value;
+	}
+
+	private Object[] valueArray() {
+		Object[] values = this.values;
+		if (values == null) {
+			synchronized (this) {
+				values = this.values;
+				if (values == null) {
+					values = new Object[slots.length];
+					this.values = values;
+				}
+			}
+		}
+		return values;
+	}
+
+	private int append(int slot) {
+		if (shared || size == slots.length) {
+			int capacity = Integer.max(size * 2, 8);
+			slots = Arrays.copyOf(slots, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			definitions = Arrays.copyOf(definitions, capacity);
+			values = values != null ? Arrays.copyOf(values, capacity) : null;
+		}
+		if (shared || slot >= positions.length) {
+			positions = Arrays.copyOf(positions, Integer.max(slot + 1, positions.length));
+			shared = false;
+		}
+		slots[size] = slot;
+		positions[slot] = size + 1;
+		return size++;
+	}
+
+	private void unshare() {
+		if (shared) {
+			slots = slots.clone();
+			positions = positions.clone();
+			offsets = offsets.clone();
+			definitions = definitions.clone();
+			shared = false;
+		}
+	}
+
+	private void removeAt(int index) {
+		unshare();
+		int moved = size - index - 1;
+		positions[slots[index]] = 0;
+		for (int i = index + 1; i < size; i++) {
+			positions[slots[i]] = i;
+		}
+		System.arraycopy(slots, index + 1, slots, index, moved);
+		System.arraycopy(offsets, index + 1, offsets, index, moved);
+		System.arraycopy(definitions, index + 1, definitions, index, moved);
+		definitions[size - 1] = null;
+		if (values != null) {
+			System.arraycopy(values, index + 1, values, index, moved);
+			values[size - 1] = null;
+		}
+		size--;
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+		private int next;
+		private int last = -1;
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Map.Entry<String, Object> next() {
+			if (next >= size) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			int index = last;
+			return new AbstractMap.SimpleEntry<String, Object>(schema.getName(slots[index]), valueAt(index)) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public Object setValue(Object value) {
+					unshare();
+					definitions[index] = null;
+					valueArray()[index] = value;
+					return super.setValue(value);
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			removeAt(last);
+			next = last;
+			last = -1;
+		}
+	}
+}
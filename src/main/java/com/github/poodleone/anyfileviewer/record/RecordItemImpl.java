@@ -7,13 +7,13 @@ import com.github.poodleone.anyfileviewer.itemdefinition.ItemDefinition;
  */
 public class RecordItemImpl implements RecordItem {
 	/** この項目が含まれるレコード. */
-	private Record record;
+	private final Record record;
 
 	/** 項目定義. */
-	private ItemDefinition itemDefine;
+	private final ItemDefinition itemDefine;
 
 	/** 項目の開始位置までのオフセット. */
-	private int offset;
+	private final int offset;
 	
 	/** 値のキャッシュ */
 	private String valueCache;
@@ -0,0 +1,66 @@
+package com.github.poodleone.anyfileviewer.record;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * レコード形式ごとに共有する項目名の表です.<br>
+ * 項目名ごとに番号(スロット)を割り当て、同じ項目名の文字列はレコード間で同じインスタンスを使用します.
+ * {@link CompactItemMap}は項目名の代わりにスロットを保持します.
+ */
+public class RecordSchema {
+	/** レコード形式を持たないレコード用の項目名の表. */
+	static final RecordSchema DEFAULT = new RecordSchema();
+
+	/** 項目名のスロット(key: 項目名). */
+	private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+
+	/** スロットごとの項目名. */
+	private volatile String[] names = new String[0];
+
+	/**
+	 * 項目名のスロットを返します.
+	 *
+	 * @param name 項目名
+	 * @return スロット(未登録の項目名の場合は-1)
+	 */
+	public int indexOf(String name) {
+		Integer slot = slots.get(name);
+		return slot != null ? slot : -1;
+	}
+
+	/**
+	 * 項目名のスロットを返します. 未登録の項目名の場合は新しいスロットを割り当てます.
+	 *
+	 * @param name 項目名
+	 * @return スロット
+	 */
+	public int getSlot(String name) {
+		Integer slot = slots.get(name);
+		if (slot != null) {
+			return slot;
+		}
+		synchronized (this) {
+			slot = slots.get(name);
+			if (slot == null) {
+				String[] newNames = Arrays.copyOf(names, names.length + 1);
+				newNames[names.length] = name;
+				names = newNames;
+				slot = names.length - 1;
+				slots.put(name, slot);
+			}
+			return slot;
+		}
+	}
+
+	/**
+	 * スロットの項目名を返します.
+	 *
+	 * @param slot スロット
+	 * @return 項目名
+	 */
+	public String getName(int slot) {
+		return names[slot];
+	}
+}
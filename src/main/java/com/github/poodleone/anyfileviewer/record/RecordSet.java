@@ -4,6 +4,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 
 import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
 
 /**
  * レコードの集合を表すクラスです.
@@ -14,6 +15,9 @@ public class RecordSet extends ArrayList<Record> {
 	/** レコードの取得元ファイルのパス. */
 	private Path path;
 
+	/** レコードの読み込み元(複数ファイルを連結した読み込み元の場合は全ファイル). */
+	private FileSet source;
+
 	/** ファイル末尾まで読込済みかどうか. */
 	private boolean eof;
 
@@ -37,6 +41,20 @@ public class RecordSet extends ArrayList<Record> {
 		this.path = path;
 	}
 
+	/**
+	 * @return レコードの読み込み元
+	 */
+	public FileSet getSource() {
+		return source;
+	}
+
+	/**
+	 * @param source レコードの読み込み元
+	 */
+	public void setSource(FileSet source) {
+		this.source = source;
+	}
+
 	/**
 	 * @return ファイル末尾まで読込済みかどうか
 	 */
@@ -2,24 +2,69 @@ package com.github.poodleone.anyfileviewer.utils;
 
 import java.awt.Component;
 import java.awt.Cursor;
+import java.awt.FontMetrics;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
+import javax.swing.JTable;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
 
 /**
- * 列幅が自動調整できるJTableHeader.
+ * 列幅が自動調整できるJTableHeader.<br>
+ * 列幅はデータの幅に合わせますが、全行の幅は求めず、先頭・末尾・ランダムに選んだ行と表示中の行(最大でSAMPLE_ROWS件程度)の幅から求めます.
+ * 各行の値の取得と幅の計算はバックグラウンドで行い、計算が終わった列から順に列幅を変更します.
+ * テーブルモデルが{@link RowSnapshotModel}を実装していない場合、値の取得はイベントディスパッチスレッドで行います.
  */
 public class AutoFitTableHeader extends JTableHeader {
 	private static final long serialVersionUID = -5284198419983223628L;
 
+	/** 列幅の計算に使用する先頭・末尾の行数. */
+	private static final int EDGE_ROWS = 100;
+
+	/** 列幅の計算に使用する、ランダムに選んだ行数. */
+	private static final int RANDOM_ROWS = 300;
+
+	/** 全行で列幅を計算する最大行数(これより多い場合は一部の行で計算する). */
+	private static final int SAMPLE_ROWS = EDGE_ROWS * 2 + RANDOM_ROWS;
+
+	/** 全列の列幅を計算中の処理. */
+	private transient WidthCalculator widthCalculator;
+
+	/**
+	 * 行の値をバックグラウンドで取得できるテーブルモデルです.
+	 */
+	public interface RowSnapshotModel extends TableModel {
+		/**
+		 * 行の値を取得する処理を返します.<br>
+		 * このメソッドはイベントディスパッチスレッドで呼び出し、戻り値の処理はバックグラウンドで実行します.
+		 * 戻り値の処理は呼び出し時点の行の内容(レコード等)を保持し、その後のモデルの変更の影響を受けないようにしてください.
+		 *
+		 * @param rowIndex モデルでの行番号
+		 * @return モデルでの列番号から値を取得する処理
+		 */
+		IntFunction<Object> getRowSnapshot(int rowIndex);
+	}
+
 	/**
 	 * テーブルヘッダのインスタンスを生成します.
-	 * 
+	 *
 	 * @param columnModel
 	 */
 	public AutoFitTableHeader(TableColumnModel columnModel) {
@@ -49,38 +94,153 @@ public class AutoFitTableHeader extends JTableHeader {
 	}
 
 	/**
-	 * 列幅をデータの幅に合わせます.
+	 * 列幅をデータの幅に合わせます.<br>
+	 * 列幅はバックグラウンドで計算し、計算が終わった後に変更します.
 	 *
 	 * @param vc 表示列番号
 	 */
 	public void sizeWidthToFitData(int vc) {
-		TableColumn tc = columnModel.getColumn(vc);
-
-		// ヘッダの幅を取得
-		TableCellRenderer hr = table.getTableHeader().getDefaultRenderer();
-		Object headerText = tc.getHeaderValue();
-		int max = hr.getTableCellRendererComponent(table, headerText, false, false, 0, vc).getPreferredSize().width;
-
-		// 各行の幅で一番大きいサイズを取得
-		for (int i = 0; i < table.getRowCount(); i++) {
-			TableCellRenderer cr = table.getCellRenderer(i, vc);
-			Object value = table.getValueAt(i, vc);
-			Component c = cr.getTableCellRendererComponent(table, value, false, false, i, vc);
-			int w = c.getPreferredSize().width;
-			if (max < w) {
-				max = w;
-			}
+		new WidthCalculator(new int[] { vc }).execute();
+	}
+
+	/**
+	 * 列幅をデータの幅に合わせます.<br>
+	 * 列幅はバックグラウンドで計算し、計算が終わった列から順に変更します. 計算中に再度呼び出された場合は、計算中の処理を中止して計算し直します.
+	 */
+	public void sizeWidthToFitData() {
+		if (widthCalculator != null) {
+			widthCalculator.cancel(true);
+		}
+		widthCalculator = new WidthCalculator(IntStream.range(0, columnModel.getColumnCount()).toArray());
+		widthCalculator.execute();
+	}
+
+	/**
+	 * 列幅の計算に使用する行(表示行番号)を選びます.
+	 */
+	private int[] getSampleRows() {
+		int rowCount = table.getRowCount();
+		if (rowCount <= SAMPLE_ROWS) {
+			return IntStream.range(0, rowCount).toArray();
 		}
+		TreeSet<Integer> rows = new TreeSet<>();
+		IntStream.range(0, EDGE_ROWS).forEach(i -> {
+			rows.add(i);
+			rows.add(rowCount - 1 - i);
+		});
+		new Random().ints(RANDOM_ROWS, 0, rowCount).forEach(rows::add);
 
-		tc.setPreferredWidth(max + 5);
+		// 表示中の行
+		Rectangle visible = table.getVisibleRect();
+		int first = table.rowAtPoint(visible.getLocation());
+		int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+		if (first != -1) {
+			IntStream.rangeClosed(first, last == -1 ? rowCount - 1 : last).forEach(rows::add);
+		}
+		return rows.stream().mapToInt(Integer::intValue).toArray();
 	}
 
 	/**
-	 * 列幅をデータの幅に合わせます.
+	 * 列幅をバックグラウンドで計算する処理です.<br>
+	 * 計算に使用する行・列とセルの描画に使用するフォント、行の内容はイベントディスパッチスレッドで決定し、
+	 * セルの値の取得(文字列への変換)と文字列の幅の計算をバックグラウンドで行います.
 	 */
-	public void sizeWidthToFitData() {
-		for (int i = 0; i < columnModel.getColumnCount(); i++) {
-			sizeWidthToFitData(i);
+	private class WidthCalculator extends SwingWorker<Void, Object[]> {
+		private final JTable table = AutoFitTableHeader.this.table;
+		private final TableModel model = table.getModel();
+
+		/** 計算する列. */
+		private final TableColumn[] columns;
+
+		/** 計算する列のモデルでの列番号. */
+		private final int[] modelColumns;
+
+		/** 計算する列のヘッダの幅. */
+		private final int[] headerWidths;
+
+		/** 計算する列のセルの描画に使用するフォントの情報(行がない場合はnull). */
+		private final FontMetrics[] fontMetrics;
+
+		/** 計算する列のセルの余白の幅. */
+		private final int[] paddings;
+
+		/** 計算に使用する行の値を取得する処理(行の内容は計算の開始時点のもの). */
+		private final List<IntFunction<Object>> rows;
+
+		private WidthCalculator(int[] viewColumns) {
+			int[] viewRows = getSampleRows();
+			columns = new TableColumn[viewColumns.length];
+			modelColumns = new int[viewColumns.length];
+			headerWidths = new int[viewColumns.length];
+			fontMetrics = new FontMetrics[viewColumns.length];
+			paddings = new int[viewColumns.length];
+			for (int i = 0; i < viewColumns.length; i++) {
+				int vc = viewColumns[i];
+				columns[i] = columnModel.getColumn(vc);
+				modelColumns[i] = columns[i].getModelIndex();
+
+				// ヘッダの幅を取得
+				TableCellRenderer hr = table.getTableHeader().getDefaultRenderer();
+				Object headerText = columns[i].getHeaderValue();
+				headerWidths[i] = hr.getTableCellRendererComponent(table, headerText, false, false, 0, vc)
+						.getPreferredSize().width;
+
+				// セルの描画に使用するフォントと、値が空のときの幅(余白)を取得
+				if (0 < viewRows.length) {
+					TableCellRenderer cr = table.getCellRenderer(viewRows[0], vc);
+					Component c = cr.getTableCellRendererComponent(table, "", false, false, viewRows[0], vc);
+					fontMetrics[i] = c.getFontMetrics(c.getFont());
+					paddings[i] = c.getPreferredSize().width;
+				}
+			}
+
+			// バックグラウンドでの計算中にモデルの行が変わっても影響を受けないよう、行の内容をここで取得しておく
+			rows = new ArrayList<>(viewRows.length);
+			for (int viewRow : viewRows) {
+				int row = table.convertRowIndexToModel(viewRow);
+				if (model instanceof RowSnapshotModel) {
+					rows.add(((RowSnapshotModel) model).getRowSnapshot(row));
+				} else {
+					Map<Integer, Object> values = new HashMap<>();
+					for (int column : modelColumns) {
+						values.put(column, model.getValueAt(row, column));
+					}
+					rows.add(values::get);
+				}
+			}
+		}
+
+		@Override
+		protected Void doInBackground() {
+			for (int i = 0; i < columns.length; i++) {
+				int max = headerWidths[i];
+				if (fontMetrics[i] != null) {
+					for (IntFunction<Object> row : rows) {
+						if (isCancelled()) {
+							throw new CancellationException();
+						}
+						String value = Objects.toString(row.apply(modelColumns[i]), "");
+						max = Integer.max(max, paddings[i] + fontMetrics[i].stringWidth(value));
+					}
+				}
+				publish(new Object[] { columns[i], max });
+			}
+			return null;
+		}
+
+		@Override
+		protected void process(List<Object[]> chunks) {
+			if (isCancelled()) {
+				return;
+			}
+			chunks.forEach(e -> ((TableColumn) e[0]).setPreferredWidth((Integer) e[1] + 5));
+		}
+
+		@Override
+		protected void done() {
+			if (widthCalculator == this) {
+				widthCalculator = null;
+			}
 		}
 	}
 }
@@ -1,5 +1,8 @@
 package com.github.poodleone.anyfileviewer.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import javax.xml.bind.DatatypeConverter;
 
 /**
@@ -26,6 +29,49 @@ public class ByteUtils {
 		return r.toString();
 	}
 
+	/**
+	 * ByteBufferの内容を文字列に変換します.<br>
+	 * ByteBufferの位置(position)は変更しません.
+	 * 
+	 * @param data   ByteBuffer
+	 * @param offset 変換対象のオフセット(ByteBufferの先頭からの絶対位置)
+	 * @param length 変換対象の長さ
+	 * @return HEX表記の文字列
+	 */
+	public static String printHexBinary(ByteBuffer data, int offset, int length) {
+		StringBuilder r = new StringBuilder(length * 2);
+		for (int i = offset; i < offset + length; i++) {
+			byte b = data.get(i);
+			r.append(hexCode[(b >> 4) & 0xF]);
+			r.append(hexCode[(b & 0xF)]);
+		}
+		return r.toString();
+	}
+
+	/**
+	 * レコードの生データ(byte配列、ByteBufferまたは文字列)の長さを返します.<br>
+	 * 文字列の場合は、項目のオフセットと同じく文字数を長さとします.
+	 * 
+	 * @param rawData レコードの生データ
+	 * @return データの長さ
+	 * @throws NullPointerException          生データがnullの場合
+	 * @throws UnsupportedOperationException 長さを取得できない種類の生データの場合
+	 */
+	public static int length(Object rawData) {
+		if (rawData instanceof byte[]) {
+			return ((byte[]) rawData).length;
+		} else if (rawData instanceof ByteBuffer) {
+			return ((ByteBuffer) rawData).limit();
+		} else if (rawData instanceof CharSequence) {
+			return ((CharSequence) rawData).length();
+		} else if (rawData == null) {
+			throw new NullPointerException("レコードの生データがありません。");
+		} else {
+			throw new UnsupportedOperationException(
+					"レコードの生データ(" + rawData.getClass().getName() + ")の長さは取得できません。");
+		}
+	}
+
 	/**
 	 * HEX表記のバイナリデータをbyte配列にパースします.
 	 * 
@@ -35,4 +81,42 @@ public class ByteUtils {
 	public static byte[] parseHexBinary(String hexBinary) {
 		return DatatypeConverter.parseHexBinary(hexBinary);
 	}
+
+	/**
+	 * バイト配列に含まれるHEX表記(ASCII文字)のバイナリデータをbyte配列にパースします.<br>
+	 * 文字列へのデコードを行わない以外は{@link #parseHexBinary(String)}と同じです.
+	 * 
+	 * @param hexBinary HEX表記のバイナリデータを含むバイト配列
+	 * @param offset    パース対象のオフセット
+	 * @param length    パース対象の長さ
+	 * @return byte配列
+	 */
+	public static byte[] parseHexBinary(byte[] hexBinary, int offset, int length) {
+		if (length % 2 != 0) {
+			throw new IllegalArgumentException("hexBinary needs to be even-length: "
+					+ new String(hexBinary, offset, length, StandardCharsets.ISO_8859_1));
+		}
+		byte[] data = new byte[length / 2];
+		for (int i = 0; i < data.length; i++) {
+			int h = hexToBin(hexBinary[offset + i * 2]);
+			int l = hexToBin(hexBinary[offset + i * 2 + 1]);
+			if (h == -1 || l == -1) {
+				throw new IllegalArgumentException("contains illegal character for hexBinary: "
+						+ new String(hexBinary, offset, length, StandardCharsets.ISO_8859_1));
+			}
+			data[i] = (byte) (h * 16 + l);
+		}
+		return data;
+	}
+
+	private static int hexToBin(byte b) {
+		if ('0' <= b && b <= '9') {
+			return b - '0';
+		} else if ('A' <= b && b <= 'F') {
+			return b - 'A' + 10;
+		} else if ('a' <= b && b <= 'f') {
+			return b - 'a' + 10;
+		}
+		return -1;
+	}
 }
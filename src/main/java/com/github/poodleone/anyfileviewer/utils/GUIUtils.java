@@ -7,8 +7,12 @@ import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import javax.swing.AbstractButton;
 import javax.swing.Box;
@@ -159,17 +163,50 @@ public class GUIUtils {
 	 * @return 選択されたファイルのパス(キャンセルされた場合はnullを返します)
 	 */
 	public static Path showFileOpenDialog(Component parent, String title, Path selectedItem, JComponent accessory) {
+		JFileChooser filechooser = newFileOpenDialog(title, selectedItem, accessory);
+		int selected = filechooser.showOpenDialog(parent);
+		if (selected == JFileChooser.APPROVE_OPTION) {
+			return filechooser.getSelectedFile().toPath();
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * 複数のファイル・ディレクトリを選択できるファイル選択ダイアログを表示します.
+	 * 
+	 * @param parent       親コンポーネント
+	 * @param title        ダイアログのタイトル
+	 * @param selectedItem 初期選択のファイル(初期選択なしの場合はnullを指定します)
+	 * @param accessory    アクセサリコンポーネント(使用しない場合はnullを指定します)
+	 * @return 選択されたファイル・ディレクトリのパスのリスト(キャンセルされた場合は空のリストを返します)
+	 */
+	public static List<Path> showFilesOpenDialog(Component parent, String title, Path selectedItem,
+			JComponent accessory) {
+		JFileChooser filechooser = newFileOpenDialog(title, selectedItem, accessory);
+		filechooser.setMultiSelectionEnabled(true);
+		filechooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+		int selected = filechooser.showOpenDialog(parent);
+		if (selected == JFileChooser.APPROVE_OPTION) {
+			return Arrays.stream(getSelectedFiles(filechooser)).map(File::toPath).collect(Collectors.toList());
+		} else {
+			return Collections.emptyList();
+		}
+	}
+
+	private static JFileChooser newFileOpenDialog(String title, Path selectedItem, JComponent accessory) {
 		JFileChooser filechooser = new JFileChooser() {
 			private static final long serialVersionUID = 1L;
 
 			@Override
 			public void approveSelection() {
-				File file = getSelectedFile();
-				if (!file.exists()) {
-					String m = String.format("%s\nファイルが見つかりません。ファイル名を確認してください。", file.getName());
-					JOptionPane.showConfirmDialog(this, m, getDialogTitle(), JOptionPane.DEFAULT_OPTION,
-							JOptionPane.WARNING_MESSAGE);
-					return;
+				for (File file : GUIUtils.getSelectedFiles(this)) {
+					if (!file.exists()) {
+						String m = String.format("%s\nファイルが見つかりません。ファイル名を確認してください。", file.getName());
+						JOptionPane.showConfirmDialog(this, m, getDialogTitle(), JOptionPane.DEFAULT_OPTION,
+								JOptionPane.WARNING_MESSAGE);
+						return;
+					}
 				}
 				super.approveSelection();
 			}
@@ -190,12 +227,15 @@ public class GUIUtils {
 			filechooser.setSelectedFile(selectedItem.toFile());
 		}
 		filechooser.setDialogTitle(title);
-		int selected = filechooser.showOpenDialog(parent);
-		if (selected == JFileChooser.APPROVE_OPTION) {
-			return filechooser.getSelectedFile().toPath();
-		} else {
-			return null;
+		return filechooser;
+	}
+
+	private static File[] getSelectedFiles(JFileChooser filechooser) {
+		// 複数選択可能な場合でも、ファイル名を直接入力した場合はgetSelectedFilesが空になることがある
+		if (filechooser.isMultiSelectionEnabled() && filechooser.getSelectedFiles().length != 0) {
+			return filechooser.getSelectedFiles();
 		}
+		return new File[] { filechooser.getSelectedFile() };
 	}
 
 	/**
@@ -0,0 +1,63 @@
+package com.github.poodleone.anyfileviewer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.poodleone.anyfileviewer.reader.FileSet;
+import com.github.poodleone.anyfileviewer.reader.FileSetReader;
+import com.github.poodleone.anyfileviewer.record.Record;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link DataParser}のテスト.
+ */
+public class DataParserTest extends TestCase {
+	private Path configurationPath;
+	private RecordFormat recordFormat;
+	private List<Record> records = new ArrayList<>();
+
+	@Override
+	protected void setUp() throws Exception {
+		configurationPath = resource("fileDefinitions/filedefTest.properties");
+		recordFormat = new FileTypeConfiguration(configurationPath).getRecordFormatMap().get("電文ログファイル");
+		new FileSetReader(recordFormat.getReaderClass().newInstance()).load(FileSet.of(resource("test.txt")),
+				recordFormat, records::add);
+	}
+
+	/**
+	 * ファイル種類の設定の読み込み中も、他のスレッドでスクリプトの関数を使用した式を評価できること.
+	 */
+	public void testEvalWhileReloading() throws Exception {
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread evaluator = new Thread(() -> {
+			try {
+				for (int i = 0; running.get(); i++) {
+					Record record = records.get(i % records.size());
+					assertEquals("test" + record.getValue("SR"), DataParser.eval(record, "testFunc() + $(\"SR\")"));
+				}
+			} catch (Throwable e) {
+				error.set(e);
+			}
+		}, "dataParserTest");
+		evaluator.start();
+		try {
+			for (int i = 0; i < 50 && error.get() == null; i++) {
+				new FileTypeConfiguration(configurationPath);
+			}
+		} finally {
+			running.set(false);
+			evaluator.join();
+		}
+		assertNull(String.valueOf(error.get()), error.get());
+	}
+
+	private Path resource(String name) throws Exception {
+		return Paths.get(getClass().getClassLoader().getResource(name).toURI());
+	}
+}
@@ -0,0 +1,129 @@
+package com.github.poodleone.anyfileviewer;
+
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.poodleone.anyfileviewer.reader.FileSet;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link Exporter}のテスト.
+ */
+public class ExporterTest extends TestCase {
+	/** エクスポートの終了を待つ時間(ミリ秒). */
+	private static final long TIMEOUT = 30000;
+
+	private RecordFormat recordFormat;
+	private Path input;
+	private int parallelism;
+
+	@Override
+	protected void setUp() throws Exception {
+		FileTypeConfiguration configuration = new FileTypeConfiguration(
+				resource("fileDefinitions/filedefTest.properties"));
+		recordFormat = configuration.getRecordFormatMap().get("電文ログファイル");
+
+		// 並列エクスポートのキューが一杯になる件数のレコードを用意する
+		List<String> lines = Files.readAllLines(resource("test.txt"), StandardCharsets.UTF_8);
+		List<String> repeated = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			repeated.addAll(lines);
+		}
+		input = Files.createTempFile("exporterTest", ".txt");
+		Files.write(input, repeated, StandardCharsets.UTF_8);
+		parallelism = Exporter.getParallelism();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Exporter.setParallelism(parallelism);
+		Files.deleteIfExists(input);
+	}
+
+	/**
+	 * 出力できないディレクトリにレコード詳細を1レコード1ファイルでエクスポートした場合、並列エクスポートでも例外で終了すること.
+	 */
+	public void testExportDetailsFilesToMissingDirectory() throws Exception {
+		Path outputDir = Files.createTempDirectory("exporterTest").resolve("missing");
+		for (int threads : new int[] { 1, 4 }) {
+			Exporter.setParallelism(threads);
+			Throwable error = runWithTimeout(() -> Exporter.exportDetailsFiles(recordFormat, FileSet.of(input),
+					outputDir, Arrays.asList("[No.]"), ",", "", false, "'#'", "$(\"[No.]\") + '.txt'"));
+			assertTrue("parallelism=" + threads + ": " + error, error instanceof UncheckedIOException);
+		}
+	}
+
+	/**
+	 * レコードの処理で例外が発生した場合、並列エクスポートでも例外で終了すること.
+	 */
+	public void testExportDetailsWithFailingExpression() throws Exception {
+		Path output = Files.createTempFile("exporterTest", ".txt");
+		try {
+			for (int threads : new int[] { 1, 4 }) {
+				Exporter.setParallelism(threads);
+				Throwable error = runWithTimeout(() -> Exporter.exportDetails(recordFormat, FileSet.of(input), output,
+						Arrays.asList("[No.]"), ",", "", false, "undefinedFunction()"));
+				assertTrue("parallelism=" + threads + ": " + error, error instanceof RuntimeException);
+			}
+		} finally {
+			Files.deleteIfExists(output);
+		}
+	}
+
+	/**
+	 * 並列数によらず同じ内容をエクスポートすること.
+	 */
+	public void testExportListIsIndependentOfParallelism() throws Exception {
+		Path output = Files.createTempFile("exporterTest", ".csv");
+		try {
+			List<String> columns = new ArrayList<>(recordFormat.getListItems());
+			columns.add(0, "[No.]");
+			List<List<String>> results = new ArrayList<>();
+			for (int threads : new int[] { 1, 4 }) {
+				Exporter.setParallelism(threads);
+				Exporter.exportList(recordFormat, FileSet.of(input), output, columns, ",", "$(\"[No.]\") % 3 == 1",
+						true);
+				results.add(Files.readAllLines(output));
+			}
+			assertTrue(results.get(0).size() > 1);
+			assertEquals(results.get(0), results.get(1));
+		} finally {
+			Files.deleteIfExists(output);
+		}
+	}
+
+	/**
+	 * 処理を別スレッドで実行し、終了を待ちます.
+	 *
+	 * @param task 処理
+	 * @return 処理で発生した例外(例外が発生しなかった場合はnull)
+	 */
+	private static Throwable runWithTimeout(Runnable task) throws InterruptedException {
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			try {
+				task.run();
+			} catch (Throwable e) {
+				error.set(e);
+			}
+		}, "exporterTest");
+		thread.setDaemon(true);
+		thread.start();
+		thread.join(TIMEOUT);
+		assertFalse("エクスポートが終了しない", thread.isAlive());
+		return error.get();
+	}
+
+	private Path resource(String name) throws URISyntaxException {
+		return Paths.get(getClass().getClassLoader().getResource(name).toURI());
+	}
+}
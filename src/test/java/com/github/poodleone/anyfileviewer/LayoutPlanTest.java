@@ -0,0 +1,107 @@
+package com.github.poodleone.anyfileviewer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.poodleone.anyfileviewer.itemdefinition.InnerItemDefinition;
+import com.github.poodleone.anyfileviewer.itemdefinition.ItemDefinition;
+import com.github.poodleone.anyfileviewer.itemdefinition.ItemGroupDefinition;
+import com.github.poodleone.anyfileviewer.itemdefinition.MetaItemDefinition;
+import com.github.poodleone.anyfileviewer.itemdefinition.StringItemDefinition;
+import com.github.poodleone.anyfileviewer.record.AbstractRecord;
+import com.github.poodleone.anyfileviewer.record.Record;
+import com.github.poodleone.anyfileviewer.record.RecordItemImpl;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link LayoutPlan}のテスト.
+ */
+public class LayoutPlanTest extends TestCase {
+	@Override
+	protected void setUp() throws Exception {
+		// 式の評価に使用するスクリプトを読み込む
+		new FileTypeConfiguration(
+				Paths.get(getClass().getClassLoader().getResource("fileDefinitions/filedefTest.properties").toURI()));
+	}
+
+	/**
+	 * レコード末尾までの項目の後のメタデータ・内部処理用の項目は、DataParserのパースと同じオフセットになること.
+	 */
+	public void testItemsAfterItemToEnd() {
+		List<ItemDefinition> items = Arrays.asList( //
+				new StringItemDefinition("A", "3", StandardCharsets.US_ASCII, null),
+				new InnerItemDefinition("H1", "offset"),
+				new StringItemDefinition("B", "-1", StandardCharsets.US_ASCII, null),
+				new MetaItemDefinition("M", "offset + ':' + $(\"B\")"),
+				new InnerItemDefinition("H2", "offset"));
+		assertSameAsDataParser(items);
+	}
+
+	/**
+	 * 固定長の項目だけのレイアウトは、DataParserのパースと同じ項目になること.
+	 */
+	public void testFixedLengthItems() {
+		List<ItemDefinition> items = Arrays.asList( //
+				new MetaItemDefinition("M1", "offset"),
+				new StringItemDefinition("A", "2", StandardCharsets.US_ASCII, null),
+				new ItemGroupDefinition("G", Arrays.asList( //
+						new StringItemDefinition("A", "2", StandardCharsets.US_ASCII, null),
+						new MetaItemDefinition("M2", "offset")), "", null),
+				new StringItemDefinition("A", "1", StandardCharsets.US_ASCII, null));
+		assertSameAsDataParser(items);
+	}
+
+	/**
+	 * コンパイルしたレイアウトと、同じ項目を条件付きのグループに入れてコンパイルできないようにしたレイアウトで、
+	 * 様々な長さのレコードのパース結果が同じになることを確認します.
+	 */
+	private static void assertSameAsDataParser(List<ItemDefinition> items) {
+		RecordFormat compiled = newFormat(new ItemGroupDefinition("L", items, "", null));
+		RecordFormat interpreted = newFormat(new ItemGroupDefinition("L",
+				Collections.singletonList(new ItemGroupDefinition("", items, "true", null)), "", null));
+		assertNotNull(compiled.getLayoutPlan(compiled.getDumpLayoutDefinitions().get(0)));
+		assertNull(interpreted.getLayoutPlan(interpreted.getDumpLayoutDefinitions().get(0)));
+
+		for (String data : new String[] { "", "a", "abc", "abcdefgh" }) {
+			Map<String, String> expected = describe(newRecord(data, interpreted));
+			Map<String, String> actual = describe(newRecord(data, compiled));
+			assertEquals("data=" + data, expected, actual);
+		}
+	}
+
+	private static RecordFormat newFormat(ItemGroupDefinition layout) {
+		return new RecordFormat("test", Collections.emptyList(), Collections.singletonList(layout), null,
+				Collections.emptyMap(), Collections.emptyMap());
+	}
+
+	private static Record newRecord(String data, RecordFormat format) {
+		AbstractRecord record = new AbstractRecord(data.getBytes(StandardCharsets.US_ASCII)) {
+			@Override
+			public int getLength() {
+				return ((byte[]) getRawData()).length;
+			}
+		};
+		record.parseLazily(format);
+		return record;
+	}
+
+	/**
+	 * レコードの項目の名前・オフセット・値を列挙します.
+	 */
+	private static Map<String, String> describe(Record record) {
+		Map<String, String> result = new LinkedHashMap<>();
+		record.getItems().forEach((k, v) -> {
+			RecordItemImpl item = (RecordItemImpl) v;
+			result.put("item:" + k, item.getOffset() + ":" + item.getLength() + ":" + item);
+		});
+		record.getMetaItems().forEach((k, v) -> result.put("meta:" + k, String.valueOf(v)));
+		record.getInnerItems().forEach((k, v) -> result.put("inner:" + k, String.valueOf(v)));
+		return result;
+	}
+}
@@ -0,0 +1,159 @@
+package com.github.poodleone.anyfileviewer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.poodleone.anyfileviewer.DataParser.Param;
+import com.github.poodleone.anyfileviewer.reader.FileSet;
+import com.github.poodleone.anyfileviewer.reader.FileSetReader;
+import com.github.poodleone.anyfileviewer.record.Record;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link NativeExpression}のテスト. 同じ式をRhinoで評価した結果と比較します.
+ */
+public class NativeExpressionTest extends TestCase {
+	/** 評価時のパラメータの組み合わせ. */
+	private static final Param[][] PARAMS = { { new Param("offset", 0), new Param("value", "1") },
+			{ new Param("offset", 3), new Param("value", " 010 ") },
+			{ new Param("offset", -2), new Param("value", "") },
+			{ new Param("offset", 7), new Param("value", "1f") } };
+
+	private List<Record> records = new ArrayList<>();
+
+	@Override
+	protected void setUp() throws Exception {
+		RecordFormat recordFormat = new FileTypeConfiguration(resource("fileDefinitions/filedefTest.properties"))
+				.getRecordFormatMap().get("電文ログファイル");
+		new FileSetReader(recordFormat.getReaderClass().newInstance()).load(FileSet.of(resource("test.txt")),
+				recordFormat, records::add);
+	}
+
+	/**
+	 * 型変換と比較演算子・算術演算子の結果がRhinoと一致すること.
+	 */
+	public void testCoercionAndEquality() {
+		assertSameAsRhino("$(\"SR\") == \"RECV\"", "$(\"SR\") != \"SEND\"", "$(\"SR\") == $(\"SR\")",
+				"\"1\" == 1", "\"\" == 0", "\" 12 \" == 12", "\"1e3\" == 1000", "\"abc\" == 0", "null == 0",
+				"null == false", "null == null", "true == 1", "\"true\" == true", "1 === 1", "\"1\" === 1",
+				"null === null", "true !== 1", "\"abc\" < \"abd\"", "\"10\" < \"9\"", "\"10\" < 9", "\"a\" <= null",
+				"1 + \"2\"", "\"3\" * \"4\"", "\"3\" - 1", "+\"\"", "-\"abc\"", "1 / 0", "-1 / 0", "0 / 0",
+				"7 % 3", "true + 1", "null + 1", "\"a\" + null", "\"a\" + true", "$(\"SR\") + 1",
+				"$(\"SR\") + $(\"HIDDEN1\")", "offset + 1", "offset * 2 - 1", "offset == \"3\"", "value + 1", "value * 1",
+				"value == 1", "value === \"1\"", "value < 2", "$(\"Part1.ITEM1\") == \"t\"");
+	}
+
+	/**
+	 * $()等が返すJavaの文字列の真偽値(空文字列もtrue)への変換がRhinoと一致すること.
+	 */
+	public void testJavaStringTruthiness() {
+		assertSameAsRhino("$(\"SR\") ? \"t\" : \"f\"", "!$(\"SR\")", "!!$(\"HIDDEN1\")",
+				"$(\"NOITEM\") ? \"t\" : \"f\"", "$(\"SR\") && \"x\"", "$(\"SR\") || \"x\"",
+				"$(\"NOITEM\") || \"x\"", "$(\"SR\").substring(0, 0) ? 1 : 2", "$(\"SR\").trim().isEmpty()",
+				"\"\" ? 1 : 2", "0 || \"z\"", "value ? 1 : 2", "!value", "$(\"SR\").equals(\"RECV\") && offset",
+				"$hex(\"SR\") ? $hex(\"SR\") : \"-\"", "$str(\"SR\") || \"-\"");
+	}
+
+	/**
+	 * parseIntの基数の指定と省略時の判定(0xで始まる16進数、0で始まる8進数)がRhinoと一致すること.
+	 */
+	public void testParseInt() {
+		assertSameAsRhino("parseInt(\"08\")", "parseInt(\"010\")", "parseInt(\"0x1f\")", "parseInt(\"0X1F\")",
+				"parseInt(\"-0x10\")", "parseInt(\"+7\")", "parseInt(\"  -42abc\")", "parseInt(\"\")",
+				"parseInt(\"abc\")", "parseInt(null)", "parseInt(\"1f\", 16)", "parseInt(\"0x1f\", 16)",
+				"parseInt(\"0x1f\", 10)", "parseInt(\"12\", 0)", "parseInt(\"12\", 1)", "parseInt(\"12\", 37)",
+				"parseInt(\"z\", 36)", "parseInt(\"101\", 2)", "parseInt(\"12\", \"8\")", "parseInt(\"17\", 8.9)",
+				"parseInt(\"9007199254740993\") == 9007199254740992", "parseInt(\"123456789012345678901\") == 1.2345678901234568e20",
+				"parseInt(value)", "parseInt(value, 8)", "parseInt($(\"Part1.ITEM1\"), 36)", "parseInt(offset)");
+	}
+
+	/**
+	 * 文字列のメソッドの範囲外の位置や負数の指定の扱いがRhinoと一致すること.
+	 */
+	public void testStringMethods() {
+		assertSameAsRhino("\"abcdef\".substring(2)", "\"abcdef\".substring(4, 1)", "\"abcdef\".substring(-1, 2)",
+				"\"abcdef\".substring(2, 100)", "\"abcdef\".substring(\"x\")", "\"abcdef\".substring()",
+				"\"abcdef\".substr(-2)", "\"abcdef\".substr(1, 2)", "\"abcdef\".substr(10)",
+				"\"abcdef\".substr(-10, 3)", "\"abcdef\".substr(2, -1)", "\"abcdef\".substr()",
+				"\"abcdef\".slice(-3)", "\"abcdef\".slice(2, -1)", "\"abcdef\".slice(4, 2)", "\"abcdef\".slice(100)",
+				"\"abcdef\".slice(-100, 2)", "\"abcdef\".slice(1, 100)", "\"abcdef\".charAt(1)",
+				"\"abcdef\".charAt(10)", "\"abcdef\".charAt(-1)", "\"abcdef\".indexOf(\"c\")",
+				"\"abcdef\".indexOf(\"c\", 5)", "\"abcdef\".indexOf(\"z\")", "\"abcdef\".indexOf(\"\", 10)",
+				"\"abcdef\".length", "\"aBc\".toUpperCase() + \"aBc\".toLowerCase()", "value.substring(offset)",
+				"value.slice(-offset)", "$(\"SR\").substring(1, 3)", "$(\"SR\").substring(1) + 1",
+				"$(\"SR\").substring(offset)", "$(\"SR\").length()", "$(\"SR\").indexOf(\"E\")",
+				"$(\"SR\").toLowerCase().startsWith(\"r\")", "$(\"SR\").contains(\"C\")",
+				"$(\"SR\").substring(1, 3).length()", "$(\"SR\").substring(10)");
+	}
+
+	/**
+	 * Rhinoと同じ結果になるか確実でない式は、{@link NativeExpression}では例外をスローし、Rhinoで評価し直すこと.
+	 */
+	public void testFallback() {
+		assertFallback("1 / 3", "0.5 + 0", "offset / 10 + 0.01", "1e21 + 0", "+\"0x10\"", "parseInt(\"9007199254740993\")", "\"ab\".length / 4",
+				"$(\"SR\") === \"RECV\"", "$(\"SR\") !== $(\"SR\")", "$(\"SR\").length", "undefinedVariable");
+	}
+
+	/**
+	 * 式をコンパイルでき、全てのレコードとパラメータの組み合わせで評価結果(例外の有無を含む)がRhinoと一致することを検証します.
+	 */
+	private void assertSameAsRhino(String... expressions) {
+		for (String expression : expressions) {
+			NativeExpression compiled = DataParser.getNativeExpression(expression);
+			assertNotNull(expression, compiled);
+			for (Record record : records) {
+				for (Param[] params : PARAMS) {
+					String expected;
+					try {
+						expected = DataParser.evalByRhino(record, expression, params);
+					} catch (RuntimeException e) {
+						try {
+							compiled.eval(record, params);
+							fail(expression + ": Rhinoでは例外が発生します。");
+						} catch (RuntimeException expectedException) {
+						}
+						continue;
+					}
+					try {
+						assertEquals(expression, expected, compiled.eval(record, params));
+					} catch (NativeExpression.Unsupported e) {
+						fail(expression + ": Rhinoで評価し直しました。");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 式をコンパイルでき、{@link NativeExpression}での評価が例外となり、{@link DataParser#eval}の結果がRhinoと一致することを検証します.
+	 */
+	private void assertFallback(String... expressions) {
+		for (String expression : expressions) {
+			NativeExpression compiled = DataParser.getNativeExpression(expression);
+			assertNotNull(expression, compiled);
+			for (Record record : records) {
+				for (Param[] params : PARAMS) {
+					try {
+						compiled.eval(record, params);
+						fail(expression + ": Rhinoで評価し直す必要があります。");
+					} catch (NativeExpression.Unsupported e) {
+					}
+					String expected;
+					try {
+						expected = DataParser.evalByRhino(record, expression, params);
+					} catch (RuntimeException e) {
+						continue;
+					}
+					assertEquals(expression, expected, DataParser.eval(record, expression, params));
+				}
+			}
+		}
+	}
+
+	private Path resource(String name) throws Exception {
+		return Paths.get(getClass().getClassLoader().getResource(name).toURI());
+	}
+}
@@ -0,0 +1,88 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link FileSet}のテスト.
+ */
+public class FileSetTest extends TestCase {
+	private Path dir;
+
+	@Override
+	protected void setUp() throws Exception {
+		dir = Files.createTempDirectory("fileSetTest");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	/**
+	 * パスのリストで生成した読み込み元は、ワイルドカード・パス区切り文字・引用符を含むファイル名もそのまま扱うこと.
+	 */
+	public void testOfPathsWithSpecialCharacters() throws Exception {
+		List<Path> files = Arrays.asList(createFile("app[1].log"), createFile("a" + File.pathSeparator + "b.log"),
+				createFile("\"quoted\".log"), createFile("app1.log"));
+		FileSet source = FileSet.of(files);
+		assertEquals(files, source.getFiles());
+		assertEquals(files.get(0), source.getPath());
+
+		// 文字列に変換しても同じ読み込み元になること
+		FileSet parsed = FileSet.parse(source.toString());
+		assertEquals(source, parsed);
+		assertEquals(files, parsed.getFiles());
+	}
+
+	/**
+	 * ワイルドカードを含むファイル名のファイルを1つ指定した読み込み元は、単一のファイルとして扱うこと.
+	 */
+	public void testOfPathWithWildcard() throws Exception {
+		Path file = createFile("app*.log");
+		createFile("app1.log");
+		FileSet source = FileSet.of(file);
+		assertTrue(source.isSingleFile());
+		assertEquals(Arrays.asList(file), source.getFiles());
+	}
+
+	/**
+	 * 引用符で囲まないワイルドカードは、一致するファイルを数字順に並べること.
+	 */
+	public void testParseWildcard() throws Exception {
+		Path file10 = createFile("app.log.10");
+		Path file2 = createFile("app.log.2");
+		createFile("other.log");
+		FileSet source = FileSet.parse(" " + dir.resolve("app.log.*") + " " + File.pathSeparator);
+		assertFalse(source.isSingleFile());
+		assertEquals(Arrays.asList(file2, file10), source.getFiles());
+		assertEquals(dir, source.getPath());
+	}
+
+	/**
+	 * 引用符が閉じていない指定は不正とすること.
+	 */
+	public void testParseUnclosedQuote() {
+		try {
+			FileSet.parse("\"" + dir.resolve("app.log"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+
+	private Path createFile(String name) throws Exception {
+		return Files.createFile(dir.resolve(name));
+	}
+}
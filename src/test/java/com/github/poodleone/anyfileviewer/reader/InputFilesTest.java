@@ -0,0 +1,223 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link InputFiles}のテスト. gzip形式は{@link GZIPOutputStream}、zip形式は{@link ZipOutputStream}で作成したファイルを展開します.
+ */
+public class InputFilesTest extends TestCase {
+	/** チェックポイントを複数作成するための展開後のサイズ. */
+	private static final int LARGE_SIZE = (int) (GzipIndex.SPAN * 3 / 2);
+
+	private Path dir;
+
+	@Override
+	protected void setUp() throws Exception {
+		dir = Files.createTempDirectory("inputFilesTest");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	/**
+	 * 複数のメンバを連結したファイルは、各メンバを展開したデータを連結したものとして読み込むこと.
+	 */
+	public void testGzipMultiMember() throws Exception {
+		byte[] first = createData(LARGE_SIZE / 2, 1);
+		byte[] second = createData(LARGE_SIZE / 2, 2);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(gzip(first, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY));
+		out.write(gzip(second, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY));
+		byte[] data = concat(first, second);
+
+		Path file = write("multi.gz", out.toByteArray());
+		assertEquals(InputFiles.Compression.GZIP, InputFiles.getCompression(file));
+		assertContent(file, data);
+	}
+
+	/**
+	 * 無圧縮ブロックのみのファイルを読み込めること.
+	 */
+	public void testGzipStored() throws Exception {
+		byte[] data = createData(LARGE_SIZE, 3);
+		Path file = write("stored.gz", gzip(data, Deflater.NO_COMPRESSION, Deflater.DEFAULT_STRATEGY));
+		assertEquals(InputFiles.Compression.GZIP, InputFiles.getCompression(file));
+		assertContent(file, data);
+	}
+
+	/**
+	 * 一致長の距離を含まないハフマン符号化ブロックのみのファイルを読み込めること.
+	 */
+	public void testGzipHuffmanOnly() throws Exception {
+		byte[] data = createData(LARGE_SIZE, 4);
+		Path file = write("huffman.gz", gzip(data, Deflater.DEFAULT_COMPRESSION, Deflater.HUFFMAN_ONLY));
+		assertEquals(InputFiles.Compression.GZIP, InputFiles.getCompression(file));
+		assertContent(file, data);
+	}
+
+	/**
+	 * ディレクトリ以外のエントリを格納順に連結したデータとして読み込むこと.
+	 */
+	public void testZip() throws Exception {
+		byte[] first = createData(100000, 5);
+		byte[] second = createData(200000, 6);
+		byte[] third = createData(50000, 7);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(out)) {
+			zip.putNextEntry(new ZipEntry("a.log"));
+			zip.write(first);
+			zip.closeEntry();
+			zip.putNextEntry(new ZipEntry("dir/"));
+			zip.closeEntry();
+
+			ZipEntry stored = new ZipEntry("dir/b.log");
+			CRC32 crc = new CRC32();
+			crc.update(second);
+			stored.setMethod(ZipEntry.STORED);
+			stored.setSize(second.length);
+			stored.setCrc(crc.getValue());
+			zip.putNextEntry(stored);
+			zip.write(second);
+			zip.closeEntry();
+
+			zip.putNextEntry(new ZipEntry("c.log"));
+			zip.write(third);
+			zip.closeEntry();
+		}
+		byte[] data = concat(concat(first, second), third);
+
+		Path file = write("a.zip", out.toByteArray());
+		assertEquals(InputFiles.Compression.ZIP, InputFiles.getCompression(file));
+		assertContent(file, data);
+	}
+
+	/**
+	 * 先頭のバイト列がgzip形式・zip形式と一致しても、展開できないファイルは圧縮なしとして読み込むこと.
+	 */
+	public void testMagicBytesOnly() throws Exception {
+		Random random = new Random(8);
+		for (int i = 0; i < 10; i++) {
+			byte[] data = new byte[10000];
+			random.nextBytes(data);
+			data[0] = 0x1f;
+			data[1] = (byte) 0x8b;
+			data[2] = 8;
+			Path file = write("gzip" + i + ".bin", data);
+			assertEquals(InputFiles.Compression.NONE, InputFiles.getCompression(file));
+			assertContent(file, data);
+
+			data[0] = 'P';
+			data[1] = 'K';
+			data[2] = 3;
+			data[3] = 4;
+			file = write("zip" + i + ".bin", data);
+			assertEquals(InputFiles.Compression.NONE, InputFiles.getCompression(file));
+			assertContent(file, data);
+		}
+	}
+
+	/**
+	 * 全体を順に読み込んだ結果と、索引の作成前後の任意の位置からの読み込み結果が、元のデータと一致することを検証します.
+	 */
+	private void assertContent(Path file, byte[] expected) throws IOException {
+		Random random = new Random(expected.length);
+		assertPositionedReads(file, expected, random);
+
+		try (SeekableByteChannel channel = InputFiles.open(file)) {
+			assertTrue(Arrays.equals(expected, read(channel, expected.length + 1)));
+		}
+		assertEquals(expected.length, InputFiles.size(file));
+
+		assertPositionedReads(file, expected, random);
+	}
+
+	private void assertPositionedReads(Path file, byte[] expected, Random random) throws IOException {
+		try (SeekableByteChannel channel = InputFiles.open(file)) {
+			for (int i = 0; i < 10; i++) {
+				int position = random.nextInt(expected.length);
+				int length = random.nextInt(100000);
+				channel.position(position);
+				byte[] actual = read(channel, length);
+				int end = Integer.min(position + length, expected.length);
+				assertTrue("position: " + position, Arrays.equals(Arrays.copyOfRange(expected, position, end), actual));
+			}
+		}
+		int position = random.nextInt(expected.length);
+		try (SeekableByteChannel channel = InputFiles.open(file, position, position + 1000)) {
+			int end = Integer.min(position + 1000, expected.length);
+			assertTrue(Arrays.equals(Arrays.copyOfRange(expected, position, end), read(channel, 2000)));
+		}
+	}
+
+	/**
+	 * ファイル末尾、または指定したバイト数まで読み込みます.
+	 */
+	private static byte[] read(SeekableByteChannel channel, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+		}
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	/**
+	 * 圧縮できる程度に繰り返しを含むテキストデータを作成します.
+	 */
+	private static byte[] createData(int size, long seed) {
+		Random random = new Random(seed);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size + 100);
+		while (out.size() < size) {
+			String line = String.format("%08d,ITEM%03d,%s%n", out.size(), random.nextInt(1000),
+					Long.toString(random.nextLong(), 36));
+			byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+			out.write(bytes, 0, bytes.length);
+		}
+		return Arrays.copyOf(out.toByteArray(), size);
+	}
+
+	private static byte[] gzip(byte[] data, int level, int strategy) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (OutputStream gzip = new GZIPOutputStream(out) {
+			{
+				def.setLevel(level);
+				def.setStrategy(strategy);
+			}
+		}) {
+			gzip.write(data);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] concat(byte[] a, byte[] b) {
+		byte[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	private Path write(String name, byte[] data) throws IOException {
+		return Files.write(dir.resolve(name), data);
+	}
+}
@@ -0,0 +1,181 @@
+package com.github.poodleone.anyfileviewer.reader;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import com.github.poodleone.anyfileviewer.FileTypeConfiguration;
+import com.github.poodleone.anyfileviewer.RecordFormat;
+import com.github.poodleone.anyfileviewer.record.Record;
+import com.github.poodleone.anyfileviewer.record.RecordSet;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link RecordFollower}のテスト.
+ */
+public class RecordFollowerTest extends TestCase {
+	/** 通知を待つ時間(ミリ秒). */
+	private static final long TIMEOUT = 10000;
+
+	private RecordFormat recordFormat;
+	private Path dir;
+
+	/** 通知されたレコードのデータ(16進数). */
+	private BlockingQueue<String> appended = new LinkedBlockingQueue<>();
+
+	@Override
+	protected void setUp() throws Exception {
+		Path path = Paths.get(getClass().getClassLoader().getResource("fileDefinitions/filedefTest.properties").toURI());
+		recordFormat = new FileTypeConfiguration(path).getRecordFormatMap().get("電文ログファイル");
+		dir = Files.createTempDirectory("recordFollowerTest");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	/**
+	 * 末尾のページの読み込み後、監視の開始までに追記されたレコードも通知すること.
+	 */
+	public void testAppendedBeforeStart() throws Exception {
+		Path file = dir.resolve("a.log");
+		append(file, 0, 250);
+		FileSet source = FileSet.of(file);
+		RecordReader reader = recordFormat.getReaderClass().newInstance();
+		RecordSet page = new FileSetReader(reader).load(source, recordFormat, -1, 100, (record, offset) -> {
+		});
+		assertEquals(250, page.getOffeset() + page.size());
+
+		append(file, 250, 5);
+		try (RecordFollower follower = new RecordFollower(reader, recordFormat, source,
+				page.getOffeset() + page.size(), new TestListener())) {
+			follower.start();
+			append(file, 255, 5);
+			assertAppended(250, 10);
+		}
+	}
+
+	/**
+	 * 大きなファイルの場合、読み込み済みのレコードの直前の索引の位置から読み込み、それより前のレコードを生成しないこと.
+	 */
+	public void testStartsFromIndexedPosition() throws Exception {
+		Path file = dir.resolve("a.log");
+		append(file, 0, 3500);
+		FileSet source = FileSet.of(file);
+		RecordSet page = new FileSetReader(recordFormat.getReaderClass().newInstance()).load(source, recordFormat, -1,
+				100, (record, offset) -> {
+				});
+		assertEquals(3500, page.getOffeset() + page.size());
+
+		AtomicInteger created = new AtomicInteger();
+		RecordReader reader = new HexDumpLinesReader() {
+			@Override
+			protected Record readRecord(ByteLine line, RecordFormat format) {
+				created.incrementAndGet();
+				return super.readRecord(line, format);
+			}
+		};
+		try (RecordFollower follower = new RecordFollower(reader, recordFormat, source,
+				page.getOffeset() + page.size(), new TestListener())) {
+			follower.start();
+			append(file, 3500, 5);
+			assertAppended(3500, 5);
+		}
+		// 索引の位置(3000件目)から読み込みを開始する
+		assertEquals(505, created.get());
+	}
+
+	/**
+	 * 読み込み元が複数ファイルの場合、最後のファイルの読み込み済みのレコードの直後から通知すること.
+	 */
+	public void testMultipleFiles() throws Exception {
+		append(dir.resolve("a.log"), 0, 30);
+		Path file = dir.resolve("b.log");
+		append(file, 30, 20);
+		FileSet source = FileSet.of(dir);
+		RecordReader reader = recordFormat.getReaderClass().newInstance();
+		RecordSet page = new FileSetReader(reader).load(source, recordFormat, -1, 100, (record, offset) -> {
+		});
+		assertEquals(50, page.getOffeset() + page.size());
+
+		append(file, 50, 3);
+		try (RecordFollower follower = new RecordFollower(reader, recordFormat, source,
+				page.getOffeset() + page.size(), new TestListener())) {
+			follower.start();
+			assertAppended(50, 3);
+		}
+	}
+
+	/**
+	 * 監視の開始時にファイルが存在しない場合、作成されたファイルのレコードを通知すること.
+	 */
+	public void testMissingFileAtStart() throws Exception {
+		Path file = dir.resolve("a.log");
+		FileSet source = FileSet.of(file);
+		try (RecordFollower follower = new RecordFollower(recordFormat.getReaderClass().newInstance(), recordFormat,
+				source, 0, new TestListener())) {
+			follower.start();
+			Thread.sleep(100);
+			append(file, 0, 3);
+			assertAppended(0, 3);
+		}
+	}
+
+	/**
+	 * ファイルにレコードを追記します. レコードのデータは連番で始まります.
+	 */
+	private static void append(Path file, int first, int count) throws Exception {
+		List<String> lines = new ArrayList<>();
+		for (int i = first; i < first + count; i++) {
+			lines.add("2019-06-30\t17:01:27.424\t" + (i % 2 == 0 ? "SEND" : "RECV") + "\t"
+					+ String.format("%08x", i) + "616263");
+		}
+		Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	private void assertAppended(int first, int count) throws InterruptedException {
+		for (int i = first; i < first + count; i++) {
+			String value = appended.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+			assertEquals(String.format("%08x", i) + "616263", value);
+		}
+		assertNull(appended.poll(1000, TimeUnit.MILLISECONDS));
+	}
+
+	private class TestListener implements RecordFollower.Listener {
+		@Override
+		public void appended(List<Record> records) {
+			for (Record record : records) {
+				StringBuilder sb = new StringBuilder();
+				for (byte b : record.<byte[]> getRawData()) {
+					sb.append(String.format("%02x", b));
+				}
+				appended.add(sb.toString());
+			}
+		}
+
+		@Override
+		public void rotated(Path path) {
+		}
+
+		@Override
+		public void failed(Exception e) {
+			appended.add(e.toString());
+		}
+	}
+}
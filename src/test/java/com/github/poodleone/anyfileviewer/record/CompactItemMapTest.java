@@ -0,0 +1,82 @@
+package com.github.poodleone.anyfileviewer.record;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.poodleone.anyfileviewer.itemdefinition.ItemDefinition;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link CompactItemMap}のテスト.
+ */
+public class CompactItemMapTest extends TestCase {
+	private RecordSchema schema = new RecordSchema();
+
+	/**
+	 * 追加・上書き・削除の結果がLinkedHashMapと同じになること.
+	 */
+	public void testSameAsLinkedHashMap() {
+		CompactItemMap map = newMap();
+		Map<String, Object> expected = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			putBoth(map, expected, "item" + i, i);
+		}
+		putBoth(map, expected, "item3", "overwritten");
+		for (int i = 0; i < 20; i += 3) {
+			assertEquals(expected.remove("item" + i), map.remove("item" + i));
+		}
+		putBoth(map, expected, "item0", "readded");
+		Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getKey().equals("item5")) {
+				iterator.remove();
+			}
+		}
+		expected.remove("item5");
+
+		assertEquals(expected, map);
+		assertEquals(Arrays.asList(expected.keySet().toArray()), Arrays.asList(map.keySet().toArray()));
+		for (String key : expected.keySet()) {
+			assertEquals(key, expected.get(key), map.get(key));
+		}
+		assertFalse(map.containsKey("item5"));
+		assertFalse(map.containsKey("unknown"));
+	}
+
+	/**
+	 * 共有している項目の並びを変更しても、共有元のレコードの項目は変わらないこと.
+	 */
+	public void testSharedLayoutIsCopiedOnWrite() {
+		int[] slots = { schema.getSlot("a"), schema.getSlot("b"), schema.getSlot("c") };
+		int[] positions = CompactItemMap.indexSlots(slots);
+		ItemDefinition[] definitions = new ItemDefinition[3];
+		CompactItemMap map1 = newMap();
+		CompactItemMap map2 = newMap();
+		map1.setLayout(slots, positions, new int[3], definitions);
+		map2.setLayout(slots, positions, new int[3], definitions);
+
+		map1.remove("a");
+		map1.put("d", "d");
+		map1.put("c", "c");
+
+		assertEquals(Arrays.asList("b", "c", "d"), Arrays.asList(map1.keySet().toArray()));
+		assertEquals("c", map1.get("c"));
+		assertEquals(Arrays.asList("a", "b", "c"), Arrays.asList(map2.keySet().toArray()));
+		assertTrue(map2.containsKey("a"));
+		assertFalse(map2.containsKey("d"));
+		assertNull(map2.get("c"));
+	}
+
+	private CompactItemMap newMap() {
+		CompactItemMap map = new CompactItemMap(null);
+		map.setSchema(schema);
+		return map;
+	}
+
+	private static void putBoth(Map<String, Object> map, Map<String, Object> expected, String key, Object value) {
+		assertEquals(expected.put(key, value), map.put(key, value));
+	}
+}